@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm;
+
+import lombok.Data;
+
+/**
+ * Settings of adaptive operation timeouts. The timeout of an operation is the given percentile of its recent latencies
+ * multiplied by the factor and clamped between min and max timeout. Until enough latencies are recorded the max timeout
+ * is used.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+@Data
+public class AdaptiveTimeoutConfiguration {
+
+    private double percentile = 99;
+
+    private double factor = 2;
+
+    /**
+     * The minimum timeout in milliseconds.
+     */
+    private long minTimeout = 5;
+
+    /**
+     * The maximum timeout in milliseconds.
+     */
+    private long maxTimeout = 1000;
+
+    /**
+     * The number of recorded latencies of an operation required to use adaptive timeout.
+     */
+    private int minSamples = 100;
+
+    /**
+     * The length of a latency window in milliseconds, latencies older than two windows are forgotten.
+     */
+    private long latencyWindow = 60000;
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.code.ssm.util.LatencyTracker;
+
+/**
+ * Tracks latencies per operation and per key count bucket (1, 2, 3-4, 5-8, ... keys) and derives timeouts from them.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+class AdaptiveTimeouts {
+
+    enum Operation {
+        GET, GET_BULK, SET
+    }
+
+    private static final int KEY_COUNT_BUCKETS = 12;
+
+    private final AdaptiveTimeoutConfiguration configuration;
+
+    private final LatencyTracker[][] trackers;
+
+    AdaptiveTimeouts(final AdaptiveTimeoutConfiguration configuration) {
+        if (configuration.getMinTimeout() > configuration.getMaxTimeout()) {
+            throw new IllegalArgumentException("Min timeout cannot be greater than max timeout");
+        }
+
+        this.configuration = configuration;
+        this.trackers = new LatencyTracker[Operation.values().length][KEY_COUNT_BUCKETS];
+        for (LatencyTracker[] operationTrackers : trackers) {
+            for (int i = 0; i < operationTrackers.length; i++) {
+                operationTrackers[i] = new LatencyTracker(configuration.getLatencyWindow(), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * 
+     * @return timeout in milliseconds
+     */
+    long getTimeout(final Operation operation, final int keyCount) {
+        final LatencyTracker tracker = getTracker(operation, keyCount);
+        if (tracker.getCount() < configuration.getMinSamples()) {
+            return configuration.getMaxTimeout();
+        }
+
+        final double percentile = tracker.getPercentile(configuration.getPercentile()) * configuration.getFactor();
+        final long timeout = (long) Math.ceil(percentile / TimeUnit.MILLISECONDS.toNanos(1));
+        return Math.min(configuration.getMaxTimeout(), Math.max(configuration.getMinTimeout(), timeout));
+    }
+
+    /**
+     * Records latency of an operation. Timed out operations should be recorded too, otherwise the percentile could only
+     * go down.
+     */
+    void record(final Operation operation, final int keyCount, final long nanos) {
+        getTracker(operation, keyCount).record(nanos);
+    }
+
+    private LatencyTracker getTracker(final Operation operation, final int keyCount) {
+        final int bucket = keyCount <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(keyCount - 1);
+        return trackers[operation.ordinal()][Math.min(bucket, KEY_COUNT_BUCKETS - 1)];
+    }
+
+}
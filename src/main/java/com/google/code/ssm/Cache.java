@@ -17,12 +17,14 @@
 
 package com.google.code.ssm;
 
+import java.lang.reflect.Type;
 import java.net.SocketAddress;
 import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.TimeoutException;
 
 import com.google.code.ssm.api.format.SerializationType;
+import com.google.code.ssm.counter.HyperLogLog;
 import com.google.code.ssm.providers.CacheException;
 
 /**
@@ -154,9 +156,112 @@ public interface Cache {
      */
     <T> T get(final String key, final SerializationType serializationType) throws TimeoutException, CacheException;
 
+    /**
+     * Get value by key. If JSON serialization in type directed mode is used, the value is read using the given type
+     * instead of type information stored with the value.
+     * 
+     * @param <T>
+     * @param key
+     *            the key
+     * @param serializationType
+     *            the type of serialization to use
+     * @param type
+     *            the declared type of the value
+     * @return value associated with given key or null
+     * @throws TimeoutException
+     * @throws CacheException
+     * @since 4.1.4
+     */
+    <T> T get(final String key, final SerializationType serializationType, final Type type) throws TimeoutException, CacheException;
+
+    /**
+     * 
+     * @return true if the underlying client supports changing expiration of items, so
+     *         {@link #getAndTouch(String, int, SerializationType)} and {@link #touch(String, int)} can be used
+     * @since 4.1.4
+     */
+    boolean isTouchSupported();
+
+    /**
+     * Get value by key and set new expiration of the item in the same request, so frequently read values stay in cache
+     * without sending them again.
+     * 
+     * @param <T>
+     * @param key
+     *            the key
+     * @param expiration
+     *            new expiration time in seconds as defined in memcached specification
+     * @param serializationType
+     *            the type of serialization to use
+     * @return value associated with given key or null
+     * @throws TimeoutException
+     * @throws CacheException
+     * @throws UnsupportedOperationException
+     *             if the underlying client doesn't support touch, see {@link #isTouchSupported()}
+     * @since 4.1.4
+     */
+    <T> T getAndTouch(final String key, final int expiration, final SerializationType serializationType) throws TimeoutException,
+            CacheException;
+
+    /**
+     * Get value by key and set new expiration of the item in the same request. If JSON serialization in type directed
+     * mode is used, the value is read using the given type.
+     * 
+     * @param <T>
+     * @param key
+     *            the key
+     * @param expiration
+     *            new expiration time in seconds as defined in memcached specification
+     * @param serializationType
+     *            the type of serialization to use
+     * @param type
+     *            the declared type of the value
+     * @return value associated with given key or null
+     * @throws TimeoutException
+     * @throws CacheException
+     * @throws UnsupportedOperationException
+     *             if the underlying client doesn't support touch, see {@link #isTouchSupported()}
+     * @since 4.1.4
+     */
+    <T> T getAndTouch(final String key, final int expiration, final SerializationType serializationType, final Type type)
+            throws TimeoutException, CacheException;
+
+    /**
+     * Set new expiration of the item without reading or sending its value.
+     * 
+     * @param key
+     *            the key
+     * @param expiration
+     *            new expiration time in seconds as defined in memcached specification
+     * @return true if the item exists and its expiration has been changed
+     * @throws TimeoutException
+     * @throws CacheException
+     * @throws UnsupportedOperationException
+     *             if the underlying client doesn't support touch, see {@link #isTouchSupported()}
+     * @since 4.1.4
+     */
+    boolean touch(final String key, final int expiration) throws TimeoutException, CacheException;
+
     Map<String, Object> getBulk(final Collection<String> keys, final SerializationType serializationType)
             throws TimeoutException, CacheException;
 
+    /**
+     * Get values by keys. If JSON serialization in type directed mode is used, values are read using the given type.
+     * 
+     * @param keys
+     *            the keys
+     * @param serializationType
+     *            the type of serialization to use
+     * @param type
+     *            the declared type of values
+     * @return map of found values
+     * @throws TimeoutException
+     * @throws CacheException
+     * @since 4.1.4
+     */
+    Map<String, Object> getBulk(final Collection<String> keys, final SerializationType serializationType, final Type type)
+            throws TimeoutException, CacheException;
+
     /**
      * Increments counter in cache by given value.
      * 
@@ -207,6 +312,28 @@ public interface Cache {
     <T> void set(final String key, final int expiration, final Object value, final SerializationType serializationType)
             throws TimeoutException, CacheException;
 
+    /**
+     * Store key-value item to memcached. If JSON serialization in type directed mode is used and the value is an
+     * instance of the given type, the value is stored without type information.
+     * 
+     * @param <T>
+     * @param key
+     *            stored key
+     * @param expiration
+     *            expiration time in seconds as defined in memcached specification
+     * @param value
+     *            stored data
+     * @param serializationType
+     *            the type of serialization to use
+     * @param type
+     *            the declared type of the value
+     * @throws TimeoutException
+     * @throws CacheException
+     * @since 4.1.4
+     */
+    <T> void set(final String key, final int expiration, final Object value, final SerializationType serializationType,
+            final Type type) throws TimeoutException, CacheException;
+
     /**
      * Store key-value item to memcached. Mute some exceptions.
      * 
@@ -224,6 +351,25 @@ public interface Cache {
      */
     <T> void setSilently(final String key, final int expiration, final Object value, final SerializationType serializationType);
 
+    /**
+     * Store key-value item to memcached using the declared type of the value. Mute some exceptions.
+     * 
+     * @param <T>
+     * @param key
+     *            stored key
+     * @param expiration
+     *            expiration time in seconds as defined in memcached specification
+     * @param value
+     *            stored data
+     * @param serializationType
+     *            the type of serialization to use
+     * @param type
+     *            the declared type of the value
+     * @since 4.1.4
+     */
+    <T> void setSilently(final String key, final int expiration, final Object value, final SerializationType serializationType,
+            final Type type);
+
     /**
      * Gets counter from cache without incrementing.
      * 
@@ -234,6 +380,42 @@ public interface Cache {
      */
     Long getCounter(final String key) throws TimeoutException, CacheException;
 
+    /**
+     * Gets counters from cache without incrementing. Counters that don't exist in cache are not included in the
+     * result.
+     * 
+     * @param keys
+     * @return the values of counters found in cache
+     * @throws CacheException
+     * @throws TimeoutException
+     * @since 4.1.4
+     */
+    Map<String, Long> getCounters(final Collection<String> keys) throws TimeoutException, CacheException;
+
+    /**
+     * Gets HyperLogLog sketches stored by {@link #setHyperLogLog(String, int, HyperLogLog)}. Sketches that don't exist in
+     * cache are not included in the result.
+     * 
+     * @param keys
+     * @return the sketches found in cache
+     * @throws CacheException
+     * @throws TimeoutException
+     * @since 4.1.4
+     */
+    Map<String, HyperLogLog> getHyperLogLogs(final Collection<String> keys) throws TimeoutException, CacheException;
+
+    /**
+     * Stores HyperLogLog sketch as raw bytes of its registers.
+     * 
+     * @param key
+     * @param expiration
+     * @param hyperLogLog
+     * @throws CacheException
+     * @throws TimeoutException
+     * @since 4.1.4
+     */
+    void setHyperLogLog(final String key, final int expiration, final HyperLogLog hyperLogLog) throws TimeoutException, CacheException;
+
     /**
      * Sets initial value of counter.
      * 
@@ -47,6 +47,12 @@ import com.google.code.ssm.providers.CacheClient;
 import com.google.code.ssm.providers.CacheClientFactory;
 import com.google.code.ssm.providers.CacheConfiguration;
 import com.google.code.ssm.providers.CacheTranscoder;
+import com.google.code.ssm.providers.circuit.CircuitBreaker;
+import com.google.code.ssm.providers.circuit.CircuitBreakerCacheClient;
+import com.google.code.ssm.providers.circuit.CircuitBreakerConfiguration;
+import com.google.code.ssm.providers.circuit.CircuitBreakerListener;
+import com.google.code.ssm.providers.migration.MigrationConfiguration;
+import com.google.code.ssm.providers.migration.RecentKeys;
 import com.google.code.ssm.transcoders.JavaTranscoder;
 import com.google.code.ssm.transcoders.JsonTranscoder;
 
@@ -97,6 +103,72 @@ public class CacheFactory implements AddressChangeListener, FactoryBean<Cache>,
     @Setter
     private boolean initializeTranscoders = true;
 
+    /**
+     * If set, the cache client is guarded by a circuit breaker that bypasses memcached when it's unhealthy.
+     * 
+     * @since 4.1.4
+     */
+    @Setter
+    private CircuitBreakerConfiguration circuitBreakerConfiguration;
+
+    @Setter
+    private List<CircuitBreakerListener> circuitBreakerListeners = Collections.emptyList();
+
+    private CircuitBreaker circuitBreaker;
+
+    /**
+     * If set, timeouts of get, bulk get and set operations using transcoders are derived from observed latencies.
+     * 
+     * @since 4.1.4
+     */
+    @Setter
+    private AdaptiveTimeoutConfiguration adaptiveTimeoutConfiguration;
+
+    /**
+     * If set, the cache client is replaced gracefully when memcached addresses change: the old client is used as a
+     * fallback for misses during the migration window and closed after in-flight operations drain.
+     * 
+     * @since 4.1.4
+     */
+    @Setter
+    private MigrationConfiguration migrationConfiguration;
+
+    /**
+     * If true, values returned by bulk get using transcoders are decoded on first access instead of all at once.
+     * 
+     * @since 4.1.4
+     */
+    @Setter
+    private boolean lazyBulkDecoding;
+
+    /**
+     * If set, large results of bulk get using transcoders are decoded in parallel. Ignored if lazy bulk decoding is
+     * enabled.
+     * 
+     * @since 4.1.4
+     */
+    @Setter
+    private ParallelDecodingConfiguration parallelDecodingConfiguration;
+
+    /**
+     * If set, values bigger than memcached item size limit and stored using transcoders are split into chunks.
+     * 
+     * @since 4.1.4
+     */
+    @Setter
+    private ChunkingConfiguration chunkingConfiguration;
+
+    /**
+     * If true, null values cached by {@link com.google.code.ssm.api.ReadThroughMultiCacheOption#addNullsToCache()} and
+     * other null results stored using transcoders are written as an empty item with a reserved flag instead of a
+     * serialized marker object. Markers stored before are still recognized. Empty items with the flag are read as
+     * nulls even if this option is disabled, so it can be enabled node by node.
+     * 
+     * @since 4.1.4
+     */
+    @Setter
+    private boolean nullMarker;
+
     @Autowired(required = false)
     private CacheBase cacheBase;
 
@@ -107,6 +179,11 @@ public class CacheFactory implements AddressChangeListener, FactoryBean<Cache>,
         Assert.notNull(cacheClientFactory, "'cacheClientFactory' is required and cannot be null");
         Assert.notNull(cacheName, "'cacheName' cannot be null");
         Assert.notNull(defaultSerializationType, "'defaultSerializationType' cannot be null");
+        if (migrationConfiguration != null) {
+            final int expiration = migrationConfiguration.getWriteForwardExpiration();
+            Assert.isTrue(expiration > 0 && expiration <= MigrationConfiguration.MAX_WRITE_FORWARD_EXPIRATION,
+                    "'migrationConfiguration.writeForwardExpiration' must be between 1 second and 30 days");
+        }
 
         if (initializeTranscoders) {
             if (jsonTranscoder == null) {
@@ -124,6 +201,13 @@ public class CacheFactory implements AddressChangeListener, FactoryBean<Cache>,
         if (addressChangeNotifier != null) {
             addressChangeNotifier.setAddressChangeListener(this);
         }
+
+        if (circuitBreakerConfiguration != null) {
+            circuitBreaker = new CircuitBreaker(cacheName, circuitBreakerConfiguration);
+            for (CircuitBreakerListener listener : circuitBreakerListeners) {
+                circuitBreaker.addListener(listener);
+            }
+        }
     }
 
     @Override
@@ -165,7 +249,14 @@ public class CacheFactory implements AddressChangeListener, FactoryBean<Cache>,
             LOGGER.info("Creating new memcached client for cache {} with new addresses: {}", cacheName, addresses);
             CacheClient memcacheClient = createClient(addresses);
             LOGGER.info("New memcached client for cache {} was created with addresses: {}", cacheName, addresses);
-            ((CacheImpl)cache).changeCacheClient(memcacheClient);
+            if (migrationConfiguration != null) {
+                ((CacheImpl) cache).migrateCacheClient(memcacheClient, migrationConfiguration);
+            } else {
+                ((CacheImpl) cache).changeCacheClient(memcacheClient);
+            }
+            if (circuitBreaker != null) {
+                circuitBreaker.reset();
+            }
         } catch (IOException e) {
             if (LOGGER.isErrorEnabled()) {
                 LOGGER.error(String.format("Cannot change memcached client to new one with addresses %s", addresses), e);
@@ -198,8 +289,20 @@ public class CacheFactory implements AddressChangeListener, FactoryBean<Cache>,
         }
 
         List<InetSocketAddress> addrs = addressProvider.getAddresses();
-        cache = new CacheImpl(cacheName, cacheAliases, createClient(addrs), defaultSerializationType, jsonTranscoder, javaTranscoder,
-                customTranscoder, new CacheProperties(configuration.isUseNameAsKeyPrefix(), configuration.getKeyPrefixSeparator()));
+        final CacheImpl cacheImpl = new CacheImpl(cacheName, cacheAliases, createClient(addrs), defaultSerializationType, jsonTranscoder,
+                javaTranscoder, customTranscoder, new CacheProperties(configuration.isUseNameAsKeyPrefix(),
+                        configuration.getKeyPrefixSeparator()));
+        if (adaptiveTimeoutConfiguration != null) {
+            cacheImpl.setAdaptiveTimeouts(new AdaptiveTimeouts(adaptiveTimeoutConfiguration));
+        }
+        if (migrationConfiguration != null && migrationConfiguration.getPrefetchKeys() > 0) {
+            cacheImpl.setRecentKeys(new RecentKeys(migrationConfiguration.getPrefetchKeys()));
+        }
+        cacheImpl.setLazyBulkDecoding(lazyBulkDecoding);
+        cacheImpl.setParallelDecoding(parallelDecodingConfiguration);
+        cacheImpl.setChunking(chunkingConfiguration);
+        cacheImpl.setNullMarker(nullMarker);
+        cache = cacheImpl;
 
         return cache;
     }
@@ -213,7 +316,12 @@ public class CacheFactory implements AddressChangeListener, FactoryBean<Cache>,
             throw new IllegalArgumentException(String.format("No memcached addresses specified for cache %s", cacheName));
         }
 
-        return cacheClientFactory.create(addrs, configuration);
+        final CacheClient cacheClient = cacheClientFactory.create(addrs, configuration);
+        if (circuitBreaker != null) {
+            return new CircuitBreakerCacheClient(cacheClient, circuitBreaker);
+        }
+
+        return cacheClient;
     }
 
     private void validateTranscoder(final SerializationType serializationType, final CacheTranscoder cacheTranscoder,
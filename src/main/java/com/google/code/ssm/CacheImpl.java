@@ -17,9 +17,18 @@
 
 package com.google.code.ssm;
 
+import java.lang.reflect.Type;
 import java.net.SocketAddress;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeoutException;
 
 import lombok.Getter;
@@ -29,12 +38,20 @@ import org.slf4j.LoggerFactory;
 import org.springframework.util.Assert;
 
 import com.google.code.ssm.api.format.SerializationType;
+import com.google.code.ssm.counter.HyperLogLog;
 import com.google.code.ssm.providers.CacheClient;
 import com.google.code.ssm.providers.CacheException;
 import com.google.code.ssm.providers.CacheTranscoder;
+import com.google.code.ssm.providers.CachedObject;
+import com.google.code.ssm.providers.LazyDecodingMap;
+import com.google.code.ssm.providers.migration.MigratingCacheClient;
+import com.google.code.ssm.providers.migration.MigrationConfiguration;
+import com.google.code.ssm.providers.migration.RecentKeys;
 import com.google.code.ssm.transcoders.JavaTranscoder;
+import com.google.code.ssm.transcoders.HyperLogLogTranscoder;
 import com.google.code.ssm.transcoders.JsonTranscoder;
 import com.google.code.ssm.transcoders.LongToStringTranscoder;
+import com.google.code.ssm.transcoders.RawTranscoder;
 
 /**
  * 
@@ -46,6 +63,8 @@ class CacheImpl implements Cache {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CacheImpl.class);
 
+    private static final CacheTranscoder RAW_TRANSCODER = new RawTranscoder();
+
     @Getter
     private final String name;
 
@@ -63,10 +82,27 @@ class CacheImpl implements Cache {
 
     private final LongToStringTranscoder longToStringTranscoder = new LongToStringTranscoder();
 
+    private final HyperLogLogTranscoder hyperLogLogTranscoder = new HyperLogLogTranscoder();
+
     private final CacheTranscoder customTranscoder;
 
     private volatile CacheClient cacheClient;
 
+    private AdaptiveTimeouts adaptiveTimeouts;
+
+    private RecentKeys recentKeys;
+
+    private boolean lazyBulkDecoding;
+
+    private ParallelDecodingConfiguration parallelDecoding;
+
+    private ValueChunker chunker;
+
+    private boolean nullMarker;
+
+    private final ConcurrentMap<CacheTranscoder, CacheTranscoder> nullMarkerTranscoders =
+            new ConcurrentHashMap<CacheTranscoder, CacheTranscoder>();
+
     CacheImpl(final String name, final Collection<String> aliases, final CacheClient cacheClient,
             final SerializationType defaultSerializationType, final JsonTranscoder jsonTranscoder, final JavaTranscoder javaTranscoder,
             final CacheTranscoder customTranscoder, final CacheProperties properties) {
@@ -96,6 +132,9 @@ class CacheImpl implements Cache {
 
     @Override
     public <T> T get(final String cacheKey, final SerializationType serializationType) throws TimeoutException, CacheException {
+        if (recentKeys != null) {
+            recentKeys.record(cacheKey);
+        }
 
         switch (getSerializationType(serializationType)) {
         case JAVA:
@@ -103,7 +142,7 @@ class CacheImpl implements Cache {
         case JSON:
             return get(cacheKey, SerializationType.JSON, jsonTranscoder);
         case PROVIDER:
-            return get(cacheKey, SerializationType.PROVIDER, null);
+            return get(cacheKey, SerializationType.PROVIDER, (CacheTranscoder) null);
         case CUSTOM:
             return get(cacheKey, SerializationType.CUSTOM, customTranscoder);
         default:
@@ -112,6 +151,75 @@ class CacheImpl implements Cache {
 
     }
 
+    @Override
+    public <T> T get(final String cacheKey, final SerializationType serializationType, final Type type) throws TimeoutException,
+            CacheException {
+        if (!isTypeDirected(serializationType, type)) {
+            return get(cacheKey, serializationType);
+        }
+
+        if (recentKeys != null) {
+            recentKeys.record(cacheKey);
+        }
+        return get(cacheKey, SerializationType.JSON, jsonTranscoder.forType(type));
+    }
+
+    @Override
+    public boolean isTouchSupported() {
+        return cacheClient.isTouchSupported();
+    }
+
+    @Override
+    public <T> T getAndTouch(final String cacheKey, final int expiration, final SerializationType serializationType)
+            throws TimeoutException, CacheException {
+        if (recentKeys != null) {
+            recentKeys.record(cacheKey);
+        }
+
+        switch (getSerializationType(serializationType)) {
+        case JAVA:
+            return getAndTouch(cacheKey, expiration, SerializationType.JAVA, javaTranscoder);
+        case JSON:
+            return getAndTouch(cacheKey, expiration, SerializationType.JSON, jsonTranscoder);
+        case PROVIDER:
+            return getAndTouch(cacheKey, expiration, SerializationType.PROVIDER, (CacheTranscoder) null);
+        case CUSTOM:
+            return getAndTouch(cacheKey, expiration, SerializationType.CUSTOM, customTranscoder);
+        default:
+            throw new IllegalArgumentException(String.format("Serialization type %s is not supported", serializationType));
+        }
+    }
+
+    @Override
+    public <T> T getAndTouch(final String cacheKey, final int expiration, final SerializationType serializationType, final Type type)
+            throws TimeoutException, CacheException {
+        if (!isTypeDirected(serializationType, type)) {
+            return getAndTouch(cacheKey, expiration, serializationType);
+        }
+
+        if (recentKeys != null) {
+            recentKeys.record(cacheKey);
+        }
+        return getAndTouch(cacheKey, expiration, SerializationType.JSON, jsonTranscoder.forType(type));
+    }
+
+    @Override
+    public boolean touch(final String cacheKey, final int expiration) throws TimeoutException, CacheException {
+        if (chunker == null) {
+            return cacheClient.touch(cacheKey, expiration);
+        }
+
+        if (!cacheClient.touch(cacheKey, expiration)) {
+            return false;
+        }
+
+        // chunks of a big value have to live as long as its manifest, they are found using the small index copy of
+        // the manifest so the value itself is not read
+        final CachedObject index = cacheClient.getAndTouch(chunker.getIndexKey(cacheKey), expiration, RAW_TRANSCODER);
+        touchChunks(cacheKey, expiration, index);
+        return true;
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public <T> void set(final String cacheKey, final int expiration, final Object value, final SerializationType serializationType)
@@ -125,7 +233,7 @@ class CacheImpl implements Cache {
             set(cacheKey, expiration, (T) value, SerializationType.JSON, jsonTranscoder);
             break;
         case PROVIDER:
-            set(cacheKey, expiration, (T) value, SerializationType.PROVIDER, null);
+            set(cacheKey, expiration, (T) value, SerializationType.PROVIDER, (CacheTranscoder) null);
             break;
         case CUSTOM:
             set(cacheKey, expiration, (T) value, SerializationType.CUSTOM, customTranscoder);
@@ -135,6 +243,17 @@ class CacheImpl implements Cache {
         }
     }
 
+    @Override
+    public <T> void set(final String cacheKey, final int expiration, final Object value, final SerializationType serializationType,
+            final Type type) throws TimeoutException, CacheException {
+        if (!isTypeDirected(serializationType, type)) {
+            set(cacheKey, expiration, value, serializationType);
+            return;
+        }
+
+        set(cacheKey, expiration, value, SerializationType.JSON, jsonTranscoder.forType(type));
+    }
+
     @Override
     public <T> void setSilently(final String cacheKey, final int expiration, final Object value, final SerializationType serializationType) {
         try {
@@ -146,6 +265,18 @@ class CacheImpl implements Cache {
         }
     }
 
+    @Override
+    public <T> void setSilently(final String cacheKey, final int expiration, final Object value, final SerializationType serializationType,
+            final Type type) {
+        try {
+            set(cacheKey, expiration, value, serializationType, type);
+        } catch (TimeoutException e) {
+            warn(e, "Cannot set on key %s", cacheKey);
+        } catch (CacheException e) {
+            warn(e, "Cannot set on key %s", cacheKey);
+        }
+    }
+
     @Override
     public <T> boolean add(final String cacheKey, final int expiration, final Object value, final SerializationType serializationType)
             throws TimeoutException, CacheException {
@@ -187,6 +318,9 @@ class CacheImpl implements Cache {
     @Override
     public Map<String, Object> getBulk(final Collection<String> keys, final SerializationType serializationType) throws TimeoutException,
             CacheException {
+        if (recentKeys != null) {
+            recentKeys.record(keys);
+        }
 
         switch (getSerializationType(serializationType)) {
         case JAVA:
@@ -194,7 +328,7 @@ class CacheImpl implements Cache {
         case JSON:
             return getBulk(keys, SerializationType.JSON, jsonTranscoder);
         case PROVIDER:
-            return getBulk(keys, SerializationType.PROVIDER, null);
+            return getBulk(keys, SerializationType.PROVIDER, (CacheTranscoder) null);
         case CUSTOM:
             return getBulk(keys, SerializationType.CUSTOM, customTranscoder);
         default:
@@ -202,6 +336,19 @@ class CacheImpl implements Cache {
         }
     }
 
+    @Override
+    public Map<String, Object> getBulk(final Collection<String> keys, final SerializationType serializationType, final Type type)
+            throws TimeoutException, CacheException {
+        if (!isTypeDirected(serializationType, type)) {
+            return getBulk(keys, serializationType);
+        }
+
+        if (recentKeys != null) {
+            recentKeys.record(keys);
+        }
+        return getBulk(keys, SerializationType.JSON, jsonTranscoder.forType(type));
+    }
+
     @Override
     public long decr(final String key, final int by) throws TimeoutException, CacheException {
         return cacheClient.decr(key, by);
@@ -209,6 +356,7 @@ class CacheImpl implements Cache {
 
     @Override
     public boolean delete(final String key) throws TimeoutException, CacheException {
+        // chunks of a deleted value are not read and deleted, they expire with the value
         return cacheClient.delete(key);
     }
 
@@ -242,6 +390,22 @@ class CacheImpl implements Cache {
         return cacheClient.get(cacheKey, longToStringTranscoder);
     }
 
+    @Override
+    public Map<String, Long> getCounters(final Collection<String> cacheKeys) throws TimeoutException, CacheException {
+        return cacheClient.getBulk(cacheKeys, longToStringTranscoder);
+    }
+
+    @Override
+    public Map<String, HyperLogLog> getHyperLogLogs(final Collection<String> cacheKeys) throws TimeoutException, CacheException {
+        return cacheClient.getBulk(cacheKeys, hyperLogLogTranscoder);
+    }
+
+    @Override
+    public void setHyperLogLog(final String cacheKey, final int expiration, final HyperLogLog hyperLogLog) throws TimeoutException,
+            CacheException {
+        cacheClient.set(cacheKey, expiration, hyperLogLog, hyperLogLogTranscoder);
+    }
+
     @Override
     public void setCounter(final String cacheKey, final int expiration, final long value) throws TimeoutException, CacheException {
         cacheClient.set(cacheKey, expiration, value, longToStringTranscoder);
@@ -257,7 +421,32 @@ class CacheImpl implements Cache {
         return cacheClient.getNativeClient();
     }
 
-    void changeCacheClient(final CacheClient newCacheClient) {
+    void setAdaptiveTimeouts(final AdaptiveTimeouts adaptiveTimeouts) {
+        this.adaptiveTimeouts = adaptiveTimeouts;
+    }
+
+    void setRecentKeys(final RecentKeys recentKeys) {
+        this.recentKeys = recentKeys;
+    }
+
+    void setLazyBulkDecoding(final boolean lazyBulkDecoding) {
+        this.lazyBulkDecoding = lazyBulkDecoding;
+    }
+
+    void setParallelDecoding(final ParallelDecodingConfiguration parallelDecoding) {
+        this.parallelDecoding = parallelDecoding;
+    }
+
+    void setChunking(final ChunkingConfiguration chunking) {
+        this.chunker = chunking != null ? new ValueChunker(chunking) : null;
+    }
+
+    void setNullMarker(final boolean nullMarker) {
+        this.nullMarker = nullMarker;
+        nullMarkerTranscoders.clear();
+    }
+
+    synchronized void changeCacheClient(final CacheClient newCacheClient) {
         if (newCacheClient != null) {
             LOGGER.info("Replacing the cache client");
             CacheClient oldCacheClient = cacheClient;
@@ -269,62 +458,305 @@ class CacheImpl implements Cache {
         }
     }
 
+    /**
+     * Replaces the cache client without closing the old one immediately. During the migration window misses are read
+     * from the old client and copied to the new one, then the old client is closed after the drain timeout.
+     * 
+     * @param newCacheClient
+     *            the new cache client
+     * @param configuration
+     *            the migration settings
+     */
+    synchronized void migrateCacheClient(final CacheClient newCacheClient, final MigrationConfiguration configuration) {
+        if (newCacheClient == null) {
+            return;
+        }
+
+        CacheClient oldCacheClient = cacheClient;
+        if (oldCacheClient instanceof MigratingCacheClient) {
+            // addresses changed again during migration, only the newest of the previous clients is kept as a fallback
+            final MigratingCacheClient previous = (MigratingCacheClient) oldCacheClient;
+            oldCacheClient = previous.getNewClient();
+            previous.finish();
+        }
+
+        LOGGER.info("Migrating to new cache client in {} ms window", configuration.getWindow());
+        final MigratingCacheClient migrating = new MigratingCacheClient(newCacheClient, oldCacheClient, configuration,
+                this::completeMigration);
+        cacheClient = migrating;
+        migrating.start(recentKeys != null ? recentKeys.getKeys() : Collections.<String> emptySet());
+    }
+
+    private synchronized void completeMigration(final MigratingCacheClient migrating) {
+        if (cacheClient == migrating) {
+            cacheClient = migrating.getNewClient();
+            LOGGER.info("Migration to new cache client completed");
+        }
+    }
+
     @SuppressWarnings("unchecked")
-    private <T> T get(final String cacheKey, final SerializationType serializationType, final CacheTranscoder cacheTranscoder)
+    private <T> T get(final String cacheKey, final SerializationType serializationType, final CacheTranscoder transcoder)
             throws TimeoutException, CacheException {
         if (SerializationType.PROVIDER.equals(serializationType)) {
             return (T) cacheClient.get(cacheKey);
         }
 
-        if (cacheTranscoder == null) {
+        if (transcoder == null) {
+            throw new IllegalArgumentException(String.format("Cannot use %s serialization because dedicated cache transcoder is null!",
+                    serializationType));
+        }
+        final CacheTranscoder cacheTranscoder = withNullMarker(transcoder);
+
+        if (chunker == null) {
+            return (T) getFromClient(cacheKey, cacheTranscoder);
+        }
+
+        final Map<String, Object> found = Collections.singletonMap(cacheKey, getFromClient(cacheKey, RAW_TRANSCODER));
+        final CachedObject cachedObject = chunker.join(found, this::getRawBulkFromClient).get(cacheKey);
+        return cachedObject != null ? (T) cacheTranscoder.decode(cachedObject) : null;
+    }
+
+    private Object getFromClient(final String cacheKey, final CacheTranscoder cacheTranscoder) throws TimeoutException, CacheException {
+        if (adaptiveTimeouts == null) {
+            return cacheClient.get(cacheKey, cacheTranscoder);
+        }
+
+        final long timeout = adaptiveTimeouts.getTimeout(AdaptiveTimeouts.Operation.GET, 1);
+        final long start = System.nanoTime();
+        try {
+            return cacheClient.get(cacheKey, cacheTranscoder, timeout);
+        } finally {
+            adaptiveTimeouts.record(AdaptiveTimeouts.Operation.GET, 1, System.nanoTime() - start);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T getAndTouch(final String cacheKey, final int expiration, final SerializationType serializationType,
+            final CacheTranscoder transcoder) throws TimeoutException, CacheException {
+        if (SerializationType.PROVIDER.equals(serializationType)) {
+            return (T) cacheClient.getAndTouch(cacheKey, expiration, cacheClient.getTranscoder());
+        }
+
+        if (transcoder == null) {
             throw new IllegalArgumentException(String.format("Cannot use %s serialization because dedicated cache transcoder is null!",
                     serializationType));
         }
+        final CacheTranscoder cacheTranscoder = withNullMarker(transcoder);
+
+        if (chunker == null) {
+            return (T) cacheClient.getAndTouch(cacheKey, expiration, cacheTranscoder);
+        }
 
-        return (T) cacheClient.get(cacheKey, cacheTranscoder);
+        final CachedObject raw = cacheClient.getAndTouch(cacheKey, expiration, RAW_TRANSCODER);
+        if (touchChunks(cacheKey, expiration, raw)) {
+            cacheClient.touch(chunker.getIndexKey(cacheKey), expiration);
+        }
+        final Map<String, Object> found = Collections.singletonMap(cacheKey, (Object) raw);
+        final CachedObject cachedObject = chunker.join(found, this::getRawBulkFromClient).get(cacheKey);
+        return cachedObject != null ? (T) cacheTranscoder.decode(cachedObject) : null;
+    }
+
+    private boolean touchChunks(final String cacheKey, final int expiration, final CachedObject manifest) throws TimeoutException,
+            CacheException {
+        final List<String> chunkKeys = chunker.getChunkKeys(cacheKey, manifest);
+        for (String chunkKey : chunkKeys) {
+            cacheClient.touch(chunkKey, expiration);
+        }
+        return !chunkKeys.isEmpty();
     }
 
     private <T> void set(final String cacheKey, final int expiration, final T value, final SerializationType serializationType,
-            final CacheTranscoder cacheTranscoder) throws TimeoutException, CacheException {
+            final CacheTranscoder transcoder) throws TimeoutException, CacheException {
         if (SerializationType.PROVIDER.equals(serializationType)) {
             cacheClient.set(cacheKey, expiration, value);
             return;
         }
 
-        if (cacheTranscoder == null) {
+        if (transcoder == null) {
             throw new IllegalArgumentException(String.format("Cannot use %s serialization because dedicated cache transcoder is null!",
                     serializationType));
         }
+        final CacheTranscoder cacheTranscoder = withNullMarkerForWrite(transcoder);
+
+        if (chunker == null) {
+            setInClient(cacheKey, expiration, value, cacheTranscoder);
+            return;
+        }
+
+        final Map<String, CachedObject> items = chunker.split(cacheKey, cacheTranscoder.encode(value));
+        for (Map.Entry<String, CachedObject> item : items.entrySet()) {
+            setInClient(item.getKey(), expiration, item.getValue(), RAW_TRANSCODER);
+        }
+        updateChunkIndex(cacheKey, expiration, items, true);
+    }
+
+    /**
+     * Stores a copy of the manifest under the index key if the value has been split and deletes chunks of the
+     * replaced chunked value. Values that are not split don't touch the index, so writing them costs no extra round
+     * trip and chunks of a chunked value they replace expire with it or are deleted by the next chunked write.
+     */
+    private void updateChunkIndex(final String cacheKey, final int expiration, final Map<String, CachedObject> items,
+            final boolean replaced) throws TimeoutException, CacheException {
+        if (items.size() == 1) {
+            return;
+        }
 
-        cacheClient.set(cacheKey, expiration, value, cacheTranscoder);
+        final List<String> staleKeys = replaced ? getStoredChunkKeys(cacheKey) : Collections.<String> emptyList();
+        setInClient(chunker.getIndexKey(cacheKey), expiration, items.get(cacheKey), RAW_TRANSCODER);
+        if (!staleKeys.isEmpty()) {
+            staleKeys.removeAll(items.keySet());
+            cacheClient.delete(staleKeys);
+        }
+    }
+
+    private List<String> getStoredChunkKeys(final String cacheKey) throws TimeoutException, CacheException {
+        final CachedObject index = (CachedObject) getFromClient(chunker.getIndexKey(cacheKey), RAW_TRANSCODER);
+        return new ArrayList<String>(chunker.getChunkKeys(cacheKey, index));
+    }
+
+    private void setInClient(final String cacheKey, final int expiration, final Object value, final CacheTranscoder cacheTranscoder)
+            throws TimeoutException, CacheException {
+        if (adaptiveTimeouts == null) {
+            cacheClient.set(cacheKey, expiration, value, cacheTranscoder);
+            return;
+        }
+
+        final long timeout = adaptiveTimeouts.getTimeout(AdaptiveTimeouts.Operation.SET, 1);
+        final long start = System.nanoTime();
+        try {
+            cacheClient.set(cacheKey, expiration, value, cacheTranscoder, timeout);
+        } finally {
+            adaptiveTimeouts.record(AdaptiveTimeouts.Operation.SET, 1, System.nanoTime() - start);
+        }
     }
 
     private <T> boolean add(final String cacheKey, final int expiration, final Object value, final SerializationType serializationType,
-            final CacheTranscoder cacheTranscoder) throws TimeoutException, CacheException {
+            final CacheTranscoder transcoder) throws TimeoutException, CacheException {
         if (SerializationType.PROVIDER.equals(serializationType)) {
             return cacheClient.add(cacheKey, expiration, value);
         }
 
-        if (cacheTranscoder == null) {
+        if (transcoder == null) {
             throw new IllegalArgumentException(String.format("Cannot use %s serialization because dedicated cache transcoder is null!",
                     serializationType));
         }
+        final CacheTranscoder cacheTranscoder = withNullMarkerForWrite(transcoder);
 
-        return cacheClient.add(cacheKey, expiration, value, cacheTranscoder);
+        if (chunker == null) {
+            return cacheClient.add(cacheKey, expiration, value, cacheTranscoder);
+        }
+
+        // chunks are written before the manifest and deleted if the manifest is not added
+        final Map<String, CachedObject> items = chunker.split(cacheKey, cacheTranscoder.encode(value));
+        final CachedObject manifest = items.remove(cacheKey);
+        for (Map.Entry<String, CachedObject> item : items.entrySet()) {
+            setInClient(item.getKey(), expiration, item.getValue(), RAW_TRANSCODER);
+        }
+        if (!cacheClient.add(cacheKey, expiration, manifest, RAW_TRANSCODER)) {
+            if (!items.isEmpty()) {
+                cacheClient.delete(items.keySet());
+            }
+            return false;
+        }
+
+        // there was no value under the key, so there are no chunks to delete
+        items.put(cacheKey, manifest);
+        updateChunkIndex(cacheKey, expiration, items, false);
+        return true;
     }
 
     private Map<String, Object> getBulk(final Collection<String> keys, final SerializationType serializationType,
-            final CacheTranscoder cacheTranscoder) throws TimeoutException, CacheException {
+            final CacheTranscoder transcoder) throws TimeoutException, CacheException {
         if (SerializationType.PROVIDER.equals(serializationType)) {
             return cacheClient.getBulk(keys);
         }
 
-        if (cacheTranscoder == null) {
+        if (transcoder == null) {
             throw new IllegalArgumentException(String.format("Cannot use %s serialization because dedicated cache transcoder is null!",
                     serializationType));
         }
+        final CacheTranscoder cacheTranscoder = withNullMarker(transcoder);
+
+        if (!lazyBulkDecoding && parallelDecoding == null && chunker == null) {
+            return getBulkFromClient(keys, cacheTranscoder);
+        }
+
+        final LazyDecodingMap results;
+        if (chunker == null) {
+            results = LazyDecodingMap.wrap(getBulkFromClient(keys, LazyDecodingMap.deferring(cacheTranscoder)));
+        } else {
+            results = joinChunks(getRawBulkFromClient(keys), cacheTranscoder);
+        }
+
+        if (!lazyBulkDecoding) {
+            decodeAll(results);
+        }
+        return results;
+    }
+
+    private LazyDecodingMap joinChunks(final Map<String, Object> found, final CacheTranscoder cacheTranscoder) throws TimeoutException,
+            CacheException {
+        final CacheTranscoder deferring = LazyDecodingMap.deferring(cacheTranscoder);
+        final Map<String, Object> results = new HashMap<String, Object>();
+        for (Map.Entry<String, CachedObject> entry : chunker.join(found, this::getRawBulkFromClient).entrySet()) {
+            results.put(entry.getKey(), deferring.decode(entry.getValue()));
+        }
+        return LazyDecodingMap.wrap(results);
+    }
+
+    private void decodeAll(final LazyDecodingMap results) {
+        if (parallelDecoding != null
+                && (results.size() >= parallelDecoding.getMinValues() || results.getEncodedSize() >= parallelDecoding.getMinBytes())) {
+            final Executor executor = parallelDecoding.getExecutor();
+            results.decodeAll(executor != null ? executor : ForkJoinPool.commonPool(), parallelDecoding.getParallelism());
+        } else {
+            results.decodeAll(null, 1);
+        }
+    }
+
+    private Map<String, Object> getRawBulkFromClient(final Collection<String> keys) throws TimeoutException, CacheException {
+        return getBulkFromClient(keys, RAW_TRANSCODER);
+    }
+
+    private Map<String, Object> getBulkFromClient(final Collection<String> keys, final CacheTranscoder cacheTranscoder)
+            throws TimeoutException, CacheException {
+        if (adaptiveTimeouts == null) {
+            return cacheClient.getBulk(keys, cacheTranscoder);
+        }
+
+        final long timeout = adaptiveTimeouts.getTimeout(AdaptiveTimeouts.Operation.GET_BULK, keys.size());
+        final long start = System.nanoTime();
+        try {
+            return cacheClient.getBulk(keys, cacheTranscoder, timeout);
+        } finally {
+            adaptiveTimeouts.record(AdaptiveTimeouts.Operation.GET_BULK, keys.size(), System.nanoTime() - start);
+        }
+    }
+
+    private CacheTranscoder withNullMarkerForWrite(final CacheTranscoder cacheTranscoder) {
+        return nullMarker ? withNullMarker(cacheTranscoder) : cacheTranscoder;
+    }
+
+    /**
+     * The marker is always decoded and written only if enabled. Wrappers are created once per transcoder, transcoders
+     * for types are cached by the JSON transcoder so their number is bounded.
+     */
+    private CacheTranscoder withNullMarker(final CacheTranscoder cacheTranscoder) {
+        CacheTranscoder transcoder = nullMarkerTranscoders.get(cacheTranscoder);
+        if (transcoder == null) {
+            transcoder = new NullMarkerTranscoder(cacheTranscoder, nullMarker);
+            final CacheTranscoder previous = nullMarkerTranscoders.putIfAbsent(cacheTranscoder, transcoder);
+            if (previous != null) {
+                transcoder = previous;
+            }
+        }
+
+        return transcoder;
+    }
 
-        return cacheClient.getBulk(keys, cacheTranscoder);
+    private boolean isTypeDirected(final SerializationType serializationType, final Type type) {
+        return type != null && jsonTranscoder != null && jsonTranscoder.isTypeDirected()
+                && getSerializationType(serializationType) == SerializationType.JSON;
     }
 
     private SerializationType getSerializationType(final SerializationType serializationType) {
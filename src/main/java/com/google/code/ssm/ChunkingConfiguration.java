@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm;
+
+import lombok.Data;
+
+import com.google.code.ssm.providers.CachedObject;
+
+/**
+ * Settings of chunking of large values. Encoded values bigger than the item size limit are split into chunks stored
+ * under derived keys and a small manifest stored under the original key. Values bigger than the max size are rejected
+ * before anything is sent to memcached.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+@Data
+public class ChunkingConfiguration {
+
+    /**
+     * The maximum size of encoded value (and chunk) stored as a single item. It should be a bit smaller than memcached
+     * item size limit (-I option, 1 MB by default) which also includes key and item header.
+     */
+    private int itemSizeLimit = 1024 * 1024 - 1024;
+
+    /**
+     * The maximum size of encoded value, bigger values are rejected.
+     */
+    private int maxSize = CachedObject.MAX_SIZE;
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm;
+
+/**
+ * Decides which cache keys are hot and should be served from several copies. Used by methods annotated with
+ * {@link com.google.code.ssm.api.Replication} with {@code hotKeysOnly} set to true. If a bean of this type is defined in
+ * the application context it is picked up automatically.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+public interface HotKeyDetector {
+
+    /**
+     * 
+     * @param cacheKey
+     *            the cache key
+     * @return true if the key is hot and reads should be spread across its copies
+     */
+    boolean isHot(final String cacheKey);
+
+    /**
+     * Copies of a key that is not hot are deleted on each write only if this method returns true, so detectors that
+     * track keys recently demoted from hot save the extra delete request on writes of keys that were never replicated.
+     * Detectors that don't track demotions should keep the default, otherwise copies of a demoted key may be read
+     * stale after it becomes hot again.
+     * 
+     * @param cacheKey
+     *            the cache key that is not hot
+     * @return true if the key may have been hot recently and its copies may still be in cache
+     */
+    default boolean wasHot(final String cacheKey) {
+        return true;
+    }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.google.code.ssm;
+
+import com.google.code.ssm.aop.support.PertinentNegativeNull;
+import com.google.code.ssm.providers.CacheTranscoder;
+import com.google.code.ssm.providers.CachedObject;
+import com.google.code.ssm.providers.CachedObjectImpl;
+
+/**
+ * Stores {@link PertinentNegativeNull} as an empty value with a reserved flag instead of serializing it by the
+ * underlying transcoder. Other values and markers stored by the underlying transcoder before are passed to it. Values
+ * with the flag are always decoded as the marker, even if writing it is disabled, so nodes can switch the option on
+ * one by one.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+class NullMarkerTranscoder implements CacheTranscoder {
+
+    static final int NULL_MARKER = 1 << 25;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final CacheTranscoder transcoder;
+
+    private final boolean encodeMarker;
+
+    NullMarkerTranscoder(final CacheTranscoder transcoder, final boolean encodeMarker) {
+        this.transcoder = transcoder;
+        this.encodeMarker = encodeMarker;
+    }
+
+    CacheTranscoder getTranscoder() {
+        return transcoder;
+    }
+
+    @Override
+    public Object decode(final CachedObject data) {
+        if ((data.getFlags() & NULL_MARKER) != 0) {
+            return PertinentNegativeNull.NULL;
+        }
+
+        return transcoder.decode(data);
+    }
+
+    @Override
+    public CachedObject encode(final Object o) {
+        if (encodeMarker && o instanceof PertinentNegativeNull) {
+            return CachedObjectImpl.wrap(NULL_MARKER, EMPTY);
+        }
+
+        return transcoder.encode(o);
+    }
+
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm;
+
+import java.util.concurrent.Executor;
+
+import lombok.Data;
+
+/**
+ * Settings of parallel decoding of bulk get results. Values are decoded in parallel if the number of returned values
+ * or their total size reaches the threshold, smaller results are decoded on the calling thread. The calling thread
+ * decodes one part of values itself.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+@Data
+public class ParallelDecodingConfiguration {
+
+    /**
+     * The minimum number of returned values decoded in parallel.
+     */
+    private int minValues = 500;
+
+    /**
+     * The minimum total size in bytes of returned values decoded in parallel.
+     */
+    private int minBytes = 512 * 1024;
+
+    /**
+     * The maximum number of parts decoded at the same time, including the part decoded by calling thread.
+     */
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The executor used to decode values, if not set the common fork-join pool is used.
+     */
+    private Executor executor;
+
+}
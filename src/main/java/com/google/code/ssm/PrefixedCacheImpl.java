@@ -17,6 +17,7 @@
 
 package com.google.code.ssm;
 
+import java.lang.reflect.Type;
 import java.net.SocketAddress;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -26,7 +27,9 @@ import java.util.Map;
 import java.util.concurrent.TimeoutException;
 
 import com.google.code.ssm.api.format.SerializationType;
+import com.google.code.ssm.counter.HyperLogLog;
 import com.google.code.ssm.providers.CacheException;
+import com.google.code.ssm.providers.LazyDecodingMap;
 
 /**
  * 
@@ -105,6 +108,34 @@ public class PrefixedCacheImpl implements Cache {
         return cache.get(alterKey(key), serializationType);
     }
 
+    @Override
+    public <T> T get(final String key, final SerializationType serializationType, final Type type) throws TimeoutException,
+            CacheException {
+        return cache.get(alterKey(key), serializationType, type);
+    }
+
+    @Override
+    public boolean isTouchSupported() {
+        return cache.isTouchSupported();
+    }
+
+    @Override
+    public <T> T getAndTouch(final String key, final int expiration, final SerializationType serializationType) throws TimeoutException,
+            CacheException {
+        return cache.getAndTouch(alterKey(key), expiration, serializationType);
+    }
+
+    @Override
+    public <T> T getAndTouch(final String key, final int expiration, final SerializationType serializationType, final Type type)
+            throws TimeoutException, CacheException {
+        return cache.getAndTouch(alterKey(key), expiration, serializationType, type);
+    }
+
+    @Override
+    public boolean touch(final String key, final int expiration) throws TimeoutException, CacheException {
+        return cache.touch(alterKey(key), expiration);
+    }
+
     @Override
     public Map<String, Object> getBulk(final Collection<String> keys, final SerializationType serializationType) throws TimeoutException,
             CacheException {
@@ -112,6 +143,13 @@ public class PrefixedCacheImpl implements Cache {
         return removeCacheNames(results);
     }
 
+    @Override
+    public Map<String, Object> getBulk(final Collection<String> keys, final SerializationType serializationType, final Type type)
+            throws TimeoutException, CacheException {
+        final Map<String, Object> results = cache.getBulk(alterKeys(keys), serializationType, type);
+        return removeCacheNames(results);
+    }
+
     @Override
     public long incr(final String key, final int by, final long def) throws TimeoutException, CacheException {
         return cache.incr(alterKey(key), by, def);
@@ -138,11 +176,39 @@ public class PrefixedCacheImpl implements Cache {
         cache.setSilently(alterKey(cacheKey), expiration, value, serializationType);
     }
 
+    @Override
+    public <T> void set(final String key, final int exp, final Object value, final SerializationType serializationType, final Type type)
+            throws TimeoutException, CacheException {
+        cache.set(alterKey(key), exp, value, serializationType, type);
+    }
+
+    @Override
+    public <T> void setSilently(final String cacheKey, final int expiration, final Object value,
+            final SerializationType serializationType, final Type type) {
+        cache.setSilently(alterKey(cacheKey), expiration, value, serializationType, type);
+    }
+
     @Override
     public Long getCounter(final String cacheKey) throws TimeoutException, CacheException {
         return cache.getCounter(alterKey(cacheKey));
     }
 
+    @Override
+    public Map<String, Long> getCounters(final Collection<String> cacheKeys) throws TimeoutException, CacheException {
+        return removeCacheNamesFromKeys(cache.getCounters(alterKeys(cacheKeys)));
+    }
+
+    @Override
+    public Map<String, HyperLogLog> getHyperLogLogs(final Collection<String> cacheKeys) throws TimeoutException, CacheException {
+        return removeCacheNamesFromKeys(cache.getHyperLogLogs(alterKeys(cacheKeys)));
+    }
+
+    @Override
+    public void setHyperLogLog(final String cacheKey, final int expiration, final HyperLogLog hyperLogLog) throws TimeoutException,
+            CacheException {
+        cache.setHyperLogLog(alterKey(cacheKey), expiration, hyperLogLog);
+    }
+
     @Override
     public void setCounter(final String cacheKey, final int expiration, final long value) throws TimeoutException, CacheException {
         cache.setCounter(alterKey(cacheKey), expiration, value);
@@ -171,7 +237,21 @@ public class PrefixedCacheImpl implements Cache {
         return alteredKeys;
     }
 
+    private <T> Map<String, T> removeCacheNamesFromKeys(final Map<String, T> resultsWithCacheName) {
+        final Map<String, T> results = new HashMap<String, T>();
+        for (final Map.Entry<String, T> entry : resultsWithCacheName.entrySet()) {
+            results.put(entry.getKey().substring((name + namePrefixSeparator).length()), entry.getValue());
+        }
+
+        return results;
+    }
+
     private Map<String, Object> removeCacheNames(final Map<String, Object> resultsWithCacheName) {
+        if (resultsWithCacheName instanceof LazyDecodingMap) {
+            // don't decode values
+            return ((LazyDecodingMap) resultsWithCacheName).renameKeys(key -> key.substring((name + namePrefixSeparator).length()));
+        }
+
         final Map<String, Object> results = new HashMap<String, Object>();
         for (final Map.Entry<String, Object> entry : resultsWithCacheName.entrySet()) {
             final String key = entry.getKey().substring((name + namePrefixSeparator).length());
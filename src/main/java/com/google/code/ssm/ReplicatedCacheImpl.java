@@ -0,0 +1,492 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm;
+
+import java.lang.reflect.Type;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+
+import com.google.code.ssm.api.format.SerializationType;
+import com.google.code.ssm.counter.HyperLogLog;
+import com.google.code.ssm.providers.CacheException;
+
+/**
+ * Keeps each value under several copies of the key ({@code key#r0} .. {@code key#rN}). Copies have different keys so the
+ * client's hashing places them on different memcached servers. A read picks a random copy and falls back to the other
+ * copies on a miss, copies found missing on a read are written again. Invalidation deletes all copies. Counters are not
+ * replicated.
+ * 
+ * If {@link HotKeyDetector} is set only keys reported as hot are read from copies, other keys are read from the original
+ * key. In such case the original key is always written and deleted, copies are written only for hot keys and deleted
+ * for keys that stopped being hot (see {@link HotKeyDetector#wasHot(String)}) so their copies never become stale.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+public class ReplicatedCacheImpl implements Cache {
+
+    static final String REPLICA_SEPARATOR = "#r";
+
+    private final Cache cache;
+
+    private final int replicas;
+
+    private final HotKeyDetector hotKeyDetector;
+
+    private final int repairExpiration;
+
+    /**
+     * 
+     * @param cache
+     *            the underlying cache
+     * @param replicas
+     *            the number of copies of each key
+     * @param hotKeyDetector
+     *            the optional detector of hot keys, if null all keys are replicated
+     * @param repairExpiration
+     *            the expiration used when missing copies are written again on read
+     */
+    public ReplicatedCacheImpl(final Cache cache, final int replicas, final HotKeyDetector hotKeyDetector, final int repairExpiration) {
+        if (replicas < 1) {
+            throw new IllegalArgumentException("Number of replicas must be 1 or greater");
+        }
+
+        this.cache = cache;
+        this.replicas = replicas;
+        this.hotKeyDetector = hotKeyDetector;
+        this.repairExpiration = repairExpiration;
+    }
+
+    @Override
+    public Collection<SocketAddress> getAvailableServers() {
+        return cache.getAvailableServers();
+    }
+
+    @Override
+    public String getName() {
+        return cache.getName();
+    }
+
+    @Override
+    public Collection<String> getAliases() {
+        return cache.getAliases();
+    }
+
+    @Override
+    public CacheProperties getProperties() {
+        return cache.getProperties();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return cache.isEnabled();
+    }
+
+    @Override
+    public <T> boolean add(final String key, final int expiration, final Object value, final SerializationType serializationType)
+            throws TimeoutException, CacheException {
+        final List<String> copies = getWriteKeys(key);
+        boolean added = cache.add(copies.get(0), expiration, value, serializationType);
+        for (int i = 1; i < copies.size(); i++) {
+            added |= cache.add(copies.get(i), expiration, value, serializationType);
+        }
+        deleteStaleReplicas(key);
+
+        return added;
+    }
+
+    @Override
+    public <T> boolean addSilently(final String key, final int expiration, final Object value, final SerializationType serializationType) {
+        boolean added = false;
+        for (String copy : getWriteKeys(key)) {
+            added |= cache.addSilently(copy, expiration, value, serializationType);
+        }
+        deleteStaleReplicasSilently(key);
+
+        return added;
+    }
+
+    @Override
+    public long decr(final String key, final int by) throws TimeoutException, CacheException {
+        return cache.decr(key, by);
+    }
+
+    @Override
+    public boolean delete(final String key) throws TimeoutException, CacheException {
+        final List<String> copies = getAllKeys(key);
+        if (copies.size() == 1) {
+            return cache.delete(copies.get(0));
+        }
+
+        final boolean deleted = cache.delete(copies.get(0));
+        cache.delete(copies.subList(1, copies.size()));
+        return deleted;
+    }
+
+    @Override
+    public void delete(final Collection<String> keys) throws TimeoutException, CacheException {
+        final List<String> copies = new ArrayList<String>(keys.size() * (replicas + 1));
+        for (String key : keys) {
+            copies.addAll(getAllKeys(key));
+        }
+
+        cache.delete(copies);
+    }
+
+    @Override
+    public void flush() throws TimeoutException, CacheException {
+        cache.flush();
+    }
+
+    @Override
+    public <T> T get(final String key, final SerializationType serializationType) throws TimeoutException, CacheException {
+        return get(key, serializationType, (Type) null);
+    }
+
+    @Override
+    public <T> T get(final String key, final SerializationType serializationType, final Type type) throws TimeoutException,
+            CacheException {
+        if (!isReplicated(key)) {
+            return getFromCache(key, serializationType, type);
+        }
+
+        final String chosen = getReplicaKey(key, ThreadLocalRandom.current().nextInt(replicas));
+        final T value = getFromCache(chosen, serializationType, type);
+        if (value != null) {
+            return value;
+        }
+
+        return getFallbackValue(key, chosen, serializationType, type);
+    }
+
+    @Override
+    public boolean isTouchSupported() {
+        return cache.isTouchSupported();
+    }
+
+    @Override
+    public <T> T getAndTouch(final String key, final int expiration, final SerializationType serializationType) throws TimeoutException,
+            CacheException {
+        return getAndTouch(key, expiration, serializationType, (Type) null);
+    }
+
+    /**
+     * Only the read copy is touched so the read is still a single request. Other copies expire earlier and are written
+     * again when a read falls back to them.
+     */
+    @Override
+    public <T> T getAndTouch(final String key, final int expiration, final SerializationType serializationType, final Type type)
+            throws TimeoutException, CacheException {
+        if (!isReplicated(key)) {
+            return getAndTouchInCache(key, expiration, serializationType, type);
+        }
+
+        final String chosen = getReplicaKey(key, ThreadLocalRandom.current().nextInt(replicas));
+        final T value = getAndTouchInCache(chosen, expiration, serializationType, type);
+        if (value != null) {
+            return value;
+        }
+
+        return getFallbackValue(key, chosen, serializationType, type);
+    }
+
+    @Override
+    public boolean touch(final String key, final int expiration) throws TimeoutException, CacheException {
+        boolean touched = false;
+        for (String copy : getAllKeys(key)) {
+            touched |= cache.touch(copy, expiration);
+        }
+
+        return touched;
+    }
+
+    @Override
+    public Map<String, Object> getBulk(final Collection<String> keys, final SerializationType serializationType)
+            throws TimeoutException, CacheException {
+        return getBulk(keys, serializationType, (Type) null);
+    }
+
+    @Override
+    public Map<String, Object> getBulk(final Collection<String> keys, final SerializationType serializationType, final Type type)
+            throws TimeoutException, CacheException {
+        final Map<String, String> chosenToKey = new HashMap<String, String>();
+        for (String key : keys) {
+            chosenToKey.put(isReplicated(key) ? getReplicaKey(key, ThreadLocalRandom.current().nextInt(replicas)) : key, key);
+        }
+
+        final Map<String, Object> results = new HashMap<String, Object>();
+        final Map<String, Object> chosenResults = getBulkFromCache(chosenToKey.keySet(), serializationType, type);
+        final Map<String, String> missedReplicas = new HashMap<String, String>();
+        final List<String> fallbacks = new ArrayList<String>();
+        for (Map.Entry<String, String> entry : chosenToKey.entrySet()) {
+            final String key = entry.getValue();
+            final Object value = chosenResults.get(entry.getKey());
+            if (value != null) {
+                results.put(key, value);
+            } else if (!key.equals(entry.getKey())) {
+                missedReplicas.put(key, entry.getKey());
+                fallbacks.addAll(getFallbackKeys(key, entry.getKey()));
+            }
+        }
+
+        if (fallbacks.isEmpty()) {
+            return results;
+        }
+
+        final Map<String, Object> fallbackResults = getBulkFromCache(fallbacks, serializationType, type);
+        for (Map.Entry<String, String> entry : missedReplicas.entrySet()) {
+            final Object value = getFirstValue(getFallbackKeys(entry.getKey(), entry.getValue()), fallbackResults);
+            if (value != null) {
+                results.put(entry.getKey(), value);
+                repair(entry.getKey(), fallbackResults, value, serializationType, type);
+            }
+        }
+
+        return results;
+    }
+
+    @Override
+    public long incr(final String key, final int by, final long def) throws TimeoutException, CacheException {
+        return cache.incr(key, by, def);
+    }
+
+    @Override
+    public long incr(final String key, final int by, final long def, final int expiration) throws TimeoutException, CacheException {
+        return cache.incr(key, by, def, expiration);
+    }
+
+    @Override
+    public <T> void set(final String key, final int expiration, final Object value, final SerializationType serializationType)
+            throws TimeoutException, CacheException {
+        set(key, expiration, value, serializationType, null);
+    }
+
+    @Override
+    public <T> void set(final String key, final int expiration, final Object value, final SerializationType serializationType,
+            final Type type) throws TimeoutException, CacheException {
+        for (String copy : getWriteKeys(key)) {
+            if (type == null) {
+                cache.set(copy, expiration, value, serializationType);
+            } else {
+                cache.set(copy, expiration, value, serializationType, type);
+            }
+        }
+        deleteStaleReplicas(key);
+    }
+
+    @Override
+    public <T> void setSilently(final String key, final int expiration, final Object value, final SerializationType serializationType) {
+        setSilently(key, expiration, value, serializationType, null);
+    }
+
+    @Override
+    public <T> void setSilently(final String key, final int expiration, final Object value, final SerializationType serializationType,
+            final Type type) {
+        for (String copy : getWriteKeys(key)) {
+            setSilentlyInCache(copy, expiration, value, serializationType, type);
+        }
+        deleteStaleReplicasSilently(key);
+    }
+
+    @Override
+    public Long getCounter(final String key) throws TimeoutException, CacheException {
+        return cache.getCounter(key);
+    }
+
+    @Override
+    public Map<String, Long> getCounters(final Collection<String> keys) throws TimeoutException, CacheException {
+        return cache.getCounters(keys);
+    }
+
+    @Override
+    public Map<String, HyperLogLog> getHyperLogLogs(final Collection<String> keys) throws TimeoutException, CacheException {
+        return cache.getHyperLogLogs(keys);
+    }
+
+    @Override
+    public void setHyperLogLog(final String key, final int expiration, final HyperLogLog hyperLogLog) throws TimeoutException,
+            CacheException {
+        cache.setHyperLogLog(key, expiration, hyperLogLog);
+    }
+
+    @Override
+    public void setCounter(final String key, final int expiration, final long value) throws TimeoutException, CacheException {
+        cache.setCounter(key, expiration, value);
+    }
+
+    @Override
+    public void shutdown() {
+        cache.shutdown();
+    }
+
+    @Override
+    public Object getNativeClient() {
+        return cache.getNativeClient();
+    }
+
+    static String getReplicaKey(final String key, final int replica) {
+        return key + REPLICA_SEPARATOR + replica;
+    }
+
+    private boolean isReplicated(final String key) {
+        return replicas > 1 && (hotKeyDetector == null || hotKeyDetector.isHot(key));
+    }
+
+    private List<String> getReplicaKeys(final String key) {
+        final List<String> copies = new ArrayList<String>(replicas + 1);
+        for (int i = 0; i < replicas; i++) {
+            copies.add(getReplicaKey(key, i));
+        }
+
+        return copies;
+    }
+
+    /**
+     * Replicas first, the original key at the end if it's kept.
+     */
+    private List<String> getReadKeys(final String key) {
+        final List<String> copies = getReplicaKeys(key);
+        if (hotKeyDetector != null) {
+            copies.add(key);
+        }
+
+        return copies;
+    }
+
+    private List<String> getFallbackKeys(final String key, final String missedReplica) {
+        final List<String> fallbacks = getReadKeys(key);
+        fallbacks.remove(missedReplica);
+        return fallbacks;
+    }
+
+    private List<String> getWriteKeys(final String key) {
+        if (replicas == 1) {
+            return singletonList(key);
+        }
+
+        if (hotKeyDetector == null) {
+            return getReplicaKeys(key);
+        }
+
+        return isReplicated(key) ? getReadKeys(key) : singletonList(key);
+    }
+
+    private List<String> getAllKeys(final String key) {
+        if (replicas == 1) {
+            return singletonList(key);
+        }
+
+        return hotKeyDetector != null ? getReadKeys(key) : getReplicaKeys(key);
+    }
+
+    private void deleteStaleReplicas(final String key) throws TimeoutException, CacheException {
+        if (hotKeyDetector != null && replicas > 1 && !isReplicated(key) && hotKeyDetector.wasHot(key)) {
+            cache.delete(getReplicaKeys(key));
+        }
+    }
+
+    private void deleteStaleReplicasSilently(final String key) {
+        try {
+            deleteStaleReplicas(key);
+        } catch (TimeoutException e) {
+            // the stale copies expire eventually, reads of a key that is not hot don't use copies
+        } catch (CacheException e) {
+            // the stale copies expire eventually, reads of a key that is not hot don't use copies
+        }
+    }
+
+    private Object getFirstValue(final List<String> copies, final Map<String, Object> found) {
+        for (String copy : copies) {
+            final Object value = found.get(copy);
+            if (value != null) {
+                return value;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Writes again replicas that were missing during the read. All replicas were requested so each one not found is
+     * missing.
+     */
+    private void repair(final String key, final Map<String, Object> found, final Object value, final SerializationType serializationType,
+            final Type type) {
+        for (String replica : getReplicaKeys(key)) {
+            if (!found.containsKey(replica)) {
+                setSilentlyInCache(replica, repairExpiration, value, serializationType, type);
+            }
+        }
+    }
+
+    private <T> T getFallbackValue(final String key, final String chosen, final SerializationType serializationType, final Type type)
+            throws TimeoutException, CacheException {
+        final List<String> fallbacks = getFallbackKeys(key, chosen);
+        if (fallbacks.isEmpty()) {
+            return null;
+        }
+
+        final Map<String, Object> found = getBulkFromCache(fallbacks, serializationType, type);
+        @SuppressWarnings("unchecked")
+        final T fallbackValue = (T) getFirstValue(fallbacks, found);
+        if (fallbackValue != null) {
+            repair(key, found, fallbackValue, serializationType, type);
+        }
+
+        return fallbackValue;
+    }
+
+    private <T> T getFromCache(final String key, final SerializationType serializationType, final Type type) throws TimeoutException,
+            CacheException {
+        return type == null ? cache.<T> get(key, serializationType) : cache.<T> get(key, serializationType, type);
+    }
+
+    private <T> T getAndTouchInCache(final String key, final int expiration, final SerializationType serializationType, final Type type)
+            throws TimeoutException, CacheException {
+        return type == null ? cache.<T> getAndTouch(key, expiration, serializationType) : cache.<T> getAndTouch(key, expiration,
+                serializationType, type);
+    }
+
+    private Map<String, Object> getBulkFromCache(final Collection<String> keys, final SerializationType serializationType,
+            final Type type) throws TimeoutException, CacheException {
+        return type == null ? cache.getBulk(keys, serializationType) : cache.getBulk(keys, serializationType, type);
+    }
+
+    private void setSilentlyInCache(final String key, final int expiration, final Object value, final SerializationType serializationType,
+            final Type type) {
+        if (type == null) {
+            cache.setSilently(key, expiration, value, serializationType);
+        } else {
+            cache.setSilently(key, expiration, value, serializationType, type);
+        }
+    }
+
+    private static List<String> singletonList(final String key) {
+        final List<String> keys = new ArrayList<String>(1);
+        keys.add(key);
+        return keys;
+    }
+
+}
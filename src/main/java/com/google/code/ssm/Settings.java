@@ -51,4 +51,35 @@ public class Settings {
      * @since 4.1.0
      */
     private boolean enableAnnotationsInInterface = false; 
+
+    /**
+     * The interval in milliseconds of sending aggregated counter changes to the cache.
+     * 
+     * @since 4.1.4
+     */
+    private long counterFlushInterval = 1000;
+
+    /**
+     * The expected number of absent keys remembered per namespace during one period by the negative filter of
+     * {@link com.google.code.ssm.api.ReadThroughMultiCacheOption#negativeFilter()}.
+     * 
+     * @since 4.1.4
+     */
+    private int negativeFilterCapacity = 100000;
+
+    /**
+     * The false positive rate of the negative filter, a false positive makes an existing value look absent.
+     * 
+     * @since 4.1.4
+     */
+    private double negativeFilterFalsePositiveRate = 0.001;
+
+    /**
+     * The interval in milliseconds of rotating keys in the negative filter. A key remembered as absent is forgotten
+     * after one or two intervals.
+     * 
+     * @since 4.1.4
+     */
+    private long negativeFilterPeriod = 60000;
+
 }
@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.code.ssm.providers.ByteBufferCachedObject;
+import com.google.code.ssm.providers.CacheException;
+import com.google.code.ssm.providers.CachedObject;
+import com.google.code.ssm.providers.CachedObjectImpl;
+
+/**
+ * Splits encoded values bigger than the item size limit into chunks and joins them back. Chunks are stored under keys
+ * derived from the original key and a random write id, so chunks of concurrent writes never mix, and the manifest
+ * (format version, original flags, total size, chunk size, CRC32 checksum and write id) is stored under the original
+ * key after all chunks. Chunks have the same expiration as the manifest. A copy of the manifest is kept under the index
+ * key, so chunks of a stored value can be found and touched or deleted when the value is overwritten by another chunked
+ * value without reading the value itself. Chunks of deleted values and values overwritten by small ones are left to
+ * expire, looking them up would add a round trip to every write.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+class ValueChunker {
+
+    static final int CHUNK_MANIFEST = 1 << 24;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ValueChunker.class);
+
+    private static final int MANIFEST_VERSION = 1;
+
+    private static final int MANIFEST_SIZE = 21;
+
+    private static final String INDEX_SUFFIX = "#c";
+
+    interface ChunkReader {
+
+        Map<String, Object> getBulk(Collection<String> keys) throws TimeoutException, CacheException;
+
+    }
+
+    private final ChunkingConfiguration configuration;
+
+    ValueChunker(final ChunkingConfiguration configuration) {
+        if (configuration.getItemSizeLimit() <= MANIFEST_SIZE) {
+            throw new IllegalArgumentException("Item size limit is too small");
+        }
+
+        this.configuration = configuration;
+    }
+
+    /**
+     * 
+     * @param cacheKey
+     *            the key
+     * @param encoded
+     *            the encoded value
+     * @return items to store in order, the value itself if it's not too big, otherwise chunks followed by the manifest
+     * @throws IllegalArgumentException
+     *             if the value is bigger than max size
+     */
+    Map<String, CachedObject> split(final String cacheKey, final CachedObject encoded) {
+        final byte[] data = encoded.getData();
+        if (data.length > configuration.getMaxSize()) {
+            throw new IllegalArgumentException(String.format("Cannot store %s bytes under key %s, the limit is %s bytes", data.length,
+                    cacheKey, configuration.getMaxSize()));
+        }
+
+        final Map<String, CachedObject> items = new LinkedHashMap<String, CachedObject>();
+        if (data.length <= configuration.getItemSizeLimit()) {
+            items.put(cacheKey, encoded);
+            return items;
+        }
+
+        final int chunkSize = configuration.getItemSizeLimit();
+        final int writeId = ThreadLocalRandom.current().nextInt() & Integer.MAX_VALUE;
+        for (int offset = 0, index = 0; offset < data.length; offset += chunkSize, index++) {
+            items.put(getChunkKey(cacheKey, writeId, index),
+                    ByteBufferCachedObject.wrap(0, data, offset, Math.min(chunkSize, data.length - offset)));
+        }
+
+        final CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        final byte[] manifest = ByteBuffer.allocate(MANIFEST_SIZE).put((byte) MANIFEST_VERSION).putInt(encoded.getFlags())
+                .putInt(data.length).putInt(chunkSize).putInt((int) crc.getValue()).putInt(writeId).array();
+        items.put(cacheKey, CachedObjectImpl.wrap(CHUNK_MANIFEST, manifest));
+        return items;
+    }
+
+    /**
+     * Replaces manifests by values joined from chunks. All chunks are read by one bulk get.
+     * 
+     * @param found
+     *            the cached objects found by keys
+     * @param reader
+     *            the reader of chunks
+     * @return cached objects by keys, keys of values which chunks are missing or corrupted are omitted
+     * @throws TimeoutException
+     * @throws CacheException
+     */
+    Map<String, CachedObject> join(final Map<String, Object> found, final ChunkReader reader) throws TimeoutException, CacheException {
+        final Map<String, CachedObject> results = new HashMap<String, CachedObject>();
+        final Map<String, Manifest> manifests = new HashMap<String, Manifest>();
+        final List<String> chunkKeys = new ArrayList<String>();
+        for (Map.Entry<String, Object> entry : found.entrySet()) {
+            final CachedObject cachedObject = (CachedObject) entry.getValue();
+            if (cachedObject == null) {
+                continue;
+            }
+            if ((cachedObject.getFlags() & CHUNK_MANIFEST) == 0) {
+                results.put(entry.getKey(), cachedObject);
+                continue;
+            }
+
+            final Manifest manifest = Manifest.read(entry.getKey(), cachedObject.getData());
+            if (manifest != null) {
+                manifests.put(entry.getKey(), manifest);
+                chunkKeys.addAll(manifest.getChunkKeys(entry.getKey()));
+            }
+        }
+
+        if (manifests.isEmpty()) {
+            return results;
+        }
+
+        final Map<String, Object> chunks = reader.getBulk(chunkKeys);
+        for (Map.Entry<String, Manifest> entry : manifests.entrySet()) {
+            final CachedObject joined = entry.getValue().join(entry.getKey(), chunks);
+            if (joined != null) {
+                results.put(entry.getKey(), joined);
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * 
+     * @param cacheKey
+     *            the key
+     * @param cachedObject
+     *            the cached object found by the key
+     * @return keys of chunks if the cached object is a manifest, otherwise empty list
+     */
+    List<String> getChunkKeys(final String cacheKey, final CachedObject cachedObject) {
+        if (cachedObject == null || (cachedObject.getFlags() & CHUNK_MANIFEST) == 0) {
+            return Collections.emptyList();
+        }
+
+        final Manifest manifest = Manifest.read(cacheKey, cachedObject.getData());
+        return manifest != null ? manifest.getChunkKeys(cacheKey) : Collections.<String> emptyList();
+    }
+
+    /**
+     * 
+     * @param cacheKey
+     *            the key
+     * @return the key under which a copy of the manifest of a chunked value is stored
+     */
+    String getIndexKey(final String cacheKey) {
+        return cacheKey + INDEX_SUFFIX;
+    }
+
+    private static String getChunkKey(final String cacheKey, final int writeId, final int index) {
+        return cacheKey + "#" + Integer.toString(writeId, Character.MAX_RADIX) + "." + index;
+    }
+
+    private static final class Manifest {
+
+        private final int flags;
+
+        private final int size;
+
+        private final int chunkSize;
+
+        private final int checksum;
+
+        private final int writeId;
+
+        private final int chunks;
+
+        private Manifest(final int flags, final int size, final int chunkSize, final int checksum, final int writeId) {
+            this.flags = flags;
+            this.size = size;
+            this.chunkSize = chunkSize;
+            this.checksum = checksum;
+            this.writeId = writeId;
+            this.chunks = (size + chunkSize - 1) / chunkSize;
+        }
+
+        private static Manifest read(final String cacheKey, final byte[] data) {
+            final ByteBuffer buffer = ByteBuffer.wrap(data);
+            if (data.length != MANIFEST_SIZE || buffer.get() != MANIFEST_VERSION) {
+                LOGGER.warn("Unsupported chunk manifest under key {}", cacheKey);
+                return null;
+            }
+
+            final int flags = buffer.getInt();
+            final int size = buffer.getInt();
+            final int chunkSize = buffer.getInt();
+            if (size < 0 || chunkSize <= 0) {
+                LOGGER.warn("Corrupted chunk manifest under key {}", cacheKey);
+                return null;
+            }
+            return new Manifest(flags, size, chunkSize, buffer.getInt(), buffer.getInt());
+        }
+
+        private List<String> getChunkKeys(final String cacheKey) {
+            final List<String> chunkKeys = new ArrayList<String>(chunks);
+            for (int i = 0; i < chunks; i++) {
+                chunkKeys.add(getChunkKey(cacheKey, writeId, i));
+            }
+            return chunkKeys;
+        }
+
+        private CachedObject join(final String cacheKey, final Map<String, Object> chunks) {
+            final byte[] data = new byte[size];
+            for (int i = 0; i < this.chunks; i++) {
+                final CachedObject chunk = (CachedObject) chunks.get(getChunkKey(cacheKey, writeId, i));
+                final int length = Math.min(chunkSize, size - i * chunkSize);
+                if (chunk == null) {
+                    LOGGER.info("Chunk {} of value under key {} is missing", i, cacheKey);
+                    return null;
+                }
+                if (!copy(chunk, data, i * chunkSize, length)) {
+                    LOGGER.warn("Chunk {} of value under key {} has wrong size", i, cacheKey);
+                    return null;
+                }
+            }
+
+            final CRC32 crc = new CRC32();
+            crc.update(data, 0, data.length);
+            if ((int) crc.getValue() != checksum) {
+                LOGGER.warn("Checksum of value under key {} doesn't match", cacheKey);
+                return null;
+            }
+
+            return CachedObjectImpl.wrap(flags, data);
+        }
+
+        private static boolean copy(final CachedObject chunk, final byte[] data, final int offset, final int length) {
+            if (chunk instanceof ByteBufferCachedObject) {
+                final ByteBuffer buffer = ((ByteBufferCachedObject) chunk).getBuffer();
+                if (buffer.remaining() != length) {
+                    return false;
+                }
+                buffer.get(data, offset, length);
+                return true;
+            }
+
+            final byte[] chunkData = chunk.getData();
+            if (chunkData.length != length) {
+                return false;
+            }
+            System.arraycopy(chunkData, 0, data, offset, length);
+            return true;
+        }
+
+    }
+
+}
@@ -19,33 +19,44 @@
 package com.google.code.ssm.aop;
 
 import java.lang.annotation.Annotation;
+import java.lang.reflect.GenericArrayType;
 import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.security.InvalidParameterException;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.Signature;
 import org.aspectj.lang.reflect.MethodSignature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.NoSuchBeanDefinitionException;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 
 import com.google.code.ssm.Cache;
+import com.google.code.ssm.HotKeyDetector;
 import com.google.code.ssm.PrefixedCacheImpl;
+import com.google.code.ssm.ReplicatedCacheImpl;
 import com.google.code.ssm.Settings;
+import com.google.code.ssm.aop.counter.CounterAggregator;
 import com.google.code.ssm.aop.support.AnnotationData;
 import com.google.code.ssm.aop.support.BridgeMethodMappingStore;
 import com.google.code.ssm.aop.support.BridgeMethodMappingStoreImpl;
 import com.google.code.ssm.aop.support.CacheKeyBuilder;
 import com.google.code.ssm.aop.support.CacheKeyBuilderImpl;
 import com.google.code.ssm.aop.support.InvalidAnnotationException;
+import com.google.code.ssm.aop.support.NegativeFilter;
 import com.google.code.ssm.aop.support.PertinentNegativeNull;
 import com.google.code.ssm.api.format.Serialization;
 import com.google.code.ssm.api.format.SerializationType;
@@ -57,7 +68,7 @@ import com.google.code.ssm.util.Utils;
  * @author Jakub Białek
  * 
  */
-public class CacheBase implements ApplicationContextAware, InitializingBean {
+public class CacheBase implements ApplicationContextAware, InitializingBean, DisposableBean {
 
     public static final String DISABLE_CACHE_PROPERTY = "ssm.cache.disable";
 
@@ -72,8 +83,15 @@ public class CacheBase implements ApplicationContextAware, InitializingBean {
 
     private Settings settings = new Settings();
 
+    private HotKeyDetector hotKeyDetector;
+
     private ApplicationContext context;
 
+    private volatile CounterAggregator counterAggregator;
+
+    // mapping namespace <-> filter of keys known to be absent
+    private final ConcurrentMap<String, NegativeFilter> negativeFilters = new ConcurrentHashMap<String, NegativeFilter>();
+
     @Override
     public void afterPropertiesSet() throws Exception {
     	try {
@@ -81,12 +99,28 @@ public class CacheBase implements ApplicationContextAware, InitializingBean {
         } catch (NoSuchBeanDefinitionException ex) {
             LOG.info("Cannot obtain custom SSM settings, default is used");
         }
+
+        if (hotKeyDetector == null) {
+            try {
+                hotKeyDetector = context.getBean(HotKeyDetector.class);
+            } catch (NoSuchBeanDefinitionException ex) {
+                LOG.debug("There is no hot key detector, keys replicated only for hot keys won't be replicated");
+            }
+        }
     	
         for (Cache cache : context.getBeansOfType(Cache.class).values()) {
             addCache(cache);
         }        
     }
 
+    @Override
+    public void destroy() {
+        final CounterAggregator aggregator = counterAggregator;
+        if (aggregator != null) {
+            aggregator.shutdown();
+        }
+    }
+
     @Override
     public void setApplicationContext(final ApplicationContext applicationContext) {
         this.context = applicationContext;
@@ -108,6 +142,62 @@ public class CacheBase implements ApplicationContextAware, InitializingBean {
         this.bridgeMethodMappingStore = bridgeMethodMappingStore;
     }
 
+    public HotKeyDetector getHotKeyDetector() {
+        return hotKeyDetector;
+    }
+
+    public void setHotKeyDetector(final HotKeyDetector hotKeyDetector) {
+        this.hotKeyDetector = hotKeyDetector;
+    }
+
+    /**
+     * 
+     * @return the aggregator of counter changes, created on first use
+     * @since 4.1.4
+     */
+    public CounterAggregator getCounterAggregator() {
+        CounterAggregator aggregator = counterAggregator;
+        if (aggregator == null) {
+            synchronized (this) {
+                if (counterAggregator == null) {
+                    counterAggregator = new CounterAggregator(settings.getCounterFlushInterval());
+                }
+                aggregator = counterAggregator;
+            }
+        }
+        return aggregator;
+    }
+
+    /**
+     * 
+     * @param namespace
+     *            the namespace
+     * @return the filter of keys known to be absent in given namespace, created on first use
+     * @since 4.1.4
+     */
+    public NegativeFilter getNegativeFilter(final String namespace) {
+        return negativeFilters.computeIfAbsent(namespace, ns -> new NegativeFilter(settings.getNegativeFilterCapacity(),
+                settings.getNegativeFilterFalsePositiveRate(), settings.getNegativeFilterPeriod()));
+    }
+
+    /**
+     * Removes keys from the negative filter of given namespace if the filter is used.
+     * 
+     * @param namespace
+     *            the namespace
+     * @param cacheKeys
+     *            the keys which values have been changed
+     * @since 4.1.4
+     */
+    public void removeFromNegativeFilter(final String namespace, final Collection<String> cacheKeys) {
+        final NegativeFilter filter = negativeFilters.get(namespace);
+        if (filter != null) {
+            for (String cacheKey : cacheKeys) {
+                filter.remove(cacheKey);
+            }
+        }
+    }
+
     public Cache getCache(final AnnotationData data) {
         Cache cache = caches.get(data.getCacheName());
         if (cache == null) {
@@ -115,7 +205,15 @@ public class CacheBase implements ApplicationContextAware, InitializingBean {
         }
 
         if (cache.getProperties().isUseNameAsKeyPrefix()) {
-            return new PrefixedCacheImpl(cache, data.getCacheName(), cache.getProperties().getKeyPrefixSeparator());
+            cache = new PrefixedCacheImpl(cache, data.getCacheName(), cache.getProperties().getKeyPrefixSeparator());
+        }
+
+        if (data.getReplicas() > 1) {
+            if (!data.isHotKeysOnly()) {
+                return new ReplicatedCacheImpl(cache, data.getReplicas(), null, data.getExpiration());
+            } else if (hotKeyDetector != null) {
+                return new ReplicatedCacheImpl(cache, data.getReplicas(), hotKeyDetector, data.getExpiration());
+            }
         }
 
         return cache;
@@ -182,6 +280,48 @@ public class CacheBase implements ApplicationContextAware, InitializingBean {
         return data.isReturnDataIndex() ? (T) returnValue : (T) Utils.getMethodArg(data.getDataIndex(), args, method.toString());
     }
 
+    /**
+     * 
+     * @param method
+     *            the cached method
+     * @return generic return type of the method or null if it cannot be fully resolved (contains type variables)
+     * @since 4.1.4
+     */
+    public Type getReturnType(final Method method) {
+        return getResolvedType(method.getGenericReturnType());
+    }
+
+    /**
+     * 
+     * @param method
+     *            the cached method returning a list
+     * @return type of list's elements or null if it cannot be fully resolved
+     * @since 4.1.4
+     */
+    public Type getElementType(final Method method) {
+        final Type returnType = method.getGenericReturnType();
+        if (returnType instanceof ParameterizedType && ((ParameterizedType) returnType).getActualTypeArguments().length == 1) {
+            return getResolvedType(((ParameterizedType) returnType).getActualTypeArguments()[0]);
+        }
+
+        return null;
+    }
+
+    /**
+     * 
+     * @param data
+     *            the annotation data
+     * @param method
+     *            the cached method
+     * @return declared type of the data returned by {@link #getUpdateData(AnnotationData, Method, Object[], Object)} or
+     *         null if it cannot be fully resolved
+     * @since 4.1.4
+     */
+    public Type getUpdateDataType(final AnnotationData data, final Method method) {
+        return getResolvedType(data.isReturnDataIndex() ? method.getGenericReturnType()
+                : method.getGenericParameterTypes()[data.getDataIndex()]);
+    }
+
     protected Settings getSettings() {
         return settings;
     }
@@ -263,4 +403,26 @@ public class CacheBase implements ApplicationContextAware, InitializingBean {
         return method;
     }
 
+    private Type getResolvedType(final Type type) {
+        return isResolved(type) ? type : null;
+    }
+
+    private boolean isResolved(final Type type) {
+        if (type instanceof Class) {
+            return true;
+        } else if (type instanceof ParameterizedType) {
+            for (Type argument : ((ParameterizedType) type).getActualTypeArguments()) {
+                if (!isResolved(argument)) {
+                    return false;
+                }
+            }
+            return true;
+        } else if (type instanceof GenericArrayType) {
+            return isResolved(((GenericArrayType) type).getGenericComponentType());
+        }
+
+        // type variables and wildcards
+        return false;
+    }
+
 }
@@ -89,6 +89,7 @@ public class InvalidateMultiCacheAdvice extends CacheAdvice {
                 final List<Object> keyObjects = (List<Object>) result;
                 cacheKeys = getCacheBase().getCacheKeyBuilder().getCacheKeys(keyObjects, data.getNamespace());
             }
+            getCacheBase().removeFromNegativeFilter(data.getNamespace(), cacheKeys);
             getCacheBase().getCache(data).delete(cacheKeys);
         } catch (Exception ex) {
             warn(ex, "Caching on method %s aborted due to an error.", pjp.toShortString());
@@ -19,6 +19,7 @@
 package com.google.code.ssm.aop;
 
 import java.lang.reflect.Method;
+import java.util.Collections;
 
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
@@ -81,6 +82,7 @@ public class InvalidateSingleCacheAdvice extends CacheAdvice {
                 cacheKey = getCacheBase().getCacheKeyBuilder().getCacheKey(result, data.getNamespace());
             }
 
+            getCacheBase().removeFromNegativeFilter(data.getNamespace(), Collections.singletonList(cacheKey));
             getCacheBase().getCache(data).delete(cacheKey);
         } catch (Exception ex) {
             warn(ex, "Caching on method %s and key [%s] aborted due to an error.", pjp.toShortString(), cacheKey);
@@ -18,8 +18,8 @@
 package com.google.code.ssm.aop;
 
 import java.lang.reflect.Method;
+import java.lang.reflect.Type;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -31,6 +31,7 @@ import com.google.code.ssm.aop.support.AnnotationData;
 import com.google.code.ssm.aop.support.PertinentNegativeNull;
 import com.google.code.ssm.api.ParameterValueKeyProvider;
 import com.google.code.ssm.api.format.SerializationType;
+import com.google.code.ssm.providers.LazyDecodingMap;
 import com.google.code.ssm.util.Utils;
 
 /**
@@ -101,14 +102,17 @@ abstract class MultiCacheAdvice extends CacheAdvice {
         private final AnnotationData data;
         private final Map<String, Object> key2Obj = new LinkedHashMap<String, Object>();
         private final Map<Object, String> obj2Key = new LinkedHashMap<Object, String>();
-        private final Map<String, Object> key2Result = new HashMap<String, Object>();
+        // values returned by lazy bulk get are decoded only when the result list is generated
+        private final LazyDecodingMap key2Result = new LazyDecodingMap();
         private List<Object> listKeyObjects = new ArrayList<Object>();
         // list is not the best collection to store missed objects because remove operation is used in some cases,
         // set cannot be used because order of insertion is important and object can appear more than once
         private final List<Object> missedObjects = new ArrayList<Object>();
         private boolean addNullsToCache;
+        private Type valueType;
         private boolean generateKeysFromResult;
         private boolean skipNullsInResult;
+        private boolean negativeFilter;
 
         MultiCacheCoordinator(final Method method, final AnnotationData data) {
             this.method = method;
@@ -139,6 +143,18 @@ abstract class MultiCacheAdvice extends CacheAdvice {
             return data;
         }
 
+        /**
+         * 
+         * @return declared type of cached values or null if unknown
+         */
+        public Type getValueType() {
+            return valueType;
+        }
+
+        public void setValueType(final Type valueType) {
+            this.valueType = valueType;
+        }
+
         public void setHolder(final MapHolder holder) {
             key2Obj.putAll(holder.getKey2Obj());
             obj2Key.putAll(holder.getObj2Key());
@@ -168,11 +184,11 @@ abstract class MultiCacheAdvice extends CacheAdvice {
             if (key2Result == null) {
                 throw new RuntimeException("There was an error retrieving cache values.");
             }
-            this.key2Result.putAll(key2Result);
+            this.key2Result.putAllLazily(key2Result);
 
             final Set<Object> missObjectSet = new LinkedHashSet<Object>();
             for (final Map.Entry<String, Object> entry : this.key2Obj.entrySet()) {
-                if (this.key2Result.get(entry.getKey()) == null) {
+                if (!this.key2Result.isAvailable(entry.getKey())) {
                     missObjectSet.add(entry.getValue());
                 }
             }
@@ -214,6 +230,14 @@ abstract class MultiCacheAdvice extends CacheAdvice {
             return skipNullsInResult;
         }
 
+        public void setNegativeFilter(final boolean negativeFilter) {
+            this.negativeFilter = negativeFilter;
+        }
+
+        public boolean isNegativeFilter() {
+            return negativeFilter;
+        }
+
         protected List<Object> generateResultList(final boolean allowPartialResult) {
             final List<Object> results = new ArrayList<Object>();
             for (Object keyObject : listKeyObjects) {
@@ -58,6 +58,11 @@ public class ReadThroughAssignCacheAdvice extends SingleReadCacheAdvice<ReadThro
         return getCacheBase().getCacheKeyBuilder().getAssignCacheKey(data);
     }
 
+    @Override
+    protected boolean isSlidingExpiration(final ReadThroughAssignCache annotation) {
+        return annotation.slidingExpiration();
+    }
+
     @Override
     protected Logger getLogger() {
         return LOG;
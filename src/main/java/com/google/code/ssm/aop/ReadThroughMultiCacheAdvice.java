@@ -19,6 +19,9 @@
 package com.google.code.ssm.aop;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
@@ -31,9 +34,12 @@ import org.slf4j.LoggerFactory;
 
 import com.google.code.ssm.aop.support.AnnotationData;
 import com.google.code.ssm.aop.support.AnnotationDataBuilder;
+import com.google.code.ssm.aop.support.NegativeFilter;
+import com.google.code.ssm.aop.support.PertinentNegativeNull;
 import com.google.code.ssm.api.ReadThroughMultiCache;
 import com.google.code.ssm.api.ReadThroughMultiCacheOption;
 import com.google.code.ssm.api.format.SerializationType;
+import com.google.code.ssm.providers.LazyDecodingMap;
 import com.google.code.ssm.util.Utils;
 
 /**
@@ -79,6 +85,7 @@ public class ReadThroughMultiCacheAdvice extends MultiCacheAdvice {
 
             data = AnnotationDataBuilder.buildAnnotationData(annotation, ReadThroughMultiCache.class, methodToCache);
             coord = new MultiCacheCoordinator(methodToCache, data);
+            coord.setValueType(getCacheBase().getElementType(methodToCache));
             setMultiCacheOptions(coord, annotation.option());
 
             // Create key->object and object->key mappings.
@@ -89,7 +96,12 @@ public class ReadThroughMultiCacheAdvice extends MultiCacheAdvice {
             coord.setListKeyObjects(listKeyObjects);
 
             // Get the full list of cache keys and ask the cache for the corresponding values.
-            coord.setInitialKey2Result(getCacheBase().getCache(data).getBulk(coord.getKey2Obj().keySet(), serializationType));
+            if (coord.isNegativeFilter()) {
+                coord.setInitialKey2Result(getBulkSkippingAbsent(coord, serializationType));
+            } else {
+                coord.setInitialKey2Result(getCacheBase().getCache(data).getBulk(coord.getKey2Obj().keySet(), serializationType,
+                        coord.getValueType()));
+            }
 
             // We've gotten all positive cache results back, so build up a results list and return it.
             if (coord.getMissedObjects().isEmpty()) {
@@ -114,6 +126,7 @@ public class ReadThroughMultiCacheAdvice extends MultiCacheAdvice {
         try {
             // there are no results
             if (results == null || results.isEmpty()) {
+                rememberAbsent(coord.getMissedObjects(), coord);
                 if (coord.isAddNullsToCache()) {
                     addNullValues(coord.getMissedObjects(), coord, serializationType);
                 }
@@ -136,6 +149,37 @@ public class ReadThroughMultiCacheAdvice extends MultiCacheAdvice {
         coord.setGenerateKeysFromResult(options.generateKeysFromResult());
         coord.setAddNullsToCache(options.addNullsToCache());
         coord.setSkipNullsInResult(options.skipNullsInResult());
+        coord.setNegativeFilter(options.negativeFilter());
+    }
+
+    private LazyDecodingMap getBulkSkippingAbsent(final MultiCacheCoordinator coord, final SerializationType serializationType)
+            throws Exception {
+        final NegativeFilter filter = getCacheBase().getNegativeFilter(coord.getAnnotationData().getNamespace());
+        final LazyDecodingMap key2Result = new LazyDecodingMap();
+        final Collection<String> cacheKeys = new ArrayList<String>();
+        for (String cacheKey : coord.getKey2Obj().keySet()) {
+            if (filter.mightContain(cacheKey)) {
+                key2Result.put(cacheKey, PertinentNegativeNull.NULL);
+            } else {
+                cacheKeys.add(cacheKey);
+            }
+        }
+
+        if (!cacheKeys.isEmpty()) {
+            key2Result.putAllLazily(getCacheBase().getCache(coord.getAnnotationData()).getBulk(cacheKeys, serializationType,
+                    coord.getValueType()));
+        }
+
+        return key2Result;
+    }
+
+    private void rememberAbsent(final List<Object> missObjects, final MultiCacheCoordinator coord) {
+        if (coord.isNegativeFilter()) {
+            final NegativeFilter filter = getCacheBase().getNegativeFilter(coord.getAnnotationData().getNamespace());
+            for (Object keyObject : missObjects) {
+                filter.add(coord.getObj2Key().get(keyObject));
+            }
+        }
     }
 
     private List<?> generateByKeysFromResult(final List<Object> results, final MultiCacheCoordinator coord,
@@ -147,12 +191,13 @@ public class ReadThroughMultiCacheAdvice extends MultiCacheAdvice {
             for (Object resultObject : results) {
                 cacheKey = getCacheBase().getCacheKeyBuilder().getCacheKey(resultObject, data.getNamespace());
                 getCacheBase().getCache(coord.getAnnotationData()).setSilently(cacheKey, data.getExpiration(), resultObject,
-                        serializationType);
+                        serializationType, coord.getValueType());
                 coord.getMissedObjects().remove(coord.getKey2Obj().get(cacheKey));
                 coord.getKey2Result().put(cacheKey, resultObject);
             }
         }
 
+        rememberAbsent(coord.getMissedObjects(), coord);
         if (coord.isAddNullsToCache()) {
             addNullValues(coord.getMissedObjects(), coord, serializationType);
         }
@@ -173,11 +218,14 @@ public class ReadThroughMultiCacheAdvice extends MultiCacheAdvice {
 
         Iterator<Object> misssedObjectsIter = coord.getMissedObjects().iterator();
         for (Object resultObject : results) {
-            resultObject = getCacheBase().getSubmission(resultObject);
             Object keyObject = misssedObjectsIter.next();
             String cacheKey = coord.getObj2Key().get(keyObject);
+            if (resultObject == null) {
+                rememberAbsent(Collections.singletonList(keyObject), coord);
+            }
+            resultObject = getCacheBase().getSubmission(resultObject);
             getCacheBase().getCache(coord.getAnnotationData()).setSilently(cacheKey, coord.getAnnotationData().getExpiration(),
-                    resultObject, serializationType);
+                    resultObject, serializationType, coord.getValueType());
             coord.getKey2Result().put(cacheKey, resultObject);
 
         }
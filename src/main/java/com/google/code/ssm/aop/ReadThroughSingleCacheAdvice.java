@@ -58,6 +58,11 @@ public class ReadThroughSingleCacheAdvice extends SingleReadCacheAdvice<ReadThro
         return getCacheBase().getCacheKeyBuilder().getCacheKey(data, args, methodDesc);
     }
 
+    @Override
+    protected boolean isSlidingExpiration(final ReadThroughSingleCache annotation) {
+        return annotation.slidingExpiration();
+    }
+
     @Override
     protected Logger getLogger() {
         return LOG;
@@ -20,12 +20,19 @@ package com.google.code.ssm.aop;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
 
 import org.aspectj.lang.ProceedingJoinPoint;
 
+import com.google.code.ssm.Cache;
 import com.google.code.ssm.aop.support.AnnotationData;
 import com.google.code.ssm.aop.support.AnnotationDataBuilder;
 import com.google.code.ssm.api.format.SerializationType;
+import com.google.code.ssm.providers.CacheException;
 
 /**
  * 
@@ -40,6 +47,8 @@ abstract class SingleReadCacheAdvice<T extends Annotation> extends CacheAdvice {
 
     private final Class<T> annotationClass;
 
+    private final Set<String> touchUnsupportedCaches = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
     protected SingleReadCacheAdvice(final Class<T> annotationClass) {
         this.annotationClass = annotationClass;
     }
@@ -54,17 +63,19 @@ abstract class SingleReadCacheAdvice<T extends Annotation> extends CacheAdvice {
         final T annotation;
         final AnnotationData data;
         final SerializationType serializationType;
+        final Type returnType;
         String cacheKey = null;
         try {
             final Method methodToCache = getCacheBase().getMethodToCache(pjp, annotationClass);
             getCacheBase().verifyReturnTypeIsNoVoid(methodToCache, annotationClass);
             annotation = methodToCache.getAnnotation(annotationClass);
             serializationType = getCacheBase().getSerializationType(methodToCache);
+            returnType = getCacheBase().getReturnType(methodToCache);
             data = AnnotationDataBuilder.buildAnnotationData(annotation, annotationClass, methodToCache);
 
             cacheKey = getCacheKey(data, pjp.getArgs(), methodToCache.toString());
 
-            final Object result = getCacheBase().getCache(data).get(cacheKey, serializationType);
+            final Object result = getFromCache(data, cacheKey, serializationType, returnType, isSlidingExpiration(annotation));
             if (result != null) {
                 getLogger().debug("Cache hit.");
                 return getCacheBase().getResult(result);
@@ -80,7 +91,7 @@ abstract class SingleReadCacheAdvice<T extends Annotation> extends CacheAdvice {
         // the crap outta it, but do not let it surface up past the AOP injection itself.
         try {
             final Object submission = getCacheBase().getSubmission(result);
-            getCacheBase().getCache(data).set(cacheKey, data.getExpiration(), submission, serializationType);
+            getCacheBase().getCache(data).set(cacheKey, data.getExpiration(), submission, serializationType, returnType);
         } catch (Exception ex) {
             warn(ex, "Caching on method %s and key [%s] aborted due to an error.", pjp.toShortString(), cacheKey);
         }
@@ -89,4 +100,22 @@ abstract class SingleReadCacheAdvice<T extends Annotation> extends CacheAdvice {
 
     protected abstract String getCacheKey(final AnnotationData data, final Object[] args, final String methodDesc) throws Exception;
 
+    protected abstract boolean isSlidingExpiration(final T annotation);
+
+    private Object getFromCache(final AnnotationData data, final String cacheKey, final SerializationType serializationType,
+            final Type returnType, final boolean slidingExpiration) throws TimeoutException, CacheException {
+        final Cache cache = getCacheBase().getCache(data);
+        if (slidingExpiration) {
+            if (cache.isTouchSupported()) {
+                return cache.getAndTouch(cacheKey, data.getExpiration(), serializationType, returnType);
+            }
+            // the value is read without changing its expiration
+            if (touchUnsupportedCaches.add(cache.getName())) {
+                getLogger().warn("Sliding expiration is ignored because client of cache {} doesn't support touch", cache.getName());
+            }
+        }
+
+        return cache.get(cacheKey, serializationType, returnType);
+    }
+
 }
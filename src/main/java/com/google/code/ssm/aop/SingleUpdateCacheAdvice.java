@@ -20,6 +20,7 @@ package com.google.code.ssm.aop;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
+import java.util.Collections;
 
 import org.aspectj.lang.JoinPoint;
 
@@ -68,7 +69,9 @@ abstract class SingleUpdateCacheAdvice<T extends Annotation> extends CacheAdvice
             final Object dataObject = getCacheBase().<Object> getUpdateData(data, methodToCache, jp.getArgs(), retVal);
             final SerializationType serializationType = getCacheBase().getSerializationType(methodToCache);
             final Object submission = getCacheBase().getSubmission(dataObject);
-            getCacheBase().getCache(data).set(cacheKey, data.getExpiration(), submission, serializationType);
+            getCacheBase().removeFromNegativeFilter(data.getNamespace(), Collections.singletonList(cacheKey));
+            getCacheBase().getCache(data).set(cacheKey, data.getExpiration(), submission, serializationType,
+                    getCacheBase().getUpdateDataType(data, methodToCache));
         } catch (Exception ex) {
             warn(ex, "Caching on method %s and key [%s] aborted due to an error.", jp.toShortString(), cacheKey);
         }
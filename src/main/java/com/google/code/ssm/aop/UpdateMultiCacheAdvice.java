@@ -92,6 +92,7 @@ public class UpdateMultiCacheAdvice extends MultiCacheAdvice {
                 cacheKeys = new ArrayList<String>(coord.getKey2Obj().keySet());
             }
 
+            getCacheBase().removeFromNegativeFilter(data.getNamespace(), cacheKeys);
             if (!annotation.option().addNullsToCache()) {
                 updateCache(cacheKeys, dataList, methodToCache, data, serializationType);
             } else {
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.aop.counter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.code.ssm.Cache;
+
+/**
+ * Aggregates counter increments and decrements locally and sends one incr or decr per counter every flush interval.
+ * Deltas are accumulated in {@link LongAdder}s so concurrent updates of the same counter don't contend. A delta that
+ * cannot be sent stays pending and is sent with the next flush.
+ * 
+ * Counters not updated during a flush interval are evicted. An evicted counter is flushed once more one interval later
+ * to include updates of threads that obtained it just before eviction.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+public class CounterAggregator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CounterAggregator.class);
+
+    private final ConcurrentMap<String, ConcurrentMap<String, Counter>> counters = new ConcurrentHashMap<String, ConcurrentMap<String, Counter>>();
+
+    private final long flushInterval;
+
+    private List<Counter> evicted = new ArrayList<Counter>();
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * 
+     * @param flushInterval
+     *            the flush interval in milliseconds, if not positive counters are flushed only by {@link #flush()}
+     */
+    public CounterAggregator(final long flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    /**
+     * 
+     * @param cacheName
+     *            the name of the cache
+     * @param cache
+     *            the cache storing the counter
+     * @param cacheKey
+     *            the key of the counter
+     * @param delta
+     *            the value to add, negative to decrement
+     */
+    public void add(final String cacheName, final Cache cache, final String cacheKey, final long delta) {
+        ConcurrentMap<String, Counter> cacheCounters = counters.get(cacheName);
+        if (cacheCounters == null) {
+            cacheCounters = counters.computeIfAbsent(cacheName, name -> new ConcurrentHashMap<String, Counter>());
+        }
+
+        Counter counter = cacheCounters.get(cacheKey);
+        if (counter == null) {
+            counter = cacheCounters.computeIfAbsent(cacheKey, key -> new Counter(cache, key));
+            startScheduler();
+        }
+        counter.adder.add(delta);
+    }
+
+    /**
+     * 
+     * @param cacheName
+     *            the name of the cache
+     * @param cacheKey
+     *            the key of the counter
+     * @return the sum of deltas not sent to the cache yet, a call racing with a flush of the counter may still include
+     *         the delta being sent, so a value read from the cache meanwhile can be off by that delta
+     */
+    public long getPendingDelta(final String cacheName, final String cacheKey) {
+        final Map<String, Counter> cacheCounters = counters.get(cacheName);
+        final Counter counter = cacheCounters != null ? cacheCounters.get(cacheKey) : null;
+        return counter != null ? counter.getPendingDelta() : 0;
+    }
+
+    /**
+     * Sends pending deltas of all counters.
+     */
+    public synchronized void flush() {
+        final List<Counter> previouslyEvicted = evicted;
+        evicted = new ArrayList<Counter>();
+        for (Counter counter : previouslyEvicted) {
+            if (!counter.flush()) {
+                evicted.add(counter);
+            }
+        }
+
+        for (Map<String, Counter> cacheCounters : counters.values()) {
+            for (Counter counter : cacheCounters.values()) {
+                if (counter.getPendingDelta() == 0) {
+                    if (counter.idle && cacheCounters.remove(counter.cacheKey, counter)) {
+                        evicted.add(counter);
+                    }
+                    counter.idle = true;
+                } else {
+                    counter.idle = false;
+                    counter.flush();
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops periodic flushing and sends all pending deltas.
+     */
+    public void shutdown() {
+        synchronized (this) {
+            if (scheduler != null) {
+                scheduler.shutdown();
+            }
+        }
+
+        flush();
+        // evicted counters are flushed immediately, there are no more updates
+        flush();
+    }
+
+    private synchronized void startScheduler() {
+        if (scheduler != null || flushInterval <= 0) {
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "ssm-counter-aggregator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                LOG.warn("Flushing counters failed", e);
+            }
+        }, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    private static final class Counter {
+
+        private final Cache cache;
+
+        private final String cacheKey;
+
+        private final LongAdder adder = new LongAdder();
+
+        // the adder is never reset because concurrent updates could be lost, sent deltas are tracked instead, written only
+        // by synchronized flush and read by any thread
+        private volatile long flushed;
+
+        private boolean idle;
+
+        private Counter(final Cache cache, final String cacheKey) {
+            this.cache = cache;
+            this.cacheKey = cacheKey;
+        }
+
+        private long getPendingDelta() {
+            return adder.sum() - flushed;
+        }
+
+        private boolean flush() {
+            final long delta = getPendingDelta();
+            if (delta == 0) {
+                return true;
+            }
+
+            // bigger deltas are sent in next flushes
+            final int by = (int) Math.min(Math.abs(delta), Integer.MAX_VALUE);
+            try {
+                if (delta > 0) {
+                    cache.incr(cacheKey, by, by);
+                    flushed += by;
+                } else {
+                    cache.decr(cacheKey, by);
+                    flushed -= by;
+                }
+                return true;
+            } catch (Exception e) {
+                LOG.warn(String.format("Cannot flush delta %s of counter %s, it will be retried", delta, cacheKey), e);
+                return false;
+            }
+        }
+
+    }
+
+}
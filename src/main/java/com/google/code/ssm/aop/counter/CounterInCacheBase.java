@@ -17,6 +17,9 @@
 
 package com.google.code.ssm.aop.counter;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.aspectj.lang.JoinPoint;
 
 import com.google.code.ssm.aop.CacheAdvice;
@@ -28,6 +31,8 @@ import com.google.code.ssm.aop.CacheAdvice;
  */
 abstract class CounterInCacheBase extends CacheAdvice {
 
+    static final String SHARD_SEPARATOR = "#s";
+
     protected boolean checkData(final Object data, final JoinPoint pjp) {
         if (!isTypeSupported(data)) {
             getLogger().warn("Caching on {} aborted due to incorrect return type. Should be int, long, Integer or Long is {}",
@@ -42,6 +47,36 @@ abstract class CounterInCacheBase extends CacheAdvice {
         return int.class.equals(clazz) || Integer.class.equals(clazz) || long.class.equals(clazz) || Long.class.equals(clazz);
     }
 
+    /**
+     * Returns the sub-key of sharded counter that should be changed by the current thread. Each thread always uses the
+     * same sub-key so increments from one thread don't spread over all cache servers.
+     */
+    protected String getShardKey(final String cacheKey, final int shards) {
+        verifyShards(shards);
+        return getShardKeyAt(cacheKey, (int) (Thread.currentThread().getId() % shards));
+    }
+
+    protected List<String> getShardKeys(final String cacheKey, final int shards) {
+        verifyShards(shards);
+        final List<String> keys = new ArrayList<String>(shards);
+        for (int i = 0; i < shards; i++) {
+            keys.add(getShardKeyAt(cacheKey, i));
+        }
+
+        return keys;
+    }
+
+    private String getShardKeyAt(final String cacheKey, final int shard) {
+        // the first shard uses the key of not sharded counter
+        return shard == 0 ? cacheKey : cacheKey + SHARD_SEPARATOR + shard;
+    }
+
+    private void verifyShards(final int shards) {
+        if (shards < 1) {
+            throw new IllegalArgumentException(String.format("Number of counter shards must be positive, is %d", shards));
+        }
+    }
+
     private boolean isTypeSupported(final Object result) {
         return result instanceof Long || result instanceof Integer;
     }
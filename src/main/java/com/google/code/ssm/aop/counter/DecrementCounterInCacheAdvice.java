@@ -62,7 +62,14 @@ public class DecrementCounterInCacheAdvice extends CounterInCacheBase {
             annotation = methodToCache.getAnnotation(DecrementCounterInCache.class);
             AnnotationData data = AnnotationDataBuilder.buildAnnotationData(annotation, DecrementCounterInCache.class, methodToCache);
             cacheKey = getCacheBase().getCacheKeyBuilder().getCacheKey(data, jp.getArgs(), methodToCache.toString());
-            getCacheBase().getCache(data).decr(cacheKey, 1);
+            if (annotation.shards() != 1) {
+                cacheKey = getShardKey(cacheKey, annotation.shards());
+            }
+            if (annotation.aggregated()) {
+                getCacheBase().getCounterAggregator().add(data.getCacheName(), getCacheBase().getCache(data), cacheKey, -1);
+            } else {
+                getCacheBase().getCache(data).decr(cacheKey, 1);
+            }
         } catch (Exception ex) {
             warn(ex, "Decrementing counter [%s] via %s aborted due to an error.", cacheKey, jp.toShortString());
         }
@@ -62,7 +62,14 @@ public class IncrementCounterInCacheAdvice extends CounterInCacheBase {
             annotation = methodToCache.getAnnotation(IncrementCounterInCache.class);
             AnnotationData data = AnnotationDataBuilder.buildAnnotationData(annotation, IncrementCounterInCache.class, methodToCache);
             cacheKey = getCacheBase().getCacheKeyBuilder().getCacheKey(data, jp.getArgs(), methodToCache.toString());
-            getCacheBase().getCache(data).incr(cacheKey, 1, 1);
+            if (annotation.shards() != 1) {
+                cacheKey = getShardKey(cacheKey, annotation.shards());
+            }
+            if (annotation.aggregated()) {
+                getCacheBase().getCounterAggregator().add(data.getCacheName(), getCacheBase().getCache(data), cacheKey, 1);
+            } else {
+                getCacheBase().getCache(data).incr(cacheKey, 1, 1);
+            }
         } catch (Exception ex) {
             warn(ex, "Incrementing counter [%s] via %s aborted due to an error.", cacheKey, jp.toShortString());
         }
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.google.code.ssm.aop.counter;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.code.ssm.aop.support.AnnotationData;
+import com.google.code.ssm.aop.support.AnnotationDataBuilder;
+import com.google.code.ssm.api.counter.RateLimited;
+import com.google.code.ssm.counter.RateLimitExceededException;
+import com.google.code.ssm.counter.RateLimiter;
+
+/**
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+@Aspect
+public class RateLimitedAdvice extends CounterInCacheBase {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RateLimitedAdvice.class);
+
+    // rate limiters keep reserved calls so they cannot be created per invocation
+    private final ConcurrentMap<Method, RateLimiter> rateLimiters = new ConcurrentHashMap<Method, RateLimiter>();
+
+    @Pointcut("@annotation(com.google.code.ssm.api.counter.RateLimited)")
+    public void rateLimited() {
+        /* pointcut definition */
+    }
+
+    @Around("rateLimited()")
+    public Object limitRate(final ProceedingJoinPoint pjp) throws Throwable {
+        if (isDisabled()) {
+            getLogger().info("Cache disabled");
+            return pjp.proceed();
+        }
+
+        // This is injected caching. If anything goes wrong in the caching, LOG
+        // the crap outta it, but do not let it surface up past the AOP injection itself.
+        String cacheKey = null;
+        boolean acquired = true;
+        try {
+            final Method methodToCache = getCacheBase().getMethodToCache(pjp, RateLimited.class);
+            final RateLimited annotation = methodToCache.getAnnotation(RateLimited.class);
+            final AnnotationData data = AnnotationDataBuilder.buildAnnotationData(annotation, RateLimited.class, methodToCache);
+            cacheKey = getCacheBase().getCacheKeyBuilder().getCacheKey(data, pjp.getArgs(), methodToCache.toString());
+            RateLimiter rateLimiter = rateLimiters.get(methodToCache);
+            if (rateLimiter == null) {
+                rateLimiter = new RateLimiter(getCacheBase().getCache(data), annotation.limit(), annotation.window(),
+                        annotation.algorithm(), annotation.preallocation());
+                final RateLimiter previous = rateLimiters.putIfAbsent(methodToCache, rateLimiter);
+                rateLimiter = previous != null ? previous : rateLimiter;
+            }
+            acquired = rateLimiter.tryAcquire(cacheKey);
+        } catch (Exception ex) {
+            warn(ex, "Checking rate limit [%s] via %s aborted due to an error.", cacheKey, pjp.toShortString());
+        }
+
+        if (!acquired) {
+            throw new RateLimitExceededException(cacheKey);
+        }
+
+        return pjp.proceed();
+    }
+
+    @Override
+    protected Logger getLogger() {
+        return LOG;
+    }
+
+}
@@ -18,6 +18,8 @@
 package com.google.code.ssm.aop.counter;
 
 import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
 
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
@@ -29,6 +31,7 @@ import org.slf4j.LoggerFactory;
 import com.google.code.ssm.aop.support.AnnotationData;
 import com.google.code.ssm.aop.support.AnnotationDataBuilder;
 import com.google.code.ssm.api.counter.ReadCounterFromCache;
+import com.google.code.ssm.providers.CacheException;
 
 /**
  * 
@@ -65,11 +68,13 @@ public class ReadCounterFromCacheAdvice extends CounterInCacheBase {
             annotation = methodToCache.getAnnotation(ReadCounterFromCache.class);
             data = AnnotationDataBuilder.buildAnnotationData(annotation, ReadCounterFromCache.class, methodToCache);
             cacheKey = getCacheBase().getCacheKeyBuilder().getCacheKey(data, pjp.getArgs(), methodToCache.toString());
-            Long result = getCacheBase().getCache(data).getCounter(cacheKey);
+            Long result = annotation.shards() != 1 ? getShardedCounter(data, cacheKey, annotation.shards())
+                    : getCacheBase().getCache(data).getCounter(cacheKey);
 
             if (result != null) {
                 getLogger().debug("Cache hit.");
-                return convertResult(methodToCache, result);
+                // include changes of aggregated counter not sent to the cache yet
+                return convertResult(methodToCache, result + getPendingDelta(data, cacheKey, annotation.shards()));
             }
         } catch (Exception ex) {
             warn(ex, "Caching on method %s and key [%s] aborted due to an error.", pjp.toShortString(), cacheKey);
@@ -92,6 +97,35 @@ public class ReadCounterFromCacheAdvice extends CounterInCacheBase {
         return result;
     }
 
+    private Long getShardedCounter(final AnnotationData data, final String cacheKey, final int shards) throws TimeoutException,
+            CacheException {
+        Map<String, Long> counters = getCacheBase().getCache(data).getCounters(getShardKeys(cacheKey, shards));
+        if (counters.isEmpty()) {
+            return null;
+        }
+
+        long sum = 0;
+        for (Long counter : counters.values()) {
+            sum += counter;
+        }
+
+        return sum;
+    }
+
+    private long getPendingDelta(final AnnotationData data, final String cacheKey, final int shards) {
+        CounterAggregator aggregator = getCacheBase().getCounterAggregator();
+        if (shards == 1) {
+            return aggregator.getPendingDelta(data.getCacheName(), cacheKey);
+        }
+
+        long delta = 0;
+        for (String shardKey : getShardKeys(cacheKey, shards)) {
+            delta += aggregator.getPendingDelta(data.getCacheName(), shardKey);
+        }
+
+        return delta;
+    }
+
     protected void verifyMethodSignature(final Method methodToCache) {
         if (!isReturnTypeSupported(methodToCache.getReturnType())) {
             throw new RuntimeException(String.format("Wrong method return type %s", methodToCache.toString()));
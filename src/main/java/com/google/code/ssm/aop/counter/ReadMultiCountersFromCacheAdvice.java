@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.google.code.ssm.aop.counter;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.code.ssm.Cache;
+import com.google.code.ssm.aop.support.AnnotationData;
+import com.google.code.ssm.aop.support.AnnotationDataBuilder;
+import com.google.code.ssm.api.counter.ReadMultiCountersFromCache;
+import com.google.code.ssm.util.Utils;
+
+/**
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+@Aspect
+public class ReadMultiCountersFromCacheAdvice extends CounterInCacheBase {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReadMultiCountersFromCacheAdvice.class);
+
+    @Pointcut("@annotation(com.google.code.ssm.api.counter.ReadMultiCountersFromCache)")
+    public void readMultiCounters() {
+        /* pointcut definition */
+    }
+
+    @Around("readMultiCounters()")
+    @SuppressWarnings("unchecked")
+    public Object readCounters(final ProceedingJoinPoint pjp) throws Throwable {
+        if (isDisabled()) {
+            getLogger().info("Cache disabled");
+            return pjp.proceed();
+        }
+
+        // This is injected caching. If anything goes wrong in the caching, LOG
+        // the crap outta it, but do not let it surface up past the AOP injection itself.
+        final Method methodToCache;
+        final AnnotationData data;
+        final List<Object> keyObjects;
+        final List<String> cacheKeys;
+        final Map<String, Long> counters = new HashMap<String, Long>();
+        // cache key -> key object of counters not found in cache, order of insertion is used to match method's results
+        final Map<String, Object> missed = new LinkedHashMap<String, Object>();
+        Object[] args = pjp.getArgs();
+        try {
+            methodToCache = getCacheBase().getMethodToCache(pjp, ReadMultiCountersFromCache.class);
+            verifyMethodSignature(methodToCache);
+            ReadMultiCountersFromCache annotation = methodToCache.getAnnotation(ReadMultiCountersFromCache.class);
+            data = AnnotationDataBuilder.buildAnnotationData(annotation, ReadMultiCountersFromCache.class, methodToCache);
+            keyObjects = (List<Object>) Utils.getMethodArg(data.getListIndexInMethodArgs(), args, methodToCache.toString());
+            cacheKeys = getCacheBase().getCacheKeyBuilder().getCacheKeys(data, args, methodToCache.toString());
+
+            counters.putAll(getCacheBase().getCache(data).getCounters(new LinkedHashSet<String>(cacheKeys)));
+
+            Iterator<Object> keyObjectsIter = keyObjects.iterator();
+            for (String cacheKey : cacheKeys) {
+                Object keyObject = keyObjectsIter.next();
+                if (!counters.containsKey(cacheKey) && !missed.containsKey(cacheKey)) {
+                    missed.put(cacheKey, keyObject);
+                }
+            }
+
+            if (missed.isEmpty()) {
+                getLogger().debug("Cache hit.");
+                return generateResultList(methodToCache, data, cacheKeys, counters);
+            }
+
+            // do not modify directly argument array from join point
+            args = new Object[args.length];
+            System.arraycopy(pjp.getArgs(), 0, args, 0, args.length);
+            args[data.getListIndexInMethodArgs()] = new ArrayList<Object>(missed.values());
+        } catch (Exception ex) {
+            warn(ex, "Caching on %s aborted due to an error.", pjp.toShortString());
+            return pjp.proceed();
+        }
+
+        final List<Object> results = (List<Object>) pjp.proceed(args);
+
+        try {
+            if (results == null || results.size() != missed.size()) {
+                getLogger().warn("Did not receive a correlated amount of data from the target method: {}. The underlying method will be "
+                        + "called again with all elements.", methodToCache.getName());
+                return pjp.proceed(pjp.getArgs());
+            }
+
+            Cache cache = getCacheBase().getCache(data);
+            Iterator<Object> resultsIter = results.iterator();
+            for (String cacheKey : missed.keySet()) {
+                Object result = resultsIter.next();
+                if (checkData(result, pjp)) {
+                    long value = ((Number) result).longValue();
+                    // tricky way to update counter
+                    cache.incr(cacheKey, 0, value, data.getExpiration());
+                    counters.put(cacheKey, value);
+                }
+            }
+
+            return generateResultList(methodToCache, data, cacheKeys, counters);
+        } catch (Exception ex) {
+            warn(ex, "Caching on %s aborted due to an error. The underlying method will be called twice.", pjp.toShortString());
+            // invoke underlying method again using unmodified arguments array
+            return pjp.proceed(pjp.getArgs());
+        }
+    }
+
+    protected void verifyMethodSignature(final Method methodToCache) {
+        if (!List.class.isAssignableFrom(methodToCache.getReturnType()) || !isElementTypeSupported(methodToCache)) {
+            throw new RuntimeException(String.format("Wrong method return type %s, should be list of Integer or Long",
+                    methodToCache.toString()));
+        }
+    }
+
+    private boolean isElementTypeSupported(final Method methodToCache) {
+        Type elementType = getCacheBase().getElementType(methodToCache);
+        return Integer.class.equals(elementType) || Long.class.equals(elementType);
+    }
+
+    private List<Number> generateResultList(final Method methodToCache, final AnnotationData data, final List<String> cacheKeys,
+            final Map<String, Long> counters) {
+        boolean intResult = Integer.class.equals(getCacheBase().getElementType(methodToCache));
+        CounterAggregator aggregator = getCacheBase().getCounterAggregator();
+        List<Number> results = new ArrayList<Number>(cacheKeys.size());
+        for (String cacheKey : cacheKeys) {
+            Long counter = counters.get(cacheKey);
+            if (counter == null) {
+                // method returned null for this element
+                results.add(null);
+                continue;
+            }
+
+            // include changes of aggregated counter not sent to the cache yet
+            long value = counter + aggregator.getPendingDelta(data.getCacheName(), cacheKey);
+            results.add(intResult ? Integer.valueOf((int) value) : Long.valueOf(value));
+        }
+
+        return results;
+    }
+
+    @Override
+    protected Logger getLogger() {
+        return LOG;
+    }
+
+}
@@ -18,6 +18,7 @@
 package com.google.code.ssm.aop.counter;
 
 import java.lang.reflect.Method;
+import java.util.List;
 
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.annotation.AfterReturning;
@@ -26,6 +27,7 @@ import org.aspectj.lang.annotation.Pointcut;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.code.ssm.Cache;
 import com.google.code.ssm.aop.support.AnnotationData;
 import com.google.code.ssm.aop.support.AnnotationDataBuilder;
 import com.google.code.ssm.api.counter.UpdateCounterInCache;
@@ -67,7 +69,15 @@ public class UpdateCounterInCacheAdvice extends CounterInCacheBase {
             Object dataObject = getCacheBase().getUpdateData(data, methodToCache, jp.getArgs(), retVal);
             if (checkData(dataObject, jp)) {
                 long value = ((Number) dataObject).longValue();
-                getCacheBase().getCache(data).setCounter(cacheKey, annotation.expiration(), value);
+                Cache cache = getCacheBase().getCache(data);
+                cache.setCounter(cacheKey, annotation.expiration(), value);
+                if (annotation.shards() != 1) {
+                    // reset remaining shards, the first shard holds the whole value
+                    List<String> shardKeys = getShardKeys(cacheKey, annotation.shards());
+                    for (String shardKey : shardKeys.subList(1, shardKeys.size())) {
+                        cache.setCounter(shardKey, annotation.expiration(), 0);
+                    }
+                }
             }
         } catch (Exception ex) {
             warn(ex, "Updating counter [%s] in cache via %s aborted due to an error.", cacheKey, jp.toShortString());
@@ -48,6 +48,8 @@ public class AnnotationData {
     private String className = "";
     private String assignedKey = "";
     private String cacheName = AnnotationConstants.DEFAULT_CACHE_NAME;
+    private int replicas = 1;
+    private boolean hotKeysOnly;
 
     public boolean isReturnDataIndex() {
         return dataIndex == RETURN_INDEX;
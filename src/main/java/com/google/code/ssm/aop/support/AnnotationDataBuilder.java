@@ -30,6 +30,7 @@ import com.google.code.ssm.aop.support.builder.ExpirationBuilder;
 import com.google.code.ssm.aop.support.builder.KeyIndexesBuilder;
 import com.google.code.ssm.aop.support.builder.ListKeyIndexBuilder;
 import com.google.code.ssm.aop.support.builder.NamespaceBuilder;
+import com.google.code.ssm.aop.support.builder.ReplicationBuilder;
 
 /**
  * 
@@ -41,7 +42,8 @@ public class AnnotationDataBuilder {
 
     // order is important because some builders require other to prepare annotation data
     private static final AbstractDataBuilder[] BUILDERS = { new ClassNameBuilder(), new CacheNameBuilder(), new KeyIndexesBuilder(),
-            new DataIndexBuilder(), new ExpirationBuilder(), new NamespaceBuilder(), new AssignedKeyBuilder(), new ListKeyIndexBuilder() };
+            new DataIndexBuilder(), new ExpirationBuilder(), new NamespaceBuilder(), new AssignedKeyBuilder(), new ListKeyIndexBuilder(),
+            new ReplicationBuilder() };
 
     private AnnotationDataBuilder() {
 
@@ -0,0 +1,279 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.google.code.ssm.aop.support;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Local counting Bloom filter of cache keys known to be absent, i.e. keys for which the underlying method returned
+ * nothing. The filter consists of two generations, new keys are added to the current one and both are checked. The
+ * current generation becomes the previous one when the period elapses or when it holds the expected number of keys, so
+ * a key is forgotten after one or two periods and the false positive rate stays bounded. Keys can be removed because
+ * every bit is a counter, counters that reached the max value stay saturated.
+ * 
+ * The filter is lock free. Counters are packed four per int and updated with CAS, a rotation swaps in a newly
+ * allocated generation with CAS instead of clearing the old one. An update racing with a rotation may land in a
+ * generation that has just been dropped, which only makes the filter forget the key earlier.
+ * 
+ * A false positive makes an existing value look absent until the key is removed or forgotten, the false positive rate
+ * has to be chosen accordingly.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+public class NegativeFilter {
+
+    private static final int MAX_COUNT = 0xff;
+
+    private static final int COUNTERS_PER_INT = 4;
+
+    private final int capacity;
+
+    private final int size;
+
+    private final int hashes;
+
+    private final long period;
+
+    private final Clock clock;
+
+    // previous generation of a fresh filter, never modified because nothing is added to the previous generation and
+    // nothing is removed from a generation that doesn't contain the key
+    private final Generation empty;
+
+    private final AtomicReference<Generations> generations = new AtomicReference<Generations>();
+
+    /**
+     * 
+     * @param capacity
+     *            the expected number of keys added during one period
+     * @param falsePositiveRate
+     *            the expected false positive rate, between 0 and 1 exclusive
+     * @param period
+     *            the time in milliseconds after which the current generation of keys is rotated
+     */
+    public NegativeFilter(final int capacity, final double falsePositiveRate, final long period) {
+        this(capacity, falsePositiveRate, period, Clock.systemUTC());
+    }
+
+    NegativeFilter(final int capacity, final double falsePositiveRate, final long period, final Clock clock) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException(String.format("Capacity must be positive, is %d", capacity));
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException(String.format("False positive rate must be between 0 and 1, is %f",
+                    falsePositiveRate));
+        }
+        if (period < 1) {
+            throw new IllegalArgumentException(String.format("Period must be positive, is %d", period));
+        }
+
+        final double ln2 = Math.log(2);
+        this.capacity = capacity;
+        this.size = (int) Math.min(Integer.MAX_VALUE - 8, Math.ceil(-capacity * Math.log(falsePositiveRate) / (ln2 * ln2)));
+        this.hashes = Math.max(1, (int) Math.round((double) size / capacity * ln2));
+        this.period = period;
+        this.clock = clock;
+        this.empty = new Generation(size);
+        this.generations.set(new Generations(new Generation(size), empty, clock.millis() + period));
+    }
+
+    /**
+     * Remembers the key as absent. A key already remembered by the current generation is not added again.
+     * 
+     * @param key
+     *            the cache key
+     */
+    public void add(final String key) {
+        Generations current = rotateIfNeeded();
+        while (current.current.keys.get() >= capacity) {
+            final Generations rotated = new Generations(new Generation(size), current.current, current.rotateAt);
+            current = generations.compareAndSet(current, rotated) ? rotated : generations.get();
+        }
+
+        final long hash = hash(key);
+        if (contains(current.current, hash)) {
+            return;
+        }
+        for (int i = 0; i < hashes; i++) {
+            current.current.increment(index(hash, i));
+        }
+        current.current.keys.incrementAndGet();
+    }
+
+    /**
+     * 
+     * @param key
+     *            the cache key
+     * @return true if the key was probably remembered as absent, false if it wasn't for sure
+     */
+    public boolean mightContain(final String key) {
+        final Generations current = rotateIfNeeded();
+        final long hash = hash(key);
+        return contains(current.current, hash) || contains(current.previous, hash);
+    }
+
+    /**
+     * Forgets the key, e.g. because a value has been stored under it. The key is forgotten even if it has been added
+     * more than once by concurrent misses.
+     * 
+     * @param key
+     *            the cache key
+     */
+    public void remove(final String key) {
+        final Generations current = rotateIfNeeded();
+        final long hash = hash(key);
+        if (removeAll(current.current, hash)) {
+            current.current.keys.updateAndGet(keys -> Math.max(0, keys - 1));
+        }
+        removeAll(current.previous, hash);
+    }
+
+    /**
+     * Forgets all keys.
+     */
+    public void clear() {
+        generations.set(new Generations(new Generation(size), empty, clock.millis() + period));
+    }
+
+    private Generations rotateIfNeeded() {
+        final long now = clock.millis();
+        Generations current = generations.get();
+        while (now >= current.rotateAt) {
+            // both generations are outdated if the previous period has elapsed as well
+            final Generation previous = now >= current.rotateAt + period ? empty : current.current;
+            final Generations rotated = new Generations(new Generation(size), previous, now + period);
+            if (generations.compareAndSet(current, rotated)) {
+                return rotated;
+            }
+            current = generations.get();
+        }
+        return current;
+    }
+
+    private boolean contains(final Generation generation, final long hash) {
+        for (int i = 0; i < hashes; i++) {
+            if (generation.get(index(hash, i)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean removeAll(final Generation generation, final long hash) {
+        boolean removed = false;
+        // stops when the key is gone or only saturated counters are left
+        while (contains(generation, hash) && decrement(generation, hash)) {
+            removed = true;
+        }
+        return removed;
+    }
+
+    private boolean decrement(final Generation generation, final long hash) {
+        boolean decremented = false;
+        for (int i = 0; i < hashes; i++) {
+            decremented |= generation.decrement(index(hash, i));
+        }
+        return decremented;
+    }
+
+    private int index(final long hash, final int i) {
+        // double hashing, the second hash is made odd to visit different counters
+        final int combined = (int) hash + i * ((int) (hash >>> 32) | 1);
+        return (combined & Integer.MAX_VALUE) % size;
+    }
+
+    private static long hash(final String key) {
+        // FNV-1a followed by the MurmurHash3 finalizer to spread bits of similar keys
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static final class Generations {
+
+        private final Generation current;
+
+        private final Generation previous;
+
+        private final long rotateAt;
+
+        private Generations(final Generation current, final Generation previous, final long rotateAt) {
+            this.current = current;
+            this.previous = previous;
+            this.rotateAt = rotateAt;
+        }
+
+    }
+
+    private static final class Generation {
+
+        private final AtomicIntegerArray counters;
+
+        private final AtomicInteger keys = new AtomicInteger();
+
+        private Generation(final int size) {
+            counters = new AtomicIntegerArray((size + COUNTERS_PER_INT - 1) / COUNTERS_PER_INT);
+        }
+
+        private int get(final int index) {
+            return (counters.get(index / COUNTERS_PER_INT) >>> shift(index)) & MAX_COUNT;
+        }
+
+        private void increment(final int index) {
+            update(index, 1);
+        }
+
+        private boolean decrement(final int index) {
+            return update(index, -1);
+        }
+
+        private boolean update(final int index, final int delta) {
+            final int slot = index / COUNTERS_PER_INT;
+            final int shift = shift(index);
+            int packed;
+            do {
+                packed = counters.get(slot);
+                final int count = (packed >>> shift) & MAX_COUNT;
+                // saturated counters stay saturated, empty ones can't be decremented
+                if (count == MAX_COUNT || count + delta < 0) {
+                    return false;
+                }
+            } while (!counters.compareAndSet(slot, packed, packed + (delta << shift)));
+            return true;
+        }
+
+        private static int shift(final int index) {
+            return (index % COUNTERS_PER_INT) * Byte.SIZE;
+        }
+
+    }
+
+}
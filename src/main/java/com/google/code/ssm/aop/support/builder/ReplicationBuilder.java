@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.aop.support.builder;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+
+import com.google.code.ssm.aop.support.AnnotationData;
+import com.google.code.ssm.api.CacheOperation.Type;
+import com.google.code.ssm.api.Replication;
+
+/**
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+public class ReplicationBuilder extends AbstractDataBuilder {
+
+    @Override
+    protected void build(final AnnotationData data, final Annotation annotation, final Class<? extends Annotation> expectedAnnotationClass,
+            final Method targetMethod) {
+        Replication replication = targetMethod.getAnnotation(Replication.class);
+        if (replication == null) {
+            replication = targetMethod.getDeclaringClass().getAnnotation(Replication.class);
+        }
+
+        if (replication == null) {
+            return;
+        }
+
+        if (replication.replicas() < 1) {
+            throwException("Replicas in annotation [%s] must be 1 or greater on [%s]", Replication.class, targetMethod);
+        }
+
+        data.setReplicas(replication.replicas());
+        data.setHotKeysOnly(replication.hotKeysOnly());
+    }
+
+    @Override
+    protected boolean support(final Class<? extends Annotation> expectedAnnotationClass) {
+        return !isType(expectedAnnotationClass, Type.INCDEC);
+    }
+
+}
@@ -62,4 +62,15 @@ public @interface ReadThroughMultiCacheOption {
      */
     boolean skipNullsInResult() default false;
 
+    /**
+     * If true then keys for which annotated method hasn't returned any value are remembered in a local filter kept per
+     * namespace and next time they are resolved to null without asking the cache. A key is removed from the filter by
+     * update and invalidate annotations with the same namespace or forgotten after a period configured in
+     * {@link com.google.code.ssm.Settings}. The filter may report false positives so it fits lookups where most IDs
+     * don't exist and an occasional null for an existing one is acceptable.
+     * 
+     * @since 4.1.4
+     */
+    boolean negativeFilter() default false;
+
 }
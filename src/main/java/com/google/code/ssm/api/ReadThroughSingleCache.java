@@ -58,4 +58,14 @@ public @interface ReadThroughSingleCache {
      */
     int expiration() default 0;
 
+    /**
+     * If true then each cache hit sets the expiration of the cached value again in the same request (get and touch), so
+     * frequently read values stay in cache and are not recomputed every time the fixed expiration passes. If the cache
+     * client doesn't support touch the value is read without changing its expiration and a warning is logged.
+     * 
+     * @return true if expiration of cached data should be extended on each read
+     * @since 4.1.4
+     */
+    boolean slidingExpiration() default false;
+
 }
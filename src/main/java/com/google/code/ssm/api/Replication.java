@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.api;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Stores each cached value under several suffixed copies of its key ({@code key#r0} .. {@code key#rN}). Because copies
+ * have different keys they are distributed by the client's hashing across memcached servers, so reads of a very popular
+ * (hot) key are spread across several nodes instead of hitting a single one. Each read picks a random copy and falls
+ * back to the others on a miss, invalidation deletes all copies.
+ * 
+ * Can be defined on class or method. Definition on method overwrites definition on class. The annotation has to be
+ * present on every method (read, update and invalidate) that works on the same namespace otherwise some copies won't be
+ * updated or invalidated. Counters are never replicated.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.METHOD, ElementType.TYPE })
+public @interface Replication {
+
+    /**
+     * Number of copies of each key stored in cache. Value 1 disables replication.
+     * 
+     * @return the number of copies
+     */
+    int replicas() default 3;
+
+    /**
+     * If true only keys reported as hot by {@link com.google.code.ssm.HotKeyDetector} registered in application
+     * context are read from copies. Other keys are kept under the original key only. If there is no detector the
+     * replication is disabled.
+     * 
+     * @return true if only hot keys should be replicated
+     */
+    boolean hotKeysOnly() default false;
+
+}
@@ -46,4 +46,26 @@ public @interface DecrementCounterInCache {
      */
     String namespace() default AnnotationConstants.DEFAULT_STRING;
 
+    /**
+     * If true the counter is decremented locally and the sum of changes is sent to the cache periodically (see
+     * {@link com.google.code.ssm.Settings#getCounterFlushInterval()}) instead of on each invocation. Changes not sent yet
+     * are lost if the application is killed.
+     * 
+     * @return true if changes of the counter are aggregated
+     * @since 4.1.4
+     */
+    boolean aggregated() default false;
+
+    /**
+     * Number of sub-keys the counter is split into, see {@link IncrementCounterInCache#shards()}. It must be the same as
+     * in other counter annotations of the given namespace.
+     * 
+     * Memcached doesn't decrement below 0, so for a sharded counter it applies to each sub-key separately: if
+     * decrements exceed increments on a sub-key the sum of the counter may be higher than expected.
+     * 
+     * @return number of sub-keys of the counter
+     * @since 4.1.4
+     */
+    int shards() default 1;
+
 }
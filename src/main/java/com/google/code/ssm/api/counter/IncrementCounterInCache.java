@@ -46,4 +46,26 @@ public @interface IncrementCounterInCache {
      */
     String namespace() default AnnotationConstants.DEFAULT_STRING;
 
+    /**
+     * If true the counter is incremented locally and the sum of changes is sent to the cache periodically (see
+     * {@link com.google.code.ssm.Settings#getCounterFlushInterval()}) instead of on each invocation. Changes not sent yet
+     * are lost if the application is killed.
+     * 
+     * @return true if changes of the counter are aggregated
+     * @since 4.1.4
+     */
+    boolean aggregated() default false;
+
+    /**
+     * Number of sub-keys the counter is split into. Spreading a write-hot counter over several keys spreads the load
+     * over several cache servers. Each increment or decrement changes only one of the sub-keys (chosen by the calling
+     * thread), the value of the counter is the sum of all sub-keys. The first sub-key is the key of the not sharded
+     * counter so existing values are kept when sharding is enabled. The same value must be used in all counter
+     * annotations of the given namespace.
+     * 
+     * @return number of sub-keys of the counter
+     * @since 4.1.4
+     */
+    int shards() default 1;
+
 }
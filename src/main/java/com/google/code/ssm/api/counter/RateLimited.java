@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.google.code.ssm.api.counter;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import com.google.code.ssm.api.AnnotationConstants;
+import com.google.code.ssm.api.CacheOperation;
+
+/**
+ * 
+ * Limits the number of calls of annotated method per key in a time window across all application nodes. The key is
+ * built from method's parameters annotated with {@link com.google.code.ssm.api.ParameterValueKeyProvider}. If the limit
+ * is exceeded the method is not executed and {@link com.google.code.ssm.counter.RateLimitExceededException} is thrown.
+ * If the cache is not available (e.g. the circuit is open) calls are allowed.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+@CacheOperation({CacheOperation.Type.READ, CacheOperation.Type.INCDEC, CacheOperation.Type.SINGLE})
+public @interface RateLimited {
+
+    /**
+     * A namespace that is added to the key as it is stored in the distributed cache. This allows differing object that
+     * may have the same ID to coexist. This value must be assigned.
+     * 
+     * @return the namespace for the objects cached in the given method.
+     */
+    String namespace() default AnnotationConstants.DEFAULT_STRING;
+
+    /**
+     * 
+     * @return max number of calls in the window
+     */
+    long limit();
+
+    /**
+     * 
+     * @return length of the window in seconds
+     */
+    int window() default 1;
+
+    /**
+     * 
+     * @return algorithm used to count calls
+     */
+    RateLimitAlgorithm algorithm() default RateLimitAlgorithm.FIXED_WINDOW;
+
+    /**
+     * Number of calls reserved at once by a single increment in cache and used locally. Higher values save round trips
+     * for frequently called methods, but calls reserved and not used by one node are not available to others until
+     * the next window.
+     * 
+     * @return number of calls reserved at once
+     */
+    int preallocation() default 1;
+
+}
@@ -63,4 +63,15 @@ public @interface ReadCounterFromCache {
      */
     int expiration() default 0;
 
+    /**
+     * Number of sub-keys the counter is split into, see {@link IncrementCounterInCache#shards()}. It must be the same as
+     * in other counter annotations of the given namespace.
+     * 
+     * All sub-keys are read using a single bulk get.
+     * 
+     * @return number of sub-keys of the counter
+     * @since 4.1.4
+     */
+    int shards() default 1;
+
 }
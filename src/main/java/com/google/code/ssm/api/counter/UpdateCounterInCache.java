@@ -66,4 +66,15 @@ public @interface UpdateCounterInCache {
      */
     int expiration() default 0;
 
+    /**
+     * Number of sub-keys the counter is split into, see {@link IncrementCounterInCache#shards()}. It must be the same as
+     * in other counter annotations of the given namespace.
+     * 
+     * The first sub-key is set to the new value and all other sub-keys are reset to 0.
+     * 
+     * @return number of sub-keys of the counter
+     * @since 4.1.4
+     */
+    int shards() default 1;
+
 }
@@ -35,7 +35,12 @@ import com.google.code.ssm.aop.UpdateMultiCacheAdvice;
 import com.google.code.ssm.aop.UpdateSingleCacheAdvice;
 import com.google.code.ssm.aop.counter.DecrementCounterInCacheAdvice;
 import com.google.code.ssm.aop.counter.IncrementCounterInCacheAdvice;
+import com.google.code.ssm.aop.counter.IncrementMultiCountersInCacheAdvice;
+import com.google.code.ssm.aop.counter.IncrementRollingCounterInCacheAdvice;
+import com.google.code.ssm.aop.counter.RateLimitedAdvice;
 import com.google.code.ssm.aop.counter.ReadCounterFromCacheAdvice;
+import com.google.code.ssm.aop.counter.ReadMultiCountersFromCacheAdvice;
+import com.google.code.ssm.aop.counter.ReadRollingCounterFromCacheAdvice;
 import com.google.code.ssm.aop.counter.UpdateCounterInCacheAdvice;
 
 /**
@@ -174,4 +179,39 @@ public abstract class AbstractSSMConfiguration {
         return advice;
     }
     
+    @Bean
+    IncrementMultiCountersInCacheAdvice incrementMultiCountersInCache(final CacheBase cacheBase) {
+        final IncrementMultiCountersInCacheAdvice advice = new IncrementMultiCountersInCacheAdvice();
+        advice.setCacheBase(cacheBase);
+        return advice;
+    }
+    
+    @Bean
+    ReadMultiCountersFromCacheAdvice readMultiCountersFromCache(final CacheBase cacheBase) {
+        final ReadMultiCountersFromCacheAdvice advice = new ReadMultiCountersFromCacheAdvice();
+        advice.setCacheBase(cacheBase);
+        return advice;
+    }
+    
+    @Bean
+    IncrementRollingCounterInCacheAdvice incrementRollingCounterInCache(final CacheBase cacheBase) {
+        final IncrementRollingCounterInCacheAdvice advice = new IncrementRollingCounterInCacheAdvice();
+        advice.setCacheBase(cacheBase);
+        return advice;
+    }
+    
+    @Bean
+    ReadRollingCounterFromCacheAdvice readRollingCounterFromCache(final CacheBase cacheBase) {
+        final ReadRollingCounterFromCacheAdvice advice = new ReadRollingCounterFromCacheAdvice();
+        advice.setCacheBase(cacheBase);
+        return advice;
+    }
+    
+    @Bean
+    RateLimitedAdvice rateLimited(final CacheBase cacheBase) {
+        final RateLimitedAdvice advice = new RateLimitedAdvice();
+        advice.setCacheBase(cacheBase);
+        return advice;
+    }
+    
 }
@@ -19,6 +19,7 @@ package com.google.code.ssm.config;
 
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 
 import org.slf4j.Logger;
@@ -114,6 +115,30 @@ public class DefaultAddressProvider implements AddressProvider {
         return addrs;
     }
 
+    /**
+     * Checks if the list of addresses really changed. The order of addresses doesn't matter.
+     * 
+     * @param previous
+     *            the previous addresses, may be null
+     * @param current
+     *            the current addresses, may be null if they couldn't be obtained
+     * @return true if current addresses are known and differ from previous ones
+     * @since 4.1.4
+     */
+    protected boolean isChanged(final List<InetSocketAddress> previous, final List<InetSocketAddress> current) {
+        if (current == null) {
+            return false;
+        }
+        if (previous == null) {
+            return true;
+        }
+        if (previous.equals(current)) {
+            return false;
+        }
+
+        return !new HashSet<InetSocketAddress>(previous).equals(new HashSet<InetSocketAddress>(current));
+    }
+
     protected Logger getLogger() {
         return LOGGER;
     }
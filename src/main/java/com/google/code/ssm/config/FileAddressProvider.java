@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.config;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Reads servers' addresses from a file. The file should contain comma or whitespace separated addresses, lines starting
+ * with '#' are ignored. Once addresses have been read from the file, they are kept if the file later disappears, is
+ * empty, cannot be read or contains invalid addresses, e.g. while it is being rewritten. Until then value defined by
+ * {@link FileAddressProvider#getAddress()} is used if the file doesn't exist, is empty or cannot be read.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+public class FileAddressProvider extends DefaultAddressProvider {
+
+    @Getter
+    @Setter
+    private String file;
+
+    private volatile List<InetSocketAddress> lastAddresses;
+
+    public FileAddressProvider() {
+
+    }
+
+    public FileAddressProvider(final String file, final String address) { // NO_UCD
+        super(address);
+        this.file = file;
+    }
+
+    @Override
+    public List<InetSocketAddress> getAddresses() {
+        if (file != null) {
+            try {
+                final String content = read(getPath());
+                if (!content.trim().isEmpty()) {
+                    getLogger().info("Addresses from file {} will be used to connect to memcached servers. Addresses: {}", file, content);
+                    final List<InetSocketAddress> addresses = getAddresses(content);
+                    lastAddresses = addresses;
+                    return addresses;
+                }
+                getLogger().warn("File {} with memcached addresses is empty", file);
+            } catch (IOException ex) {
+                getLogger().warn(String.format("Cannot read memcached addresses from file %s", file), ex);
+            } catch (IllegalArgumentException ex) {
+                if (lastAddresses == null) {
+                    throw ex;
+                }
+                getLogger().warn(String.format("Invalid memcached addresses in file %s", file), ex);
+            }
+        }
+
+        final List<InetSocketAddress> addresses = lastAddresses;
+        if (addresses != null) {
+            getLogger().warn("Previously read addresses {} will be used to connect to memcached servers", addresses);
+            return addresses;
+        }
+
+        return super.getAddresses();
+    }
+
+    protected Path getPath() {
+        return Paths.get(file).toAbsolutePath();
+    }
+
+    private String read(final Path path) throws IOException {
+        final StringBuilder content = new StringBuilder();
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            if (!line.trim().startsWith("#")) {
+                content.append(line).append(' ');
+            }
+        }
+
+        return content.toString();
+    }
+
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.google.code.ssm.counter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+
+import com.google.code.ssm.Cache;
+import com.google.code.ssm.providers.CacheException;
+
+/**
+ * Counts distinct values (e.g. unique visitors) using {@link HyperLogLog} sketches stored in cache. Memcached has no
+ * operation to merge sketches on the server side, so every counter is stored as several partial sketches (slots). Each
+ * instance of this class writes only to its own slot chosen at random, a write reads the slot, adds values and stores it
+ * back. Writes of one instance are serialized per key so they don't overwrite each other, writes of different
+ * instances go to different slots unless they choose the same one. A read fetches all slots of all requested keys using
+ * a single bulk get and merges them, so union of many counters costs the same as a single counter.
+ * 
+ * Use one instance per application node, the number of slots should be higher than the number of nodes to make
+ * collisions unlikely. Lost updates caused by collisions only lower the estimate.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+public class DistinctCounter {
+
+    static final String SLOT_SEPARATOR = "#h";
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final Cache cache;
+
+    private final int precision;
+
+    private final int slots;
+
+    private final int slot;
+
+    private final int expiration;
+
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    /**
+     * 
+     * @param cache
+     *            the cache used to store sketches
+     * @param precision
+     *            precision of sketches, see {@link HyperLogLog#precisionFor(double)}
+     * @param slots
+     *            number of partial sketches of each counter
+     * @param expiration
+     *            expiration of sketches, refreshed on each write
+     */
+    public DistinctCounter(final Cache cache, final int precision, final int slots, final int expiration) {
+        this(cache, precision, slots, expiration, ThreadLocalRandom.current().nextInt(Math.max(slots, 1)));
+    }
+
+    DistinctCounter(final Cache cache, final int precision, final int slots, final int expiration, final int slot) {
+        if (slots < 1) {
+            throw new IllegalArgumentException(String.format("Number of slots must be positive, is %d", slots));
+        }
+        HyperLogLog.checkPrecision(precision);
+
+        this.cache = cache;
+        this.precision = precision;
+        this.slots = slots;
+        this.slot = slot;
+        this.expiration = expiration;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    public void add(final String key, final Object value) throws TimeoutException, CacheException {
+        add(key, Collections.singleton(value));
+    }
+
+    /**
+     * Adds values to the counter under given key. Adding many values at once costs the same as adding a single one.
+     * 
+     * @param key
+     *            the key of the counter
+     * @param values
+     *            the values
+     * @throws TimeoutException
+     * @throws CacheException
+     */
+    public void add(final String key, final Collection<?> values) throws TimeoutException, CacheException {
+        final String slotKey = getSlotKey(key, slot);
+        synchronized (locks[(slotKey.hashCode() & Integer.MAX_VALUE) % locks.length]) {
+            HyperLogLog hll = cache.getHyperLogLogs(Collections.singleton(slotKey)).get(slotKey);
+            if (hll == null) {
+                hll = new HyperLogLog(precision);
+            }
+
+            boolean changed = false;
+            for (final Object value : values) {
+                changed |= hll.offer(value);
+            }
+
+            if (changed) {
+                cache.setHyperLogLog(slotKey, expiration, hll);
+            }
+        }
+    }
+
+    /**
+     * 
+     * @param key
+     *            the key of the counter
+     * @return estimated number of distinct values added to the counter
+     * @throws TimeoutException
+     * @throws CacheException
+     */
+    public long count(final String key) throws TimeoutException, CacheException {
+        return countUnion(Collections.singleton(key));
+    }
+
+    /**
+     * 
+     * @param keys
+     *            the keys of counters
+     * @return estimated number of distinct values added to any of the counters
+     * @throws TimeoutException
+     * @throws CacheException
+     */
+    public long countUnion(final Collection<String> keys) throws TimeoutException, CacheException {
+        final List<String> slotKeys = new ArrayList<String>(keys.size() * slots);
+        for (final String key : keys) {
+            for (int i = 0; i < slots; i++) {
+                slotKeys.add(getSlotKey(key, i));
+            }
+        }
+
+        final HyperLogLog union = new HyperLogLog(precision);
+        for (final HyperLogLog hll : cache.getHyperLogLogs(slotKeys).values()) {
+            union.merge(hll);
+        }
+
+        return union.cardinality();
+    }
+
+    private String getSlotKey(final String key, final int slot) {
+        return key + SLOT_SEPARATOR + slot;
+    }
+
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.google.code.ssm.counter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * HyperLogLog sketch estimating the number of distinct values. The sketch has 2^precision registers of one byte, the
+ * relative standard error of estimation is about 1.04 / sqrt(2^precision), e.g. 0.81% for precision 14 (16KB). Sketches
+ * with the same precision are merged by taking the maximum of each register, the merged sketch estimates the number of
+ * distinct values in the union of sets. Sketches with few non-empty registers are serialized in sparse form so small
+ * sets take only a few bytes in cache.
+ * 
+ * Not thread safe.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+public class HyperLogLog {
+
+    public static final int MIN_PRECISION = 4;
+
+    public static final int MAX_PRECISION = 16;
+
+    private static final byte FORMAT_VERSION = 1;
+
+    private static final byte DENSE = 0;
+
+    private static final byte SPARSE = 1;
+
+    // version, precision and encoding
+    private static final int HEADER_SIZE = 3;
+
+    // u16 index and u8 value
+    private static final int SPARSE_ENTRY_SIZE = 3;
+
+    private static final int HASH_SEED = 0xe17a1465;
+
+    private final int precision;
+
+    private final byte[] registers;
+
+    /**
+     * 
+     * @param precision
+     *            number of bits used to select a register, between {@link #MIN_PRECISION} and {@link #MAX_PRECISION}
+     */
+    public HyperLogLog(final int precision) {
+        checkPrecision(precision);
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    static void checkPrecision(final int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException(String.format("Precision must be between %d and %d, is %d", MIN_PRECISION, MAX_PRECISION,
+                    precision));
+        }
+    }
+
+    /**
+     * Returns the smallest precision with relative standard error not higher than given one.
+     * 
+     * @param relativeError
+     *            expected relative standard error, e.g. 0.01 for 1%
+     * @return precision for the error
+     */
+    public static int precisionFor(final double relativeError) {
+        if (relativeError <= 0 || relativeError >= 1) {
+            throw new IllegalArgumentException(String.format("Relative error must be between 0 and 1, is %f", relativeError));
+        }
+
+        final double registers = Math.pow(1.04 / relativeError, 2);
+        final int precision = (int) Math.ceil(Math.log(registers) / Math.log(2));
+        if (precision > MAX_PRECISION) {
+            throw new IllegalArgumentException(String.format("Relative error %f requires too many registers", relativeError));
+        }
+
+        return Math.max(MIN_PRECISION, precision);
+    }
+
+    public static HyperLogLog fromBytes(final byte[] bytes) {
+        if (bytes.length < HEADER_SIZE || bytes[0] != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unknown format of serialized HyperLogLog");
+        }
+
+        final HyperLogLog hll = new HyperLogLog(bytes[1]);
+        if (bytes[2] == DENSE) {
+            if (bytes.length != HEADER_SIZE + hll.registers.length) {
+                throw new IllegalArgumentException(String.format("Wrong size of serialized HyperLogLog %d", bytes.length));
+            }
+            System.arraycopy(bytes, HEADER_SIZE, hll.registers, 0, hll.registers.length);
+        } else if (bytes[2] == SPARSE) {
+            if ((bytes.length - HEADER_SIZE) % SPARSE_ENTRY_SIZE != 0) {
+                throw new IllegalArgumentException(String.format("Wrong size of serialized HyperLogLog %d", bytes.length));
+            }
+            for (int i = HEADER_SIZE; i < bytes.length; i += SPARSE_ENTRY_SIZE) {
+                final int index = ((bytes[i] & 0xff) << 8) | (bytes[i + 1] & 0xff);
+                hll.registers[index] = bytes[i + 2];
+            }
+        } else {
+            throw new IllegalArgumentException(String.format("Unknown encoding of serialized HyperLogLog %d", bytes[2]));
+        }
+
+        return hll;
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Adds value to the sketch. Values are compared by their string representation.
+     * 
+     * @param value
+     *            the value
+     * @return true if the sketch changed
+     */
+    public boolean offer(final Object value) {
+        final byte[] bytes = String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+        return offerHash(hash64(bytes, 0, bytes.length, HASH_SEED));
+    }
+
+    /**
+     * Adds value identified by its 64 bit hash to the sketch. The hash must be well distributed.
+     * 
+     * @param hash
+     *            the hash of value
+     * @return true if the sketch changed
+     */
+    public boolean offerHash(final long hash) {
+        final int index = (int) (hash >>> (Long.SIZE - precision));
+        // the guard bit limits the rank to 64 - precision + 1
+        final long remaining = (hash << precision) | (1L << (precision - 1));
+        final byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Merges other sketch into this one.
+     * 
+     * @param other
+     *            sketch with the same precision
+     */
+    public void merge(final HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException(String.format("Cannot merge HyperLogLog with precision %d into %d", other.precision,
+                    precision));
+        }
+
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    /**
+     * 
+     * @return estimated number of distinct values added to the sketch
+     */
+    public long cardinality() {
+        final int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (final byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+
+        final double estimate = getAlpha(m) * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            // linear counting is more accurate for small cardinalities
+            return Math.round(m * Math.log((double) m / zeros));
+        }
+
+        // 64 bit hash doesn't need large range correction
+        return Math.round(estimate);
+    }
+
+    public boolean isEmpty() {
+        for (final byte register : registers) {
+            if (register != 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    public byte[] toBytes() {
+        int nonEmpty = 0;
+        for (final byte register : registers) {
+            if (register != 0) {
+                nonEmpty++;
+            }
+        }
+
+        if (nonEmpty * SPARSE_ENTRY_SIZE < registers.length) {
+            final byte[] bytes = new byte[HEADER_SIZE + nonEmpty * SPARSE_ENTRY_SIZE];
+            writeHeader(bytes, SPARSE);
+            int pos = HEADER_SIZE;
+            for (int i = 0; i < registers.length; i++) {
+                if (registers[i] != 0) {
+                    bytes[pos++] = (byte) (i >>> 8);
+                    bytes[pos++] = (byte) i;
+                    bytes[pos++] = registers[i];
+                }
+            }
+            return bytes;
+        }
+
+        final byte[] bytes = new byte[HEADER_SIZE + registers.length];
+        writeHeader(bytes, DENSE);
+        System.arraycopy(registers, 0, bytes, HEADER_SIZE, registers.length);
+        return bytes;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof HyperLogLog)) {
+            return false;
+        }
+
+        final HyperLogLog other = (HyperLogLog) obj;
+        return precision == other.precision && Arrays.equals(registers, other.registers);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * precision + Arrays.hashCode(registers);
+    }
+
+    @Override
+    public String toString() {
+        return "HyperLogLog(precision=" + precision + ", cardinality=" + cardinality() + ")";
+    }
+
+    private void writeHeader(final byte[] bytes, final byte encoding) {
+        bytes[0] = FORMAT_VERSION;
+        bytes[1] = (byte) precision;
+        bytes[2] = encoding;
+    }
+
+    private static double getAlpha(final int m) {
+        switch (m) {
+        case 16:
+            return 0.673;
+        case 32:
+            return 0.697;
+        case 64:
+            return 0.709;
+        default:
+            return 0.7213 / (1 + 1.079 / m);
+        }
+    }
+
+    // MurmurHash64A
+    static long hash64(final byte[] data, final int offset, final int length, final int seed) {
+        final long m = 0xc6a4a7935bd1e995L;
+        final int r = 47;
+        long h = (seed & 0xffffffffL) ^ (length * m);
+
+        final int end = offset + (length & ~7);
+        for (int i = offset; i < end; i += 8) {
+            long k = (data[i] & 0xffL) | (data[i + 1] & 0xffL) << 8 | (data[i + 2] & 0xffL) << 16 | (data[i + 3] & 0xffL) << 24
+                    | (data[i + 4] & 0xffL) << 32 | (data[i + 5] & 0xffL) << 40 | (data[i + 6] & 0xffL) << 48
+                    | (data[i + 7] & 0xffL) << 56;
+            k *= m;
+            k ^= k >>> r;
+            k *= m;
+            h ^= k;
+            h *= m;
+        }
+
+        final int tail = length & 7;
+        if (tail > 0) {
+            for (int i = tail - 1; i >= 0; i--) {
+                h ^= (data[end + i] & 0xffL) << (8 * i);
+            }
+            h *= m;
+        }
+
+        h ^= h >>> r;
+        h *= m;
+        h ^= h >>> r;
+        return h;
+    }
+
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.google.code.ssm.counter;
+
+import java.time.Clock;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.code.ssm.Cache;
+import com.google.code.ssm.api.counter.RateLimitAlgorithm;
+import com.google.code.ssm.providers.CacheException;
+import com.google.code.ssm.providers.circuit.CircuitOpenException;
+
+/**
+ * Limits the number of calls per key in a time window across all application nodes. Calls are counted by a counter per
+ * key and window incremented with a single atomic incr that also sets expiration of a new counter, so there is no race
+ * between increment and expire.
+ * 
+ * With preallocation higher than 1 a single incr reserves many calls that are then used locally without round trips to
+ * the cache. Reserved calls that are not used by the node are lost for other nodes until the next window.
+ * 
+ * Calls are allowed if the cache cannot be reached (fail open), e.g. when the circuit of the cache is open.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+public class RateLimiter {
+
+    static final String WINDOW_SEPARATOR = "#w";
+
+    private static final Logger LOG = LoggerFactory.getLogger(RateLimiter.class);
+
+    private final Cache cache;
+
+    private final long limit;
+
+    private final long windowMillis;
+
+    private final RateLimitAlgorithm algorithm;
+
+    private final int preallocation;
+
+    private final Clock clock;
+
+    private final ConcurrentMap<String, Reservation> reservations = new ConcurrentHashMap<String, Reservation>();
+
+    // counts of previous windows don't change much so they are read once per window
+    private final ConcurrentMap<String, PreviousWindow> previousWindows = new ConcurrentHashMap<String, PreviousWindow>();
+
+    private final AtomicLong lastCleanup = new AtomicLong();
+
+    public RateLimiter(final Cache cache, final long limit, final int window, final RateLimitAlgorithm algorithm) {
+        this(cache, limit, window, algorithm, 1);
+    }
+
+    /**
+     * 
+     * @param cache
+     *            the cache used to store counters
+     * @param limit
+     *            max number of calls in the window
+     * @param window
+     *            length of the window in seconds
+     * @param algorithm
+     *            the algorithm
+     * @param preallocation
+     *            number of calls reserved at once
+     */
+    public RateLimiter(final Cache cache, final long limit, final int window, final RateLimitAlgorithm algorithm, final int preallocation) {
+        this(cache, limit, window, algorithm, preallocation, Clock.systemUTC());
+    }
+
+    RateLimiter(final Cache cache, final long limit, final int window, final RateLimitAlgorithm algorithm, final int preallocation,
+            final Clock clock) {
+        if (limit < 1 || window < 1 || preallocation < 1) {
+            throw new IllegalArgumentException(String.format("Limit, window and preallocation must be positive, are %d, %d, %d", limit,
+                    window, preallocation));
+        }
+
+        this.cache = cache;
+        this.limit = limit;
+        this.windowMillis = TimeUnit.SECONDS.toMillis(window);
+        this.algorithm = algorithm;
+        this.preallocation = preallocation;
+        this.clock = clock;
+    }
+
+    public boolean tryAcquire(final String key) {
+        return tryAcquire(key, 1);
+    }
+
+    /**
+     * 
+     * @param key
+     *            the key
+     * @param permits
+     *            number of calls
+     * @return true if the calls don't exceed the limit or the cache is not available
+     */
+    public boolean tryAcquire(final String key, final int permits) {
+        final long now = clock.millis();
+        final long window = now / windowMillis;
+        cleanup(window);
+        try {
+            final double allowed = limit - getPreviousWindowWeight(key, window, now);
+            if (permits > preallocation || preallocation == 1) {
+                return increment(key, window, permits) <= allowed;
+            }
+
+            return tryAcquireReserved(key, window, permits, allowed);
+        } catch (CircuitOpenException e) {
+            LOG.debug("Circuit is open, rate limit of {} is not checked", key);
+            return true;
+        } catch (TimeoutException e) {
+            LOG.warn(String.format("Rate limit of %s not checked due to an error", key), e);
+            return true;
+        } catch (CacheException e) {
+            LOG.warn(String.format("Rate limit of %s not checked due to an error", key), e);
+            return true;
+        }
+    }
+
+    private boolean tryAcquireReserved(final String key, final long window, final int permits, final double allowed)
+            throws TimeoutException, CacheException {
+        final Reservation reservation = reservations.computeIfAbsent(key, k -> new Reservation());
+        synchronized (reservation) {
+            if (reservation.window != window) {
+                reservation.window = window;
+                reservation.permits = 0;
+            }
+
+            if (reservation.permits < permits) {
+                final long count = increment(key, window, preallocation);
+                final long granted = Math.max(0, Math.min(preallocation, (long) Math.floor(allowed) - (count - preallocation)));
+                reservation.permits += granted;
+                if (reservation.permits < permits) {
+                    return false;
+                }
+            }
+
+            reservation.permits -= permits;
+            return true;
+        }
+    }
+
+    private long increment(final String key, final long window, final int by) throws TimeoutException, CacheException {
+        // sliding window needs also the counter of the previous window
+        final int windows = algorithm == RateLimitAlgorithm.SLIDING_WINDOW ? 2 : 1;
+        final int expiration = (int) TimeUnit.MILLISECONDS.toSeconds(windowMillis * windows) + 1;
+        return cache.incr(getWindowKey(key, window), by, by, expiration);
+    }
+
+    private double getPreviousWindowWeight(final String key, final long window, final long now) throws TimeoutException,
+            CacheException {
+        if (algorithm != RateLimitAlgorithm.SLIDING_WINDOW) {
+            return 0;
+        }
+
+        PreviousWindow previous = previousWindows.get(key);
+        if (previous == null || previous.window != window - 1) {
+            final Long count = cache.getCounter(getWindowKey(key, window - 1));
+            previous = new PreviousWindow(window - 1, count == null ? 0 : count);
+            previousWindows.put(key, previous);
+        }
+
+        // part of the previous window still covered by the sliding window
+        final double weight = 1 - (double) (now - window * windowMillis) / windowMillis;
+        return previous.count * weight;
+    }
+
+    private void cleanup(final long window) {
+        final long last = lastCleanup.get();
+        if (last == window || !lastCleanup.compareAndSet(last, window)) {
+            return;
+        }
+
+        for (final Iterator<Reservation> iter = reservations.values().iterator(); iter.hasNext();) {
+            if (iter.next().window < window) {
+                iter.remove();
+            }
+        }
+        for (final Iterator<PreviousWindow> iter = previousWindows.values().iterator(); iter.hasNext();) {
+            if (iter.next().window < window - 1) {
+                iter.remove();
+            }
+        }
+    }
+
+    private String getWindowKey(final String key, final long window) {
+        return key + WINDOW_SEPARATOR + window;
+    }
+
+    private static class Reservation {
+        private long window;
+        private long permits;
+    }
+
+    private static class PreviousWindow {
+        private final long window;
+        private final long count;
+
+        PreviousWindow(final long window, final long count) {
+            this.window = window;
+            this.count = count;
+        }
+    }
+
+}
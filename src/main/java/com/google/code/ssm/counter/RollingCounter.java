@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.google.code.ssm.counter;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.google.code.ssm.Cache;
+import com.google.code.ssm.providers.CacheException;
+
+/**
+ * Counts events in a sliding time window, e.g. number of logins in the last 10 minutes. The window is split into
+ * buckets of equal length and each bucket is stored as a separate counter under the key suffixed with the bucket
+ * number. An increment changes only the counter of the current bucket, the value of the rolling counter is the sum of
+ * all buckets of the window read using a single bulk get. Buckets expire on their own after the window plus one bucket,
+ * so there is nothing to clean up. The window moves in steps of one bucket, more buckets give a smoother window at the
+ * cost of a bigger bulk get.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+public class RollingCounter {
+
+    static final String BUCKET_SEPARATOR = "#b";
+
+    // expiration above 30 days is treated by memcached as unix time
+    private static final int MAX_RELATIVE_EXPIRATION = (int) TimeUnit.DAYS.toSeconds(30);
+
+    private final Cache cache;
+
+    private final int bucketLength;
+
+    private final int buckets;
+
+    private final Clock clock;
+
+    /**
+     * 
+     * @param cache
+     *            the cache used to store buckets
+     * @param window
+     *            length of the window in seconds
+     * @param buckets
+     *            number of buckets the window is split into, the window length must be divisible by it
+     */
+    public RollingCounter(final Cache cache, final int window, final int buckets) {
+        this(cache, window, buckets, Clock.systemUTC());
+    }
+
+    RollingCounter(final Cache cache, final int window, final int buckets, final Clock clock) {
+        if (window < 1 || buckets < 1 || window % buckets != 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Window must be positive and divisible by number of buckets, window is %d, buckets %d", window, buckets));
+        }
+        if (window + window / buckets > MAX_RELATIVE_EXPIRATION) {
+            throw new IllegalArgumentException(String.format("Window %d is too long, max is %d seconds", window,
+                    MAX_RELATIVE_EXPIRATION - window / buckets));
+        }
+
+        this.cache = cache;
+        this.bucketLength = window / buckets;
+        this.buckets = buckets;
+        this.clock = clock;
+    }
+
+    /**
+     * Increments by 1 the counter under given key.
+     * 
+     * @param key
+     *            the key of the counter
+     * @return value of the current bucket after increment
+     * @throws TimeoutException
+     * @throws CacheException
+     */
+    public long increment(final String key) throws TimeoutException, CacheException {
+        return add(key, 1);
+    }
+
+    /**
+     * Adds the delta to the counter under given key.
+     * 
+     * @param key
+     *            the key of the counter
+     * @param delta
+     *            positive value added to the counter
+     * @return value of the current bucket after the change
+     * @throws TimeoutException
+     * @throws CacheException
+     */
+    public long add(final String key, final int delta) throws TimeoutException, CacheException {
+        if (delta < 1) {
+            throw new IllegalArgumentException(String.format("Delta must be positive, is %d", delta));
+        }
+
+        return cache.incr(getBucketKey(key, getCurrentBucket()), delta, delta, bucketLength * (buckets + 1));
+    }
+
+    /**
+     * Gets the number of events in the window.
+     * 
+     * @param key
+     *            the key of the counter
+     * @return the sum of all buckets of the window or null if none of them exists in cache
+     * @throws TimeoutException
+     * @throws CacheException
+     */
+    public Long get(final String key) throws TimeoutException, CacheException {
+        final Map<String, Long> counters = cache.getCounters(getBucketKeys(key));
+        if (counters.isEmpty()) {
+            return null;
+        }
+
+        long sum = 0;
+        for (final Long counter : counters.values()) {
+            sum += counter;
+        }
+
+        return sum;
+    }
+
+    List<String> getBucketKeys(final String key) {
+        final long currentBucket = getCurrentBucket();
+        final List<String> keys = new ArrayList<String>(buckets);
+        for (long bucket = currentBucket - buckets + 1; bucket <= currentBucket; bucket++) {
+            keys.add(getBucketKey(key, bucket));
+        }
+
+        return keys;
+    }
+
+    private long getCurrentBucket() {
+        return TimeUnit.MILLISECONDS.toSeconds(clock.millis()) / bucketLength;
+    }
+
+    private String getBucketKey(final String key, final long bucket) {
+        return key + BUCKET_SEPARATOR + bucket;
+    }
+
+}
@@ -57,6 +57,25 @@ public class JsonObjectMapper extends ObjectMapper { // NO_UCD
         setDefaultTyping(typer.inclusion(As.WRAPPER_OBJECT));
     }
 
+    /**
+     * Copy constructor used by {@link #copy()}.
+     * 
+     * @param src
+     *            the mapper to copy
+     * @since 4.1.4
+     */
+    protected JsonObjectMapper(final JsonObjectMapper src) {
+        super(src);
+
+        typer = src.typer;
+    }
+
+    @Override
+    public JsonObjectMapper copy() {
+        _checkInvalidCopy(JsonObjectMapper.class);
+        return new JsonObjectMapper(this);
+    }
+
     public void setSerializers(final List<JsonSerializer<?>> serializers) {
         for (JsonSerializer<?> serializer : serializers) {
             module.addSerializer(serializer);
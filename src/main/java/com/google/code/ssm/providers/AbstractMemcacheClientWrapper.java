@@ -20,7 +20,13 @@ package com.google.code.ssm.providers;
 import java.util.Collection;
 import java.util.concurrent.TimeoutException;
 
+import com.google.code.ssm.transcoders.RawTranscoder;
+
 /**
+ * Base class of provider clients. Touch is implemented by reading the raw item and storing it again with the new
+ * expiration, so the value is neither decoded nor encoded but it is downloaded and a write of the same key made between
+ * the read and the store is overwritten. Providers with native touch should override {@link #touch(String, int)} and
+ * {@link #getAndTouch(String, int, CacheTranscoder)}.
  * 
  * @author Jakub Białek
  * @since 2.0.0
@@ -28,6 +34,8 @@ import java.util.concurrent.TimeoutException;
  */
 public abstract class AbstractMemcacheClientWrapper implements CacheClient {
 
+    private static final RawTranscoder RAW_TRANSCODER = new RawTranscoder();
+
     @Override
     public void delete(final Collection<String> keys) throws TimeoutException, CacheException {
         if (keys == null || keys.isEmpty()) {
@@ -42,4 +50,28 @@ public abstract class AbstractMemcacheClientWrapper implements CacheClient {
 
     }
 
+    @Override
+    public boolean isTouchSupported() {
+        return true;
+    }
+
+    @Override
+    public boolean touch(final String key, final int exp) throws TimeoutException, CacheException {
+        final CachedObject raw = get(key, RAW_TRANSCODER);
+        return raw != null && set(key, exp, raw, RAW_TRANSCODER);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getAndTouch(final String key, final int exp, final CacheTranscoder transcoder) throws TimeoutException,
+            CacheException {
+        final CachedObject raw = get(key, RAW_TRANSCODER);
+        if (raw == null) {
+            return null;
+        }
+
+        set(key, exp, raw, RAW_TRANSCODER);
+        return (T) transcoder.decode(raw);
+    }
+
 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.providers;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Cached object backed by a {@link ByteBuffer} (or a slice of an array) without copying it. {@link #getData()} returns
+ * the backing array if the buffer spans the whole array, otherwise remaining bytes are copied, so providers able to
+ * write a buffer directly should use {@link #getBuffer()}. The content of the buffer must not be modified afterwards.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+public class ByteBufferCachedObject implements CachedObject {
+
+    private final int flags;
+
+    private final ByteBuffer buffer;
+
+    /**
+     * 
+     * @param flags
+     *            the flags
+     * @param buffer
+     *            the buffer, bytes between current position and limit are the data
+     */
+    public ByteBufferCachedObject(final int flags, final ByteBuffer buffer) {
+        if (buffer == null) {
+            throw new NullPointerException("Buffer cannot be null");
+        }
+
+        this.flags = flags;
+        this.buffer = buffer.slice();
+    }
+
+    public static ByteBufferCachedObject wrap(final int flags, final byte[] data, final int offset, final int length) {
+        return new ByteBufferCachedObject(flags, ByteBuffer.wrap(data, offset, length));
+    }
+
+    @Override
+    public byte[] getData() {
+        if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.remaining() == buffer.array().length) {
+            return buffer.array();
+        }
+
+        final byte[] data = new byte[buffer.remaining()];
+        buffer.duplicate().get(data);
+        return data;
+    }
+
+    @Override
+    public int getFlags() {
+        return flags;
+    }
+
+    /**
+     * 
+     * @return read only view of the data
+     */
+    public ByteBuffer getBuffer() {
+        return buffer.asReadOnlyBuffer();
+    }
+
+    public int getSize() {
+        return buffer.remaining();
+    }
+
+    @Override
+    public String toString() {
+        return "ByteBufferCachedObject [flags=" + flags + ", size=" + buffer.remaining() + "]";
+    }
+
+}
@@ -118,6 +118,27 @@ public interface CacheClient {
 
     <T> Map<String, T> getBulk(final Collection<String> keys, final CacheTranscoder transcoder) throws TimeoutException, CacheException;
 
+    /**
+     * Get values by keys. Clients that don't support per operation timeout ignore the timeout and use the configured
+     * operation timeout.
+     * 
+     * @param <T>
+     * @param keys
+     *            the keys
+     * @param transcoder
+     *            the transcoder to use
+     * @param timeout
+     *            the timeout in milliseconds, if the method is not returned in this time, throws TimeoutException
+     * @return values associated with given keys, missing keys are not included
+     * @throws TimeoutException
+     * @throws CacheException
+     * @since 4.1.4
+     */
+    default <T> Map<String, T> getBulk(final Collection<String> keys, final CacheTranscoder transcoder, final long timeout)
+            throws TimeoutException, CacheException {
+        return getBulk(keys, transcoder);
+    }
+
     /**
      * Gets default transcoder.
      * 
@@ -152,6 +173,80 @@ public interface CacheClient {
     <T> boolean set(final String key, final int exp, final T value, final CacheTranscoder transcoder) throws TimeoutException,
             CacheException;
 
+    /**
+     * Store key-value item to memcached. Clients that don't support per operation timeout ignore the timeout and use the
+     * configured operation timeout.
+     * 
+     * @param <T>
+     * @param key
+     *            stored key
+     * @param exp
+     *            expire time
+     * @param value
+     *            stored data
+     * @param transcoder
+     *            the transcoder to use
+     * @param timeout
+     *            the timeout in milliseconds, if the method is not returned in this time, throws TimeoutException
+     * @return boolean result
+     * @throws TimeoutException
+     * @throws CacheException
+     * @since 4.1.4
+     */
+    default <T> boolean set(final String key, final int exp, final T value, final CacheTranscoder transcoder, final long timeout)
+            throws TimeoutException, CacheException {
+        return set(key, exp, value, transcoder);
+    }
+
+    /**
+     * 
+     * @return true if this client supports {@link #touch(String, int)} and
+     *         {@link #getAndTouch(String, int, CacheTranscoder)}
+     * @since 4.1.4
+     */
+    default boolean isTouchSupported() {
+        return false;
+    }
+
+    /**
+     * Changes expiration of the item without reading or sending its value. Callers should check
+     * {@link #isTouchSupported()} first, clients that don't support touch throw {@link UnsupportedOperationException}.
+     * 
+     * @param key
+     *            the key
+     * @param exp
+     *            new expiration of the item
+     * @return true if the item exists and its expiration has been changed
+     * @throws TimeoutException
+     * @throws CacheException
+     * @since 4.1.4
+     */
+    default boolean touch(final String key, final int exp) throws TimeoutException, CacheException {
+        throw new UnsupportedOperationException(String.format("Touch is not supported by %s", getClass().getName()));
+    }
+
+    /**
+     * Gets value by key and changes expiration of the item in the same request. Callers should check
+     * {@link #isTouchSupported()} first, clients that don't support get and touch throw
+     * {@link UnsupportedOperationException}.
+     * 
+     * @param <T>
+     * @param key
+     *            the key
+     * @param exp
+     *            new expiration of the item
+     * @param transcoder
+     *            the transcoder to use
+     * @return value associated with given key or null
+     * @throws TimeoutException
+     * @throws CacheException
+     * @since 4.1.4
+     */
+    default <T> T getAndTouch(final String key, final int exp, final CacheTranscoder transcoder) throws TimeoutException,
+            CacheException {
+        throw new UnsupportedOperationException(String.format("Get and touch is not supported by %s", getClass().getName()));
+    }
+
     /**
      * Shutdowns memcached client.
      */
@@ -33,4 +33,8 @@ public class CacheException extends Exception {
         super(cause);
     }
 
+    public CacheException(final String message) {
+        super(message);
+    }
+
 }
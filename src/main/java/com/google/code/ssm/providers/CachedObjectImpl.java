@@ -37,8 +37,31 @@ public class CachedObjectImpl implements CachedObject {
     private final byte[] data;
 
     public CachedObjectImpl(final int flags, final byte[] data) {
+        this(data.clone(), flags);
+    }
+
+    private CachedObjectImpl(final byte[] data, final int flags) {
         this.flags = flags;
-        this.data = data.clone();
+        this.data = data;
+    }
+
+    /**
+     * Creates cached object that takes ownership of the given array instead of copying it. The array must not be
+     * modified afterwards.
+     * 
+     * @param flags
+     *            the flags
+     * @param data
+     *            the data
+     * @return cached object backed by the given array
+     * @since 4.1.4
+     */
+    public static CachedObjectImpl wrap(final int flags, final byte[] data) {
+        if (data == null) {
+            throw new NullPointerException("Data cannot be null");
+        }
+
+        return new CachedObjectImpl(data, flags);
     }
 
     @Override
@@ -0,0 +1,397 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.providers;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Result of bulk get holding not decoded cached objects. Each value is decoded on first access and the decoded value is
+ * remembered by its entry, so callers using only some entries don't pay for decoding of the others. Presence of a key
+ * can be checked without decoding by {@link #isAvailable(Object)}. If a value cannot be decoded (the transcoder returns
+ * null) the entry is treated as a miss: {@link #get(Object)} returns null and iteration skips it. {@link #size()} and
+ * {@link #containsKey(Object)} don't decode, they skip only misses already found. Reads don't modify the map so it can
+ * be read by many threads, at worst a value is decoded more than once. Modifications are not thread safe.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+public class LazyDecodingMap extends AbstractMap<String, Object> {
+
+    private final Map<String, Object> entries;
+
+    public LazyDecodingMap() {
+        this(new HashMap<String, Object>());
+    }
+
+    private LazyDecodingMap(final Map<String, Object> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Creates transcoder to pass to bulk get of cache client, values of the map returned by the client have to be
+     * wrapped by {@link #wrap(Map)}.
+     * 
+     * @param transcoder
+     *            the transcoder used to decode values on access
+     * @return transcoder that defers decoding
+     */
+    public static CacheTranscoder deferring(final CacheTranscoder transcoder) {
+        return new DeferringTranscoder(transcoder);
+    }
+
+    /**
+     * 
+     * @param result
+     *            the result of bulk get using transcoder created by {@link #deferring(CacheTranscoder)}
+     * @return lazy view of the result
+     */
+    public static LazyDecodingMap wrap(final Map<String, Object> result) {
+        return new LazyDecodingMap(new HashMap<String, Object>(result));
+    }
+
+    /**
+     * 
+     * @param key
+     *            the key
+     * @return true if the map contains not null value (decoded or not) for the key, values not decoded yet are
+     *         assumed to be decodable
+     */
+    public boolean isAvailable(final Object key) {
+        final Object value = entries.get(key);
+        return value != null && !(value instanceof Deferred && ((Deferred) value).isMiss());
+    }
+
+    /**
+     * Copies entries of other map, not decoded values of lazy map remain not decoded.
+     * 
+     * @param map
+     *            the map to copy
+     */
+    public void putAllLazily(final Map<String, Object> map) {
+        if (map instanceof LazyDecodingMap) {
+            entries.putAll(((LazyDecodingMap) map).entries);
+        } else {
+            entries.putAll(map);
+        }
+    }
+
+    /**
+     * 
+     * @param renaming
+     *            the function changing keys
+     * @return new map with changed keys and the same (not decoded) values
+     */
+    public LazyDecodingMap renameKeys(final Function<String, String> renaming) {
+        final Map<String, Object> renamed = new HashMap<String, Object>();
+        for (Map.Entry<String, Object> entry : entries.entrySet()) {
+            renamed.put(renaming.apply(entry.getKey()), entry.getValue());
+        }
+        return new LazyDecodingMap(renamed);
+    }
+
+    /**
+     * 
+     * @return total size of not decoded values in bytes
+     */
+    public long getEncodedSize() {
+        long size = 0;
+        for (Object value : entries.values()) {
+            if (value instanceof Deferred && !((Deferred) value).isDecoded()) {
+                size += ((Deferred) value).getSize();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Decodes all not decoded values. Values are split into parts decoded using the executor, the first part is decoded
+     * by the calling thread.
+     * 
+     * @param executor
+     *            the executor, if null all values are decoded by the calling thread
+     * @param parallelism
+     *            the maximum number of parts
+     */
+    public void decodeAll(final Executor executor, final int parallelism) {
+        final List<Deferred> deferred = new ArrayList<Deferred>();
+        for (Object value : entries.values()) {
+            if (value instanceof Deferred && !((Deferred) value).isDecoded()) {
+                deferred.add((Deferred) value);
+            }
+        }
+
+        final int size = deferred.size();
+        final int parts = executor == null ? 1 : Math.max(1, Math.min(parallelism, size));
+        final List<CompletableFuture<Void>> futures = new ArrayList<CompletableFuture<Void>>(parts - 1);
+        for (int part = 1; part < parts; part++) {
+            final int from = (int) ((long) size * part / parts);
+            final int to = (int) ((long) size * (part + 1) / parts);
+            futures.add(CompletableFuture.runAsync(() -> decode(deferred, from, to), executor));
+        }
+        decode(deferred, 0, size / parts);
+
+        for (CompletableFuture<Void> future : futures) {
+            try {
+                future.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public Object get(final Object key) {
+        return getValue(entries.get(key));
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        final Object value = entries.get(key);
+        return value instanceof Deferred ? !((Deferred) value).isMiss() : entries.containsKey(key);
+    }
+
+    @Override
+    public Object put(final String key, final Object value) {
+        final Object previous = get(key);
+        entries.put(key, value);
+        return previous;
+    }
+
+    @Override
+    public Object remove(final Object key) {
+        final Object previous = get(key);
+        entries.remove(key);
+        return previous;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Object value : entries.values()) {
+            if (!(value instanceof Deferred) || !((Deferred) value).isMiss()) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        return new AbstractSet<Map.Entry<String, Object>>() {
+
+            @Override
+            public Iterator<Map.Entry<String, Object>> iterator() {
+                final Iterator<Map.Entry<String, Object>> iterator = entries.entrySet().iterator();
+                return new Iterator<Map.Entry<String, Object>>() {
+
+                    private Map.Entry<String, Object> next;
+
+                    @Override
+                    public boolean hasNext() {
+                        // misses are skipped
+                        while (next == null && iterator.hasNext()) {
+                            final Map.Entry<String, Object> entry = iterator.next();
+                            if (!(entry.getValue() instanceof Deferred) || ((Deferred) entry.getValue()).get() != null) {
+                                next = entry;
+                            }
+                        }
+                        return next != null;
+                    }
+
+                    @Override
+                    public Map.Entry<String, Object> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        final Map.Entry<String, Object> entry = next;
+                        next = null;
+                        return new LazyEntry(entry);
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (next != null) {
+                            // hasNext() has already moved the underlying iterator past the returned entry
+                            throw new IllegalStateException("Cannot remove after hasNext()");
+                        }
+                        iterator.remove();
+                    }
+
+                };
+            }
+
+            @Override
+            public int size() {
+                return LazyDecodingMap.this.size();
+            }
+
+        };
+    }
+
+    private static Object getValue(final Object value) {
+        return value instanceof Deferred ? ((Deferred) value).get() : value;
+    }
+
+    private static void decode(final List<Deferred> deferred, final int from, final int to) {
+        for (int i = from; i < to; i++) {
+            deferred.get(i).get();
+        }
+    }
+
+    private static final class LazyEntry implements Map.Entry<String, Object> {
+
+        private final Map.Entry<String, Object> entry;
+
+        private LazyEntry(final Map.Entry<String, Object> entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public String getKey() {
+            return entry.getKey();
+        }
+
+        @Override
+        public Object getValue() {
+            return LazyDecodingMap.getValue(entry.getValue());
+        }
+
+        @Override
+        public Object setValue(final Object value) {
+            final Object previous = getValue();
+            entry.setValue(value);
+            return previous;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            final Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+            return eq(getKey(), e.getKey()) && eq(getValue(), e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            final Object value = getValue();
+            return getKey().hashCode() ^ (value == null ? 0 : value.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+
+        private static boolean eq(final Object o1, final Object o2) {
+            return o1 == null ? o2 == null : o1.equals(o2);
+        }
+
+    }
+
+    /**
+     * Holds the cached object and remembers its decoded value, decoding is idempotent so threads racing to decode the
+     * same value only do the work twice.
+     */
+    private static final class Deferred {
+
+        private static final Object NOT_DECODED = new Object();
+
+        private static final Object MISS = new Object();
+
+        private final CacheTranscoder transcoder;
+
+        private final CachedObject cachedObject;
+
+        private volatile Object decoded = NOT_DECODED;
+
+        private Deferred(final CacheTranscoder transcoder, final CachedObject cachedObject) {
+            this.transcoder = transcoder;
+            this.cachedObject = cachedObject;
+        }
+
+        private Object get() {
+            Object value = decoded;
+            if (value == NOT_DECODED) {
+                value = transcoder.decode(cachedObject);
+                if (value == null) {
+                    value = MISS;
+                }
+                decoded = value;
+            }
+            return value == MISS ? null : value;
+        }
+
+        private boolean isMiss() {
+            return decoded == MISS;
+        }
+
+        private boolean isDecoded() {
+            return decoded != NOT_DECODED;
+        }
+
+        private int getSize() {
+            if (cachedObject instanceof ByteBufferCachedObject) {
+                return ((ByteBufferCachedObject) cachedObject).getSize();
+            }
+            return cachedObject.getData().length;
+        }
+
+    }
+
+    private static final class DeferringTranscoder implements CacheTranscoder {
+
+        private final CacheTranscoder transcoder;
+
+        private DeferringTranscoder(final CacheTranscoder transcoder) {
+            this.transcoder = transcoder;
+        }
+
+        @Override
+        public Object decode(final CachedObject data) {
+            return new Deferred(transcoder, data);
+        }
+
+        @Override
+        public CachedObject encode(final Object o) {
+            // not decoded value read from one cache client may be written to another (e.g. during migration)
+            if (o instanceof Deferred) {
+                return ((Deferred) o).cachedObject;
+            }
+            return transcoder.encode(o);
+        }
+
+    }
+
+}
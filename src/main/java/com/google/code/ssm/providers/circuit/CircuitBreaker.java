@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.providers.circuit;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tracks successful and failed operations in a rolling window of time buckets. The circuit opens when the failure
+ * rate in the window exceeds the threshold and stays open for the configured time, then up to
+ * {@link CircuitBreakerConfiguration#getHalfOpenProbes()} probe operations are let through (half open state). The
+ * circuit closes when all probes succeed and opens again when any of them fails.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    private final String name;
+
+    private final CircuitBreakerConfiguration configuration;
+
+    private final long bucketNanos;
+
+    private final AtomicReferenceArray<Bucket> buckets;
+
+    private final AtomicReference<State> state = new AtomicReference<State>(State.CLOSED);
+
+    private final List<CircuitBreakerListener> listeners = new CopyOnWriteArrayList<CircuitBreakerListener>();
+
+    private final AtomicInteger probes = new AtomicInteger();
+
+    private final AtomicInteger successfulProbes = new AtomicInteger();
+
+    private final AtomicLong shortCircuited = new AtomicLong();
+
+    private volatile long openedAt;
+
+    public CircuitBreaker(final String name, final CircuitBreakerConfiguration configuration) {
+        if (configuration.getBuckets() < 1 || configuration.getWindow() < configuration.getBuckets()) {
+            throw new IllegalArgumentException("Window must have at least one bucket and each bucket must be at least 1ms long");
+        }
+
+        this.name = name;
+        this.configuration = configuration;
+        this.bucketNanos = TimeUnit.MILLISECONDS.toNanos(configuration.getWindow() / configuration.getBuckets());
+        this.buckets = new AtomicReferenceArray<Bucket>(configuration.getBuckets());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    public void addListener(final CircuitBreakerListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 
+     * @return number of operations rejected because the circuit was open
+     */
+    public long getShortCircuitedCount() {
+        return shortCircuited.get();
+    }
+
+    public long getSuccessCount() {
+        return sum(false);
+    }
+
+    public long getFailureCount() {
+        return sum(true);
+    }
+
+    /**
+     * 
+     * @return ratio of failed operations in the rolling window
+     */
+    public double getFailureRate() {
+        final long failures = getFailureCount();
+        final long total = failures + getSuccessCount();
+        return total == 0 ? 0 : (double) failures / total;
+    }
+
+    /**
+     * Checks if the operation can be executed. Each allowed operation must be followed by {@link #onSuccess()},
+     * {@link #onFailure()} or {@link #onIgnored()}.
+     * 
+     * @return true if the operation can be executed
+     */
+    public boolean allowRequest() {
+        State current = state.get();
+        if (current == State.OPEN) {
+            if (System.nanoTime() - openedAt < TimeUnit.MILLISECONDS.toNanos(configuration.getOpenDuration())) {
+                shortCircuited.incrementAndGet();
+                return false;
+            }
+
+            // probe counters are reset when the circuit opens, the thread losing this transition cannot reset them
+            transition(State.OPEN, State.HALF_OPEN);
+            current = state.get();
+        }
+
+        if (current == State.HALF_OPEN) {
+            if (probes.incrementAndGet() > configuration.getHalfOpenProbes()) {
+                probes.decrementAndGet();
+                shortCircuited.incrementAndGet();
+                return false;
+            }
+        }
+
+        return current != State.OPEN;
+    }
+
+    public void onSuccess() {
+        if (state.get() == State.HALF_OPEN) {
+            if (successfulProbes.incrementAndGet() >= configuration.getHalfOpenProbes()) {
+                clearBuckets();
+                transition(State.HALF_OPEN, State.CLOSED);
+            }
+            return;
+        }
+
+        getBucket().successes.increment();
+    }
+
+    /**
+     * Ends an allowed operation that neither succeeded nor failed because of memcached, e.g. failed to serialize a
+     * value. It isn't recorded and in half open state its probe permit is released for another operation.
+     */
+    public void onIgnored() {
+        if (state.get() == State.HALF_OPEN) {
+            probes.updateAndGet(count -> Math.max(0, count - 1));
+        }
+    }
+
+    public void onFailure() {
+        final State current = state.get();
+        if (current == State.HALF_OPEN) {
+            open(State.HALF_OPEN);
+            return;
+        }
+
+        getBucket().failures.increment();
+        if (current == State.CLOSED) {
+            final long failures = getFailureCount();
+            final long total = failures + getSuccessCount();
+            if (total >= configuration.getMinimumRequests() && failures >= total * configuration.getFailureRateThreshold()) {
+                open(State.CLOSED);
+            }
+        }
+    }
+
+    /**
+     * Closes the circuit and forgets all recorded operations.
+     */
+    public void reset() {
+        clearBuckets();
+        final State previous = state.getAndSet(State.CLOSED);
+        if (previous != State.CLOSED) {
+            notifyListeners(previous, State.CLOSED);
+        }
+    }
+
+    private void open(final State from) {
+        openedAt = System.nanoTime();
+        if (transition(from, State.OPEN)) {
+            // nothing is probed while the circuit is open
+            probes.set(0);
+            successfulProbes.set(0);
+        }
+    }
+
+    private boolean transition(final State from, final State to) {
+        if (state.compareAndSet(from, to)) {
+            notifyListeners(from, to);
+            return true;
+        }
+        return false;
+    }
+
+    private void notifyListeners(final State from, final State to) {
+        LOGGER.info("Circuit of cache {} changed state from {} to {}", new Object[] { name, from, to });
+        for (CircuitBreakerListener listener : listeners) {
+            try {
+                listener.onStateChange(name, from, to);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Error while notifying circuit breaker listener", e);
+            }
+        }
+    }
+
+    private Bucket getBucket() {
+        final long epoch = System.nanoTime() / bucketNanos;
+        final int index = (int) Math.floorMod(epoch, (long) buckets.length());
+        Bucket bucket = buckets.get(index);
+        while (bucket == null || bucket.epoch != epoch) {
+            final Bucket fresh = new Bucket(epoch);
+            if (buckets.compareAndSet(index, bucket, fresh)) {
+                return fresh;
+            }
+            bucket = buckets.get(index);
+        }
+
+        return bucket;
+    }
+
+    private long sum(final boolean failures) {
+        final long epoch = System.nanoTime() / bucketNanos;
+        long sum = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            final Bucket bucket = buckets.get(i);
+            if (bucket != null && epoch - bucket.epoch < buckets.length()) {
+                sum += failures ? bucket.failures.sum() : bucket.successes.sum();
+            }
+        }
+
+        return sum;
+    }
+
+    private void clearBuckets() {
+        for (int i = 0; i < buckets.length(); i++) {
+            buckets.set(i, null);
+        }
+    }
+
+    private static final class Bucket {
+
+        private final long epoch;
+
+        private final LongAdder successes = new LongAdder();
+
+        private final LongAdder failures = new LongAdder();
+
+        private Bucket(final long epoch) {
+            this.epoch = epoch;
+        }
+
+    }
+
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.providers.circuit;
+
+import java.net.SocketAddress;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+import com.google.code.ssm.providers.CacheClient;
+import com.google.code.ssm.providers.CacheException;
+import com.google.code.ssm.providers.CacheTranscoder;
+
+/**
+ * Guards cache client with {@link CircuitBreaker}. Timeouts and cache exceptions are counted as failures. When the
+ * circuit is open operations are not sent to memcached: reads return misses, writes and deletes are dropped (return
+ * false), incr, decr and flush throw {@link CircuitOpenException}.
+ * 
+ * Dropped deletes are not replayed when the circuit closes, so expiration of cached values limits how long stale values
+ * can be served after memcached recovers.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+public class CircuitBreakerCacheClient implements CacheClient {
+
+    private final CacheClient cacheClient;
+
+    private final CircuitBreaker circuitBreaker;
+
+    public CircuitBreakerCacheClient(final CacheClient cacheClient, final CircuitBreaker circuitBreaker) {
+        this.cacheClient = cacheClient;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    public CacheClient getCacheClient() {
+        return cacheClient;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    @Override
+    public boolean add(final String key, final int exp, final Object value) throws TimeoutException, CacheException {
+        return execute(() -> cacheClient.add(key, exp, value), false);
+    }
+
+    @Override
+    public <T> boolean add(final String key, final int exp, final T value, final CacheTranscoder transcoder) throws TimeoutException,
+            CacheException {
+        return execute(() -> cacheClient.add(key, exp, value, transcoder), false);
+    }
+
+    @Override
+    public long decr(final String key, final int by) throws TimeoutException, CacheException {
+        return executeOrThrow(() -> cacheClient.decr(key, by));
+    }
+
+    @Override
+    public long decr(final String key, final int by, final long def) throws TimeoutException, CacheException {
+        return executeOrThrow(() -> cacheClient.decr(key, by, def));
+    }
+
+    @Override
+    public boolean delete(final String key) throws TimeoutException, CacheException {
+        return execute(() -> cacheClient.delete(key), false);
+    }
+
+    @Override
+    public void delete(final Collection<String> keys) throws TimeoutException, CacheException {
+        execute(() -> {
+            cacheClient.delete(keys);
+            return null;
+        }, null);
+    }
+
+    @Override
+    public void flush() throws TimeoutException, CacheException {
+        executeOrThrow(() -> {
+            cacheClient.flush();
+            return null;
+        });
+    }
+
+    @Override
+    public Object get(final String key) throws TimeoutException, CacheException {
+        return execute(() -> cacheClient.get(key), null);
+    }
+
+    @Override
+    public <T> T get(final String key, final CacheTranscoder transcoder) throws TimeoutException, CacheException {
+        return execute(() -> cacheClient.<T> get(key, transcoder), null);
+    }
+
+    @Override
+    public <T> T get(final String key, final CacheTranscoder transcoder, final long timeout) throws TimeoutException, CacheException {
+        return execute(() -> cacheClient.<T> get(key, transcoder, timeout), null);
+    }
+
+    @Override
+    public <T> T getAndTouch(final String key, final int exp, final CacheTranscoder transcoder) throws TimeoutException,
+            CacheException {
+        return execute(() -> cacheClient.<T> getAndTouch(key, exp, transcoder), null);
+    }
+
+    @Override
+    public Collection<SocketAddress> getAvailableServers() {
+        return cacheClient.getAvailableServers();
+    }
+
+    @Override
+    public Map<String, Object> getBulk(final Collection<String> keys) throws TimeoutException, CacheException {
+        return execute(() -> cacheClient.getBulk(keys), Collections.<String, Object> emptyMap());
+    }
+
+    @Override
+    public <T> Map<String, T> getBulk(final Collection<String> keys, final CacheTranscoder transcoder) throws TimeoutException,
+            CacheException {
+        return execute(() -> cacheClient.<T> getBulk(keys, transcoder), Collections.<String, T> emptyMap());
+    }
+
+    @Override
+    public <T> Map<String, T> getBulk(final Collection<String> keys, final CacheTranscoder transcoder, final long timeout)
+            throws TimeoutException, CacheException {
+        return execute(() -> cacheClient.<T> getBulk(keys, transcoder, timeout), Collections.<String, T> emptyMap());
+    }
+
+    @Override
+    public CacheTranscoder getTranscoder() {
+        return cacheClient.getTranscoder();
+    }
+
+    @Override
+    public long incr(final String key, final int by) throws TimeoutException, CacheException {
+        return executeOrThrow(() -> cacheClient.incr(key, by));
+    }
+
+    @Override
+    public long incr(final String key, final int by, final long def) throws TimeoutException, CacheException {
+        return executeOrThrow(() -> cacheClient.incr(key, by, def));
+    }
+
+    @Override
+    public long incr(final String key, final int by, final long def, final int exp) throws TimeoutException, CacheException {
+        return executeOrThrow(() -> cacheClient.incr(key, by, def, exp));
+    }
+
+    @Override
+    public boolean set(final String key, final int exp, final Object value) throws TimeoutException, CacheException {
+        return execute(() -> cacheClient.set(key, exp, value), false);
+    }
+
+    @Override
+    public <T> boolean set(final String key, final int exp, final T value, final CacheTranscoder transcoder) throws TimeoutException,
+            CacheException {
+        return execute(() -> cacheClient.set(key, exp, value, transcoder), false);
+    }
+
+    @Override
+    public <T> boolean set(final String key, final int exp, final T value, final CacheTranscoder transcoder, final long timeout)
+            throws TimeoutException, CacheException {
+        return execute(() -> cacheClient.set(key, exp, value, transcoder, timeout), false);
+    }
+
+    @Override
+    public void shutdown() {
+        cacheClient.shutdown();
+    }
+
+    @Override
+    public boolean isTouchSupported() {
+        return cacheClient.isTouchSupported();
+    }
+
+    @Override
+    public boolean touch(final String key, final int exp) throws TimeoutException, CacheException {
+        return execute(() -> cacheClient.touch(key, exp), false);
+    }
+
+    @Override
+    public Object getNativeClient() {
+        return cacheClient.getNativeClient();
+    }
+
+    private <T> T execute(final Operation<T> operation, final T shortCircuitResult) throws TimeoutException, CacheException {
+        if (!circuitBreaker.allowRequest()) {
+            return shortCircuitResult;
+        }
+
+        return call(operation);
+    }
+
+    private <T> T executeOrThrow(final Operation<T> operation) throws TimeoutException, CacheException {
+        if (!circuitBreaker.allowRequest()) {
+            throw new CircuitOpenException(circuitBreaker.getName());
+        }
+
+        return call(operation);
+    }
+
+    private <T> T call(final Operation<T> operation) throws TimeoutException, CacheException {
+        final T result;
+        try {
+            result = operation.execute();
+        } catch (TimeoutException | CacheException e) {
+            circuitBreaker.onFailure();
+            throw e;
+        } catch (RuntimeException | Error e) {
+            // not a memcached failure (e.g. serialization error) nor a success but the probe permit has to be released
+            circuitBreaker.onIgnored();
+            throw e;
+        }
+
+        circuitBreaker.onSuccess();
+        return result;
+    }
+
+    private interface Operation<T> {
+
+        T execute() throws TimeoutException, CacheException;
+
+    }
+
+}
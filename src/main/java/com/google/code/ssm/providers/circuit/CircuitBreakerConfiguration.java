@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.providers.circuit;
+
+import lombok.Data;
+
+/**
+ * Settings of {@link CircuitBreaker}.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+@Data
+public class CircuitBreakerConfiguration {
+
+    /**
+     * The length of the rolling window in milliseconds.
+     */
+    private long window = 10000;
+
+    /**
+     * The number of buckets in the rolling window.
+     */
+    private int buckets = 10;
+
+    /**
+     * The ratio of failed (timed out or erroneous) operations in the rolling window that opens the circuit.
+     */
+    private double failureRateThreshold = 0.5;
+
+    /**
+     * The minimum number of operations in the rolling window required to open the circuit.
+     */
+    private int minimumRequests = 20;
+
+    /**
+     * The time in milliseconds the circuit stays open before probe operations are let through.
+     */
+    private long openDuration = 5000;
+
+    /**
+     * The number of successful probe operations in half open state required to close the circuit.
+     */
+    private int halfOpenProbes = 3;
+
+}
@@ -0,0 +1,593 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.providers.hedged;
+
+import java.net.SocketAddress;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.code.ssm.providers.CacheClient;
+import com.google.code.ssm.providers.CacheException;
+import com.google.code.ssm.providers.CacheTranscoder;
+import com.google.code.ssm.util.LatencyTracker;
+
+/**
+ * Keeps the same data in two pools and hedges reads. All writes are sent to the primary and then to the secondary pool,
+ * errors of the secondary pool are only logged. A read is sent to the primary pool on the executor. If the primary pool
+ * doesn't answer within the configured percentile of its recent latencies the same read is sent to the secondary pool
+ * as a hedge, the primary read keeps running and whichever successful answer comes first is used. The number of hedges
+ * is limited by {@link HedgingConfiguration#getMaxHedgeRate()} so a slow primary pool cannot double the load. The
+ * executor is bounded: if it's busy a hedge is skipped and the read only waits for the primary pool, a primary read is
+ * run on the calling thread without hedging. If the primary pool fails the read is retried on the secondary pool.
+ * 
+ * Counters are incremented in both pools but can diverge if one of the pools was unavailable or evicted a counter.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+public class HedgedCacheClient implements CacheClient {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HedgedCacheClient.class);
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    private static final long TOKEN = 1000;
+
+    private static final long IDLE_THREAD_TIMEOUT = 60;
+
+    private static final RejectedExecutionHandler SKIP_CALL = (r, executor) -> ((Call<?>) r).skip();
+
+    private final CacheClient primary;
+
+    private final CacheClient secondary;
+
+    private final HedgingConfiguration configuration;
+
+    private final LatencyTracker latencyTracker;
+
+    private final ExecutorService executor;
+
+    private final boolean ownExecutor;
+
+    private final AtomicLong hedgeTokens;
+
+    private final AtomicLong reads = new AtomicLong();
+
+    private final AtomicLong hedges = new AtomicLong();
+
+    private final AtomicLong secondaryWins = new AtomicLong();
+
+    /**
+     * 
+     * @param primary
+     *            the primary pool
+     * @param secondary
+     *            the secondary pool
+     * @param configuration
+     *            the hedging settings
+     * @param executor
+     *            the executor used to run primary reads and hedges, if null a new one limited to
+     *            {@link HedgingConfiguration#getMaxHedgeThreads()} threads is created and shut down together with this
+     *            client
+     */
+    public HedgedCacheClient(final CacheClient primary, final CacheClient secondary, final HedgingConfiguration configuration,
+            final ExecutorService executor) {
+        this.primary = primary;
+        this.secondary = secondary;
+        this.configuration = configuration;
+        this.latencyTracker = new LatencyTracker(configuration.getLatencyWindow(), TimeUnit.MILLISECONDS);
+        this.hedgeTokens = new AtomicLong(configuration.getMaxHedgeBurst() * TOKEN);
+        this.ownExecutor = executor == null;
+        this.executor = ownExecutor ? new ThreadPoolExecutor(0, configuration.getMaxHedgeThreads(), IDLE_THREAD_TIMEOUT,
+                TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), r -> {
+                    final Thread thread = new Thread(r, "ssm-hedged-" + THREAD_COUNTER.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, SKIP_CALL) : executor;
+    }
+
+    public CacheClient getPrimary() {
+        return primary;
+    }
+
+    public CacheClient getSecondary() {
+        return secondary;
+    }
+
+    public long getReadCount() {
+        return reads.get();
+    }
+
+    public long getHedgeCount() {
+        return hedges.get();
+    }
+
+    /**
+     * 
+     * @return number of reads answered by the secondary pool
+     */
+    public long getSecondaryWinCount() {
+        return secondaryWins.get();
+    }
+
+    /**
+     * 
+     * @return current hedge delay in milliseconds
+     */
+    public long getHedgeDelay() {
+        return TimeUnit.NANOSECONDS.toMillis(getHedgeDelayNanos());
+    }
+
+    @Override
+    public boolean add(final String key, final int exp, final Object value) throws TimeoutException, CacheException {
+        final boolean added = primary.add(key, exp, value);
+        try {
+            secondary.add(key, exp, value);
+        } catch (TimeoutException | CacheException | RuntimeException e) {
+            logSecondaryError("add", key, e);
+        }
+        return added;
+    }
+
+    @Override
+    public <T> boolean add(final String key, final int exp, final T value, final CacheTranscoder transcoder) throws TimeoutException,
+            CacheException {
+        final boolean added = primary.add(key, exp, value, transcoder);
+        try {
+            secondary.add(key, exp, value, transcoder);
+        } catch (TimeoutException | CacheException | RuntimeException e) {
+            logSecondaryError("add", key, e);
+        }
+        return added;
+    }
+
+    @Override
+    public long decr(final String key, final int by) throws TimeoutException, CacheException {
+        final long value = primary.decr(key, by);
+        try {
+            secondary.decr(key, by);
+        } catch (TimeoutException | CacheException | RuntimeException e) {
+            logSecondaryError("decr", key, e);
+        }
+        return value;
+    }
+
+    @Override
+    public long decr(final String key, final int by, final long def) throws TimeoutException, CacheException {
+        final long value = primary.decr(key, by, def);
+        try {
+            secondary.decr(key, by, def);
+        } catch (TimeoutException | CacheException | RuntimeException e) {
+            logSecondaryError("decr", key, e);
+        }
+        return value;
+    }
+
+    @Override
+    public boolean delete(final String key) throws TimeoutException, CacheException {
+        final boolean deleted = primary.delete(key);
+        try {
+            secondary.delete(key);
+        } catch (TimeoutException | CacheException | RuntimeException e) {
+            logSecondaryError("delete", key, e);
+        }
+        return deleted;
+    }
+
+    @Override
+    public void delete(final Collection<String> keys) throws TimeoutException, CacheException {
+        primary.delete(keys);
+        try {
+            secondary.delete(keys);
+        } catch (TimeoutException | CacheException | RuntimeException e) {
+            logSecondaryError("delete", keys, e);
+        }
+    }
+
+    @Override
+    public void flush() throws TimeoutException, CacheException {
+        primary.flush();
+        secondary.flush();
+    }
+
+    @Override
+    public Object get(final String key) throws TimeoutException, CacheException {
+        return read((client, timeout) -> client.get(key), configuration.getReadTimeout());
+    }
+
+    @Override
+    public <T> T get(final String key, final CacheTranscoder transcoder) throws TimeoutException, CacheException {
+        return read((client, timeout) -> client.<T> get(key, transcoder, timeout), configuration.getReadTimeout());
+    }
+
+    @Override
+    public <T> T get(final String key, final CacheTranscoder transcoder, final long timeout) throws TimeoutException, CacheException {
+        return read((client, readTimeout) -> client.<T> get(key, transcoder, readTimeout), timeout);
+    }
+
+    @Override
+    public <T> T getAndTouch(final String key, final int exp, final CacheTranscoder transcoder) throws TimeoutException,
+            CacheException {
+        // checked up front so the read is neither hedged nor retried on the secondary just to fail again
+        checkTouchSupported();
+        return read((client, timeout) -> client.<T> getAndTouch(key, exp, transcoder), configuration.getReadTimeout());
+    }
+
+    @Override
+    public Collection<SocketAddress> getAvailableServers() {
+        final Collection<SocketAddress> servers = new LinkedHashSet<SocketAddress>();
+        addAll(servers, primary.getAvailableServers());
+        addAll(servers, secondary.getAvailableServers());
+        return servers;
+    }
+
+    @Override
+    public Map<String, Object> getBulk(final Collection<String> keys) throws TimeoutException, CacheException {
+        return read((client, timeout) -> client.getBulk(keys), configuration.getReadTimeout());
+    }
+
+    @Override
+    public <T> Map<String, T> getBulk(final Collection<String> keys, final CacheTranscoder transcoder) throws TimeoutException,
+            CacheException {
+        return read((client, timeout) -> client.<T> getBulk(keys, transcoder, timeout), configuration.getReadTimeout());
+    }
+
+    @Override
+    public <T> Map<String, T> getBulk(final Collection<String> keys, final CacheTranscoder transcoder, final long timeout)
+            throws TimeoutException, CacheException {
+        return read((client, readTimeout) -> client.<T> getBulk(keys, transcoder, readTimeout), timeout);
+    }
+
+    @Override
+    public CacheTranscoder getTranscoder() {
+        return primary.getTranscoder();
+    }
+
+    @Override
+    public long incr(final String key, final int by) throws TimeoutException, CacheException {
+        final long value = primary.incr(key, by);
+        try {
+            secondary.incr(key, by);
+        } catch (TimeoutException | CacheException | RuntimeException e) {
+            logSecondaryError("incr", key, e);
+        }
+        return value;
+    }
+
+    @Override
+    public long incr(final String key, final int by, final long def) throws TimeoutException, CacheException {
+        final long value = primary.incr(key, by, def);
+        try {
+            secondary.incr(key, by, def);
+        } catch (TimeoutException | CacheException | RuntimeException e) {
+            logSecondaryError("incr", key, e);
+        }
+        return value;
+    }
+
+    @Override
+    public long incr(final String key, final int by, final long def, final int exp) throws TimeoutException, CacheException {
+        final long value = primary.incr(key, by, def, exp);
+        try {
+            secondary.incr(key, by, def, exp);
+        } catch (TimeoutException | CacheException | RuntimeException e) {
+            logSecondaryError("incr", key, e);
+        }
+        return value;
+    }
+
+    @Override
+    public boolean set(final String key, final int exp, final Object value) throws TimeoutException, CacheException {
+        final boolean stored = primary.set(key, exp, value);
+        try {
+            secondary.set(key, exp, value);
+        } catch (TimeoutException | CacheException | RuntimeException e) {
+            logSecondaryError("set", key, e);
+        }
+        return stored;
+    }
+
+    @Override
+    public <T> boolean set(final String key, final int exp, final T value, final CacheTranscoder transcoder) throws TimeoutException,
+            CacheException {
+        final boolean stored = primary.set(key, exp, value, transcoder);
+        try {
+            secondary.set(key, exp, value, transcoder);
+        } catch (TimeoutException | CacheException | RuntimeException e) {
+            logSecondaryError("set", key, e);
+        }
+        return stored;
+    }
+
+    @Override
+    public <T> boolean set(final String key, final int exp, final T value, final CacheTranscoder transcoder, final long timeout)
+            throws TimeoutException, CacheException {
+        final boolean stored = primary.set(key, exp, value, transcoder, timeout);
+        try {
+            secondary.set(key, exp, value, transcoder, timeout);
+        } catch (TimeoutException | CacheException | RuntimeException e) {
+            logSecondaryError("set", key, e);
+        }
+        return stored;
+    }
+
+    @Override
+    public void shutdown() {
+        primary.shutdown();
+        secondary.shutdown();
+        if (ownExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    @Override
+    public boolean isTouchSupported() {
+        return primary.isTouchSupported() && secondary.isTouchSupported();
+    }
+
+    @Override
+    public boolean touch(final String key, final int exp) throws TimeoutException, CacheException {
+        checkTouchSupported();
+        final boolean touched = primary.touch(key, exp);
+        try {
+            secondary.touch(key, exp);
+        } catch (TimeoutException | CacheException | RuntimeException e) {
+            logSecondaryError("touch", key, e);
+        }
+        return touched;
+    }
+
+    @Override
+    public Object getNativeClient() {
+        return primary.getNativeClient();
+    }
+
+    private void checkTouchSupported() {
+        if (!isTouchSupported()) {
+            throw new UnsupportedOperationException(String.format("Touch is not supported by both clients of %s", getClass().getName()));
+        }
+    }
+
+    private <T> T read(final Read<T> read, final long timeout) throws TimeoutException, CacheException {
+        reads.incrementAndGet();
+        refillHedgeTokens();
+
+        final long start = System.nanoTime();
+        final long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeout);
+        final Call<T> primaryCall = new Call<T>(primary, read, timeout);
+        if (!submit(primaryCall)) {
+            LOGGER.debug("Executor is busy, reading from primary pool on the calling thread");
+            return readOnCallingThread(read, timeout, start, deadline);
+        }
+
+        final CompletableFuture<T> primaryResult = primaryCall.result;
+        // the primary read is never cut off, so only its real latency is recorded even if a hedge answers first
+        primaryResult.whenComplete((value, e) -> recordLatency(start, e));
+
+        try {
+            return await(primaryResult, Math.min(getHedgeDelayNanos(), deadline - System.nanoTime()));
+        } catch (TimeoutException e) {
+            if (primaryResult.isDone() || System.nanoTime() >= deadline || !tryAcquireHedgeToken()) {
+                return await(primaryResult, deadline - System.nanoTime());
+            }
+        } catch (CacheException | RuntimeException e) {
+            LOGGER.debug("Read from primary pool failed, reading from secondary pool", e);
+            return read.execute(secondary, toMillis(deadline - System.nanoTime()));
+        }
+
+        final Call<T> hedge = new Call<T>(secondary, read, toMillis(deadline - System.nanoTime()));
+        if (!submit(hedge)) {
+            LOGGER.debug("Executor is busy, hedge is skipped");
+            hedgeTokens.addAndGet(TOKEN);
+            return await(primaryResult, deadline - System.nanoTime());
+        }
+
+        hedges.incrementAndGet();
+        return await(firstSuccessful(primaryResult, hedge.result), deadline - System.nanoTime());
+    }
+
+    private <T> T readOnCallingThread(final Read<T> read, final long timeout, final long start, final long deadline)
+            throws TimeoutException, CacheException {
+        try {
+            final T value = read.execute(primary, timeout);
+            recordLatency(start, null);
+            return value;
+        } catch (TimeoutException e) {
+            recordLatency(start, e);
+            throw e;
+        } catch (CacheException | RuntimeException e) {
+            LOGGER.debug("Read from primary pool failed, reading from secondary pool", e);
+            return read.execute(secondary, toMillis(deadline - System.nanoTime()));
+        }
+    }
+
+    private boolean submit(final Call<?> call) {
+        try {
+            executor.execute(call);
+        } catch (RejectedExecutionException e) {
+            call.skip();
+        }
+        return !call.result.isCancelled();
+    }
+
+    private void recordLatency(final long start, final Throwable error) {
+        // a timeout of the primary pool itself is a real (lower bound) latency, other errors say nothing about it
+        if (error == null || unwrap(error) instanceof TimeoutException) {
+            latencyTracker.record(System.nanoTime() - start);
+        }
+    }
+
+    private <T> CompletableFuture<T> firstSuccessful(final CompletableFuture<T> primaryResult, final CompletableFuture<T> secondaryResult) {
+        final CompletableFuture<T> result = new CompletableFuture<T>();
+        final AtomicInteger failures = new AtomicInteger();
+        primaryResult.whenComplete((value, e) -> {
+            if (e == null) {
+                result.complete(value);
+            } else if (failures.incrementAndGet() == 2) {
+                result.completeExceptionally(e);
+            }
+        });
+        secondaryResult.whenComplete((value, e) -> {
+            if (e == null) {
+                if (result.complete(value)) {
+                    secondaryWins.incrementAndGet();
+                }
+            } else if (failures.incrementAndGet() == 2) {
+                result.completeExceptionally(e);
+            }
+        });
+
+        return result;
+    }
+
+    private <T> T await(final CompletableFuture<T> future, final long timeoutNanos) throws TimeoutException, CacheException {
+        try {
+            return future.get(Math.max(timeoutNanos, 0), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CacheException(e);
+        } catch (ExecutionException e) {
+            final Throwable cause = unwrap(e.getCause());
+
+            if (cause instanceof TimeoutException) {
+                throw (TimeoutException) cause;
+            } else if (cause instanceof CacheException) {
+                throw (CacheException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new CacheException(e);
+        }
+    }
+
+    private static Throwable unwrap(final Throwable error) {
+        Throwable cause = error;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    private static long toMillis(final long nanos) {
+        // rounded up so a positive remaining time doesn't become no timeout
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(nanos + TimeUnit.MILLISECONDS.toNanos(1) - 1));
+    }
+
+    private long getHedgeDelayNanos() {
+        final long minDelay = TimeUnit.MILLISECONDS.toNanos(configuration.getMinDelay());
+        if (latencyTracker.getCount() < configuration.getMinSamples()) {
+            return Math.max(minDelay, TimeUnit.MILLISECONDS.toNanos(configuration.getInitialDelay()));
+        }
+
+        return Math.max(minDelay, latencyTracker.getPercentile(configuration.getPercentile()));
+    }
+
+    /**
+     * Each read adds a fraction of a hedge token equal to the max hedge rate, each hedge takes one token.
+     */
+    private void refillHedgeTokens() {
+        final long max = configuration.getMaxHedgeBurst() * TOKEN;
+        final long refill = (long) (configuration.getMaxHedgeRate() * TOKEN);
+        long tokens;
+        do {
+            tokens = hedgeTokens.get();
+            if (tokens >= max) {
+                return;
+            }
+        } while (!hedgeTokens.compareAndSet(tokens, Math.min(max, tokens + refill)));
+    }
+
+    private boolean tryAcquireHedgeToken() {
+        long tokens;
+        do {
+            tokens = hedgeTokens.get();
+            if (tokens < TOKEN) {
+                return false;
+            }
+        } while (!hedgeTokens.compareAndSet(tokens, tokens - TOKEN));
+
+        return true;
+    }
+
+    private void logSecondaryError(final String operation, final Object key, final Exception e) {
+        LOGGER.warn(String.format("Cannot %s %s in secondary pool", operation, key), e);
+    }
+
+    private static void addAll(final Collection<SocketAddress> servers, final Collection<SocketAddress> available) {
+        if (available != null) {
+            servers.addAll(available);
+        }
+    }
+
+    private interface Read<T> {
+
+        T execute(CacheClient client, long timeout) throws TimeoutException, CacheException;
+
+    }
+
+    private static final class Call<T> implements Runnable {
+
+        private final CompletableFuture<T> result = new CompletableFuture<T>();
+
+        private final CacheClient client;
+
+        private final Read<T> read;
+
+        private final long timeout;
+
+        private Call(final CacheClient client, final Read<T> read, final long timeout) {
+            this.client = client;
+            this.read = read;
+            this.timeout = timeout;
+        }
+
+        @Override
+        public void run() {
+            try {
+                result.complete(read.execute(client, timeout));
+            } catch (TimeoutException | CacheException | RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }
+
+        private void skip() {
+            result.cancel(false);
+        }
+
+    }
+
+}
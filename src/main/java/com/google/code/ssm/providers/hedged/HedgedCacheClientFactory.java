@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.providers.hedged;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import com.google.code.ssm.config.AddressProvider;
+import com.google.code.ssm.providers.CacheClient;
+import com.google.code.ssm.providers.CacheClientFactory;
+import com.google.code.ssm.providers.CacheConfiguration;
+
+/**
+ * Creates {@link HedgedCacheClient}. The primary pool uses addresses passed to the factory, the secondary pool uses
+ * addresses from the secondary address provider. Both pools are created by the delegate factory.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+@Getter
+@Setter
+public class HedgedCacheClientFactory implements CacheClientFactory {
+
+    private CacheClientFactory cacheClientFactory;
+
+    private AddressProvider secondaryAddressProvider;
+
+    private HedgingConfiguration hedgingConfiguration = new HedgingConfiguration();
+
+    /**
+     * Optional executor used to run hedges, its rejection handler must skip or abort the rejected hedge.
+     */
+    private ExecutorService executorService;
+
+    @Override
+    public CacheClient create(final List<InetSocketAddress> addrs, final CacheConfiguration configuration) throws IOException {
+        if (cacheClientFactory == null) {
+            throw new IllegalStateException("'cacheClientFactory' is required and cannot be null");
+        }
+        if (secondaryAddressProvider == null) {
+            throw new IllegalStateException("'secondaryAddressProvider' is required and cannot be null");
+        }
+
+        final CacheClient primary = cacheClientFactory.create(addrs, configuration);
+        final CacheClient secondary;
+        try {
+            secondary = cacheClientFactory.create(secondaryAddressProvider.getAddresses(), configuration);
+        } catch (IOException | RuntimeException e) {
+            primary.shutdown();
+            throw e;
+        }
+
+        return new HedgedCacheClient(primary, secondary, hedgingConfiguration, executorService);
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.providers.hedged;
+
+import lombok.Data;
+
+/**
+ * Settings of {@link HedgedCacheClient}.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+@Data
+public class HedgingConfiguration {
+
+    /**
+     * The percentile of primary read latency after which a hedge read is sent to the secondary pool.
+     */
+    private double percentile = 95;
+
+    /**
+     * The lower bound of hedge delay in milliseconds.
+     */
+    private long minDelay = 1;
+
+    /**
+     * The hedge delay in milliseconds used until enough latencies of the primary pool are recorded.
+     */
+    private long initialDelay = 10;
+
+    /**
+     * The number of recorded latencies required to use the percentile as a hedge delay.
+     */
+    private int minSamples = 100;
+
+    /**
+     * The length of a latency window in milliseconds, latencies older than two windows are forgotten.
+     */
+    private long latencyWindow = 60000;
+
+    /**
+     * The maximum ratio of hedged reads to all reads.
+     */
+    private double maxHedgeRate = 0.05;
+
+    /**
+     * The number of hedges that can be sent in a burst above {@link #maxHedgeRate}.
+     */
+    private int maxHedgeBurst = 10;
+
+    /**
+     * The maximum number of reads (primary reads and hedges) running at the same time if the client creates its own
+     * executor. Above the limit hedges are skipped and the read waits for the primary pool, primary reads are run on
+     * the calling thread without hedging.
+     */
+    private int maxHedgeThreads = 64;
+
+    /**
+     * The timeout of a read in milliseconds used when the caller doesn't pass one.
+     */
+    private long readTimeout = 1000;
+
+}
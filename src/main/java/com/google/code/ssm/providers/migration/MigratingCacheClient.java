@@ -0,0 +1,460 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.providers.migration;
+
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.code.ssm.providers.CacheClient;
+import com.google.code.ssm.providers.CacheException;
+import com.google.code.ssm.providers.CacheTranscoder;
+import com.google.code.ssm.providers.CachedObject;
+import com.google.code.ssm.transcoders.RawTranscoder;
+
+/**
+ * Used for a while after memcached addresses change. All operations go to the new client. During the migration window
+ * a miss in the new client is read from the old client and the value found there is copied (using add so a newer value
+ * is never overwritten) to the new client. Deletes are sent to both clients so an invalidated value cannot be copied
+ * back. Counters are not copied when incremented, only when read.
+ * 
+ * After the window the old client is kept open for the drain timeout so operations started before the swap can complete,
+ * then it's shut down.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+public class MigratingCacheClient implements CacheClient {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MigratingCacheClient.class);
+
+    private static final RawTranscoder RAW_TRANSCODER = new RawTranscoder();
+
+    private final CacheClient newClient;
+
+    private final CacheClient oldClient;
+
+    private final MigrationConfiguration configuration;
+
+    private final Consumer<MigratingCacheClient> onFinish;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final AtomicBoolean migrating = new AtomicBoolean(true);
+
+    private final AtomicBoolean oldClientClosed = new AtomicBoolean();
+
+    /**
+     * 
+     * @param newClient
+     *            the client that replaces the old one
+     * @param oldClient
+     *            the client used before the swap
+     * @param configuration
+     *            the migration settings
+     * @param onFinish
+     *            invoked with this client when the migration window ends, the new client can replace this one then
+     */
+    public MigratingCacheClient(final CacheClient newClient, final CacheClient oldClient, final MigrationConfiguration configuration,
+            final Consumer<MigratingCacheClient> onFinish) {
+        this.newClient = newClient;
+        this.oldClient = oldClient;
+        this.configuration = configuration;
+        this.onFinish = onFinish;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread = new Thread(r, "ssm-migration");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public CacheClient getNewClient() {
+        return newClient;
+    }
+
+    public CacheClient getOldClient() {
+        return oldClient;
+    }
+
+    public boolean isMigrating() {
+        return migrating.get();
+    }
+
+    /**
+     * Starts the migration window and copies given keys from the old client to the new one in the background.
+     * 
+     * @param prefetchKeys
+     *            the keys to copy, usually recently read ones
+     */
+    public void start(final Collection<String> prefetchKeys) {
+        scheduler.schedule(this::finish, configuration.getWindow(), TimeUnit.MILLISECONDS);
+        if (prefetchKeys != null && !prefetchKeys.isEmpty()) {
+            scheduler.execute(() -> prefetch(new ArrayList<String>(prefetchKeys)));
+        }
+    }
+
+    /**
+     * Ends the migration window, the old client is shut down after the drain timeout.
+     */
+    public void finish() {
+        if (!migrating.compareAndSet(true, false)) {
+            return;
+        }
+
+        LOGGER.info("Migration window ended, the old cache client will be closed in {} ms", configuration.getDrainTimeout());
+        try {
+            if (onFinish != null) {
+                onFinish.accept(this);
+            }
+        } finally {
+            scheduler.schedule(() -> {
+                closeOldClient();
+                scheduler.shutdown();
+            }, configuration.getDrainTimeout(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public boolean add(final String key, final int exp, final Object value) throws TimeoutException, CacheException {
+        return newClient.add(key, exp, value);
+    }
+
+    @Override
+    public <T> boolean add(final String key, final int exp, final T value, final CacheTranscoder transcoder) throws TimeoutException,
+            CacheException {
+        return newClient.add(key, exp, value, transcoder);
+    }
+
+    @Override
+    public long decr(final String key, final int by) throws TimeoutException, CacheException {
+        return newClient.decr(key, by);
+    }
+
+    @Override
+    public long decr(final String key, final int by, final long def) throws TimeoutException, CacheException {
+        return newClient.decr(key, by, def);
+    }
+
+    @Override
+    public boolean delete(final String key) throws TimeoutException, CacheException {
+        final boolean deleted = newClient.delete(key);
+        if (migrating.get()) {
+            try {
+                oldClient.delete(key);
+            } catch (TimeoutException | CacheException | RuntimeException e) {
+                LOGGER.warn(String.format("Cannot delete %s in old cache client", key), e);
+            }
+        }
+        return deleted;
+    }
+
+    @Override
+    public void delete(final Collection<String> keys) throws TimeoutException, CacheException {
+        newClient.delete(keys);
+        if (migrating.get()) {
+            try {
+                oldClient.delete(keys);
+            } catch (TimeoutException | CacheException | RuntimeException e) {
+                LOGGER.warn(String.format("Cannot delete %s in old cache client", keys), e);
+            }
+        }
+    }
+
+    @Override
+    public void flush() throws TimeoutException, CacheException {
+        newClient.flush();
+        if (migrating.get()) {
+            oldClient.flush();
+        }
+    }
+
+    @Override
+    public Object get(final String key) throws TimeoutException, CacheException {
+        final Object value = newClient.get(key);
+        if (value != null || !migrating.get()) {
+            return value;
+        }
+
+        final Object oldValue = readOld(() -> oldClient.get(key), key);
+        if (oldValue != null) {
+            writeForward(() -> newClient.add(key, configuration.getWriteForwardExpiration(), oldValue), key);
+        }
+        return oldValue;
+    }
+
+    @Override
+    public <T> T get(final String key, final CacheTranscoder transcoder) throws TimeoutException, CacheException {
+        final T value = newClient.get(key, transcoder);
+        if (value != null || !migrating.get()) {
+            return value;
+        }
+
+        return getOld(key, transcoder);
+    }
+
+    @Override
+    public <T> T get(final String key, final CacheTranscoder transcoder, final long timeout) throws TimeoutException, CacheException {
+        final T value = newClient.get(key, transcoder, timeout);
+        if (value != null || !migrating.get()) {
+            return value;
+        }
+
+        return getOld(key, transcoder);
+    }
+
+    @Override
+    public <T> T getAndTouch(final String key, final int exp, final CacheTranscoder transcoder) throws TimeoutException,
+            CacheException {
+        final T value = newClient.getAndTouch(key, exp, transcoder);
+        if (value != null || !migrating.get()) {
+            return value;
+        }
+
+        return getOld(key, transcoder);
+    }
+
+    @Override
+    public Collection<SocketAddress> getAvailableServers() {
+        return newClient.getAvailableServers();
+    }
+
+    @Override
+    public Map<String, Object> getBulk(final Collection<String> keys) throws TimeoutException, CacheException {
+        final Map<String, Object> values = newClient.getBulk(keys);
+        final List<String> missing = getMissing(keys, values);
+        if (missing.isEmpty()) {
+            return values;
+        }
+
+        final Map<String, Object> oldValues = readOld(() -> oldClient.getBulk(missing), missing);
+        if (oldValues == null || oldValues.isEmpty()) {
+            return values;
+        }
+
+        final Map<String, Object> result = new HashMap<String, Object>(values);
+        for (Map.Entry<String, Object> entry : oldValues.entrySet()) {
+            if (entry.getValue() != null) {
+                result.put(entry.getKey(), entry.getValue());
+                writeForward(() -> newClient.add(entry.getKey(), configuration.getWriteForwardExpiration(), entry.getValue()),
+                        entry.getKey());
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public <T> Map<String, T> getBulk(final Collection<String> keys, final CacheTranscoder transcoder) throws TimeoutException,
+            CacheException {
+        return getBulkWithFallback(keys, newClient.<T> getBulk(keys, transcoder), transcoder);
+    }
+
+    @Override
+    public <T> Map<String, T> getBulk(final Collection<String> keys, final CacheTranscoder transcoder, final long timeout)
+            throws TimeoutException, CacheException {
+        return getBulkWithFallback(keys, newClient.<T> getBulk(keys, transcoder, timeout), transcoder);
+    }
+
+    @Override
+    public CacheTranscoder getTranscoder() {
+        return newClient.getTranscoder();
+    }
+
+    @Override
+    public long incr(final String key, final int by) throws TimeoutException, CacheException {
+        return newClient.incr(key, by);
+    }
+
+    @Override
+    public long incr(final String key, final int by, final long def) throws TimeoutException, CacheException {
+        return newClient.incr(key, by, def);
+    }
+
+    @Override
+    public long incr(final String key, final int by, final long def, final int exp) throws TimeoutException, CacheException {
+        return newClient.incr(key, by, def, exp);
+    }
+
+    @Override
+    public boolean set(final String key, final int exp, final Object value) throws TimeoutException, CacheException {
+        return newClient.set(key, exp, value);
+    }
+
+    @Override
+    public <T> boolean set(final String key, final int exp, final T value, final CacheTranscoder transcoder) throws TimeoutException,
+            CacheException {
+        return newClient.set(key, exp, value, transcoder);
+    }
+
+    @Override
+    public <T> boolean set(final String key, final int exp, final T value, final CacheTranscoder transcoder, final long timeout)
+            throws TimeoutException, CacheException {
+        return newClient.set(key, exp, value, transcoder, timeout);
+    }
+
+    @Override
+    public void shutdown() {
+        migrating.set(false);
+        scheduler.shutdownNow();
+        newClient.shutdown();
+        closeOldClient();
+    }
+
+    @Override
+    public boolean isTouchSupported() {
+        return newClient.isTouchSupported();
+    }
+
+    @Override
+    public boolean touch(final String key, final int exp) throws TimeoutException, CacheException {
+        final boolean touched = newClient.touch(key, exp);
+        if (touched || !migrating.get() || !oldClient.isTouchSupported()) {
+            return touched;
+        }
+
+        // the item may still be only in the old cache, keep it alive until it's read and copied
+        return Boolean.TRUE.equals(readOld(() -> oldClient.touch(key, exp), key));
+    }
+
+    @Override
+    public Object getNativeClient() {
+        return newClient.getNativeClient();
+    }
+
+    /**
+     * Reads raw value from the old client, copies it to the new client and decodes it with given transcoder.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T getOld(final String key, final CacheTranscoder transcoder) {
+        final CachedObject raw = readOld(() -> oldClient.<CachedObject> get(key, RAW_TRANSCODER), key);
+        if (raw == null) {
+            return null;
+        }
+
+        writeForward(() -> newClient.add(key, configuration.getWriteForwardExpiration(), raw, RAW_TRANSCODER), key);
+        return (T) transcoder.decode(raw);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Map<String, T> getBulkWithFallback(final Collection<String> keys, final Map<String, T> values,
+            final CacheTranscoder transcoder) {
+        final List<String> missing = getMissing(keys, values);
+        if (missing.isEmpty()) {
+            return values;
+        }
+
+        final Map<String, CachedObject> raws = readOld(() -> oldClient.<CachedObject> getBulk(missing, RAW_TRANSCODER), missing);
+        if (raws == null || raws.isEmpty()) {
+            return values;
+        }
+
+        final Map<String, T> result = new HashMap<String, T>(values);
+        for (Map.Entry<String, CachedObject> entry : raws.entrySet()) {
+            if (entry.getValue() != null) {
+                result.put(entry.getKey(), (T) transcoder.decode(entry.getValue()));
+                writeForward(() -> newClient.add(entry.getKey(), configuration.getWriteForwardExpiration(), entry.getValue(),
+                        RAW_TRANSCODER), entry.getKey());
+            }
+        }
+
+        return result;
+    }
+
+    private List<String> getMissing(final Collection<String> keys, final Map<String, ?> values) {
+        if (!migrating.get()) {
+            return Collections.emptyList();
+        }
+
+        final List<String> missing = new ArrayList<String>();
+        for (String key : keys) {
+            if (values == null || values.get(key) == null) {
+                missing.add(key);
+            }
+        }
+
+        return missing;
+    }
+
+    private void prefetch(final List<String> keys) {
+        LOGGER.info("Copying {} recently read keys to the new cache client", keys.size());
+        final int batchSize = Math.max(1, configuration.getPrefetchBatchSize());
+        for (int i = 0; i < keys.size() && migrating.get(); i += batchSize) {
+            final List<String> batch = keys.subList(i, Math.min(keys.size(), i + batchSize));
+            final Map<String, CachedObject> raws = readOld(() -> oldClient.<CachedObject> getBulk(batch, RAW_TRANSCODER), batch);
+            if (raws == null) {
+                continue;
+            }
+
+            for (Map.Entry<String, CachedObject> entry : raws.entrySet()) {
+                if (entry.getValue() != null) {
+                    writeForward(() -> newClient.add(entry.getKey(), configuration.getWriteForwardExpiration(), entry.getValue(),
+                            RAW_TRANSCODER), entry.getKey());
+                }
+            }
+        }
+    }
+
+    private void closeOldClient() {
+        if (oldClientClosed.compareAndSet(false, true)) {
+            LOGGER.info("Closing old cache client");
+            oldClient.shutdown();
+            LOGGER.info("Old cache client closed");
+        }
+    }
+
+    /**
+     * Errors of the old client are treated as misses.
+     */
+    private <T> T readOld(final Operation<T> operation, final Object key) {
+        try {
+            return operation.execute();
+        } catch (TimeoutException | CacheException | RuntimeException e) {
+            LOGGER.warn(String.format("Cannot read %s from old cache client", key), e);
+            return null;
+        }
+    }
+
+    private void writeForward(final Operation<Boolean> operation, final Object key) {
+        try {
+            operation.execute();
+        } catch (TimeoutException | CacheException | RuntimeException e) {
+            LOGGER.warn(String.format("Cannot copy %s to new cache client", key), e);
+        }
+    }
+
+    private interface Operation<T> {
+
+        T execute() throws TimeoutException, CacheException;
+
+    }
+
+}
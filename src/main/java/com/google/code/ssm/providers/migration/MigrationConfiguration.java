@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.providers.migration;
+
+import java.util.concurrent.TimeUnit;
+
+import lombok.Data;
+
+/**
+ * Settings of a cache client swap made when memcached addresses change.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+@Data
+public class MigrationConfiguration {
+
+    /**
+     * The max expiration of copied values, a longer one would be treated by memcached as unix time.
+     */
+    public static final int MAX_WRITE_FORWARD_EXPIRATION = (int) TimeUnit.DAYS.toSeconds(30);
+
+    /**
+     * The time in milliseconds during which misses in the new client are read from the old client.
+     */
+    private long window = 60000;
+
+    /**
+     * The time in milliseconds the old client is kept open after the migration window so in-flight operations can
+     * complete.
+     */
+    private long drainTimeout = 5000;
+
+    /**
+     * The expiration in seconds of values copied from the old client to the new one, between 1 and 30 days.
+     * <p>
+     * Memcached doesn't expose the remaining expiration of a value and a read has no expiration of its own, so every
+     * copied value gets this one. A copy can therefore outlive the original by up to this time, e.g. a value cached for
+     * 10 seconds may be served for a minute from the new client. Keep it no longer than the staleness the shortest
+     * cached expiration tolerates, copies that expire too early are only read through again.
+     */
+    private int writeForwardExpiration = 60;
+
+    /**
+     * The number of recently read keys tracked and copied to the new client when the migration starts, 0 disables
+     * prefetching.
+     */
+    private int prefetchKeys;
+
+    /**
+     * The number of keys copied by a single bulk operation during prefetch.
+     */
+    private int prefetchBatchSize = 100;
+
+}
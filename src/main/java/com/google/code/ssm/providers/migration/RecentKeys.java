@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.providers.migration;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Remembers the last N read keys in a lock free ring buffer. Frequently read keys are likely to be present.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+public class RecentKeys {
+
+    private final AtomicReferenceArray<String> keys;
+
+    private final AtomicLong position = new AtomicLong();
+
+    public RecentKeys(final int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Size must be 1 or greater");
+        }
+
+        this.keys = new AtomicReferenceArray<String>(size);
+    }
+
+    public void record(final String key) {
+        keys.set((int) (position.getAndIncrement() % keys.length()), key);
+    }
+
+    public void record(final Collection<String> keys) {
+        for (String key : keys) {
+            record(key);
+        }
+    }
+
+    /**
+     * 
+     * @return unique recently read keys
+     */
+    public Set<String> getKeys() {
+        final Set<String> result = new LinkedHashSet<String>();
+        for (int i = 0; i < keys.length(); i++) {
+            final String key = keys.get(i);
+            if (key != null) {
+                result.add(key);
+            }
+        }
+
+        return result;
+    }
+
+}
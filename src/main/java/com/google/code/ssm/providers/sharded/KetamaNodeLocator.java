@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.providers.sharded;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Ketama consistent hashing ring. Each node is placed on the ring in {@code virtualNodes * weight} points, each MD5
+ * digest of {@code name-i} gives four points. A key belongs to the first point clockwise from the hash of the key so
+ * adding or removing a node moves only keys of the neighbouring points.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+public class KetamaNodeLocator {
+
+    public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+    private static final ThreadLocal<MessageDigest> MD5 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 is not supported", e);
+        }
+    });
+
+    private final long[] points;
+
+    private final int[] nodes;
+
+    /**
+     * 
+     * @param names
+     *            the unique names of nodes, the position of a node on the ring depends only on its name
+     * @param weights
+     *            the weights of nodes, the number of points of each node is proportional to its weight
+     * @param virtualNodes
+     *            the number of points of a node with weight 1
+     */
+    public KetamaNodeLocator(final List<String> names, final List<Integer> weights, final int virtualNodes) {
+        if (names.isEmpty()) {
+            throw new IllegalArgumentException("At least one node is required");
+        }
+        if (names.size() != weights.size()) {
+            throw new IllegalArgumentException("Each node must have a weight");
+        }
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("Number of virtual nodes must be 1 or greater");
+        }
+
+        int total = 0;
+        final int[] digests = new int[names.size()];
+        for (int i = 0; i < names.size(); i++) {
+            final int weight = weights.get(i);
+            if (weight < 1) {
+                throw new IllegalArgumentException(String.format("Weight of node %s must be 1 or greater", names.get(i)));
+            }
+            digests[i] = Math.max(1, virtualNodes * weight / 4);
+            total += digests[i] * 4;
+        }
+
+        final long[] entries = new long[total];
+        int pos = 0;
+        for (int node = 0; node < names.size(); node++) {
+            for (int i = 0; i < digests[node]; i++) {
+                final byte[] digest = md5(names.get(node) + "-" + i);
+                for (int h = 0; h < 4; h++) {
+                    // hash in the upper bits, node index in the lower 31 ones so sorting keeps them together
+                    entries[pos++] = (hash(digest, h) << 31) | node;
+                }
+            }
+        }
+        Arrays.sort(entries);
+
+        points = new long[total];
+        nodes = new int[total];
+        for (int i = 0; i < total; i++) {
+            points[i] = entries[i] >>> 31;
+            nodes[i] = (int) (entries[i] & Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * 
+     * @param key
+     *            the key
+     * @return index of the node (in the list of names passed to the constructor) that owns given key
+     */
+    public int getNode(final String key) {
+        final long hash = hash(md5(key), 0);
+        int index = Arrays.binarySearch(points, hash);
+        if (index < 0) {
+            index = -index - 1;
+            if (index == points.length) {
+                index = 0;
+            }
+        }
+
+        return nodes[index];
+    }
+
+    private static long hash(final byte[] digest, final int h) {
+        return ((long) (digest[3 + h * 4] & 0xFF) << 24) | ((long) (digest[2 + h * 4] & 0xFF) << 16)
+                | ((long) (digest[1 + h * 4] & 0xFF) << 8) | (digest[h * 4] & 0xFF);
+    }
+
+    private static byte[] md5(final String value) {
+        final MessageDigest md5 = MD5.get();
+        md5.reset();
+        return md5.digest(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
@@ -0,0 +1,415 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.providers.sharded;
+
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.code.ssm.providers.CacheClient;
+import com.google.code.ssm.providers.CacheException;
+import com.google.code.ssm.providers.CacheTranscoder;
+
+/**
+ * Composes several cache clients (pools, possibly of different providers) behind one Ketama consistent hashing ring.
+ * Single key operations are routed to the shard that owns the key. Bulk get and bulk delete are split per shard, the
+ * parts are executed in parallel: the first one in the calling thread, the rest in the executor.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+public class ShardedCacheClient implements CacheClient {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ShardedCacheClient.class);
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    private final List<String> names;
+
+    private final List<CacheClient> shards;
+
+    private final KetamaNodeLocator locator;
+
+    private final ExecutorService executor;
+
+    private final boolean ownExecutor;
+
+    /**
+     * 
+     * @param names
+     *            the unique names of shards, used to place shards on the ring
+     * @param shards
+     *            the cache clients, one per shard
+     * @param weights
+     *            the weights of shards
+     * @param virtualNodes
+     *            the number of points on the ring of a shard with weight 1
+     * @param executor
+     *            the executor used to run per shard parts of bulk operations, if null a new one is created and shut
+     *            down together with this client
+     */
+    public ShardedCacheClient(final List<String> names, final List<CacheClient> shards, final List<Integer> weights,
+            final int virtualNodes, final ExecutorService executor) {
+        if (names.size() != shards.size()) {
+            throw new IllegalArgumentException("Each shard must have a name");
+        }
+
+        this.names = Collections.unmodifiableList(new ArrayList<String>(names));
+        this.shards = Collections.unmodifiableList(new ArrayList<CacheClient>(shards));
+        this.locator = new KetamaNodeLocator(names, weights, virtualNodes);
+        this.ownExecutor = executor == null;
+        this.executor = ownExecutor ? Executors.newCachedThreadPool(r -> {
+            final Thread thread = new Thread(r, "ssm-sharded-" + THREAD_COUNTER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }) : executor;
+    }
+
+    public List<String> getShardNames() {
+        return names;
+    }
+
+    public List<CacheClient> getShards() {
+        return shards;
+    }
+
+    /**
+     * 
+     * @param key
+     *            the key
+     * @return the cache client of the shard that owns given key
+     */
+    public CacheClient getShard(final String key) {
+        return shards.get(locator.getNode(key));
+    }
+
+    @Override
+    public boolean add(final String key, final int exp, final Object value) throws TimeoutException, CacheException {
+        return getShard(key).add(key, exp, value);
+    }
+
+    @Override
+    public <T> boolean add(final String key, final int exp, final T value, final CacheTranscoder transcoder) throws TimeoutException,
+            CacheException {
+        return getShard(key).add(key, exp, value, transcoder);
+    }
+
+    @Override
+    public long decr(final String key, final int by) throws TimeoutException, CacheException {
+        return getShard(key).decr(key, by);
+    }
+
+    @Override
+    public long decr(final String key, final int by, final long def) throws TimeoutException, CacheException {
+        return getShard(key).decr(key, by, def);
+    }
+
+    @Override
+    public boolean delete(final String key) throws TimeoutException, CacheException {
+        return getShard(key).delete(key);
+    }
+
+    @Override
+    public void delete(final Collection<String> keys) throws TimeoutException, CacheException {
+        if (keys == null || keys.isEmpty()) {
+            return;
+        }
+
+        final Map<Integer, List<String>> partitions = partition(keys);
+        final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(partitions.size());
+        for (final Map.Entry<Integer, List<String>> entry : partitions.entrySet()) {
+            tasks.add(() -> {
+                shards.get(entry.getKey()).delete(entry.getValue());
+                return null;
+            });
+        }
+
+        invokeAll(tasks);
+    }
+
+    @Override
+    public void flush() throws TimeoutException, CacheException {
+        for (CacheClient shard : shards) {
+            shard.flush();
+        }
+    }
+
+    @Override
+    public Object get(final String key) throws TimeoutException, CacheException {
+        return getShard(key).get(key);
+    }
+
+    @Override
+    public <T> T get(final String key, final CacheTranscoder transcoder) throws TimeoutException, CacheException {
+        return getShard(key).get(key, transcoder);
+    }
+
+    @Override
+    public <T> T get(final String key, final CacheTranscoder transcoder, final long timeout) throws TimeoutException, CacheException {
+        return getShard(key).get(key, transcoder, timeout);
+    }
+
+    @Override
+    public <T> T getAndTouch(final String key, final int exp, final CacheTranscoder transcoder) throws TimeoutException,
+            CacheException {
+        return getShard(key).getAndTouch(key, exp, transcoder);
+    }
+
+    @Override
+    public Collection<SocketAddress> getAvailableServers() {
+        final Collection<SocketAddress> servers = new LinkedHashSet<SocketAddress>();
+        for (CacheClient shard : shards) {
+            final Collection<SocketAddress> available = shard.getAvailableServers();
+            if (available != null) {
+                servers.addAll(available);
+            }
+        }
+
+        return servers;
+    }
+
+    @Override
+    public Map<String, Object> getBulk(final Collection<String> keys) throws TimeoutException, CacheException {
+        if (keys == null || keys.isEmpty()) {
+            return Collections.<String, Object> emptyMap();
+        }
+
+        final Map<Integer, List<String>> partitions = partition(keys);
+        final List<Callable<Map<String, Object>>> tasks = new ArrayList<Callable<Map<String, Object>>>(partitions.size());
+        for (final Map.Entry<Integer, List<String>> entry : partitions.entrySet()) {
+            tasks.add(() -> shards.get(entry.getKey()).getBulk(entry.getValue()));
+        }
+
+        return merge(invokeAll(tasks));
+    }
+
+    @Override
+    public <T> Map<String, T> getBulk(final Collection<String> keys, final CacheTranscoder transcoder) throws TimeoutException,
+            CacheException {
+        if (keys == null || keys.isEmpty()) {
+            return Collections.<String, T> emptyMap();
+        }
+
+        final Map<Integer, List<String>> partitions = partition(keys);
+        final List<Callable<Map<String, T>>> tasks = new ArrayList<Callable<Map<String, T>>>(partitions.size());
+        for (final Map.Entry<Integer, List<String>> entry : partitions.entrySet()) {
+            tasks.add(() -> shards.get(entry.getKey()).<T> getBulk(entry.getValue(), transcoder));
+        }
+
+        return merge(invokeAll(tasks));
+    }
+
+    @Override
+    public <T> Map<String, T> getBulk(final Collection<String> keys, final CacheTranscoder transcoder, final long timeout)
+            throws TimeoutException, CacheException {
+        if (keys == null || keys.isEmpty()) {
+            return Collections.<String, T> emptyMap();
+        }
+
+        final Map<Integer, List<String>> partitions = partition(keys);
+        final List<Callable<Map<String, T>>> tasks = new ArrayList<Callable<Map<String, T>>>(partitions.size());
+        for (final Map.Entry<Integer, List<String>> entry : partitions.entrySet()) {
+            tasks.add(() -> shards.get(entry.getKey()).<T> getBulk(entry.getValue(), transcoder, timeout));
+        }
+
+        return merge(invokeAll(tasks));
+    }
+
+    @Override
+    public CacheTranscoder getTranscoder() {
+        return shards.get(0).getTranscoder();
+    }
+
+    @Override
+    public long incr(final String key, final int by) throws TimeoutException, CacheException {
+        return getShard(key).incr(key, by);
+    }
+
+    @Override
+    public long incr(final String key, final int by, final long def) throws TimeoutException, CacheException {
+        return getShard(key).incr(key, by, def);
+    }
+
+    @Override
+    public long incr(final String key, final int by, final long def, final int exp) throws TimeoutException, CacheException {
+        return getShard(key).incr(key, by, def, exp);
+    }
+
+    @Override
+    public boolean set(final String key, final int exp, final Object value) throws TimeoutException, CacheException {
+        return getShard(key).set(key, exp, value);
+    }
+
+    @Override
+    public <T> boolean set(final String key, final int exp, final T value, final CacheTranscoder transcoder) throws TimeoutException,
+            CacheException {
+        return getShard(key).set(key, exp, value, transcoder);
+    }
+
+    @Override
+    public <T> boolean set(final String key, final int exp, final T value, final CacheTranscoder transcoder, final long timeout)
+            throws TimeoutException, CacheException {
+        return getShard(key).set(key, exp, value, transcoder, timeout);
+    }
+
+    @Override
+    public void shutdown() {
+        for (CacheClient shard : shards) {
+            try {
+                shard.shutdown();
+            } catch (RuntimeException e) {
+                LOGGER.warn("Error while shutting down shard", e);
+            }
+        }
+
+        if (ownExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    @Override
+    public boolean isTouchSupported() {
+        for (CacheClient shard : shards) {
+            if (!shard.isTouchSupported()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean touch(final String key, final int exp) throws TimeoutException, CacheException {
+        return getShard(key).touch(key, exp);
+    }
+
+    /**
+     * 
+     * @return list of native clients of all shards in the order of shards
+     */
+    @Override
+    public Object getNativeClient() {
+        final List<Object> clients = new ArrayList<Object>(shards.size());
+        for (CacheClient shard : shards) {
+            clients.add(shard.getNativeClient());
+        }
+
+        return clients;
+    }
+
+    private Map<Integer, List<String>> partition(final Collection<String> keys) {
+        final Map<Integer, List<String>> partitions = new HashMap<Integer, List<String>>();
+        for (String key : keys) {
+            final Integer node = locator.getNode(key);
+            List<String> partition = partitions.get(node);
+            if (partition == null) {
+                partition = new ArrayList<String>();
+                partitions.put(node, partition);
+            }
+            partition.add(key);
+        }
+
+        return partitions;
+    }
+
+    private <T> List<T> invokeAll(final List<Callable<T>> tasks) throws TimeoutException, CacheException {
+        if (tasks.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (tasks.size() == 1) {
+            return Collections.singletonList(call(tasks.get(0)));
+        }
+
+        final List<Future<T>> futures = new ArrayList<Future<T>>(tasks.size() - 1);
+        for (int i = 1; i < tasks.size(); i++) {
+            futures.add(executor.submit(tasks.get(i)));
+        }
+
+        final List<T> results = new ArrayList<T>(tasks.size());
+        try {
+            results.add(call(tasks.get(0)));
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CacheException(e);
+        } catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        } finally {
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+        }
+
+        return results;
+    }
+
+    private <T> T call(final Callable<T> task) throws TimeoutException, CacheException {
+        try {
+            return task.call();
+        } catch (Exception e) {
+            throw rethrow(e);
+        }
+    }
+
+    private CacheException rethrow(final Throwable e) throws TimeoutException, CacheException {
+        if (e instanceof TimeoutException) {
+            throw (TimeoutException) e;
+        } else if (e instanceof CacheException) {
+            throw (CacheException) e;
+        } else if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        } else if (e instanceof Error) {
+            throw (Error) e;
+        }
+
+        return new CacheException((Exception) e);
+    }
+
+    private static <T> Map<String, T> merge(final List<Map<String, T>> results) {
+        if (results.size() == 1) {
+            return results.get(0);
+        }
+
+        final Map<String, T> merged = new HashMap<String, T>();
+        for (Map<String, T> result : results) {
+            if (result != null) {
+                merged.putAll(result);
+            }
+        }
+
+        return merged;
+    }
+
+}
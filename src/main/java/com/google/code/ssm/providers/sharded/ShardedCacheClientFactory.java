@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.providers.sharded;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import com.google.code.ssm.providers.CacheClient;
+import com.google.code.ssm.providers.CacheClientFactory;
+import com.google.code.ssm.providers.CacheConfiguration;
+
+/**
+ * Creates {@link ShardedCacheClient} with one shard per memcached address. Each shard is a separate cache client
+ * created by the delegate factory, so sharding doesn't depend on the consistent hashing of the provider library.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+@Getter
+@Setter
+public class ShardedCacheClientFactory implements CacheClientFactory {
+
+    /**
+     * The factory used to create client of each shard.
+     */
+    private CacheClientFactory cacheClientFactory;
+
+    /**
+     * Optional weights of shards, the key is the address in host:port format. Shards without weight have weight 1.
+     */
+    private Map<String, Integer> weights = Collections.emptyMap();
+
+    private int virtualNodes = KetamaNodeLocator.DEFAULT_VIRTUAL_NODES;
+
+    /**
+     * Optional executor used to run per shard parts of bulk operations.
+     */
+    private ExecutorService executorService;
+
+    @Override
+    public CacheClient create(final List<InetSocketAddress> addrs, final CacheConfiguration configuration) throws IOException {
+        if (cacheClientFactory == null) {
+            throw new IllegalStateException("'cacheClientFactory' is required and cannot be null");
+        }
+
+        final List<String> names = new ArrayList<String>(addrs.size());
+        final List<CacheClient> shards = new ArrayList<CacheClient>(addrs.size());
+        final List<Integer> shardWeights = new ArrayList<Integer>(addrs.size());
+        try {
+            for (InetSocketAddress addr : addrs) {
+                final String name = getName(addr);
+                final Integer weight = weights.get(name);
+                names.add(name);
+                shardWeights.add(weight != null ? weight : 1);
+                shards.add(cacheClientFactory.create(Collections.singletonList(addr), configuration));
+            }
+        } catch (IOException | RuntimeException e) {
+            for (CacheClient shard : shards) {
+                shard.shutdown();
+            }
+            throw e;
+        }
+
+        return new ShardedCacheClient(names, shards, shardWeights, virtualNodes, executorService);
+    }
+
+    static String getName(final InetSocketAddress addr) {
+        return addr.getHostString() + ":" + addr.getPort();
+    }
+
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.transcoders;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import com.google.code.ssm.aop.support.PertinentNegativeNull;
+import com.google.code.ssm.providers.CachedObject;
+import com.google.code.ssm.providers.CachedObjectImpl;
+import com.google.code.ssm.transcoders.compression.CompressionCodecs;
+
+/**
+ * 
+ * Stores common JDK types (String, boxed primitives, byte[], Date, Instant, UUID) and the negative null marker directly
+ * without java serialization, which saves the stream header and class descriptor of each value. The type of a value is
+ * stored in bits 4 - 7 of flags. Values of other types (and subclasses of supported types) are serialized by
+ * {@link JavaTranscoder}, so this transcoder can replace the java transcoder of existing caches: data stored before
+ * remain readable. Strings and byte arrays are compressed only if {@link #setCompressionCodec} is set.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+@ToString(callSuper = true)
+@EqualsAndHashCode(callSuper = true)
+public class CompactBinaryTranscoder extends JavaTranscoder {
+
+    private static final int COMPACT = 4;
+
+    private static final int TYPE_SHIFT = 4;
+
+    private static final int TYPE_MASK = 0xF << TYPE_SHIFT;
+
+    private static final int NULL = 0;
+    private static final int STRING = 1;
+    private static final int BYTES = 2;
+    private static final int BOOLEAN = 3;
+    private static final int BYTE = 4;
+    private static final int SHORT = 5;
+    private static final int CHARACTER = 6;
+    private static final int INTEGER = 7;
+    private static final int LONG = 8;
+    private static final int FLOAT = 9;
+    private static final int DOUBLE = 10;
+    private static final int DATE = 11;
+    private static final int INSTANT = 12;
+    private static final int UUID_TYPE = 13;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private static final Map<Class<?>, Integer> TYPES = new IdentityHashMap<Class<?>, Integer>();
+
+    static {
+        TYPES.put(PertinentNegativeNull.class, NULL);
+        TYPES.put(String.class, STRING);
+        TYPES.put(byte[].class, BYTES);
+        TYPES.put(Boolean.class, BOOLEAN);
+        TYPES.put(Byte.class, BYTE);
+        TYPES.put(Short.class, SHORT);
+        TYPES.put(Character.class, CHARACTER);
+        TYPES.put(Integer.class, INTEGER);
+        TYPES.put(Long.class, LONG);
+        TYPES.put(Float.class, FLOAT);
+        TYPES.put(Double.class, DOUBLE);
+        TYPES.put(Date.class, DATE);
+        TYPES.put(Instant.class, INSTANT);
+        TYPES.put(UUID.class, UUID_TYPE);
+    }
+
+    @Override
+    public Object decode(final CachedObject d) {
+        if ((d.getFlags() & COMPACT) == 0) {
+            return super.decode(d);
+        }
+
+        final int type = (d.getFlags() & TYPE_MASK) >>> TYPE_SHIFT;
+        return read(type, CompressionCodecs.decompress(d));
+    }
+
+    @Override
+    public CachedObject encode(final Object o) {
+        final Integer type = o != null ? TYPES.get(o.getClass()) : null;
+        if (type == null) {
+            return super.encode(o);
+        }
+
+        int flags = COMPACT | (type << TYPE_SHIFT);
+        byte[] data = write(type, o);
+        if (type == STRING || type == BYTES) {
+            final byte[] compressed = CompressionCodecs.compress(getCompressionCodec(), getCompressionThreshold(), data);
+            if (compressed != null) {
+                data = compressed;
+                flags |= CompressionCodecs.toFlags(getCompressionCodec().getId());
+            }
+        }
+
+        return CachedObjectImpl.wrap(flags, data);
+    }
+
+    private byte[] write(final int type, final Object o) {
+        switch (type) {
+        case NULL:
+            return EMPTY;
+        case STRING:
+            return ((String) o).getBytes(StandardCharsets.UTF_8);
+        case BYTES:
+            return ((byte[]) o).clone();
+        case BOOLEAN:
+            return new byte[] { (byte) (((Boolean) o) ? 1 : 0) };
+        case BYTE:
+            return new byte[] { (Byte) o };
+        case SHORT:
+            return ByteBuffer.allocate(2).putShort((Short) o).array();
+        case CHARACTER:
+            return ByteBuffer.allocate(2).putChar((Character) o).array();
+        case INTEGER:
+            return ByteBuffer.allocate(4).putInt((Integer) o).array();
+        case LONG:
+            return ByteBuffer.allocate(8).putLong((Long) o).array();
+        case FLOAT:
+            return ByteBuffer.allocate(4).putFloat((Float) o).array();
+        case DOUBLE:
+            return ByteBuffer.allocate(8).putDouble((Double) o).array();
+        case DATE:
+            return ByteBuffer.allocate(8).putLong(((Date) o).getTime()).array();
+        case INSTANT:
+            return ByteBuffer.allocate(12).putLong(((Instant) o).getEpochSecond()).putInt(((Instant) o).getNano()).array();
+        case UUID_TYPE:
+            return ByteBuffer.allocate(16).putLong(((UUID) o).getMostSignificantBits()).putLong(((UUID) o).getLeastSignificantBits())
+                    .array();
+        default:
+            throw new IllegalArgumentException(String.format("Unknown compact type %s", type));
+        }
+    }
+
+    private Object read(final int type, final byte[] data) {
+        final ByteBuffer buffer = ByteBuffer.wrap(data);
+        switch (type) {
+        case NULL:
+            return PertinentNegativeNull.NULL;
+        case STRING:
+            return new String(data, StandardCharsets.UTF_8);
+        case BYTES:
+            return data;
+        case BOOLEAN:
+            return data[0] != 0;
+        case BYTE:
+            return data[0];
+        case SHORT:
+            return buffer.getShort();
+        case CHARACTER:
+            return buffer.getChar();
+        case INTEGER:
+            return buffer.getInt();
+        case LONG:
+            return buffer.getLong();
+        case FLOAT:
+            return buffer.getFloat();
+        case DOUBLE:
+            return buffer.getDouble();
+        case DATE:
+            return new Date(buffer.getLong());
+        case INSTANT:
+            return Instant.ofEpochSecond(buffer.getLong(), buffer.getInt());
+        case UUID_TYPE:
+            return new UUID(buffer.getLong(), buffer.getLong());
+        default:
+            throw new IllegalArgumentException(String.format("Unknown compact type %s", type));
+        }
+    }
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.google.code.ssm.transcoders;
+
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import com.google.code.ssm.counter.HyperLogLog;
+import com.google.code.ssm.providers.CacheTranscoder;
+import com.google.code.ssm.providers.CachedObject;
+import com.google.code.ssm.providers.CachedObjectImpl;
+
+/**
+ * 
+ * Stores {@link HyperLogLog} sketches as raw bytes of their registers.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+@ToString
+@EqualsAndHashCode
+public class HyperLogLogTranscoder implements CacheTranscoder {
+
+    public static final int HYPER_LOG_LOG = 1 << 26;
+
+    @Override
+    public Object decode(final CachedObject data) {
+        if ((data.getFlags() & HYPER_LOG_LOG) == 0) {
+            throw new IllegalArgumentException(String.format("Cached object with flags %d is not a HyperLogLog", data.getFlags()));
+        }
+
+        return HyperLogLog.fromBytes(data.getData());
+    }
+
+    @Override
+    public CachedObject encode(final Object o) {
+        if (!(o instanceof HyperLogLog)) {
+            throw new IllegalArgumentException("Only HyperLogLog objects are supported by this transcoder");
+        }
+
+        return CachedObjectImpl.wrap(HYPER_LOG_LOG, ((HyperLogLog) o).toBytes());
+    }
+
+}
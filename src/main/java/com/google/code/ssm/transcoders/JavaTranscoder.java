@@ -18,7 +18,6 @@
 package com.google.code.ssm.transcoders;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
@@ -37,12 +36,18 @@ import org.springframework.core.ConfigurableObjectInputStream;
 import com.google.code.ssm.providers.CacheTranscoder;
 import com.google.code.ssm.providers.CachedObject;
 import com.google.code.ssm.providers.CachedObjectImpl;
+import com.google.code.ssm.transcoders.compression.CompressionCodec;
+import com.google.code.ssm.transcoders.compression.CompressionCodecs;
+import com.google.code.ssm.util.PooledByteArrayOutputStream;
 
 /**
  * 
  * Transcoder responsible to decode and encode objects using default java serialization/deserialization. Before storing
  * data if size of data is bigger than defined {@link JavaTranscoder#setCompressionThreshold(int)} those data are
- * compressed using GZIP. This transcoder is similar to SerializingTranscoder in xmemcached or spymemcached.
+ * compressed using GZIP or, if set, {@link JavaTranscoder#setCompressionCodec(CompressionCodec)}. Data compressed by
+ * any registered codec are decompressed regardless of the currently set one. Values are serialized into pooled buffers
+ * and the resulting array is not copied again by the cached object. This transcoder is similar to
+ * SerializingTranscoder in xmemcached or spymemcached.
  * 
  * @author Jakub Białek
  * @since 3.0.0
@@ -69,12 +74,23 @@ public class JavaTranscoder implements CacheTranscoder { // NO_UCD
     @Setter
     private int compressionThreshold = DEFAULT_COMPRESSION_THRESHOLD;
 
+    /**
+     * The codec used to compress data, if null GZIP is used.
+     * 
+     * @since 4.1.4
+     */
+    @Getter
+    @Setter
+    private CompressionCodec compressionCodec;
+
     @Override
     public Object decode(final CachedObject d) {
         byte[] data = d.getData();
 
         if ((d.getFlags() & COMPRESSED) != 0) {
             data = decompress(d.getData());
+        } else if (CompressionCodecs.getCodecId(d.getFlags()) != 0) {
+            data = CompressionCodecs.decompress(d);
         }
 
         if ((d.getFlags() & SERIALIZED) != 0 && data != null) {
@@ -90,7 +106,14 @@ public class JavaTranscoder implements CacheTranscoder { // NO_UCD
         byte[] data = serialize(o);
         int flags = SERIALIZED;
 
-        if (data.length > getCompressionThreshold()) {
+        if (compressionCodec != null) {
+            byte[] compressed = CompressionCodecs.compress(compressionCodec, getCompressionThreshold(), data);
+            if (compressed != null) {
+                LOGGER.debug("Compressed {} from {} to {}", new Object[] { o.getClass().getName(), data.length, compressed.length });
+                data = compressed;
+                flags |= CompressionCodecs.toFlags(compressionCodec.getId());
+            }
+        } else if (data.length > getCompressionThreshold()) {
             byte[] compressed = compress(data);
             if (compressed.length < data.length) {
                 LOGGER.debug("Compressed {} from {} to {}", new Object[] { o.getClass().getName(), data.length, compressed.length });
@@ -101,7 +124,7 @@ public class JavaTranscoder implements CacheTranscoder { // NO_UCD
                         compressed.length });
             }
         }
-        return new CachedObjectImpl(flags, data);
+        return CachedObjectImpl.wrap(flags, data);
     }
 
     /**
@@ -116,21 +139,22 @@ public class JavaTranscoder implements CacheTranscoder { // NO_UCD
             throw new NullPointerException("Can't serialize null");
         }
         byte[] data = null;
-        ByteArrayOutputStream bos = null;
+        PooledByteArrayOutputStream bos = null;
         ObjectOutputStream os = null;
 
         try {
-            bos = new ByteArrayOutputStream();
+            bos = new PooledByteArrayOutputStream();
             os = new ObjectOutputStream(bos);
             os.writeObject(o);
             os.close();
-            bos.close();
             data = bos.toByteArray();
         } catch (IOException e) {
             throw new IllegalArgumentException("Non-serializable object", e);
         } finally {
             close(os);
-            close(bos);
+            if (bos != null) {
+                bos.release();
+            }
         }
 
         return data;
@@ -179,20 +203,20 @@ public class JavaTranscoder implements CacheTranscoder { // NO_UCD
             throw new NullPointerException("Can't compress null");
         }
 
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        PooledByteArrayOutputStream bos = new PooledByteArrayOutputStream(in.length);
         GZIPOutputStream gz = null;
 
         try {
             gz = new GZIPOutputStream(bos);
             gz.write(in);
+            gz.close();
+            return bos.toByteArray();
         } catch (IOException e) {
             throw new RuntimeException("IO exception compressing data", e);
         } finally {
             close(gz);
-            close(bos);
+            bos.release();
         }
-
-        return bos.toByteArray();
     }
 
     /**
@@ -207,7 +231,7 @@ public class JavaTranscoder implements CacheTranscoder { // NO_UCD
             return null;
         }
 
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        PooledByteArrayOutputStream bos = new PooledByteArrayOutputStream(in.length << 1);
         ByteArrayInputStream bis = new ByteArrayInputStream(in);
         GZIPInputStream gis = null;
 
@@ -226,7 +250,7 @@ public class JavaTranscoder implements CacheTranscoder { // NO_UCD
         } finally {
             close(gis);
             close(bis);
-            close(bos);
+            bos.release();
         }
     }
 
@@ -18,42 +18,146 @@
 package com.google.code.ssm.transcoders;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
+import lombok.Setter;
 import lombok.ToString;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
 
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.google.code.ssm.json.Holder;
 import com.google.code.ssm.providers.CacheTranscoder;
 import com.google.code.ssm.providers.CachedObject;
 import com.google.code.ssm.providers.CachedObjectImpl;
+import com.google.code.ssm.transcoders.compression.CompressionCodec;
+import com.google.code.ssm.transcoders.compression.CompressionCodecs;
+import com.google.code.ssm.transcoders.compression.CompressionDictionaries;
+import com.google.code.ssm.transcoders.compression.CompressionDictionary;
+import com.google.code.ssm.transcoders.compression.CompressionDictionaryTrainer;
+import com.google.code.ssm.transcoders.compression.DeflateCompressionCodec;
+import com.google.code.ssm.transcoders.compression.DictionaryCompressionCodec;
+import com.google.code.ssm.util.PooledByteArrayOutputStream;
 
 /**
  * 
- * Transcoder responsible to decode and encode objects from/to JSON format.
+ * Transcoder responsible to decode and encode objects from/to JSON format. If
+ * {@link JsonTranscoder#setCompressionCodec(CompressionCodec)} is set, JSON documents bigger than compression threshold
+ * are compressed. Data compressed by any registered codec are decompressed regardless of the currently set one.
+ * 
+ * Small documents can be compressed using a preset dictionary (see {@link CompressionDictionaryTrainer}). The
+ * dictionary is chosen by class of the cached value or the default one is used. All dictionaries set on the
+ * transcoder are registered in {@link CompressionDictionaries} and the id of the dictionary is stored in flags, so
+ * documents compressed with a dictionary that has been replaced by a newer version can still be read.
+ * 
+ * By default each value is wrapped in {@link Holder} and the mapper stores class names (or aliases) of all non final
+ * objects. If {@link JsonTranscoder#setTypeDirected(boolean)} is enabled, transcoders returned by
+ * {@link #forType(Type)} store plain JSON and read it using the declared type, only classes annotated with
+ * {@link com.fasterxml.jackson.annotation.JsonTypeInfo} carry type information. Documents stored in the legacy format
+ * are still readable by typed transcoders, values which are not instances of the declared type are stored in the
+ * legacy format.
  * 
  * @author Jakub Białek
  * @since 2.0.0
  * 
  */
-@ToString
-@EqualsAndHashCode
+@ToString(exclude = { "typedMapper", "typedTranscoders" })
+@EqualsAndHashCode(exclude = { "typedMapper", "typedTranscoders" })
 public class JsonTranscoder implements CacheTranscoder { // NO_UCD
 
     private static final Logger LOGGER = LoggerFactory.getLogger(JsonTranscoder.class);
 
     private static final int JSON_SERIALIZED = 8; // json format
 
+    private static final int TYPED_JSON = 16; // json without type information, requires type to decode
+
+    private static final int DEFAULT_DICTIONARY_COMPRESSION_THRESHOLD = 32;
+
+    private static final DictionaryCompressionCodec DEFAULT_DICTIONARY_CODEC = new DeflateCompressionCodec();
+
     @Getter
     private final ObjectMapper mapper;
 
+    /**
+     * The codec used to compress JSON documents, if null documents are not compressed.
+     * 
+     * @since 4.1.4
+     */
+    @Getter
+    @Setter
+    private CompressionCodec compressionCodec;
+
+    /**
+     * Documents not bigger than this threshold are not compressed.
+     * 
+     * @since 4.1.4
+     */
+    @Getter
+    @Setter
+    private int compressionThreshold = JavaTranscoder.DEFAULT_COMPRESSION_THRESHOLD;
+
+    /**
+     * The default dictionary used to compress documents, if null only dictionaries set by value class are used.
+     * 
+     * @since 4.1.4
+     */
+    @Getter
+    private CompressionDictionary compressionDictionary;
+
+    /**
+     * Dictionaries used to compress documents by class of the cached value.
+     * 
+     * @since 4.1.4
+     */
+    @Getter
+    private Map<Class<?>, CompressionDictionary> compressionDictionaries = Collections.emptyMap();
+
+    /**
+     * Documents not bigger than this threshold are not compressed using dictionary.
+     * 
+     * @since 4.1.4
+     */
+    @Getter
+    @Setter
+    private int dictionaryCompressionThreshold = DEFAULT_DICTIONARY_COMPRESSION_THRESHOLD;
+
+    /**
+     * If set, encoded documents are sampled to train a new dictionary.
+     * 
+     * @since 4.1.4
+     */
+    @Getter
+    @Setter
+    private CompressionDictionaryTrainer dictionaryTrainer;
+
+    /**
+     * If true, transcoders returned by {@link #forType(Type)} store JSON without type information. Such values read
+     * without type, e.g. by nodes that don't use this mode yet, are treated as misses.
+     * 
+     * @since 4.1.4
+     */
+    @Getter
+    @Setter
+    private boolean typeDirected;
+
+    private volatile ObjectMapper typedMapper;
+
+    private final ConcurrentMap<Type, CacheTranscoder> typedTranscoders = new ConcurrentHashMap<Type, CacheTranscoder>();
+
     public JsonTranscoder(final ObjectMapper mapper) {
         Assert.notNull(mapper, "'mapper' is required and cannot be null");
 
@@ -70,8 +174,14 @@ public class JsonTranscoder implements CacheTranscoder { // NO_UCD
             LOGGER.warn("Cannot decode cached data {} using json transcoder", data);
             throw new RuntimeException("Cannot decode cached data using json transcoder");
         }
+        if ((data.getFlags() & TYPED_JSON) != 0) {
+            // written by a node with type directed mode enabled and read by one without it during a rollout, treated
+            // as a miss so the value is loaded and written again in the format this node understands
+            LOGGER.debug("Cannot decode cached data {} without type, treating it as a miss", data);
+            return null;
+        }
 
-        ByteArrayInputStream bais = new ByteArrayInputStream(data.getData());
+        ByteArrayInputStream bais = new ByteArrayInputStream(CompressionCodecs.decompress(data));
 
         try {
             return mapper.readValue(bais, Holder.class).getValue();
@@ -89,25 +199,194 @@ public class JsonTranscoder implements CacheTranscoder { // NO_UCD
 
     @Override
     public CachedObject encode(final Object o) {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        PooledByteArrayOutputStream baos = new PooledByteArrayOutputStream();
 
         try {
             mapper.writeValue(baos, new Holder(o));
-            return new CachedObjectImpl(JSON_SERIALIZED, baos.toByteArray());
+            return encode(o, baos.toByteArray(), JSON_SERIALIZED);
         } catch (IOException e) {
             LOGGER.warn(String.format("Error serializing object %s", o), e);
             throw new RuntimeException(e);
         } finally {
-            try {
-                baos.close();
-            } catch (IOException e) {
-                LOGGER.warn("Error while closing stream", e);
+            baos.release();
+        }
+    }
+
+    /**
+     * Returns transcoder which stores values of the given type as plain JSON. Transcoders are cached per type.
+     * 
+     * @param type
+     *            the declared type of cached values
+     * @return transcoder for the type or this transcoder if type directed mode is disabled or type is unknown
+     * @since 4.1.4
+     */
+    public CacheTranscoder forType(final Type type) {
+        if (!typeDirected || type == null || type == Object.class) {
+            return this;
+        }
+
+        CacheTranscoder transcoder = typedTranscoders.get(type);
+        if (transcoder == null) {
+            final ObjectMapper untyped = getTypedMapper();
+            final JavaType javaType = untyped.constructType(type);
+            transcoder = new TypedJsonTranscoder(javaType, untyped.readerFor(javaType), untyped.writerFor(javaType));
+            final CacheTranscoder previous = typedTranscoders.putIfAbsent(type, transcoder);
+            if (previous != null) {
+                transcoder = previous;
             }
         }
+
+        return transcoder;
+    }
+
+    /**
+     * Sets the default dictionary and registers it.
+     * 
+     * @param compressionDictionary
+     *            the dictionary
+     * @since 4.1.4
+     */
+    public void setCompressionDictionary(final CompressionDictionary compressionDictionary) {
+        if (compressionDictionary != null) {
+            CompressionDictionaries.register(compressionDictionary);
+        }
+        this.compressionDictionary = compressionDictionary;
+    }
+
+    /**
+     * Sets dictionaries by class of cached value and registers them.
+     * 
+     * @param compressionDictionaries
+     *            the dictionaries
+     * @since 4.1.4
+     */
+    public void setCompressionDictionaries(final Map<Class<?>, CompressionDictionary> compressionDictionaries) {
+        Assert.notNull(compressionDictionaries, "'compressionDictionaries' cannot be null");
+
+        for (CompressionDictionary dictionary : compressionDictionaries.values()) {
+            CompressionDictionaries.register(dictionary);
+        }
+        this.compressionDictionaries = new HashMap<Class<?>, CompressionDictionary>(compressionDictionaries);
     }
 
     public int getMaxSize() {
         return CachedObject.MAX_SIZE;
     }
 
+    /**
+     * Sets the mapper used by type directed transcoders. If not set a copy of the main mapper without default typing is
+     * used.
+     * 
+     * @param typedMapper
+     *            the mapper
+     * @since 4.1.4
+     */
+    public void setTypedMapper(final ObjectMapper typedMapper) {
+        this.typedMapper = typedMapper;
+        typedTranscoders.clear();
+    }
+
+    private ObjectMapper getTypedMapper() {
+        ObjectMapper untyped = typedMapper;
+        if (untyped == null) {
+            // copy is created lazily so it contains serializers registered after creation of the transcoder
+            untyped = mapper.copy();
+            untyped.setDefaultTyping(null);
+            typedMapper = untyped;
+        }
+        return untyped;
+    }
+
+    private CachedObject encode(final Object o, final byte[] json, final int flags) {
+        if (dictionaryTrainer != null) {
+            dictionaryTrainer.sample(json);
+        }
+
+        final CompressionDictionary dictionary = getDictionary(o);
+        if (dictionary != null && json.length > dictionaryCompressionThreshold) {
+            final DictionaryCompressionCodec codec = getDictionaryCodec();
+            final byte[] compressed = codec.compress(json, dictionary);
+            if (compressed.length < json.length) {
+                return CachedObjectImpl.wrap(flags | CompressionCodecs.toFlags(codec.getId()) | CompressionDictionaries.toFlags(dictionary.getId()),
+                        compressed);
+            }
+        }
+
+        final byte[] compressed = CompressionCodecs.compress(compressionCodec, compressionThreshold, json);
+        if (compressed != null) {
+            return CachedObjectImpl.wrap(flags | CompressionCodecs.toFlags(compressionCodec.getId()), compressed);
+        }
+        return CachedObjectImpl.wrap(flags, json);
+    }
+
+    private CompressionDictionary getDictionary(final Object o) {
+        final CompressionDictionary dictionary = o != null ? compressionDictionaries.get(o.getClass()) : null;
+        return dictionary != null ? dictionary : compressionDictionary;
+    }
+
+    private DictionaryCompressionCodec getDictionaryCodec() {
+        return compressionCodec instanceof DictionaryCompressionCodec ? (DictionaryCompressionCodec) compressionCodec
+                : DEFAULT_DICTIONARY_CODEC;
+    }
+
+    /**
+     * Stores values of the declared type as plain JSON, other values and reading of documents stored in the legacy
+     * format are delegated to the enclosing transcoder.
+     */
+    private class TypedJsonTranscoder implements CacheTranscoder {
+
+        private final JavaType type;
+
+        private final Class<?> rawClass;
+
+        private final ObjectReader reader;
+
+        private final ObjectWriter writer;
+
+        TypedJsonTranscoder(final JavaType type, final ObjectReader reader, final ObjectWriter writer) {
+            this.type = type;
+            this.rawClass = ClassUtils.resolvePrimitiveIfNecessary(type.getRawClass());
+            this.reader = reader;
+            this.writer = writer;
+        }
+
+        @Override
+        public Object decode(final CachedObject data) {
+            if ((data.getFlags() & TYPED_JSON) == 0) {
+                return JsonTranscoder.this.decode(data);
+            }
+
+            try {
+                return reader.readValue(CompressionCodecs.decompress(data));
+            } catch (IOException e) {
+                LOGGER.warn(String.format("Error deserializing cached data %s", data.toString()), e);
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public CachedObject encode(final Object o) {
+            if (!rawClass.isInstance(o)) {
+                return JsonTranscoder.this.encode(o);
+            }
+
+            PooledByteArrayOutputStream baos = new PooledByteArrayOutputStream();
+            try {
+                writer.writeValue(baos, o);
+                return JsonTranscoder.this.encode(o, baos.toByteArray(), JSON_SERIALIZED | TYPED_JSON);
+            } catch (IOException e) {
+                LOGGER.warn(String.format("Error serializing object %s", o), e);
+                throw new RuntimeException(e);
+            } finally {
+                baos.release();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "TypedJsonTranscoder [type=" + type + "]";
+        }
+
+    }
+
 }
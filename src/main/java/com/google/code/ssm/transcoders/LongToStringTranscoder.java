@@ -63,7 +63,7 @@ public class LongToStringTranscoder implements CacheTranscoder {
         }
 
         try {
-            return new CachedObjectImpl(0, String.valueOf(o).getBytes("UTF-8"));
+            return CachedObjectImpl.wrap(0, String.valueOf(o).getBytes("UTF-8"));
         } catch (UnsupportedEncodingException e) {
             throw new RuntimeException(e);
         }
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.transcoders;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.code.ssm.providers.CachedObject;
+import com.google.code.ssm.providers.CachedObjectImpl;
+import com.google.code.ssm.transcoders.binary.BinarySerializer;
+import com.google.code.ssm.transcoders.compression.CompressionCodecs;
+
+/**
+ * 
+ * Stores instances of registered classes using {@link BinarySerializer}: the class is written as a compact integer id
+ * and fields are accessed by cached method handles instead of java serialization. Fields are identified by name so
+ * fields can be added to or removed from a registered class without breaking stored values. A registered class must
+ * have a no-arg constructor and may contain only supported values (see {@link BinarySerializer}). Array lists, hash sets
+ * and hash maps of such values are stored in the same format. Values of other classes, or values that cannot be
+ * serialized in this format, are handled by {@link CompactBinaryTranscoder}. Fields declared with types that are neither
+ * supported nor registered are rejected on registration, a registered class whose value still cannot be serialized
+ * (e.g. an unsupported value in a field declared as {@link Object}) is logged once and from then on stored using java
+ * serialization.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+@ToString(callSuper = true, exclude = { "serializer", "unsupportedClasses" })
+@EqualsAndHashCode(callSuper = true, exclude = { "serializer", "unsupportedClasses" })
+public class RegisteredClassTranscoder extends CompactBinaryTranscoder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RegisteredClassTranscoder.class);
+
+    private static final int REGISTERED = 0x100;
+
+    // collections which are decoded as instances of the same class
+    private static final Set<Class<?>> COLLECTIONS = new HashSet<Class<?>>(Arrays.<Class<?>> asList(ArrayList.class, HashSet.class,
+            LinkedHashSet.class, HashMap.class, LinkedHashMap.class));
+
+    @Getter
+    private Map<Class<?>, Integer> classToId = Collections.emptyMap();
+
+    private BinarySerializer serializer = new BinarySerializer();
+
+    private final Set<Class<?>> unsupportedClasses = Collections.newSetFromMap(new ConcurrentHashMap<Class<?>, Boolean>());
+
+    /**
+     * Registers classes (and enums) with their ids. The id of a class must never change as long as values of it are
+     * stored in cache.
+     * 
+     * @param classToId
+     *            the map of classes to unique positive ids
+     * @throws IllegalArgumentException
+     *             if a class cannot be registered or has a field of type that is neither supported nor registered
+     */
+    public void setClassToId(final Map<Class<?>, Integer> classToId) {
+        final BinarySerializer newSerializer = new BinarySerializer();
+        for (Map.Entry<Class<?>, Integer> entry : classToId.entrySet()) {
+            newSerializer.register(entry.getKey(), entry.getValue());
+        }
+        newSerializer.validate();
+
+        this.classToId = Collections.unmodifiableMap(new LinkedHashMap<Class<?>, Integer>(classToId));
+        this.serializer = newSerializer;
+        unsupportedClasses.clear();
+    }
+
+    @Override
+    public Object decode(final CachedObject d) {
+        if ((d.getFlags() & REGISTERED) == 0) {
+            return super.decode(d);
+        }
+
+        return serializer.deserialize(CompressionCodecs.decompress(d));
+    }
+
+    @Override
+    public CachedObject encode(final Object o) {
+        if (o == null || !(serializer.isRegistered(o.getClass()) || COLLECTIONS.contains(o.getClass()))
+                || unsupportedClasses.contains(o.getClass())) {
+            return super.encode(o);
+        }
+
+        byte[] data;
+        try {
+            data = serializer.serialize(o);
+        } catch (IllegalArgumentException e) {
+            // contents of collections differ from value to value so only registered classes are remembered
+            if (!COLLECTIONS.contains(o.getClass()) && unsupportedClasses.add(o.getClass())) {
+                LOGGER.warn("Cannot serialize {} in binary format, java serialization will be used for this class: {}", o.getClass(),
+                        e.getMessage());
+            } else {
+                LOGGER.debug("Cannot serialize {} in binary format, java serialization will be used", o.getClass(), e);
+            }
+            return super.encode(o);
+        }
+
+        int flags = REGISTERED;
+        final byte[] compressed = CompressionCodecs.compress(getCompressionCodec(), getCompressionThreshold(), data);
+        if (compressed != null) {
+            data = compressed;
+            flags |= CompressionCodecs.toFlags(getCompressionCodec().getId());
+        }
+
+        return CachedObjectImpl.wrap(flags, data);
+    }
+
+}
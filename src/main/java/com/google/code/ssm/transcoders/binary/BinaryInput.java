@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.transcoders.binary;
+
+/**
+ * Input of binary serializer.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+class BinaryInput {
+
+    private final byte[] data;
+
+    private int position;
+
+    BinaryInput(final byte[] data) {
+        this.data = data;
+    }
+
+    int readByte() {
+        check(1);
+        return data[position++];
+    }
+
+    int readShort() {
+        check(2);
+        return ((data[position++] & 0xFF) << 8) | (data[position++] & 0xFF);
+    }
+
+    int readInt() {
+        check(4);
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            value = (value << 8) | (data[position++] & 0xFF);
+        }
+        return value;
+    }
+
+    long readLong() {
+        check(8);
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (data[position++] & 0xFF);
+        }
+        return value;
+    }
+
+    int readVarInt() {
+        final long value = readVarLong();
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Corrupted data, invalid length or id " + value);
+        }
+        return (int) value;
+    }
+
+    long readVarLong() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Corrupted data, malformed variable length number");
+    }
+
+    long readSignedVarLong() {
+        final long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    byte[] readBytes() {
+        final int length = readVarInt();
+        check(length);
+        final byte[] bytes = new byte[length];
+        System.arraycopy(data, position, bytes, 0, length);
+        position += length;
+        return bytes;
+    }
+
+    String readString() {
+        final int length = readVarInt();
+        final char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            final int b = readByte() & 0xFF;
+            if (b < 0x80) {
+                chars[i] = (char) b;
+            } else if (b < 0xE0) {
+                chars[i] = (char) (((b & 0x1F) << 6) | (readByte() & 0x3F));
+            } else {
+                chars[i] = (char) (((b & 0x0F) << 12) | ((readByte() & 0x3F) << 6) | (readByte() & 0x3F));
+            }
+        }
+        return new String(chars);
+    }
+
+    boolean hasRemaining() {
+        return position < data.length;
+    }
+
+    private void check(final int size) {
+        if (size > data.length - position) {
+            throw new IllegalArgumentException("Corrupted data, unexpected end of data");
+        }
+    }
+
+}
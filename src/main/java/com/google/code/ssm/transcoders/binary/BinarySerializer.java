@@ -0,0 +1,370 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.transcoders.binary;
+
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.util.Assert;
+
+import com.google.code.ssm.aop.support.PertinentNegativeNull;
+
+/**
+ * Binary serializer of registered classes. Each registered class (or enum) has a compact integer id written instead of
+ * class descriptor. Values are tagged so they can be skipped by readers that don't know a field. Supported are
+ * registered classes and enums, boxed primitives, strings, byte arrays, dates, lists, sets and maps of supported values.
+ * Lists are read as {@link ArrayList}, sets as {@link LinkedHashSet} and maps as {@link LinkedHashMap}.
+ * 
+ * Every value starts with a format version byte so the format can evolve.
+ * 
+ * Registration is not thread safe, all classes must be registered before the serializer is used.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+public class BinarySerializer {
+
+    public static final int FORMAT_VERSION = 1;
+
+    private static final int NULL = 0;
+    private static final int TRUE = 1;
+    private static final int FALSE = 2;
+    private static final int INT = 3;
+    private static final int LONG = 4;
+    private static final int SHORT = 5;
+    private static final int BYTE = 6;
+    private static final int CHAR = 7;
+    private static final int FLOAT = 8;
+    private static final int DOUBLE = 9;
+    private static final int STRING = 10;
+    private static final int BYTES = 11;
+    private static final int LIST = 12;
+    private static final int SET = 13;
+    private static final int MAP = 14;
+    private static final int OBJECT = 15;
+    private static final int ENUM = 16;
+    private static final int DATE = 17;
+    private static final int NEGATIVE_NULL = 18;
+
+    private static final Set<Class<?>> SUPPORTED_TYPES = new HashSet<Class<?>>(Arrays.<Class<?>> asList(String.class, Integer.class,
+            Long.class, Short.class, Byte.class, Character.class, Float.class, Double.class, Boolean.class, Date.class, byte[].class,
+            PertinentNegativeNull.class));
+
+    private final Map<Class<?>, ClassSerializer> serializers = new IdentityHashMap<Class<?>, ClassSerializer>();
+
+    private final Map<Integer, ClassSerializer> serializersById = new HashMap<Integer, ClassSerializer>();
+
+    private final Map<Class<?>, Integer> enumToId = new IdentityHashMap<Class<?>, Integer>();
+
+    private final Map<Integer, Class<?>> idToEnum = new HashMap<Integer, Class<?>>();
+
+    /**
+     * Registers class under given id. The id must be unique and must not change as long as values serialized with it
+     * are stored.
+     * 
+     * @param clazz
+     *            the class with no-arg constructor or enum
+     * @param id
+     *            the positive id
+     */
+    public void register(final Class<?> clazz, final int id) {
+        Assert.notNull(clazz, "Class cannot be null");
+        Assert.isTrue(id > 0, "Id must be positive");
+
+        if (serializers.containsKey(clazz) || enumToId.containsKey(clazz)) {
+            throw new IllegalArgumentException("Class " + clazz + " is already registered");
+        }
+        if (serializersById.containsKey(id) || idToEnum.containsKey(id)) {
+            throw new IllegalArgumentException("Id " + id + " is used by another class and cannot be used by " + clazz);
+        }
+
+        if (clazz.isEnum()) {
+            enumToId.put(clazz, id);
+            idToEnum.put(id, clazz);
+        } else {
+            final ClassSerializer serializer = new ClassSerializer(clazz, id);
+            serializers.put(clazz, serializer);
+            serializersById.put(id, serializer);
+        }
+    }
+
+    /**
+     * Checks that fields of registered classes are declared with supported types. Fields declared as interfaces,
+     * abstract classes or {@link Object} can hold values of any type and are checked when written.
+     * 
+     * @throws IllegalArgumentException
+     *             if a field is declared with a class that is neither supported nor registered
+     */
+    public void validate() {
+        for (ClassSerializer serializer : serializers.values()) {
+            for (ClassSerializer.FieldAccessor field : serializer.getFields()) {
+                if (!isSupportedFieldType(field.getType())) {
+                    throw new IllegalArgumentException(String.format("Field %s of %s has type %s which is neither supported nor registered",
+                            field.getName(), serializer.getType(), field.getType()));
+                }
+            }
+        }
+    }
+
+    public boolean isRegistered(final Class<?> clazz) {
+        return serializers.containsKey(clazz) || enumToId.containsKey(clazz);
+    }
+
+    /**
+     * 
+     * @param value
+     *            the value
+     * @return serialized value
+     * @throws IllegalArgumentException
+     *             if the value contains object of not supported type
+     */
+    public byte[] serialize(final Object value) {
+        final BinaryOutput out = new BinaryOutput();
+        try {
+            out.writeByte(FORMAT_VERSION);
+            write(out, value);
+            return out.toByteArray();
+        } finally {
+            out.release();
+        }
+    }
+
+    /**
+     * 
+     * @param data
+     *            the serialized value
+     * @return deserialized value
+     * @throws IllegalArgumentException
+     *             if the data are corrupted, use unknown format version or unknown class id
+     */
+    public Object deserialize(final byte[] data) {
+        final BinaryInput in = new BinaryInput(data);
+        final int version = in.readByte();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalArgumentException(String.format("Unsupported format version %s", version));
+        }
+
+        return read(in);
+    }
+
+    private boolean isSupportedFieldType(final Class<?> type) {
+        if (type.isPrimitive() || SUPPORTED_TYPES.contains(type) || isRegistered(type)) {
+            return true;
+        }
+        if (Collection.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type)) {
+            // declared types of collections are checked on registration
+            return true;
+        }
+
+        // values of such fields may be of any (registered) subclass
+        return !type.isEnum() && !type.isArray()
+                && (type.isInterface() || Modifier.isAbstract(type.getModifiers()) || type == Object.class);
+    }
+
+    private void write(final BinaryOutput out, final Object value) {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            out.writeString((String) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INT);
+            out.writeSignedVarLong((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeSignedVarLong((Long) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(((Boolean) value) ? TRUE : FALSE);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeLong(Double.doubleToLongBits((Double) value));
+        } else {
+            writeOther(out, value);
+        }
+    }
+
+    private void writeOther(final BinaryOutput out, final Object value) {
+        final Class<?> clazz = value.getClass();
+        final ClassSerializer serializer = serializers.get(clazz);
+        if (serializer != null) {
+            out.writeByte(OBJECT);
+            out.writeVarInt(serializer.getId());
+            final ClassSerializer.FieldAccessor[] fields = serializer.getFields();
+            out.writeVarInt(fields.length);
+            for (ClassSerializer.FieldAccessor field : fields) {
+                out.writeShort(field.getId());
+                write(out, field.get(value));
+            }
+        } else if (value instanceof Enum) {
+            final Integer id = enumToId.get(((Enum<?>) value).getDeclaringClass());
+            if (id == null) {
+                throw new IllegalArgumentException("Enum " + clazz + " is not registered");
+            }
+            out.writeByte(ENUM);
+            out.writeVarInt(id);
+            out.writeString(((Enum<?>) value).name());
+        } else if (value instanceof List) {
+            out.writeByte(LIST);
+            writeElements(out, (List<?>) value);
+        } else if (value instanceof Set) {
+            out.writeByte(SET);
+            writeElements(out, (Set<?>) value);
+        } else if (value instanceof Map) {
+            out.writeByte(MAP);
+            final Map<?, ?> map = (Map<?, ?>) value;
+            out.writeVarInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                write(out, entry.getKey());
+                write(out, entry.getValue());
+            }
+        } else if (clazz == byte[].class) {
+            out.writeByte(BYTES);
+            out.writeBytes((byte[]) value);
+        } else if (clazz == Short.class) {
+            out.writeByte(SHORT);
+            out.writeShort((Short) value);
+        } else if (clazz == Byte.class) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) value);
+        } else if (clazz == Character.class) {
+            out.writeByte(CHAR);
+            out.writeShort((Character) value);
+        } else if (clazz == Float.class) {
+            out.writeByte(FLOAT);
+            out.writeInt(Float.floatToIntBits((Float) value));
+        } else if (clazz == Date.class) {
+            out.writeByte(DATE);
+            out.writeLong(((Date) value).getTime());
+        } else if (clazz == PertinentNegativeNull.class) {
+            out.writeByte(NEGATIVE_NULL);
+        } else {
+            throw new IllegalArgumentException("Class " + clazz + " is not registered");
+        }
+    }
+
+    private void writeElements(final BinaryOutput out, final Collection<?> values) {
+        out.writeVarInt(values.size());
+        for (Object element : values) {
+            write(out, element);
+        }
+    }
+
+    private Object read(final BinaryInput in) {
+        final int tag = in.readByte();
+        switch (tag) {
+        case NULL:
+            return null;
+        case TRUE:
+            return Boolean.TRUE;
+        case FALSE:
+            return Boolean.FALSE;
+        case INT:
+            return (int) in.readSignedVarLong();
+        case LONG:
+            return in.readSignedVarLong();
+        case SHORT:
+            return (short) in.readShort();
+        case BYTE:
+            return (byte) in.readByte();
+        case CHAR:
+            return (char) in.readShort();
+        case FLOAT:
+            return Float.intBitsToFloat(in.readInt());
+        case DOUBLE:
+            return Double.longBitsToDouble(in.readLong());
+        case STRING:
+            return in.readString();
+        case BYTES:
+            return in.readBytes();
+        case LIST:
+            final int listSize = in.readVarInt();
+            final List<Object> list = new ArrayList<Object>(Math.min(listSize, 1024));
+            for (int i = 0; i < listSize; i++) {
+                list.add(read(in));
+            }
+            return list;
+        case SET:
+            final int setSize = in.readVarInt();
+            final Set<Object> set = new LinkedHashSet<Object>();
+            for (int i = 0; i < setSize; i++) {
+                set.add(read(in));
+            }
+            return set;
+        case MAP:
+            final int mapSize = in.readVarInt();
+            final Map<Object, Object> map = new LinkedHashMap<Object, Object>();
+            for (int i = 0; i < mapSize; i++) {
+                map.put(read(in), read(in));
+            }
+            return map;
+        case OBJECT:
+            return readObject(in);
+        case ENUM:
+            return readEnum(in);
+        case DATE:
+            return new Date(in.readLong());
+        case NEGATIVE_NULL:
+            return PertinentNegativeNull.NULL;
+        default:
+            throw new IllegalArgumentException(String.format("Corrupted data, unknown tag %s", tag));
+        }
+    }
+
+    private Object readObject(final BinaryInput in) {
+        final int id = in.readVarInt();
+        final ClassSerializer serializer = serializersById.get(id);
+        if (serializer == null) {
+            throw new IllegalArgumentException(String.format("No class registered with id %s", id));
+        }
+
+        final Object object = serializer.newInstance();
+        final int fields = in.readVarInt();
+        for (int i = 0; i < fields; i++) {
+            final ClassSerializer.FieldAccessor field = serializer.getField(in.readShort());
+            final Object value = read(in);
+            // fields removed from class are skipped
+            if (field != null) {
+                field.set(object, value);
+            }
+        }
+        return object;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Object readEnum(final BinaryInput in) {
+        final int id = in.readVarInt();
+        final Class enumClass = idToEnum.get(id);
+        if (enumClass == null) {
+            throw new IllegalArgumentException(String.format("No enum registered with id %s", id));
+        }
+        return Enum.valueOf(enumClass, in.readString());
+    }
+
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.transcoders.binary;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Field level serializer of a registered class created once per class. Fields (including inherited ones, except static
+ * and transient) are accessed by method handles. Each field is identified by a 16 bit hash of its name, so fields can be
+ * added or removed without breaking values stored before: unknown fields are skipped and missing ones keep the value
+ * set by the no-arg constructor.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+class ClassSerializer {
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final Class<?> type;
+
+    private final int id;
+
+    private final MethodHandle constructor;
+
+    private final FieldAccessor[] fields;
+
+    private final Map<Integer, FieldAccessor> fieldsById = new HashMap<Integer, FieldAccessor>();
+
+    ClassSerializer(final Class<?> type, final int id) {
+        this.type = type;
+        this.id = id;
+
+        final MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            final Constructor<?> noArgConstructor = type.getDeclaredConstructor();
+            noArgConstructor.setAccessible(true);
+            this.constructor = lookup.unreflectConstructor(noArgConstructor).asType(MethodType.methodType(Object.class));
+
+            final List<FieldAccessor> accessors = new ArrayList<FieldAccessor>();
+            for (Field field : getFields(type)) {
+                field.setAccessible(true);
+                final FieldAccessor accessor = new FieldAccessor(field, lookup.unreflectGetter(field).asType(GETTER_TYPE),
+                        lookup.unreflectSetter(field).asType(SETTER_TYPE));
+                final FieldAccessor previous = fieldsById.put(accessor.id, accessor);
+                if (previous != null) {
+                    throw new IllegalArgumentException(String.format("Fields %s and %s of %s have the same id, rename one of them",
+                            previous.name, accessor.name, type));
+                }
+                accessors.add(accessor);
+            }
+            this.fields = accessors.toArray(new FieldAccessor[accessors.size()]);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException(String.format("Class %s must have no-arg constructor", type), e);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException(String.format("Cannot access members of %s", type), e);
+        }
+    }
+
+    Class<?> getType() {
+        return type;
+    }
+
+    int getId() {
+        return id;
+    }
+
+    FieldAccessor[] getFields() {
+        return fields;
+    }
+
+    FieldAccessor getField(final int fieldId) {
+        return fieldsById.get(fieldId);
+    }
+
+    Object newInstance() {
+        try {
+            return (Object) constructor.invokeExact();
+        } catch (Throwable e) {
+            throw new IllegalArgumentException(String.format("Cannot create instance of %s", type), e);
+        }
+    }
+
+    static int getFieldId(final String name) {
+        final int hash = name.hashCode();
+        return (hash ^ (hash >>> 16)) & 0xFFFF;
+    }
+
+    private static List<Field> getFields(final Class<?> type) {
+        final List<Field> fields = new ArrayList<Field>();
+        final Map<String, Field> names = new HashMap<String, Field>();
+        for (Class<?> clazz = type; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+            for (Field field : clazz.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers()) || field.isSynthetic()) {
+                    continue;
+                }
+                if (names.put(field.getName(), field) != null) {
+                    throw new IllegalArgumentException(String.format("Field %s of %s hides inherited field", field.getName(), type));
+                }
+                validateFieldType(type, field);
+                fields.add(field);
+            }
+        }
+        fields.sort(Comparator.comparing(Field::getName));
+        return fields;
+    }
+
+    private static void validateFieldType(final Class<?> type, final Field field) {
+        final Class<?> fieldType = field.getType();
+        if ((Collection.class.isAssignableFrom(fieldType) || Map.class.isAssignableFrom(fieldType))
+                && !fieldType.isAssignableFrom(ArrayList.class) && !fieldType.isAssignableFrom(LinkedHashSet.class)
+                && !fieldType.isAssignableFrom(LinkedHashMap.class)) {
+            throw new IllegalArgumentException(String.format(
+                    "Field %s of %s must be declared as List, Set, Map or their linked/array implementation", field.getName(), type));
+        }
+        if (fieldType.isArray() && fieldType != byte[].class) {
+            throw new IllegalArgumentException(String.format("Array field %s of %s is not supported, use list", field.getName(), type));
+        }
+    }
+
+    static final class FieldAccessor {
+
+        private final int id;
+
+        private final String name;
+
+        private final Class<?> type;
+
+        private final boolean primitive;
+
+        private final MethodHandle getter;
+
+        private final MethodHandle setter;
+
+        private FieldAccessor(final Field field, final MethodHandle getter, final MethodHandle setter) {
+            this.id = getFieldId(field.getName());
+            this.name = field.getName();
+            this.type = field.getType();
+            this.primitive = type.isPrimitive();
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        int getId() {
+            return id;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        Class<?> getType() {
+            return type;
+        }
+
+        Object get(final Object target) {
+            try {
+                return (Object) getter.invokeExact(target);
+            } catch (Throwable e) {
+                throw new IllegalArgumentException(String.format("Cannot read field %s", name), e);
+            }
+        }
+
+        void set(final Object target, final Object value) {
+            if (value == null && primitive) {
+                return;
+            }
+
+            try {
+                setter.invokeExact(target, value);
+            } catch (Throwable e) {
+                throw new IllegalArgumentException(String.format("Cannot set field %s to %s", name, value), e);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.transcoders.compression;
+
+/**
+ * Base of codecs that store the length of uncompressed data in the first 4 bytes, so decompression can allocate the
+ * output array of exact size.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+public abstract class AbstractCompressionCodec implements CompressionCodec {
+
+    protected static final int HEADER_SIZE = 4;
+
+    /**
+     * The maximum size of decompressed data, protects against allocating huge arrays for corrupted data.
+     */
+    protected static final int MAX_LENGTH = 256 * 1024 * 1024;
+
+    protected static void writeLength(final byte[] out, final int length) {
+        out[0] = (byte) (length >>> 24);
+        out[1] = (byte) (length >>> 16);
+        out[2] = (byte) (length >>> 8);
+        out[3] = (byte) length;
+    }
+
+    protected static int readLength(final byte[] in) {
+        if (in == null || in.length < HEADER_SIZE) {
+            throw new IllegalArgumentException("Corrupted compressed data, missing header");
+        }
+
+        final int length = ((in[0] & 0xFF) << 24) | ((in[1] & 0xFF) << 16) | ((in[2] & 0xFF) << 8) | (in[3] & 0xFF);
+        if (length < 0 || length > MAX_LENGTH) {
+            throw new IllegalArgumentException(String.format("Corrupted compressed data, invalid length %s", length));
+        }
+
+        return length;
+    }
+
+}
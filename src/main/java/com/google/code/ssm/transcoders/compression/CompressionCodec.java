@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.transcoders.compression;
+
+/**
+ * Compresses data stored in memcached. Each codec has a unique id which is stored in flags of cached object
+ * ({@link CompressionCodecs#toFlags(int)}), so data can be decompressed even if the configured codec has changed.
+ * Implementations must be thread safe.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+public interface CompressionCodec {
+
+    /**
+     * 
+     * @return unique id of the codec in range 1 - 15
+     */
+    int getId();
+
+    byte[] compress(byte[] data);
+
+    /**
+     * 
+     * @param data
+     *            the data compressed by this codec
+     * @return decompressed data
+     * @throws IllegalArgumentException
+     *             if the data are corrupted
+     */
+    byte[] decompress(byte[] data);
+
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.transcoders.compression;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.google.code.ssm.providers.CachedObject;
+
+/**
+ * Registry of compression codecs. The id of the codec used to compress a value is stored in bits 12 - 15 of cached
+ * object's flags, the id of a dictionary (if any) in bits 16 - 23. Deflate and LZF codecs are registered by default.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+public final class CompressionCodecs {
+
+    public static final int DEFLATE = 1;
+
+    public static final int LZF = 2;
+
+    private static final int SHIFT = 12;
+
+    private static final int MASK = 0xF << SHIFT;
+
+    private static final AtomicReferenceArray<CompressionCodec> CODECS = new AtomicReferenceArray<CompressionCodec>(16);
+
+    static {
+        register(new DeflateCompressionCodec());
+        register(new LzfCompressionCodec());
+    }
+
+    private CompressionCodecs() {
+
+    }
+
+    /**
+     * Registers codec used to decompress data with codec's id. Replaces codec previously registered with the same id.
+     * 
+     * @param codec
+     *            the codec
+     */
+    public static void register(final CompressionCodec codec) {
+        if (codec.getId() < 1 || codec.getId() > 15) {
+            throw new IllegalArgumentException(String.format("Id of codec %s must be in range 1 - 15", codec));
+        }
+
+        CODECS.set(codec.getId(), codec);
+    }
+
+    public static CompressionCodec get(final int id) {
+        final CompressionCodec codec = id > 0 && id < 16 ? CODECS.get(id) : null;
+        if (codec == null) {
+            throw new IllegalArgumentException(String.format("No compression codec registered with id %s", id));
+        }
+
+        return codec;
+    }
+
+    public static int toFlags(final int id) {
+        return id << SHIFT;
+    }
+
+    /**
+     * 
+     * @param flags
+     *            the flags of cached object
+     * @return id of codec used to compress data or 0 if data are not compressed
+     */
+    public static int getCodecId(final int flags) {
+        return (flags & MASK) >>> SHIFT;
+    }
+
+    /**
+     * Compresses data if they are bigger than threshold and compression makes them smaller.
+     * 
+     * @param codec
+     *            the codec, if null data are not compressed
+     * @param threshold
+     *            the minimum size of data to compress
+     * @param data
+     *            the data
+     * @return compressed data or null if data weren't compressed
+     */
+    public static byte[] compress(final CompressionCodec codec, final int threshold, final byte[] data) {
+        if (codec == null || data.length <= threshold) {
+            return null;
+        }
+
+        final byte[] compressed = codec.compress(data);
+        return compressed.length < data.length ? compressed : null;
+    }
+
+    /**
+     * Decompresses data of cached object if they were compressed by any of registered codecs.
+     * 
+     * @param cachedObject
+     *            the cached object
+     * @return decompressed data or data of the cached object if they weren't compressed
+     */
+    public static byte[] decompress(final CachedObject cachedObject) {
+        final int id = getCodecId(cachedObject.getFlags());
+        if (id == 0) {
+            return cachedObject.getData();
+        }
+
+        final CompressionCodec codec = get(id);
+        final int dictionaryId = CompressionDictionaries.getDictionaryId(cachedObject.getFlags());
+        if (dictionaryId == 0) {
+            return codec.decompress(cachedObject.getData());
+        }
+
+        if (!(codec instanceof DictionaryCompressionCodec)) {
+            throw new IllegalArgumentException(String.format("Compression codec %s doesn't support dictionaries", codec));
+        }
+        return ((DictionaryCompressionCodec) codec).decompress(cachedObject.getData(), CompressionDictionaries.get(dictionaryId));
+    }
+
+}
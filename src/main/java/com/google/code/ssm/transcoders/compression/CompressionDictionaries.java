@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.transcoders.compression;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Registry of compression dictionaries. The id of the dictionary used to compress a value is stored in bits 16 - 23 of
+ * cached object's flags. All dictionaries that were used to compress values still stored in memcached must be
+ * registered.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+public final class CompressionDictionaries {
+
+    private static final int SHIFT = 16;
+
+    private static final int MASK = 0xFF << SHIFT;
+
+    private static final AtomicReferenceArray<CompressionDictionary> DICTIONARIES = new AtomicReferenceArray<CompressionDictionary>(256);
+
+    private CompressionDictionaries() {
+
+    }
+
+    /**
+     * Registers dictionary. Registering a different dictionary with an id that is already used is not allowed because
+     * values compressed with the previous one couldn't be read.
+     * 
+     * @param dictionary
+     *            the dictionary
+     */
+    public static void register(final CompressionDictionary dictionary) {
+        if (!DICTIONARIES.compareAndSet(dictionary.getId(), null, dictionary) && !dictionary.equals(DICTIONARIES.get(dictionary.getId()))) {
+            throw new IllegalStateException(String.format("Other dictionary with id %s is already registered", dictionary.getId()));
+        }
+    }
+
+    public static CompressionDictionary get(final int id) {
+        final CompressionDictionary dictionary = id > 0 && id < 256 ? DICTIONARIES.get(id) : null;
+        if (dictionary == null) {
+            throw new IllegalArgumentException(String.format("No compression dictionary registered with id %s", id));
+        }
+
+        return dictionary;
+    }
+
+    public static int toFlags(final int id) {
+        return id << SHIFT;
+    }
+
+    /**
+     * 
+     * @param flags
+     *            the flags of cached object
+     * @return id of dictionary used to compress data or 0 if no dictionary was used
+     */
+    public static int getDictionaryId(final int flags) {
+        return (flags & MASK) >>> SHIFT;
+    }
+
+}
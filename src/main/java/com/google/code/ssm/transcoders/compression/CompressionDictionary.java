@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.transcoders.compression;
+
+import java.util.Arrays;
+
+import lombok.Getter;
+
+/**
+ * Preset dictionary used to compress small values that share field names and other fragments. The id of a dictionary is
+ * its version: a retrained dictionary must get a new id and the old one must stay registered in
+ * {@link CompressionDictionaries} as long as values compressed with it can be read.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+public class CompressionDictionary {
+
+    /**
+     * The maximum useful size of a deflate dictionary (the size of deflate window).
+     */
+    public static final int MAX_SIZE = 32 * 1024;
+
+    @Getter
+    private final int id;
+
+    private final byte[] data;
+
+    /**
+     * 
+     * @param id
+     *            the unique id of the dictionary in range 1 - 255
+     * @param data
+     *            the content of the dictionary, the most common fragments should be at the end
+     */
+    public CompressionDictionary(final int id, final byte[] data) {
+        if (id < 1 || id > 255) {
+            throw new IllegalArgumentException(String.format("Id of dictionary must be in range 1 - 255 but is %s", id));
+        }
+        if (data == null || data.length == 0 || data.length > MAX_SIZE) {
+            throw new IllegalArgumentException(String.format("Size of dictionary must be in range 1 - %s", MAX_SIZE));
+        }
+
+        this.id = id;
+        this.data = data.clone();
+    }
+
+    public byte[] getData() {
+        return data.clone();
+    }
+
+    byte[] getDataInternal() {
+        return data;
+    }
+
+    @Override
+    public String toString() {
+        return "CompressionDictionary [id=" + id + ", size=" + data.length + "]";
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof CompressionDictionary)) {
+            return false;
+        }
+        final CompressionDictionary other = (CompressionDictionary) obj;
+        return id == other.id && Arrays.equals(data, other.data);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * id + Arrays.hashCode(data);
+    }
+
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.transcoders.compression;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Builds compression dictionaries from sample payloads. Samples can be added offline or taken from live traffic, in
+ * the latter case a uniform sample of all seen payloads is kept (reservoir sampling) so the cost of
+ * {@link #sample(byte[])} is negligible.
+ * 
+ * The dictionary consists of fragments frequent across samples: bytes covered by frequent n-grams are joined into
+ * fragments, fragments are ranked by number of samples containing them multiplied by their length and the best ones
+ * are placed at the end of the dictionary where deflate finds them at the shortest distance.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+public class CompressionDictionaryTrainer {
+
+    public static final int DEFAULT_MAX_SAMPLES = 1000;
+
+    public static final int DEFAULT_GRAM_SIZE = 5;
+
+    public static final int DEFAULT_MIN_FREQUENCY = 2;
+
+    private final int gramSize;
+
+    private final int minFrequency;
+
+    private final AtomicReferenceArray<byte[]> samples;
+
+    private final AtomicLong seen = new AtomicLong();
+
+    public CompressionDictionaryTrainer() {
+        this(DEFAULT_MAX_SAMPLES, DEFAULT_GRAM_SIZE, DEFAULT_MIN_FREQUENCY);
+    }
+
+    /**
+     * 
+     * @param maxSamples
+     *            the maximum number of kept samples
+     * @param gramSize
+     *            the length of n-grams used to find frequent fragments
+     * @param minFrequency
+     *            the minimum number of samples containing an n-gram to consider it frequent
+     */
+    public CompressionDictionaryTrainer(final int maxSamples, final int gramSize, final int minFrequency) {
+        if (maxSamples < 1 || gramSize < 3 || minFrequency < 2) {
+            throw new IllegalArgumentException("Max samples must be positive, gram size at least 3 and min frequency at least 2");
+        }
+
+        this.samples = new AtomicReferenceArray<byte[]>(maxSamples);
+        this.gramSize = gramSize;
+        this.minFrequency = minFrequency;
+    }
+
+    /**
+     * Offers a payload, it is kept with probability equal to max samples divided by the number of offered payloads. The
+     * payload must not be modified afterwards.
+     * 
+     * @param data
+     *            the payload
+     */
+    public void sample(final byte[] data) {
+        final long n = seen.getAndIncrement();
+        if (n < samples.length()) {
+            samples.set((int) n, data);
+        } else {
+            final long index = ThreadLocalRandom.current().nextLong(n + 1);
+            if (index < samples.length()) {
+                samples.set((int) index, data);
+            }
+        }
+    }
+
+    public int getSampleCount() {
+        return (int) Math.min(seen.get(), samples.length());
+    }
+
+    public void clear() {
+        for (int i = 0; i < samples.length(); i++) {
+            samples.set(i, null);
+        }
+        seen.set(0);
+    }
+
+    /**
+     * Trains a dictionary from the current samples.
+     * 
+     * @param id
+     *            the id (version) of the new dictionary
+     * @param maxSize
+     *            the maximum size of the dictionary
+     * @return the dictionary or null if samples don't contain enough frequent fragments
+     */
+    public CompressionDictionary train(final int id, final int maxSize) {
+        final List<String> payloads = getSamples();
+        final Map<String, Integer> grams = countGrams(payloads);
+        final Map<String, Integer> fragments = countFragments(payloads, grams);
+
+        final List<Map.Entry<String, Integer>> ranked = new ArrayList<Map.Entry<String, Integer>>(fragments.entrySet());
+        Collections.sort(ranked, (a, b) -> Long.compare(score(b), score(a)));
+
+        final int limit = Math.min(maxSize, CompressionDictionary.MAX_SIZE);
+        final List<String> selected = new ArrayList<String>();
+        final StringBuilder content = new StringBuilder();
+        int size = 0;
+        for (Map.Entry<String, Integer> entry : ranked) {
+            final String fragment = entry.getKey();
+            if (size + fragment.length() > limit) {
+                continue;
+            }
+            if (content.indexOf(fragment) < 0) {
+                selected.add(fragment);
+                content.append(fragment);
+                size += fragment.length();
+            }
+        }
+
+        if (size == 0) {
+            return null;
+        }
+
+        // the most valuable fragments go last
+        final StringBuilder dictionary = new StringBuilder(size);
+        for (int i = selected.size() - 1; i >= 0; i--) {
+            dictionary.append(selected.get(i));
+        }
+        return new CompressionDictionary(id, dictionary.toString().getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private List<String> getSamples() {
+        final List<String> payloads = new ArrayList<String>(getSampleCount());
+        for (int i = 0; i < samples.length(); i++) {
+            final byte[] sample = samples.get(i);
+            if (sample != null) {
+                // ISO-8859-1 maps each byte to exactly one char
+                payloads.add(new String(sample, StandardCharsets.ISO_8859_1));
+            }
+        }
+        return payloads;
+    }
+
+    private Map<String, Integer> countGrams(final List<String> payloads) {
+        final Map<String, Integer> counts = new HashMap<String, Integer>();
+        final Set<String> inSample = new HashSet<String>();
+        for (String payload : payloads) {
+            inSample.clear();
+            for (int i = 0; i + gramSize <= payload.length(); i++) {
+                final String gram = payload.substring(i, i + gramSize);
+                if (inSample.add(gram)) {
+                    counts.merge(gram, 1, Integer::sum);
+                }
+            }
+        }
+        return counts;
+    }
+
+    private Map<String, Integer> countFragments(final List<String> payloads, final Map<String, Integer> grams) {
+        final Map<String, Integer> counts = new HashMap<String, Integer>();
+        final Set<String> inSample = new HashSet<String>();
+        for (String payload : payloads) {
+            inSample.clear();
+            int start = -1;
+            int end = -1;
+            for (int i = 0; i + gramSize <= payload.length(); i++) {
+                if (grams.get(payload.substring(i, i + gramSize)) < minFrequency) {
+                    continue;
+                }
+                if (i > end) {
+                    addFragment(payload, start, end, inSample, counts);
+                    start = i;
+                }
+                end = i + gramSize;
+            }
+            addFragment(payload, start, end, inSample, counts);
+        }
+        return counts;
+    }
+
+    private void addFragment(final String payload, final int start, final int end, final Set<String> inSample,
+            final Map<String, Integer> counts) {
+        if (start >= 0) {
+            final String fragment = payload.substring(start, end);
+            if (inSample.add(fragment)) {
+                counts.merge(fragment, 1, Integer::sum);
+            }
+        }
+    }
+
+    private long score(final Map.Entry<String, Integer> fragment) {
+        return (long) fragment.getValue() * fragment.getKey().length();
+    }
+
+}
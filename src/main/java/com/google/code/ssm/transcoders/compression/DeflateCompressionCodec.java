@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.transcoders.compression;
+
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Raw deflate compression. Deflater and Inflater instances are reused per thread instead of creating (and finalizing)
+ * new streams for each value. Supports preset dictionaries which make small values with repeated fragments (field
+ * names, class aliases) much smaller.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+@ToString(of = "level")
+@EqualsAndHashCode(callSuper = false, of = "level")
+public class DeflateCompressionCodec extends AbstractCompressionCodec implements DictionaryCompressionCodec {
+
+    private final int level;
+
+    private final ThreadLocal<Deflater> deflater;
+
+    private final ThreadLocal<Inflater> inflater = ThreadLocal.withInitial(() -> new Inflater(true));
+
+    public DeflateCompressionCodec() {
+        this(Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * 
+     * @param level
+     *            the compression level 0 - 9 or -1 for default level
+     */
+    public DeflateCompressionCodec(final int level) {
+        if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException(String.format("Invalid compression level %s", level));
+        }
+
+        this.level = level;
+        this.deflater = ThreadLocal.withInitial(() -> new Deflater(level, true));
+    }
+
+    @Override
+    public int getId() {
+        return CompressionCodecs.DEFLATE;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    @Override
+    public byte[] compress(final byte[] data) {
+        return compress(data, null);
+    }
+
+    @Override
+    public byte[] decompress(final byte[] data) {
+        return decompress(data, null);
+    }
+
+    @Override
+    public byte[] compress(final byte[] data, final CompressionDictionary dictionary) {
+        final Deflater def = deflater.get();
+        def.reset();
+        if (dictionary != null) {
+            def.setDictionary(dictionary.getDataInternal());
+        }
+
+        return deflate(def, data);
+    }
+
+    @Override
+    public byte[] decompress(final byte[] data, final CompressionDictionary dictionary) {
+        final int length = readLength(data);
+        final Inflater inf = inflater.get();
+        inf.reset();
+        if (dictionary != null) {
+            inf.setDictionary(dictionary.getDataInternal());
+        }
+        inf.setInput(data, HEADER_SIZE, data.length - HEADER_SIZE);
+
+        return inflate(inf, length);
+    }
+
+    protected byte[] deflate(final Deflater def, final byte[] data) {
+        def.setInput(data);
+        def.finish();
+
+        // stored blocks add 5 bytes per 16 KB block in the worst case
+        byte[] out = new byte[HEADER_SIZE + data.length + (data.length >>> 11) + 16];
+        writeLength(out, data.length);
+        int size = HEADER_SIZE;
+        while (!def.finished()) {
+            if (size == out.length) {
+                out = Arrays.copyOf(out, out.length * 2);
+            }
+            size += def.deflate(out, size, out.length - size);
+        }
+
+        return Arrays.copyOf(out, size);
+    }
+
+    protected byte[] inflate(final Inflater inf, final int length) {
+        final byte[] out = new byte[length];
+        try {
+            int size = 0;
+            while (size < length && !inf.finished()) {
+                final int inflated = inf.inflate(out, size, length - size);
+                if (inflated == 0 && (inf.needsInput() || inf.needsDictionary())) {
+                    break;
+                }
+                size += inflated;
+            }
+
+            if (size != length) {
+                throw new IllegalArgumentException(String.format("Corrupted compressed data, expected %s bytes but got %s", length, size));
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupted compressed data", e);
+        }
+
+        return out;
+    }
+
+}
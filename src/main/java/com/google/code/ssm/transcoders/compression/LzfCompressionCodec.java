@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.transcoders.compression;
+
+import java.util.Arrays;
+
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Pure java implementation of LZF, a very fast LZ77 family compression with lower ratio than deflate. Uses the chunk
+ * format of liblzf: a control byte below 32 starts a run of (control + 1) literal bytes, other control bytes start a
+ * back reference with 3 bits of length (extended by the next byte if all set) and 13 bits of offset.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+@ToString
+@EqualsAndHashCode(callSuper = false)
+public class LzfCompressionCodec extends AbstractCompressionCodec {
+
+    private static final int HASH_BITS = 14;
+
+    private static final int HASH_SIZE = 1 << HASH_BITS;
+
+    private static final int MAX_LITERAL = 32;
+
+    private static final int MAX_OFFSET = 1 << 13;
+
+    private static final int MAX_MATCH = (1 << 8) + (1 << 3);
+
+    private static final int MIN_MATCH = 3;
+
+    /**
+     * The hash table is not cleared between calls, stale entries are verified before use.
+     */
+    private static final ThreadLocal<int[]> HASH_TABLE = ThreadLocal.withInitial(() -> new int[HASH_SIZE]);
+
+    @Override
+    public int getId() {
+        return CompressionCodecs.LZF;
+    }
+
+    @Override
+    public byte[] compress(final byte[] in) {
+        final int length = in.length;
+        final byte[] out = new byte[HEADER_SIZE + length + length / MAX_LITERAL + 2];
+        writeLength(out, length);
+
+        final int[] table = HASH_TABLE.get();
+        int op = HEADER_SIZE;
+        int literalPos = op++;
+        int literals = 0;
+        int ip = 0;
+        int hash = length > 1 ? ((in[0] & 0xFF) << 8) | (in[1] & 0xFF) : 0;
+        while (ip < length - 2) {
+            hash = ((hash << 8) | (in[ip + 2] & 0xFF)) & 0xFFFFFF;
+            final int slot = ((hash * 57321) >>> 9) & (HASH_SIZE - 1);
+            final int ref = table[slot];
+            table[slot] = ip;
+
+            final int offset = ip - ref - 1;
+            if (ref < ip && offset < MAX_OFFSET && in[ref] == in[ip] && in[ref + 1] == in[ip + 1] && in[ref + 2] == in[ip + 2]) {
+                final int maxMatch = Math.min(MAX_MATCH, length - ip);
+                int match = MIN_MATCH;
+                while (match < maxMatch && in[ref + match] == in[ip + match]) {
+                    match++;
+                }
+
+                if (literals > 0) {
+                    out[literalPos] = (byte) (literals - 1);
+                } else {
+                    op = literalPos;
+                }
+
+                final int len = match - 2;
+                if (len < 7) {
+                    out[op++] = (byte) ((offset >>> 8) + (len << 5));
+                } else {
+                    out[op++] = (byte) ((offset >>> 8) + (7 << 5));
+                    out[op++] = (byte) (len - 7);
+                }
+                out[op++] = (byte) offset;
+
+                literalPos = op++;
+                literals = 0;
+                ip += match;
+                if (ip < length - 2) {
+                    hash = ((in[ip] & 0xFF) << 8) | (in[ip + 1] & 0xFF);
+                }
+                continue;
+            }
+
+            out[op++] = in[ip++];
+            if (++literals == MAX_LITERAL) {
+                out[literalPos] = (byte) (MAX_LITERAL - 1);
+                literalPos = op++;
+                literals = 0;
+            }
+        }
+
+        while (ip < length) {
+            out[op++] = in[ip++];
+            if (++literals == MAX_LITERAL) {
+                out[literalPos] = (byte) (MAX_LITERAL - 1);
+                literalPos = op++;
+                literals = 0;
+            }
+        }
+
+        if (literals > 0) {
+            out[literalPos] = (byte) (literals - 1);
+        } else {
+            op = literalPos;
+        }
+
+        return Arrays.copyOf(out, op);
+    }
+
+    @Override
+    public byte[] decompress(final byte[] in) {
+        final int length = readLength(in);
+        final byte[] out = new byte[length];
+        int ip = HEADER_SIZE;
+        int op = 0;
+        while (ip < in.length) {
+            final int control = in[ip++] & 0xFF;
+            if (control < MAX_LITERAL) {
+                final int run = control + 1;
+                if (op + run > length || ip + run > in.length) {
+                    throw new IllegalArgumentException("Corrupted compressed data, literal run out of bounds");
+                }
+                System.arraycopy(in, ip, out, op, run);
+                ip += run;
+                op += run;
+                continue;
+            }
+
+            int len = control >>> 5;
+            if (len == 7) {
+                if (ip >= in.length) {
+                    throw new IllegalArgumentException("Corrupted compressed data, truncated back reference");
+                }
+                len += in[ip++] & 0xFF;
+            }
+            if (ip >= in.length) {
+                throw new IllegalArgumentException("Corrupted compressed data, truncated back reference");
+            }
+            int ref = op - ((control & 0x1F) << 8) - (in[ip++] & 0xFF) - 1;
+            len += 2;
+            if (ref < 0 || op + len > length) {
+                throw new IllegalArgumentException("Corrupted compressed data, back reference out of bounds");
+            }
+            for (int i = 0; i < len; i++) {
+                out[op++] = out[ref++];
+            }
+        }
+
+        if (op != length) {
+            throw new IllegalArgumentException(String.format("Corrupted compressed data, expected %s bytes but got %s", length, op));
+        }
+
+        return out;
+    }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.util;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Pool of byte arrays in power of two size classes between {@link #MIN_SIZE} and {@link #MAX_SIZE} used as temporary
+ * encode buffers, bigger arrays are not pooled. Pooled arrays are not cleared.
+ * 
+ * Each thread keeps at most one array of each size class up to {@link #THREAD_LOCAL_MAX_SIZE}, so a thread retains less
+ * than 32 KB. Larger arrays are shared by all threads in a fixed number of slots per size class, at most
+ * {@link #SHARED_BYTES_PER_SIZE_CLASS} each, so the memory retained for them doesn't grow with the number of threads.
+ * When all slots are taken a larger array is allocated and left to the GC.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+public final class BufferPool {
+
+    public static final int MIN_SIZE = 1 << 10;
+
+    public static final int THREAD_LOCAL_MAX_SIZE = 1 << 14;
+
+    public static final int MAX_SIZE = 1 << 18;
+
+    public static final int SHARED_BYTES_PER_SIZE_CLASS = 1 << 19;
+
+    private static final int MIN_SHIFT = Integer.numberOfTrailingZeros(MIN_SIZE);
+
+    private static final int THREAD_LOCAL_MAX_SHIFT = Integer.numberOfTrailingZeros(THREAD_LOCAL_MAX_SIZE);
+
+    private static final int MAX_SHIFT = Integer.numberOfTrailingZeros(MAX_SIZE);
+
+    private static final ThreadLocal<byte[][]> BUFFERS = ThreadLocal.withInitial(
+            () -> new byte[THREAD_LOCAL_MAX_SHIFT - MIN_SHIFT + 1][]);
+
+    private static final AtomicReferenceArray<?>[] SHARED_BUFFERS = new AtomicReferenceArray<?>[MAX_SHIFT - THREAD_LOCAL_MAX_SHIFT];
+
+    static {
+        for (int i = 0; i < SHARED_BUFFERS.length; i++) {
+            SHARED_BUFFERS[i] = new AtomicReferenceArray<byte[]>(SHARED_BYTES_PER_SIZE_CLASS >> (THREAD_LOCAL_MAX_SHIFT + 1 + i));
+        }
+    }
+
+    private BufferPool() {
+
+    }
+
+    /**
+     * 
+     * @param minSize
+     *            the minimum size of array
+     * @return array not smaller than requested size
+     */
+    public static byte[] acquire(final int minSize) {
+        if (minSize > MAX_SIZE) {
+            return new byte[minSize];
+        }
+
+        final int sizeClass = getSizeClass(minSize);
+        final byte[] buffer = sizeClass <= THREAD_LOCAL_MAX_SHIFT - MIN_SHIFT ? acquireLocal(sizeClass) : acquireShared(sizeClass);
+        return buffer != null ? buffer : new byte[1 << (sizeClass + MIN_SHIFT)];
+    }
+
+    /**
+     * Returns array to the pool. Arrays which weren't acquired from the pool are ignored.
+     * 
+     * @param buffer
+     *            the array, it cannot be used after release
+     */
+    public static void release(final byte[] buffer) {
+        final int length = buffer.length;
+        if (length < MIN_SIZE || length > MAX_SIZE || Integer.bitCount(length) != 1) {
+            return;
+        }
+
+        final int sizeClass = Integer.numberOfTrailingZeros(length) - MIN_SHIFT;
+        if (length <= THREAD_LOCAL_MAX_SIZE) {
+            final byte[][] buffers = BUFFERS.get();
+            if (buffers[sizeClass] == null) {
+                buffers[sizeClass] = buffer;
+            }
+        } else {
+            final AtomicReferenceArray<byte[]> slots = getSharedSlots(sizeClass);
+            for (int i = 0; i < slots.length(); i++) {
+                if (slots.get(i) == null && slots.compareAndSet(i, null, buffer)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    static int getSizeClass(final int size) {
+        if (size <= MIN_SIZE) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_SHIFT;
+    }
+
+    private static byte[] acquireLocal(final int sizeClass) {
+        final byte[][] buffers = BUFFERS.get();
+        final byte[] buffer = buffers[sizeClass];
+        buffers[sizeClass] = null;
+        return buffer;
+    }
+
+    private static byte[] acquireShared(final int sizeClass) {
+        final AtomicReferenceArray<byte[]> slots = getSharedSlots(sizeClass);
+        for (int i = 0; i < slots.length(); i++) {
+            final byte[] buffer = slots.get(i);
+            if (buffer != null && slots.compareAndSet(i, buffer, null)) {
+                return buffer;
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static AtomicReferenceArray<byte[]> getSharedSlots(final int sizeClass) {
+        return (AtomicReferenceArray<byte[]>) SHARED_BUFFERS[sizeClass - (THREAD_LOCAL_MAX_SHIFT - MIN_SHIFT) - 1];
+    }
+
+}
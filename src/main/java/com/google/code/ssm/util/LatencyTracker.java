@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free latency histogram with logarithmic buckets (four buckets per power of two, so the error of a percentile is
+ * below 19%). Latencies are kept in two windows, the current one and the previous one, which are rotated after
+ * the window length so percentiles follow changes of latency and old stalls are forgotten.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+public class LatencyTracker {
+
+    private static final int SUB_BUCKETS_BITS = 2;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKETS_BITS;
+
+    private static final int BUCKETS = 64 * SUB_BUCKETS;
+
+    private final long windowNanos;
+
+    private final AtomicLong windowStart;
+
+    private volatile Window current = new Window();
+
+    private volatile Window previous = new Window();
+
+    /**
+     * 
+     * @param window
+     *            the length of a window
+     * @param unit
+     *            the unit of window length
+     */
+    public LatencyTracker(final long window, final TimeUnit unit) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("Window must be greater than 0");
+        }
+
+        this.windowNanos = unit.toNanos(window);
+        this.windowStart = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Records a single latency.
+     * 
+     * @param nanos
+     *            the latency in nanoseconds
+     */
+    public void record(final long nanos) {
+        rotateIfNeeded();
+        final Window window = current;
+        window.buckets.incrementAndGet(getBucket(Math.max(nanos, 1)));
+        window.count.incrementAndGet();
+    }
+
+    /**
+     * 
+     * @return number of latencies in the current and the previous window
+     */
+    public long getCount() {
+        rotateIfNeeded();
+        return current.count.get() + previous.count.get();
+    }
+
+    /**
+     * 
+     * @param percentile
+     *            the percentile in range (0, 100]
+     * @return the upper bound of the bucket that contains the given percentile of latencies from the current and the
+     *         previous window in nanoseconds, or -1 if there are no latencies
+     */
+    public long getPercentile(final double percentile) {
+        if (percentile <= 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be in range (0, 100]");
+        }
+
+        rotateIfNeeded();
+        final Window cur = current;
+        final Window prev = previous;
+        final long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = cur.buckets.get(i) + prev.buckets.get(i);
+            total += counts[i];
+        }
+
+        if (total == 0) {
+            return -1;
+        }
+
+        final long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return getUpperBound(i);
+            }
+        }
+
+        return getUpperBound(BUCKETS - 1);
+    }
+
+    private void rotateIfNeeded() {
+        final long start = windowStart.get();
+        final long now = System.nanoTime();
+        if (now - start < windowNanos || !windowStart.compareAndSet(start, now)) {
+            return;
+        }
+
+        // after two windows without rotation the previous window is outdated as well
+        previous = now - start < 2 * windowNanos ? current : new Window();
+        current = new Window();
+    }
+
+    static int getBucket(final long value) {
+        final int msb = 63 - Long.numberOfLeadingZeros(value);
+        if (msb < SUB_BUCKETS_BITS) {
+            return (int) value;
+        }
+
+        final int sub = (int) ((value >>> (msb - SUB_BUCKETS_BITS)) & (SUB_BUCKETS - 1));
+        return (msb - SUB_BUCKETS_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long getUpperBound(final int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+
+        final int shift = bucket / SUB_BUCKETS - 1;
+        final long sub = bucket % SUB_BUCKETS;
+        if (shift >= 61) {
+            return Long.MAX_VALUE;
+        }
+        return ((SUB_BUCKETS + sub + 1) << shift) - 1;
+    }
+
+    private static final class Window {
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+        private final AtomicLong count = new AtomicLong();
+
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.util;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Replacement of {@link java.io.ByteArrayOutputStream} which writes to arrays taken from {@link BufferPool}, so
+ * encoding a value allocates only its final copy. Like {@link java.io.ByteArrayOutputStream} closing the stream has no
+ * effect (serializers tend to close the target stream), the buffer is returned to the pool by {@link #release()}.
+ * Instances are not thread safe.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+public class PooledByteArrayOutputStream extends OutputStream {
+
+    private byte[] buffer;
+
+    private int count;
+
+    public PooledByteArrayOutputStream() {
+        this(BufferPool.MIN_SIZE);
+    }
+
+    public PooledByteArrayOutputStream(final int initialSize) {
+        buffer = BufferPool.acquire(initialSize);
+    }
+
+    @Override
+    public void write(final int b) {
+        ensureCapacity(count + 1);
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) {
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        ensureCapacity(count + len);
+        System.arraycopy(b, off, buffer, count, len);
+        count += len;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public void reset() {
+        count = 0;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(getBuffer(), count);
+    }
+
+    /**
+     * Returns the buffer to the pool. The stream cannot be used afterwards, calling this method again has no effect.
+     */
+    public void release() {
+        if (buffer != null) {
+            BufferPool.release(buffer);
+            buffer = null;
+        }
+    }
+
+    private void ensureCapacity(final int capacity) {
+        final byte[] current = getBuffer();
+        if (capacity < 0) {
+            throw new OutOfMemoryError("Required array size too large");
+        }
+        if (capacity > current.length) {
+            final int doubled = current.length << 1;
+            final byte[] grown = BufferPool.acquire(doubled > capacity ? doubled : capacity);
+            System.arraycopy(current, 0, grown, 0, count);
+            BufferPool.release(current);
+            buffer = grown;
+        }
+    }
+
+    private byte[] getBuffer() {
+        if (buffer == null) {
+            throw new IllegalStateException("Stream has been released");
+        }
+        return buffer;
+    }
+
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.util.file;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.util.Assert;
+
+import com.google.code.ssm.config.AddressChangeListener;
+import com.google.code.ssm.config.AddressChangeNotifier;
+import com.google.code.ssm.config.FileAddressProvider;
+
+/**
+ * 
+ * Watches the file with servers' addresses and notifies about changes. Events are debounced so an editor writing the
+ * file in several steps causes a single check. The listener is notified only if the set of addresses really changed.
+ * 
+ * @author Jakub Białek
+ * @since 4.1.4
+ * 
+ */
+public class FileChangeNotifier extends FileAddressProvider implements AddressChangeNotifier, InitializingBean, DisposableBean { // NO_UCD
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileChangeNotifier.class);
+
+    @Getter
+    @Setter
+    private AddressChangeListener addressChangeListener;
+
+    /**
+     * The time in milliseconds to wait after the last modification of the file before addresses are read.
+     */
+    @Getter
+    @Setter
+    private long debounce = 500;
+
+    private volatile List<InetSocketAddress> currentAddrs;
+
+    private WatchService watchService;
+
+    private ScheduledExecutorService scheduler;
+
+    private ScheduledFuture<?> pendingCheck;
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        Assert.notNull(getFile(), "'file' is required and cannot be null");
+
+        currentAddrs = getAddresses();
+
+        final Path path = getPath();
+        watchService = path.getFileSystem().newWatchService();
+        path.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread = new Thread(r, "ssm-file-change-notifier");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final Thread watcher = new Thread(() -> watch(path), "ssm-file-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    /**
+     * Check if current addresses in the file are different than previous, if yes then invoked
+     * {@link AddressChangeListener#changeAddresses(List)} method.
+     */
+    public void check() {
+        final List<InetSocketAddress> newAddrs;
+        try {
+            newAddrs = getAddresses();
+        } catch (RuntimeException e) {
+            LOGGER.warn(String.format("Invalid memcached addresses in file %s, current addresses are kept", getFile()), e);
+            return;
+        }
+
+        if (isChanged(currentAddrs, newAddrs)) {
+            if (addressChangeListener != null) {
+                currentAddrs = newAddrs;
+                addressChangeListener.changeAddresses(newAddrs);
+            } else {
+                LOGGER.error("Address change listener is null for file {}, cannot notify about new value {}", getFile(), newAddrs);
+            }
+        }
+    }
+
+    private void watch(final Path path) {
+        try {
+            while (true) {
+                final WatchKey key = watchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW || path.getFileName().equals(event.context())) {
+                        changed = true;
+                    }
+                }
+                if (changed) {
+                    scheduleCheck();
+                }
+                if (!key.reset()) {
+                    LOGGER.warn("Directory of file {} is no longer watched", getFile());
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException | RejectedExecutionException e) {
+            LOGGER.debug("Watching file {} stopped", getFile());
+        }
+    }
+
+    private synchronized void scheduleCheck() {
+        if (pendingCheck != null) {
+            pendingCheck.cancel(false);
+        }
+
+        pendingCheck = scheduler.schedule(this::check, debounce, TimeUnit.MILLISECONDS);
+    }
+
+}
@@ -61,7 +61,7 @@ public class JndiChangeNotifier extends JndiAddressProvider implements AddressCh
      */
     public void check() {
         List<InetSocketAddress> newAddrs = getAddresses();
-        if (newAddrs != null && !newAddrs.equals(currentAddrs)) {
+        if (isChanged(currentAddrs, newAddrs)) {
 
             if (addressChangeListener != null) {
                 currentAddrs = newAddrs;
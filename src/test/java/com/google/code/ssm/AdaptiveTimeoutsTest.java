@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.google.code.ssm.AdaptiveTimeouts.Operation;
+import com.google.code.ssm.api.format.SerializationType;
+import com.google.code.ssm.providers.CacheClient;
+import com.google.code.ssm.transcoders.JsonTranscoder;
+
+/**
+ * 
+ * @author Jakub Białek
+ * 
+ */
+public class AdaptiveTimeoutsTest {
+
+    private AdaptiveTimeoutConfiguration configuration;
+
+    private AdaptiveTimeouts adaptiveTimeouts;
+
+    @Before
+    public void setUp() {
+        configuration = new AdaptiveTimeoutConfiguration();
+        configuration.setMinSamples(10);
+        configuration.setMinTimeout(5);
+        configuration.setMaxTimeout(500);
+        adaptiveTimeouts = new AdaptiveTimeouts(configuration);
+    }
+
+    @Test
+    public void shouldUseMaxTimeoutWithoutEnoughSamples() {
+        adaptiveTimeouts.record(Operation.GET, 1, TimeUnit.MILLISECONDS.toNanos(1));
+
+        assertEquals(500, adaptiveTimeouts.getTimeout(Operation.GET, 1));
+    }
+
+    @Test
+    public void shouldDeriveTimeoutFromPercentile() {
+        record(Operation.GET, 1, 20);
+
+        final long timeout = adaptiveTimeouts.getTimeout(Operation.GET, 1);
+        assertTrue("Unexpected timeout " + timeout, timeout >= 40 && timeout <= 50);
+    }
+
+    @Test
+    public void shouldClampTimeout() {
+        record(Operation.GET, 1, 1);
+        record(Operation.SET, 1, 1000);
+
+        assertEquals(5, adaptiveTimeouts.getTimeout(Operation.GET, 1));
+        assertEquals(500, adaptiveTimeouts.getTimeout(Operation.SET, 1));
+    }
+
+    @Test
+    public void shouldTrackKeyCountBucketsSeparately() {
+        record(Operation.GET_BULK, 2, 10);
+        record(Operation.GET_BULK, 100, 100);
+
+        assertTrue(adaptiveTimeouts.getTimeout(Operation.GET_BULK, 2) < adaptiveTimeouts.getTimeout(Operation.GET_BULK, 120));
+        assertEquals(500, adaptiveTimeouts.getTimeout(Operation.GET_BULK, 10));
+    }
+
+    @Test
+    public void shouldPassAdaptiveTimeoutToClient() throws Exception {
+        final CacheClient cacheClient = Mockito.mock(CacheClient.class);
+        final JsonTranscoder jsonTranscoder = Mockito.mock(JsonTranscoder.class);
+        final CacheImpl cache = new CacheImpl("cache", Collections.<String> emptyList(), cacheClient, SerializationType.JSON,
+                jsonTranscoder, null, null, new CacheProperties());
+        cache.setAdaptiveTimeouts(adaptiveTimeouts);
+
+        cache.get("key", null);
+        cache.set("key", 10, "value", null);
+        cache.getBulk(Arrays.asList("a", "b"), null);
+
+        Mockito.verify(cacheClient).get(Mockito.eq("key"), CacheImplTest.decodingWith(jsonTranscoder), Mockito.eq(500L));
+        Mockito.verify(cacheClient).set("key", 10, "value", jsonTranscoder, 500L);
+        Mockito.verify(cacheClient).getBulk(Mockito.eq(Arrays.asList("a", "b")), CacheImplTest.decodingWith(jsonTranscoder),
+                Mockito.eq(500L));
+    }
+
+    private void record(final Operation operation, final int keyCount, final long millis) {
+        for (int i = 0; i < configuration.getMinSamples(); i++) {
+            adaptiveTimeouts.record(operation, keyCount, TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+    }
+
+}
@@ -49,6 +49,7 @@ import com.google.code.ssm.config.JndiAddressProvider;
 import com.google.code.ssm.providers.CacheClient;
 import com.google.code.ssm.providers.CacheClientFactory;
 import com.google.code.ssm.providers.CacheConfiguration;
+import com.google.code.ssm.providers.migration.MigrationConfiguration;
 
 /**
  * 
@@ -136,6 +137,17 @@ public class CacheFactoryTest {
         factory.createCache();
     }
 
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectWriteForwardExpirationTreatedAsUnixTime() throws Exception {
+        MigrationConfiguration migrationConfiguration = new MigrationConfiguration();
+        migrationConfiguration.setWriteForwardExpiration(MigrationConfiguration.MAX_WRITE_FORWARD_EXPIRATION + 1);
+        factory.setConfiguration(new CacheConfiguration());
+        factory.setAddressProvider(new DefaultAddressProvider("127.0.0.1:11211"));
+        factory.setMigrationConfiguration(migrationConfiguration);
+
+        factory.afterPropertiesSet();
+    }
+
     @Test
     public void changeAddresses() throws IOException, NamingException {
         final CacheConfiguration conf = new CacheConfiguration();
@@ -17,13 +17,21 @@
 package com.google.code.ssm;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static com.google.code.ssm.test.Matcher.any;
 
 import java.net.SocketAddress;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeoutException;
 
 import org.junit.Before;
@@ -31,10 +39,16 @@ import org.junit.Test;
 import org.mockito.ArgumentMatcher;
 import org.mockito.Mockito;
 
+import com.google.code.ssm.aop.support.PertinentNegativeNull;
 import com.google.code.ssm.api.format.SerializationType;
+import com.google.code.ssm.counter.HyperLogLog;
 import com.google.code.ssm.providers.CacheClient;
 import com.google.code.ssm.providers.CacheException;
+import com.google.code.ssm.providers.CacheTranscoder;
+import com.google.code.ssm.providers.CachedObject;
+import com.google.code.ssm.providers.CachedObjectImpl;
 import com.google.code.ssm.test.Point;
+import com.google.code.ssm.transcoders.HyperLogLogTranscoder;
 import com.google.code.ssm.transcoders.JavaTranscoder;
 import com.google.code.ssm.transcoders.JsonTranscoder;
 import com.google.code.ssm.transcoders.LongToStringTranscoder;
@@ -61,13 +75,16 @@ public class CacheImplTest {
 
     protected Cache cache;
 
+    protected CacheImpl cacheImpl;
+
     @Before
     public void setUp() {
         cacheClient = Mockito.mock(CacheClient.class);
         jsonTranscoder = Mockito.mock(JsonTranscoder.class);
         javaTranscoder = Mockito.mock(JavaTranscoder.class);
-        cache = new CacheImpl(name, aliases, cacheClient, defaultSerializationType, jsonTranscoder, javaTranscoder, null,
+        cacheImpl = new CacheImpl(name, aliases, cacheClient, defaultSerializationType, jsonTranscoder, javaTranscoder, null,
                 new CacheProperties());
+        cache = cacheImpl;
     }
 
     @Test
@@ -117,6 +134,29 @@ public class CacheImplTest {
 
     }
 
+    @Test
+    public void getAndSetWithType() throws TimeoutException, CacheException {
+        String cacheKey = "key1";
+        Object value = new Point(66, 99);
+        CacheTranscoder typedTranscoder = Mockito.mock(CacheTranscoder.class);
+        Mockito.when(jsonTranscoder.forType(Point.class)).thenReturn(typedTranscoder);
+
+        // type directed mode disabled
+        cache.get(cacheKey, SerializationType.JSON, Point.class);
+        Mockito.verify(cacheClient).get(Mockito.eq(getKey(cacheKey)), decodingWith(jsonTranscoder));
+
+        Mockito.when(jsonTranscoder.isTypeDirected()).thenReturn(true);
+        cache.get(cacheKey, SerializationType.JSON, Point.class);
+        Mockito.verify(cacheClient).get(Mockito.eq(getKey(cacheKey)), decodingWith(typedTranscoder));
+
+        cache.set(cacheKey, 900, value, SerializationType.JSON, Point.class);
+        Mockito.verify(cacheClient).set(getKey(cacheKey), 900, value, typedTranscoder);
+
+        // type is ignored by other serialization types
+        cache.set(cacheKey, 900, value, SerializationType.JAVA, Point.class);
+        Mockito.verify(cacheClient).set(getKey(cacheKey), 900, value, javaTranscoder);
+    }
+
     @Test
     public void decr() throws TimeoutException, CacheException {
         String cacheKey = "key1";
@@ -156,7 +196,7 @@ public class CacheImplTest {
         Mockito.verify(cacheClient).get(getKey(cacheKey));
 
         cache.get(cacheKey, SerializationType.JSON);
-        Mockito.verify(cacheClient).get(getKey(cacheKey), jsonTranscoder);
+        Mockito.verify(cacheClient).get(Mockito.eq(getKey(cacheKey)), decodingWith(jsonTranscoder));
     }
 
     @Test
@@ -167,7 +207,275 @@ public class CacheImplTest {
         Mockito.verify(cacheClient).getBulk(sameItems(getKeys(keys)));
 
         cache.getBulk(keys, SerializationType.JSON);
-        Mockito.verify(cacheClient).getBulk(sameItems(getKeys(keys)), Mockito.eq(jsonTranscoder));
+        Mockito.verify(cacheClient).getBulk(sameItems(getKeys(keys)), decodingWith(jsonTranscoder));
+    }
+
+    @Test
+    public void getBulkLazily() throws TimeoutException, CacheException {
+        Collection<String> keys = ImmutableSet.of("key1", "key2");
+        CachedObject cachedObject = new CachedObjectImpl(8, new byte[] { 1 });
+        Point value = new Point(1, 2);
+        Mockito.when(jsonTranscoder.decode(cachedObject)).thenReturn(value);
+        Mockito.when(cacheClient.getBulk(Mockito.anyCollectionOf(String.class), any(CacheTranscoder.class))).thenAnswer(invocation -> {
+            CacheTranscoder transcoder = invocation.getArgument(1);
+            Map<String, Object> result = new HashMap<String, Object>();
+            for (String key : getKeys(keys)) {
+                result.put(key, transcoder.decode(cachedObject));
+            }
+            return result;
+        });
+        cacheImpl.setLazyBulkDecoding(true);
+
+        Map<String, Object> result = cache.getBulk(keys, SerializationType.JSON);
+        assertEquals(2, result.size());
+        assertTrue(result.containsKey("key1"));
+        Mockito.verify(jsonTranscoder, Mockito.never()).decode(any(CachedObject.class));
+
+        assertSame(value, result.get("key1"));
+        assertSame(value, result.get("key1"));
+        Mockito.verify(jsonTranscoder).decode(cachedObject);
+    }
+
+    @Test
+    public void getBulkInParallel() throws TimeoutException, CacheException {
+        CachedObject cachedObject = new CachedObjectImpl(8, new byte[] { 1 });
+        Point value = new Point(1, 2);
+        Mockito.when(jsonTranscoder.decode(cachedObject)).thenReturn(value);
+        Mockito.when(cacheClient.getBulk(Mockito.anyCollectionOf(String.class), any(CacheTranscoder.class))).thenAnswer(invocation -> {
+            CacheTranscoder transcoder = invocation.getArgument(1);
+            Map<String, Object> result = new HashMap<String, Object>();
+            for (String key : invocation.<Collection<String>> getArgument(0)) {
+                result.put(key, transcoder.decode(cachedObject));
+            }
+            return result;
+        });
+        Set<Thread> threads = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+        ParallelDecodingConfiguration configuration = new ParallelDecodingConfiguration();
+        configuration.setMinValues(10);
+        configuration.setParallelism(4);
+        configuration.setExecutor(command -> {
+            Thread thread = new Thread(command);
+            threads.add(thread);
+            thread.start();
+        });
+        cacheImpl.setParallelDecoding(configuration);
+
+        // small result is decoded by calling thread
+        Map<String, Object> result = cache.getBulk(ImmutableSet.of("key1", "key2"), SerializationType.JSON);
+        assertEquals(2, result.size());
+        assertSame(value, result.get("key1"));
+        assertTrue(threads.isEmpty());
+        Mockito.verify(jsonTranscoder, Mockito.times(2)).decode(cachedObject);
+
+        Collection<String> keys = new ArrayList<String>();
+        for (int i = 0; i < 20; i++) {
+            keys.add("key" + i);
+        }
+        result = cache.getBulk(keys, SerializationType.JSON);
+        assertEquals(20, result.size());
+        assertSame(value, result.get("key19"));
+        assertEquals(3, threads.size());
+        Mockito.verify(jsonTranscoder, Mockito.times(22)).decode(cachedObject);
+    }
+
+    @Test
+    public void setAndGetChunked() throws TimeoutException, CacheException {
+        Map<String, Object> storage = new HashMap<String, Object>();
+        Mockito.when(cacheClient.set(Mockito.anyString(), Mockito.anyInt(), Mockito.any(), any(CacheTranscoder.class))).thenAnswer(
+                invocation -> storage.put(invocation.getArgument(0), invocation.getArgument(2)) != null);
+        Mockito.when(cacheClient.get(Mockito.anyString(), any(CacheTranscoder.class))).thenAnswer(
+                invocation -> storage.get(invocation.getArgument(0)));
+        Mockito.when(cacheClient.getBulk(Mockito.anyCollectionOf(String.class), any(CacheTranscoder.class))).thenAnswer(invocation -> {
+            Map<String, Object> result = new HashMap<String, Object>();
+            for (String key : invocation.<Collection<String>> getArgument(0)) {
+                if (storage.containsKey(key)) {
+                    result.put(key, storage.get(key));
+                }
+            }
+            return result;
+        });
+        byte[] data = ValueChunkerTest.createData(2500);
+        Point value = new Point(1, 2);
+        Mockito.when(jsonTranscoder.encode(value)).thenReturn(new CachedObjectImpl(8, data));
+        Mockito.when(jsonTranscoder.decode(any(CachedObject.class))).thenAnswer(invocation -> {
+            CachedObject cachedObject = invocation.getArgument(0);
+            return cachedObject.getFlags() == 8 && Arrays.equals(data, cachedObject.getData()) ? value : null;
+        });
+        cacheImpl.setChunking(ValueChunkerTest.createConfiguration(1000, 3000));
+
+        cache.set("key1", 60, value, SerializationType.JSON);
+        // 3 chunks, the manifest and its copy under the index key
+        assertEquals(5, storage.size());
+        assertSame(value, cache.get("key1", SerializationType.JSON));
+
+        Map<String, Object> result = cache.getBulk(ImmutableSet.of("key1", "key2"), SerializationType.JSON);
+        assertEquals(1, result.size());
+        assertSame(value, result.get("key1"));
+    }
+
+    @Test
+    public void overwriteAndDeleteChunked() throws TimeoutException, CacheException {
+        Map<String, Object> storage = new HashMap<String, Object>();
+        Mockito.when(cacheClient.set(Mockito.anyString(), Mockito.anyInt(), Mockito.any(), any(CacheTranscoder.class))).thenAnswer(
+                invocation -> storage.put(invocation.getArgument(0), invocation.getArgument(2)) != null);
+        Mockito.when(cacheClient.get(Mockito.anyString(), any(CacheTranscoder.class))).thenAnswer(
+                invocation -> storage.get(invocation.getArgument(0)));
+        Mockito.when(cacheClient.delete(Mockito.anyString())).thenAnswer(invocation -> storage.remove(invocation.getArgument(0)) != null);
+        Mockito.doAnswer(invocation -> storage.keySet().removeAll(invocation.<Collection<String>> getArgument(0))).when(cacheClient)
+                .delete(Mockito.anyCollectionOf(String.class));
+        Mockito.when(cacheClient.getBulk(Mockito.anyCollectionOf(String.class), any(CacheTranscoder.class))).thenAnswer(invocation -> {
+            Map<String, Object> result = new HashMap<String, Object>();
+            for (String key : invocation.<Collection<String>> getArgument(0)) {
+                if (storage.containsKey(key)) {
+                    result.put(key, storage.get(key));
+                }
+            }
+            return result;
+        });
+        Point value = new Point(1, 2);
+        Point small = new Point(3, 4);
+        Mockito.when(jsonTranscoder.encode(value)).thenReturn(new CachedObjectImpl(8, ValueChunkerTest.createData(2500)));
+        Mockito.when(jsonTranscoder.encode(small)).thenReturn(new CachedObjectImpl(8, new byte[10]));
+        cacheImpl.setChunking(ValueChunkerTest.createConfiguration(1000, 3000));
+
+        // chunks of the previous chunked value are deleted
+        cache.set("key1", 0, value, SerializationType.JSON);
+        cache.set("key1", 0, value, SerializationType.JSON);
+        assertEquals(5, storage.size());
+
+        // writing and deleting values that are not split doesn't read the index, old chunks are left to expire
+        Mockito.clearInvocations(cacheClient);
+        cache.set("key1", 0, small, SerializationType.JSON);
+        cache.delete("key2");
+        cache.delete(Arrays.asList("key2", "key3"));
+        Mockito.verify(cacheClient, Mockito.never()).get(Mockito.anyString(), any(CacheTranscoder.class));
+        assertEquals(5, storage.size());
+
+        cache.set("key1", 0, value, SerializationType.JSON);
+        assertEquals(5, storage.size());
+
+        cache.delete("key1");
+        assertEquals(4, storage.size());
+        assertFalse(storage.containsKey(getKey("key1")));
+
+        // chunks of a value that is not added are deleted
+        storage.put(getKey("key1"), new CachedObjectImpl(8, new byte[10]));
+        assertFalse(cache.add("key1", 0, value, SerializationType.JSON));
+        assertEquals(5, storage.size());
+    }
+
+    @Test
+    public void getAndTouch() throws TimeoutException, CacheException {
+        String cacheKey = "key1";
+        CacheTranscoder providerTranscoder = Mockito.mock(CacheTranscoder.class);
+        Mockito.when(cacheClient.getTranscoder()).thenReturn(providerTranscoder);
+
+        cache.getAndTouch(cacheKey, 60, SerializationType.PROVIDER);
+        Mockito.verify(cacheClient).getAndTouch(getKey(cacheKey), 60, providerTranscoder);
+
+        cache.getAndTouch(cacheKey, 60, SerializationType.JSON);
+        Mockito.verify(cacheClient).getAndTouch(Mockito.eq(getKey(cacheKey)), Mockito.eq(60), decodingWith(jsonTranscoder));
+
+        cache.touch(cacheKey, 90);
+        Mockito.verify(cacheClient).touch(getKey(cacheKey), 90);
+    }
+
+    @Test
+    public void touchChunked() throws TimeoutException, CacheException {
+        Map<String, Object> storage = new HashMap<String, Object>();
+        Mockito.when(cacheClient.set(Mockito.anyString(), Mockito.anyInt(), Mockito.any(), any(CacheTranscoder.class))).thenAnswer(
+                invocation -> storage.put(invocation.getArgument(0), invocation.getArgument(2)) != null);
+        Mockito.when(cacheClient.getAndTouch(Mockito.anyString(), Mockito.anyInt(), any(CacheTranscoder.class))).thenAnswer(
+                invocation -> storage.get(invocation.getArgument(0)));
+        Mockito.when(cacheClient.touch(Mockito.anyString(), Mockito.anyInt())).thenAnswer(
+                invocation -> storage.containsKey(invocation.getArgument(0)));
+        Mockito.when(cacheClient.getBulk(Mockito.anyCollectionOf(String.class), any(CacheTranscoder.class))).thenAnswer(invocation -> {
+            Map<String, Object> result = new HashMap<String, Object>();
+            for (String key : invocation.<Collection<String>> getArgument(0)) {
+                result.put(key, storage.get(key));
+            }
+            return result;
+        });
+        byte[] data = ValueChunkerTest.createData(2500);
+        Point value = new Point(1, 2);
+        Mockito.when(jsonTranscoder.encode(value)).thenReturn(new CachedObjectImpl(8, data));
+        Mockito.when(jsonTranscoder.decode(any(CachedObject.class))).thenAnswer(invocation -> {
+            CachedObject cachedObject = invocation.getArgument(0);
+            return cachedObject.getFlags() == 8 && Arrays.equals(data, cachedObject.getData()) ? value : null;
+        });
+        cacheImpl.setChunking(ValueChunkerTest.createConfiguration(1000, 3000));
+        cache.set("key1", 60, value, SerializationType.JSON);
+
+        assertSame(value, cache.getAndTouch("key1", 120, SerializationType.JSON));
+        assertTrue(cache.touch("key1", 120));
+        assertFalse(cache.touch("key2", 120));
+        for (String key : storage.keySet()) {
+            if (!key.equals(getKey("key1")) && !key.equals(getKey("key1") + "#c")) {
+                Mockito.verify(cacheClient, Mockito.times(2)).touch(key, 120);
+            }
+        }
+        // the value is read only by get and touch, touch reads the index copy of the manifest
+        Mockito.verify(cacheClient).getAndTouch(Mockito.eq(getKey("key1")), Mockito.eq(120), any(CacheTranscoder.class));
+        Mockito.verify(cacheClient).touch(getKey("key1"), 120);
+        Mockito.verify(cacheClient).getAndTouch(Mockito.eq(getKey("key1") + "#c"), Mockito.eq(120), any(CacheTranscoder.class));
+        Mockito.verify(cacheClient).touch(getKey("key1") + "#c", 120);
+        Mockito.verify(cacheClient, Mockito.never()).getAndTouch(Mockito.eq(getKey("key2") + "#c"), Mockito.anyInt(),
+                any(CacheTranscoder.class));
+    }
+
+    @Test
+    public void setAndGetNullMarker() throws TimeoutException, CacheException {
+        Map<String, CachedObject> storage = new HashMap<String, CachedObject>();
+        Mockito.when(cacheClient.set(Mockito.anyString(), Mockito.anyInt(), Mockito.any(), any(CacheTranscoder.class))).thenAnswer(
+                invocation -> storage.put(invocation.getArgument(0),
+                        invocation.<CacheTranscoder> getArgument(3).encode(invocation.getArgument(2))) != null);
+        Mockito.when(cacheClient.get(Mockito.anyString(), any(CacheTranscoder.class))).thenAnswer(
+                invocation -> invocation.<CacheTranscoder> getArgument(1).decode(storage.get(invocation.getArgument(0))));
+        Mockito.when(cacheClient.getBulk(Mockito.anyCollectionOf(String.class), any(CacheTranscoder.class))).thenAnswer(invocation -> {
+            CacheTranscoder transcoder = invocation.getArgument(1);
+            Map<String, Object> result = new HashMap<String, Object>();
+            for (String key : invocation.<Collection<String>> getArgument(0)) {
+                result.put(key, transcoder.decode(storage.get(key)));
+            }
+            return result;
+        });
+        cacheImpl.setNullMarker(true);
+
+        cache.set("key1", 60, PertinentNegativeNull.NULL, SerializationType.JSON);
+        CachedObject stored = storage.get(getKey("key1"));
+        assertEquals(NullMarkerTranscoder.NULL_MARKER, stored.getFlags());
+        assertEquals(0, stored.getData().length);
+        Mockito.verify(jsonTranscoder, Mockito.never()).encode(Mockito.any());
+
+        assertSame(PertinentNegativeNull.NULL, cache.get("key1", SerializationType.JSON));
+        assertSame(PertinentNegativeNull.NULL, cache.getBulk(ImmutableSet.of("key1"), SerializationType.JSON).get("key1"));
+        Mockito.verify(jsonTranscoder, Mockito.never()).decode(any(CachedObject.class));
+    }
+
+    @Test
+    public void getNullMarkerIfDisabled() throws TimeoutException, CacheException {
+        CachedObject marker = new CachedObjectImpl(NullMarkerTranscoder.NULL_MARKER, new byte[0]);
+        Mockito.when(cacheClient.get(Mockito.anyString(), any(CacheTranscoder.class))).thenAnswer(
+                invocation -> invocation.<CacheTranscoder> getArgument(1).decode(marker));
+
+        assertSame(PertinentNegativeNull.NULL, cache.get("key1", SerializationType.JSON));
+        Mockito.verify(jsonTranscoder, Mockito.never()).decode(any(CachedObject.class));
+
+        cache.set("key1", 60, "value", SerializationType.JSON);
+        Mockito.verify(cacheClient).set(getKey("key1"), 60, "value", jsonTranscoder);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setTooBigValue() throws TimeoutException, CacheException {
+        Point value = new Point(1, 2);
+        Mockito.when(jsonTranscoder.encode(value)).thenReturn(new CachedObjectImpl(8, new byte[3001]));
+        cacheImpl.setChunking(ValueChunkerTest.createConfiguration(1000, 3000));
+
+        try {
+            cache.set("key1", 60, value, SerializationType.JSON);
+        } finally {
+            Mockito.verifyZeroInteractions(cacheClient);
+        }
     }
 
     @Test
@@ -225,6 +533,30 @@ public class CacheImplTest {
         Mockito.verify(cacheClient).get(Mockito.eq(getKey(cacheKey)), any(LongToStringTranscoder.class));
     }
 
+    @Test
+    public void getCounters() throws TimeoutException, CacheException {
+        Collection<String> keys = ImmutableSet.of("key1", "key2");
+        Map<String, Long> counters = new HashMap<String, Long>();
+        counters.put(getKey("key1"), 5L);
+        Mockito.when(cacheClient.<Long> getBulk(sameItems(getKeys(keys)), any(LongToStringTranscoder.class))).thenReturn(counters);
+
+        Map<String, Long> result = cache.getCounters(keys);
+        assertEquals(Collections.singletonMap("key1", 5L), result);
+    }
+
+    @Test
+    public void getAndSetHyperLogLog() throws TimeoutException, CacheException {
+        Collection<String> keys = ImmutableSet.of("key1", "key2");
+        HyperLogLog hll = new HyperLogLog(10);
+        Mockito.when(cacheClient.<HyperLogLog> getBulk(sameItems(getKeys(keys)), any(HyperLogLogTranscoder.class))).thenReturn(
+                Collections.singletonMap(getKey("key2"), hll));
+
+        assertEquals(Collections.singletonMap("key2", hll), cache.getHyperLogLogs(keys));
+
+        cache.setHyperLogLog("key1", 600, hll);
+        Mockito.verify(cacheClient).set(Mockito.eq(getKey("key1")), Mockito.eq(600), Mockito.eq(hll), any(HyperLogLogTranscoder.class));
+    }
+
     @Test
     public void setCounter() throws TimeoutException, CacheException {
         String cacheKey = "key1";
@@ -261,6 +593,14 @@ public class CacheImplTest {
         return cacheKeys;
     }
 
+    /**
+     * Reads always pass a wrapper that recognizes null markers.
+     */
+    static CacheTranscoder decodingWith(CacheTranscoder transcoder) {
+        return Mockito.argThat(actual -> actual instanceof NullMarkerTranscoder
+                && ((NullMarkerTranscoder) actual).getTranscoder() == transcoder);
+    }
+
     private static Collection<String> sameItems(Collection<String> items) {
         class CollectionOfItemssMatcher implements ArgumentMatcher<Collection<String>> {
 
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.google.code.ssm;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.google.code.ssm.aop.support.PertinentNegativeNull;
+import com.google.code.ssm.providers.CacheTranscoder;
+import com.google.code.ssm.providers.CachedObject;
+import com.google.code.ssm.providers.CachedObjectImpl;
+import com.google.code.ssm.transcoders.JavaTranscoder;
+
+/**
+ * 
+ * @author Jakub Białek
+ * 
+ */
+public class NullMarkerTranscoderTest {
+
+    private CacheTranscoder transcoder;
+
+    private NullMarkerTranscoder nullMarkerTranscoder;
+
+    @Before
+    public void setUp() {
+        transcoder = Mockito.mock(CacheTranscoder.class);
+        nullMarkerTranscoder = new NullMarkerTranscoder(transcoder, true);
+    }
+
+    @Test
+    public void encodeNull() {
+        CachedObject cachedObject = nullMarkerTranscoder.encode(PertinentNegativeNull.NULL);
+
+        assertEquals(NullMarkerTranscoder.NULL_MARKER, cachedObject.getFlags());
+        assertArrayEquals(new byte[0], cachedObject.getData());
+        Mockito.verifyZeroInteractions(transcoder);
+    }
+
+    @Test
+    public void decodeNull() {
+        assertSame(PertinentNegativeNull.NULL, nullMarkerTranscoder.decode(new CachedObjectImpl(NullMarkerTranscoder.NULL_MARKER,
+                new byte[0])));
+        Mockito.verifyZeroInteractions(transcoder);
+    }
+
+    @Test
+    public void encodeAndDecodeValue() {
+        CachedObject cachedObject = new CachedObjectImpl(8, new byte[] { 1, 2 });
+        Mockito.when(transcoder.encode("value")).thenReturn(cachedObject);
+        Mockito.when(transcoder.decode(cachedObject)).thenReturn("value");
+
+        assertSame(cachedObject, nullMarkerTranscoder.encode("value"));
+        assertEquals("value", nullMarkerTranscoder.decode(cachedObject));
+    }
+
+    @Test
+    public void decodeNullIfEncodingIsDisabled() {
+        CachedObject serialized = new CachedObjectImpl(1, new byte[] { 1 });
+        Mockito.when(transcoder.encode(PertinentNegativeNull.NULL)).thenReturn(serialized);
+        NullMarkerTranscoder decodeOnly = new NullMarkerTranscoder(transcoder, false);
+
+        assertSame(serialized, decodeOnly.encode(PertinentNegativeNull.NULL));
+        assertSame(PertinentNegativeNull.NULL, decodeOnly.decode(new CachedObjectImpl(NullMarkerTranscoder.NULL_MARKER, new byte[0])));
+    }
+
+    @Test
+    public void decodeSerializedNull() {
+        JavaTranscoder javaTranscoder = new JavaTranscoder();
+        CachedObject serialized = javaTranscoder.encode(PertinentNegativeNull.NULL);
+
+        assertEquals(PertinentNegativeNull.NULL, new NullMarkerTranscoder(javaTranscoder, true).decode(serialized));
+    }
+
+}
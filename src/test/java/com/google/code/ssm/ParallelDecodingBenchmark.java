@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.mockito.Mockito;
+
+import com.google.code.ssm.api.format.SerializationType;
+import com.google.code.ssm.mapper.JsonObjectMapper;
+import com.google.code.ssm.providers.CacheClient;
+import com.google.code.ssm.providers.CacheTranscoder;
+import com.google.code.ssm.providers.CachedObject;
+import com.google.code.ssm.test.Point;
+import com.google.code.ssm.transcoders.JsonTranscoder;
+
+/**
+ * Compares time of bulk get of JSON values decoded by the calling thread and in parallel. The cache client returns
+ * prepared values so only decoding is measured. Run the main method (optionally with parallelism as an argument), it's
+ * not a part of test suite.
+ * 
+ * @author Jakub Białek
+ * 
+ */
+public class ParallelDecodingBenchmark {
+
+    private static final int ITERATIONS = 50;
+
+    public static void main(final String[] args) throws Exception {
+        final JsonTranscoder transcoder = new JsonTranscoder(new JsonObjectMapper());
+        transcoder.setCompressionThreshold(Integer.MAX_VALUE);
+
+        for (int values : new int[] { 100, 1000, 5000 }) {
+            final Map<String, CachedObject> stored = new HashMap<String, CachedObject>();
+            for (int i = 0; i < values; i++) {
+                stored.put("key" + i, transcoder.encode(createValue(i)));
+            }
+
+            final CacheClient cacheClient = Mockito.mock(CacheClient.class);
+            Mockito.when(cacheClient.getBulk(Mockito.anyCollectionOf(String.class), Mockito.any(CacheTranscoder.class))).thenAnswer(
+                    invocation -> {
+                        final CacheTranscoder decoder = invocation.getArgument(1);
+                        final Map<String, Object> result = new HashMap<String, Object>();
+                        for (Map.Entry<String, CachedObject> entry : stored.entrySet()) {
+                            result.put(entry.getKey(), decoder.decode(entry.getValue()));
+                        }
+                        return result;
+                    });
+
+            final CacheImpl sequential = new CacheImpl("sequential", new ArrayList<String>(), cacheClient, SerializationType.JSON,
+                    transcoder, null, null, new CacheProperties());
+            final CacheImpl parallel = new CacheImpl("parallel", new ArrayList<String>(), cacheClient, SerializationType.JSON,
+                    transcoder, null, null, new CacheProperties());
+            final ParallelDecodingConfiguration configuration = new ParallelDecodingConfiguration();
+            configuration.setMinValues(0);
+            if (args.length > 0) {
+                configuration.setParallelism(Integer.parseInt(args[0]));
+            }
+            parallel.setParallelDecoding(configuration);
+
+            final double sequentialTime = measure(sequential, stored.keySet());
+            final double parallelTime = measure(parallel, stored.keySet());
+            System.out.println(String.format("values: %5d, sequential: %8.3f ms, parallel (%d threads): %8.3f ms, speedup: %4.1fx",
+                    values, sequentialTime, configuration.getParallelism(), parallelTime, sequentialTime / parallelTime));
+        }
+    }
+
+    private static double measure(final Cache cache, final Collection<String> keys) throws Exception {
+        for (int i = 0; i < ITERATIONS; i++) {
+            cache.getBulk(keys, SerializationType.JSON);
+        }
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            cache.getBulk(keys, SerializationType.JSON);
+        }
+        return (System.nanoTime() - start) / 1e6 / ITERATIONS;
+    }
+
+    private static List<Point> createValue(final int seed) {
+        final List<Point> value = new ArrayList<Point>();
+        for (int i = 0; i < 20; i++) {
+            value.add(new Point(seed, i));
+        }
+        return value;
+    }
+
+}
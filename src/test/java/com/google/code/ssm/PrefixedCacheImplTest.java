@@ -42,8 +42,9 @@ public class PrefixedCacheImplTest extends CacheImplTest {
         cacheClient = Mockito.mock(CacheClient.class);
         jsonTranscoder = Mockito.mock(JsonTranscoder.class);
         javaTranscoder = Mockito.mock(JavaTranscoder.class);
-        wrappedCache = new CacheImpl(super.name, aliases, cacheClient, defaultSerializationType, jsonTranscoder, javaTranscoder, null,
+        cacheImpl = new CacheImpl(super.name, aliases, cacheClient, defaultSerializationType, jsonTranscoder, javaTranscoder, null,
                 new CacheProperties());
+        wrappedCache = cacheImpl;
         cache = new PrefixedCacheImpl(wrappedCache, namePrefix, prefix);
     }
     
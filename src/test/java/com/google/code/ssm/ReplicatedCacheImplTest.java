@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import com.google.code.ssm.api.format.SerializationType;
+
+/**
+ * 
+ * @author Jakub Białek
+ * 
+ */
+public class ReplicatedCacheImplTest {
+
+    private static final SerializationType TYPE = SerializationType.PROVIDER;
+
+    private Cache wrapped;
+
+    private Cache cache;
+
+    @Before
+    public void setUp() {
+        wrapped = Mockito.mock(Cache.class);
+        cache = new ReplicatedCacheImpl(wrapped, 3, null, 60);
+    }
+
+    @Test
+    public void shouldWriteAllReplicas() throws Exception {
+        cache.set("key", 10, "value", TYPE);
+
+        for (int i = 0; i < 3; i++) {
+            Mockito.verify(wrapped).set("key#r" + i, 10, "value", TYPE);
+        }
+        Mockito.verify(wrapped, Mockito.never()).set("key", 10, "value", TYPE);
+    }
+
+    @Test
+    public void shouldReadFromSingleReplica() throws Exception {
+        Mockito.when(wrapped.get(Mockito.startsWith("key#r"), Mockito.eq(TYPE))).thenReturn("value");
+
+        assertEquals("value", cache.get("key", TYPE));
+        Mockito.verify(wrapped, Mockito.times(1)).get(Mockito.anyString(), Mockito.eq(TYPE));
+        Mockito.verify(wrapped, Mockito.never()).getBulk(Mockito.<Collection<String>> any(), Mockito.eq(TYPE));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void shouldFallbackToOtherReplicasAndRepairMissing() throws Exception {
+        Mockito.when(wrapped.getBulk(Mockito.<Collection<String>> any(), Mockito.eq(TYPE))).thenAnswer(invocation -> {
+            final String found = ((Collection<String>) invocation.getArguments()[0]).iterator().next();
+            return Collections.<String, Object> singletonMap(found, "value");
+        });
+
+        assertEquals("value", cache.get("key", TYPE));
+
+        final ArgumentCaptor<String> chosen = ArgumentCaptor.forClass(String.class);
+        Mockito.verify(wrapped).get(chosen.capture(), Mockito.eq(TYPE));
+        Mockito.verify(wrapped).setSilently(chosen.getValue(), 60, "value", TYPE);
+        Mockito.verify(wrapped, Mockito.times(2)).setSilently(Mockito.startsWith("key#r"), Mockito.eq(60), Mockito.eq("value"),
+                Mockito.eq(TYPE));
+    }
+
+    @Test
+    public void shouldReturnNullIfAllReplicasMissing() throws Exception {
+        Mockito.when(wrapped.getBulk(Mockito.<Collection<String>> any(), Mockito.eq(TYPE))).thenReturn(
+                Collections.<String, Object> emptyMap());
+
+        assertNull(cache.get("key", TYPE));
+        Mockito.verify(wrapped, Mockito.never()).setSilently(Mockito.anyString(), Mockito.anyInt(), Mockito.any(), Mockito.eq(TYPE));
+    }
+
+    @Test
+    public void shouldGetAndTouchSingleReplica() throws Exception {
+        Mockito.when(wrapped.getAndTouch(Mockito.startsWith("key#r"), Mockito.eq(30), Mockito.eq(TYPE))).thenReturn("value");
+
+        assertEquals("value", cache.getAndTouch("key", 30, TYPE));
+        Mockito.verify(wrapped, Mockito.times(1)).getAndTouch(Mockito.anyString(), Mockito.eq(30), Mockito.eq(TYPE));
+        Mockito.verify(wrapped, Mockito.never()).get(Mockito.anyString(), Mockito.eq(TYPE));
+    }
+
+    @Test
+    public void shouldTouchAllReplicas() throws Exception {
+        Mockito.when(wrapped.touch("key#r1", 30)).thenReturn(true);
+
+        assertTrue(cache.touch("key", 30));
+        for (int i = 0; i < 3; i++) {
+            Mockito.verify(wrapped).touch("key#r" + i, 30);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void shouldDeleteAllReplicas() throws Exception {
+        cache.delete(Arrays.asList("a", "b"));
+
+        final ArgumentCaptor<Collection<String>> keys = ArgumentCaptor.forClass((Class<Collection<String>>) (Class<?>) Collection.class);
+        Mockito.verify(wrapped).delete(keys.capture());
+        assertEquals(new HashSet<String>(Arrays.asList("a#r0", "a#r1", "a#r2", "b#r0", "b#r1", "b#r2")),
+                new HashSet<String>(keys.getValue()));
+    }
+
+    @Test
+    public void shouldNotReplicateCounters() throws Exception {
+        cache.incr("counter", 1, 0);
+
+        Mockito.verify(wrapped).incr("counter", 1, 0);
+    }
+
+    @Test
+    public void shouldReplicateOnlyHotKeys() throws Exception {
+        final HotKeyDetector detector = key -> "hot".equals(key);
+        cache = new ReplicatedCacheImpl(wrapped, 2, detector, 60);
+
+        cache.set("cold", 10, "value", TYPE);
+        Mockito.verify(wrapped).set("cold", 10, "value", TYPE);
+        Mockito.verify(wrapped).delete(Arrays.asList("cold#r0", "cold#r1"));
+
+        cache.set("hot", 10, "value", TYPE);
+        Mockito.verify(wrapped).set("hot", 10, "value", TYPE);
+        Mockito.verify(wrapped).set("hot#r0", 10, "value", TYPE);
+        Mockito.verify(wrapped).set("hot#r1", 10, "value", TYPE);
+
+        cache.get("cold", TYPE);
+        Mockito.verify(wrapped).get("cold", TYPE);
+    }
+
+    @Test
+    public void shouldDeleteReplicasOnlyOfDemotedKeys() throws Exception {
+        final HotKeyDetector detector = new HotKeyDetector() {
+
+            @Override
+            public boolean isHot(final String cacheKey) {
+                return false;
+            }
+
+            @Override
+            public boolean wasHot(final String cacheKey) {
+                return "demoted".equals(cacheKey);
+            }
+        };
+        cache = new ReplicatedCacheImpl(wrapped, 2, detector, 60);
+
+        cache.set("cold", 10, "value", TYPE);
+        cache.add("cold", 10, "value", TYPE);
+        Mockito.verify(wrapped).set("cold", 10, "value", TYPE);
+        Mockito.verify(wrapped, Mockito.never()).delete(Mockito.<Collection<String>> any());
+
+        cache.set("demoted", 10, "value", TYPE);
+        Mockito.verify(wrapped).set("demoted", 10, "value", TYPE);
+        Mockito.verify(wrapped).delete(Arrays.asList("demoted#r0", "demoted#r1"));
+    }
+
+}
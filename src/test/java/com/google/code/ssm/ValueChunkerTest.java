@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.google.code.ssm.providers.CachedObject;
+import com.google.code.ssm.providers.CachedObjectImpl;
+
+/**
+ * 
+ * @author Jakub Białek
+ * 
+ */
+public class ValueChunkerTest {
+
+    private final Map<String, Object> storage = new HashMap<String, Object>();
+
+    private final ValueChunker chunker = new ValueChunker(createConfiguration(100, 1000));
+
+    @Test
+    public void testSmallValueIsNotSplit() throws Exception {
+        CachedObject value = new CachedObjectImpl(8, new byte[100]);
+        Map<String, CachedObject> items = chunker.split("key", value);
+
+        assertEquals(Collections.singletonMap("key", value), items);
+        storage.putAll(items);
+        assertEquals(Collections.singletonMap("key", value), chunker.join(storage, this::getBulk));
+    }
+
+    @Test
+    public void testSplitAndJoin() throws Exception {
+        byte[] data = createData(950);
+        Map<String, CachedObject> items = chunker.split("key", new CachedObjectImpl(9, data));
+
+        assertEquals(11, items.size());
+        List<String> keys = new ArrayList<String>(items.keySet());
+        assertEquals("key", keys.get(10));
+        assertEquals(ValueChunker.CHUNK_MANIFEST, items.get("key").getFlags());
+        for (String key : keys.subList(0, 10)) {
+            assertTrue(key.startsWith("key#"));
+            assertTrue(items.get(key).getData().length <= 100);
+        }
+
+        storage.putAll(items);
+        storage.put("other", new CachedObjectImpl(1, new byte[] { 1 }));
+        Map<String, CachedObject> joined = chunker.join(getBulk(Arrays.asList("key", "other")), this::getBulk);
+        assertEquals(2, joined.size());
+        assertEquals(9, joined.get("key").getFlags());
+        assertArrayEquals(data, joined.get("key").getData());
+        assertEquals(1, joined.get("other").getFlags());
+    }
+
+    @Test
+    public void testMissingOrCorruptedChunk() throws Exception {
+        Map<String, CachedObject> items = chunker.split("key", new CachedObjectImpl(9, createData(250)));
+        storage.putAll(items);
+        Iterator<String> keys = items.keySet().iterator();
+        String firstChunk = keys.next();
+
+        storage.put(firstChunk, new CachedObjectImpl(0, new byte[100]));
+        assertTrue(chunker.join(getBulk(Collections.singleton("key")), this::getBulk).isEmpty());
+
+        storage.remove(firstChunk);
+        assertTrue(chunker.join(getBulk(Collections.singleton("key")), this::getBulk).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testValueBiggerThanMaxSize() {
+        chunker.split("key", new CachedObjectImpl(0, new byte[1001]));
+    }
+
+    private Map<String, Object> getBulk(final Collection<String> keys) {
+        Map<String, Object> found = new HashMap<String, Object>();
+        for (String key : keys) {
+            if (storage.containsKey(key)) {
+                found.put(key, storage.get(key));
+            }
+        }
+        return found;
+    }
+
+    static ChunkingConfiguration createConfiguration(final int itemSizeLimit, final int maxSize) {
+        ChunkingConfiguration configuration = new ChunkingConfiguration();
+        configuration.setItemSizeLimit(itemSizeLimit);
+        configuration.setMaxSize(maxSize);
+        return configuration;
+    }
+
+    static byte[] createData(final int size) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) (i * 31);
+        }
+        return data;
+    }
+
+}
@@ -20,6 +20,7 @@ package com.google.code.ssm.aop;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -120,6 +121,21 @@ public class CacheBaseTest {
         }
     }
 
+    @Test
+    public void getElementAndReturnType() throws Exception {
+        Method method = ReturnTypeCheck.class.getMethod("checkB", (Class<?>[]) null);
+        assertEquals(String.class, cut.getElementType(method));
+        assertEquals(method.getGenericReturnType(), cut.getReturnType(method));
+
+        method = ReturnTypeCheck.class.getMethod("checkA", (Class<?>[]) null);
+        assertNull(cut.getElementType(method));
+        assertNull(cut.getReturnType(method));
+
+        method = ReturnTypeCheck.class.getMethod("checkE", (Class<?>[]) null);
+        assertNull(cut.getElementType(method));
+        assertEquals(String.class, cut.getReturnType(method));
+    }
+
     @Test
     public void getSerializationType() throws Exception {
         Method method = null;
@@ -245,6 +261,24 @@ public class CacheBaseTest {
         cut.addCache(cache2);
     }
 
+    @Test
+    public void removeFromNegativeFilter() {
+        // there is no filter yet
+        cut.removeFromNegativeFilter("ns", Arrays.asList("ns:1"));
+
+        cut.getNegativeFilter("ns").add("ns:1");
+        cut.getNegativeFilter("ns").add("ns:2");
+        assertSame(cut.getNegativeFilter("ns"), cut.getNegativeFilter("ns"));
+        assertNotSame(cut.getNegativeFilter("ns"), cut.getNegativeFilter("other"));
+
+        cut.removeFromNegativeFilter("other", Arrays.asList("ns:1"));
+        assertTrue(cut.getNegativeFilter("ns").mightContain("ns:1"));
+
+        cut.removeFromNegativeFilter("ns", Arrays.asList("ns:1"));
+        assertFalse(cut.getNegativeFilter("ns").mightContain("ns:1"));
+        assertTrue(cut.getNegativeFilter("ns").mightContain("ns:2"));
+    }
+
     @Test
     public void verifyTypeIsList() {
         assertTrue(cut.verifyTypeIsList(List.class));
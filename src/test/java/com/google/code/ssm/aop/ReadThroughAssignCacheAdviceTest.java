@@ -25,6 +25,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static com.google.code.ssm.test.Matcher.any;
 
+import java.lang.reflect.Type;
 import java.util.Arrays;
 import java.util.Collection;
 
@@ -81,8 +82,8 @@ public class ReadThroughAssignCacheAdviceTest extends AbstractCacheTest<ReadThro
 
         assertEquals(expectedValue, advice.cacheSingleAssign(pjp));
 
-        verify(cache).get(eq(cacheKey), any(SerializationType.class));
-        verify(cache).set(eq(cacheKey), eq(EXPIRATION), eq(expectedValue), any(SerializationType.class));
+        verify(cache).get(eq(cacheKey), any(SerializationType.class), any());
+        verify(cache).set(eq(cacheKey), eq(EXPIRATION), eq(expectedValue), any(SerializationType.class), any());
         verify(pjp).proceed();
     }
 
@@ -90,12 +91,12 @@ public class ReadThroughAssignCacheAdviceTest extends AbstractCacheTest<ReadThro
     public void validCacheHit() throws Throwable {
         Assume.assumeTrue(isValid);
 
-        when(cache.get(eq(cacheKey), any(SerializationType.class))).thenReturn(expectedValue);
+        when(cache.get(eq(cacheKey), any(SerializationType.class), any())).thenReturn(expectedValue);
 
         assertEquals(expectedValue, advice.cacheSingleAssign(pjp));
 
-        verify(cache).get(eq(cacheKey), any(SerializationType.class));
-        verify(cache, never()).set(anyString(), anyInt(), any(), any(SerializationType.class));
+        verify(cache).get(eq(cacheKey), any(SerializationType.class), any());
+        verify(cache, never()).set(anyString(), anyInt(), any(), any(SerializationType.class), any(Type.class));
         verify(pjp, never()).proceed();
     }
 
@@ -107,8 +108,8 @@ public class ReadThroughAssignCacheAdviceTest extends AbstractCacheTest<ReadThro
 
         assertEquals(expectedValue, advice.cacheSingleAssign(pjp));
 
-        verify(cache, never()).get(anyString(), any(SerializationType.class));
-        verify(cache, never()).set(anyString(), anyInt(), any(), any(SerializationType.class));
+        verify(cache, never()).get(anyString(), any(SerializationType.class), any(Type.class));
+        verify(cache, never()).set(anyString(), anyInt(), any(), any(SerializationType.class), any(Type.class));
         verify(pjp).proceed();
     }
 
@@ -21,12 +21,14 @@ import static org.junit.Assert.assertNotNull;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static com.google.code.ssm.test.Matcher.any;
 
 import java.lang.reflect.Method;
+import java.lang.reflect.Type;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -96,9 +98,9 @@ public class ReadThroughMultiCacheAdviceCoordTest {
         assertNotNull(result);
         assertEquals(expected, result);
         verify(pjp).proceed(args);
-        verify(cache).getBulk(eq(new HashSet<String>(cacheKeys)), any(SerializationType.class));
+        verify(cache).getBulk(eq(new HashSet<String>(cacheKeys)), any(SerializationType.class), any());
         for (int i = 0; i < expected.size(); i++) {
-            verify(cache).setSilently(cacheKeys.get(i), EXPIRATION, expected.get(i), null);
+            verify(cache).setSilently(eq(cacheKeys.get(i)), eq(EXPIRATION), eq(expected.get(i)), isNull(), any());
         }
     }
 
@@ -116,8 +118,8 @@ public class ReadThroughMultiCacheAdviceCoordTest {
         assertNotNull(result);
         assertEquals(expected, result);
         verify(pjp).proceed(modifiedArgs);
-        verify(cache).getBulk(eq(new HashSet<String>(cacheKeys)), any(SerializationType.class));
-        verify(cache).setSilently(NS + ":" + 2, EXPIRATION, "b", null);
+        verify(cache).getBulk(eq(new HashSet<String>(cacheKeys)), any(SerializationType.class), any());
+        verify(cache).setSilently(eq(NS + ":" + 2), eq(EXPIRATION), eq("b"), isNull(), any());
     }
 
     @Test
@@ -133,9 +135,9 @@ public class ReadThroughMultiCacheAdviceCoordTest {
 
         assertNotNull(result);
         assertEquals(expected, result);
-        verify(cache).getBulk(eq(new HashSet<String>(cacheKeys)), any(SerializationType.class));
+        verify(cache).getBulk(eq(new HashSet<String>(cacheKeys)), any(SerializationType.class), any());
         verify(pjp, never()).proceed(any(Object[].class));
-        verify(cache, never()).setSilently(anyString(), anyInt(), any(), any(SerializationType.class));
+        verify(cache, never()).setSilently(anyString(), anyInt(), any(), any(SerializationType.class), any(Type.class));
     }
 
     @Test
@@ -151,8 +153,8 @@ public class ReadThroughMultiCacheAdviceCoordTest {
         assertNotNull(result);
         assertEquals(expected, result);
         verify(pjp).proceed(args);
-        verify(cache).getBulk(eq(new HashSet<String>(cacheKeys)), any(SerializationType.class));
-        verify(cache, never()).setSilently(anyString(), anyInt(), any(), any(SerializationType.class));
+        verify(cache).getBulk(eq(new HashSet<String>(cacheKeys)), any(SerializationType.class), any());
+        verify(cache, never()).setSilently(anyString(), anyInt(), any(), any(SerializationType.class), any(Type.class));
         verify(cache, never()).addSilently(anyString(), anyInt(), any(), any(SerializationType.class));
     }
 
@@ -169,8 +171,8 @@ public class ReadThroughMultiCacheAdviceCoordTest {
         assertNotNull(result);
         assertEquals(expected, result);
         verify(pjp).proceed(args);
-        verify(cache).getBulk(eq(new HashSet<String>(cacheKeys)), any(SerializationType.class));
-        verify(cache, never()).setSilently(anyString(), anyInt(), any(), any(SerializationType.class));
+        verify(cache).getBulk(eq(new HashSet<String>(cacheKeys)), any(SerializationType.class), any());
+        verify(cache, never()).setSilently(anyString(), anyInt(), any(), any(SerializationType.class), any(Type.class));
         verify(cache).addSilently(eq(cacheKeys.get(0)), eq(EXPIRATION), eq(PertinentNegativeNull.NULL), any(SerializationType.class));
         verify(cache).addSilently(eq(cacheKeys.get(1)), eq(EXPIRATION), eq(PertinentNegativeNull.NULL), any(SerializationType.class));
     }
@@ -191,7 +193,7 @@ public class ReadThroughMultiCacheAdviceCoordTest {
         });
         when(cacheBase.getCacheKeyBuilder().getCacheKeys(any(AnnotationData.class), eq(args), eq(methodToCache.toString()))).thenReturn(
                 cacheKeys);
-        when(cache.getBulk(eq(new HashSet<String>(cacheKeys)), any(SerializationType.class))).thenReturn(cacheResponse);
+        when(cache.getBulk(eq(new HashSet<String>(cacheKeys)), any(SerializationType.class), any())).thenReturn(cacheResponse);
     }
 
     private static class TestService {
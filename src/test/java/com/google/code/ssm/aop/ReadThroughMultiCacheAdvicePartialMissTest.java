@@ -147,7 +147,7 @@ public class ReadThroughMultiCacheAdvicePartialMissTest extends AbstractCacheTes
     public void validCachePartialMiss() throws Throwable {
         Assume.assumeTrue(isValid);
 
-        when(cache.getBulk(eq(new HashSet<String>(Arrays.asList(cacheKeys))), any(SerializationType.class))).thenReturn(cacheHits);
+        when(cache.getBulk(eq(new HashSet<String>(Arrays.asList(cacheKeys))), any(SerializationType.class), any())).thenReturn(cacheHits);
         when(pjp.proceed(missParams)).thenReturn(missValues);
 
         List<Object> result = (List<Object>) expectedValue;
@@ -161,11 +161,11 @@ public class ReadThroughMultiCacheAdvicePartialMissTest extends AbstractCacheTes
         }
         assertEquals(result, advice.cacheMulti(pjp));
 
-        verify(cache).getBulk(eq(new HashSet<String>(Arrays.asList(cacheKeys))), any(SerializationType.class));
+        verify(cache).getBulk(eq(new HashSet<String>(Arrays.asList(cacheKeys))), any(SerializationType.class), any());
         if (expectedValue.size() == cacheKeys.length) {
             for (int element : missedIndex) {
                 verify(cache).setSilently(eq(cacheKeys[element]), eq(EXPIRATION), eq(expectedValue.get(element)),
-                        any(SerializationType.class));
+                        any(SerializationType.class), any());
             }
         }
         verify(pjp).proceed(missParams);
@@ -25,6 +25,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static com.google.code.ssm.test.Matcher.any;
 
+import java.lang.reflect.Type;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -107,9 +108,9 @@ public class ReadThroughMultiCacheAdviceTest extends AbstractCacheTest<ReadThrou
 
         assertEquals(expectedValue, advice.cacheMulti(pjp));
 
-        verify(cache).getBulk(eq(new HashSet<String>(Arrays.asList(cacheKeys))), any(SerializationType.class));
+        verify(cache).getBulk(eq(new HashSet<String>(Arrays.asList(cacheKeys))), any(SerializationType.class), any());
         for (int i = 0; i < cacheKeys.length; i++) {
-            verify(cache).setSilently(eq(cacheKeys[i]), eq(EXPIRATION), eq(expectedValue.get(i)), any(SerializationType.class));
+            verify(cache).setSilently(eq(cacheKeys[i]), eq(EXPIRATION), eq(expectedValue.get(i)), any(SerializationType.class), any());
         }
         verify(pjp).proceed(params);
     }
@@ -122,12 +123,12 @@ public class ReadThroughMultiCacheAdviceTest extends AbstractCacheTest<ReadThrou
             map.put(cacheKeys[i], expectedValue.get(i));
         }
 
-        when(cache.getBulk(eq(new HashSet<String>(Arrays.asList(cacheKeys))), any(SerializationType.class))).thenReturn(map);
+        when(cache.getBulk(eq(new HashSet<String>(Arrays.asList(cacheKeys))), any(SerializationType.class), any())).thenReturn(map);
 
         assertEquals(expectedValue, advice.cacheMulti(pjp));
 
-        verify(cache).getBulk(eq(new HashSet<String>(Arrays.asList(cacheKeys))), any(SerializationType.class));
-        verify(cache, never()).setSilently(anyString(), anyInt(), any(), any(SerializationType.class));
+        verify(cache).getBulk(eq(new HashSet<String>(Arrays.asList(cacheKeys))), any(SerializationType.class), any());
+        verify(cache, never()).setSilently(anyString(), anyInt(), any(), any(SerializationType.class), any(Type.class));
         verify(pjp, never()).proceed(params);
     }
 
@@ -140,8 +141,8 @@ public class ReadThroughMultiCacheAdviceTest extends AbstractCacheTest<ReadThrou
 
         assertEquals(expectedValue, advice.cacheMulti(pjp));
 
-        verify(cache, never()).getBulk(any(Collection.class), any(SerializationType.class));
-        verify(cache, never()).set(anyString(), anyInt(), any(), any(SerializationType.class));
+        verify(cache, never()).getBulk(any(Collection.class), any(SerializationType.class), any(Type.class));
+        verify(cache, never()).set(anyString(), anyInt(), any(), any(SerializationType.class), any(Type.class));
         verify(pjp).proceed();
     }
 
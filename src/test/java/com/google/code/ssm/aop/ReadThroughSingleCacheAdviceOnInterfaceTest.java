@@ -26,6 +26,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.Serializable;
+import java.lang.reflect.Type;
 import java.util.Arrays;
 import java.util.Collection;
 
@@ -85,8 +86,8 @@ public class ReadThroughSingleCacheAdviceOnInterfaceTest extends AbstractCacheTe
 
         assertEquals(expectedValue, advice.cacheGetSingle(pjp));
 
-        verify(cache).get(eq(cacheKey), any(SerializationType.class));
-        verify(cache).set(eq(cacheKey), eq(EXPIRATION), eq(expectedValue), any(SerializationType.class));
+        verify(cache).get(eq(cacheKey), any(SerializationType.class), any());
+        verify(cache).set(eq(cacheKey), eq(EXPIRATION), eq(expectedValue), any(SerializationType.class), any());
         verify(pjp).proceed();
     }
 
@@ -94,12 +95,12 @@ public class ReadThroughSingleCacheAdviceOnInterfaceTest extends AbstractCacheTe
     public void validCacheHit() throws Throwable {
         Assume.assumeTrue(isValid);
 
-        when(cache.get(eq(cacheKey), any(SerializationType.class))).thenReturn(expectedValue);
+        when(cache.get(eq(cacheKey), any(SerializationType.class), any())).thenReturn(expectedValue);
 
         assertEquals(expectedValue, advice.cacheGetSingle(pjp));
 
-        verify(cache).get(eq(cacheKey), any(SerializationType.class));
-        verify(cache, never()).set(anyString(), anyInt(), any(), any(SerializationType.class));
+        verify(cache).get(eq(cacheKey), any(SerializationType.class), any());
+        verify(cache, never()).set(anyString(), anyInt(), any(), any(SerializationType.class), any(Type.class));
         verify(pjp, never()).proceed();
     }
 
@@ -111,8 +112,8 @@ public class ReadThroughSingleCacheAdviceOnInterfaceTest extends AbstractCacheTe
 
         assertEquals(expectedValue, advice.cacheGetSingle(pjp));
 
-        verify(cache, never()).get(anyString(), any(SerializationType.class));
-        verify(cache, never()).set(anyString(), anyInt(), any(), any(SerializationType.class));
+        verify(cache, never()).get(anyString(), any(SerializationType.class), any(Type.class));
+        verify(cache, never()).set(anyString(), anyInt(), any(), any(SerializationType.class), any(Type.class));
         verify(pjp).proceed();
     }
 
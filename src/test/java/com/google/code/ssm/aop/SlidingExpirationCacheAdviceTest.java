@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.google.code.ssm.aop;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static com.google.code.ssm.test.Matcher.any;
+
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runners.Parameterized.Parameters;
+
+import com.google.code.ssm.api.ParameterValueKeyProvider;
+import com.google.code.ssm.api.ReadThroughAssignCache;
+import com.google.code.ssm.api.ReadThroughSingleCache;
+import com.google.code.ssm.api.format.SerializationType;
+
+/**
+ * 
+ * @author Jakub Białek
+ * 
+ */
+public class SlidingExpirationCacheAdviceTest extends AbstractCacheTest<SingleReadCacheAdvice<?>> {
+
+    @Parameters
+    public static Collection<Object[]> data() {
+        return Arrays.asList(new Object[][] { //
+                { "method1", new Class[] { int.class }, new Object[] { 1 }, null }, //
+                        { "method2", new Class[] { int.class }, new Object[] { 2 }, NS + ":" + ASSIGNED_KEY }, //
+                });
+    }
+
+    private static final String NS = "TEST_NS";
+
+    private static final int EXPIRATION = 110;
+
+    private static final String ASSIGNED_KEY = "all";
+
+    public SlidingExpirationCacheAdviceTest(final String methodName, final Class<?>[] paramTypes, final Object[] params,
+            final String cacheKey) {
+        super(true, methodName, paramTypes, params, cacheKey);
+    }
+
+    @Before
+    public void setUp() {
+        super.setUp(new TestService());
+        when(cache.isTouchSupported()).thenReturn(true);
+    }
+
+    @Test
+    public void hitTouchesValue() throws Throwable {
+        when(cache.getAndTouch(eq(cacheKey), eq(EXPIRATION), any(SerializationType.class), any())).thenReturn(5);
+
+        assertEquals(5, advice.cache(pjp));
+
+        verify(cache).getAndTouch(eq(cacheKey), eq(EXPIRATION), any(SerializationType.class), any());
+        verify(cache, never()).get(anyString(), any(SerializationType.class), any(Type.class));
+        verify(cache, never()).set(anyString(), anyInt(), any(), any(SerializationType.class), any(Type.class));
+        verify(pjp, never()).proceed();
+    }
+
+    @Test
+    public void missSetsValue() throws Throwable {
+        when(pjp.proceed()).thenReturn(5);
+
+        assertEquals(5, advice.cache(pjp));
+
+        verify(cache).getAndTouch(eq(cacheKey), eq(EXPIRATION), any(SerializationType.class), any());
+        verify(cache).set(eq(cacheKey), eq(EXPIRATION), eq(5), any(SerializationType.class), any());
+        verify(pjp).proceed();
+    }
+
+    @Test
+    public void touchNotSupported() throws Throwable {
+        when(cache.isTouchSupported()).thenReturn(false);
+        when(cache.get(eq(cacheKey), any(SerializationType.class), any())).thenReturn(5);
+
+        assertEquals(5, advice.cache(pjp));
+
+        verify(cache).get(eq(cacheKey), any(SerializationType.class), any());
+        verify(cache, never()).getAndTouch(anyString(), anyInt(), any(SerializationType.class), any());
+        verify(pjp, never()).proceed();
+    }
+
+    @Override
+    protected SingleReadCacheAdvice<?> createAdvice() {
+        if ("method1".equals(methodName)) {
+            return new ReadThroughSingleCacheAdvice();
+        }
+
+        return new ReadThroughAssignCacheAdvice();
+    }
+
+    @Override
+    protected String getNamespace() {
+        return NS;
+    }
+
+    private static class TestService {
+
+        @ReadThroughSingleCache(namespace = NS, expiration = EXPIRATION, slidingExpiration = true)
+        public int method1(@ParameterValueKeyProvider final int id1) {
+            return 1;
+        }
+
+        @ReadThroughAssignCache(namespace = NS, assignedKey = ASSIGNED_KEY, expiration = EXPIRATION,
+                slidingExpiration = true)
+        public int method2(final int id1) {
+            return 2;
+        }
+
+    }
+
+}
@@ -86,7 +86,7 @@ public class UpdateAssignCacheAdviceTest extends AbstractCacheTest<UpdateAssignC
 
         advice.cacheUpdateAssign(pjp, expectedValue);
 
-        verify(cache).set(eq(cacheKey), eq(EXPIRATION), eq(expectedValue), any(SerializationType.class));
+        verify(cache).set(eq(cacheKey), eq(EXPIRATION), eq(expectedValue), any(SerializationType.class), any());
     }
 
     @Test
@@ -95,7 +95,7 @@ public class UpdateSingleCacheAdviceTest extends AbstractCacheTest<UpdateSingleC
 
         advice.cacheUpdateSingle(pjp, returnValue);
 
-        verify(cache).set(eq(cacheKey), eq(EXPIRATION), eq(expectedValue), any(SerializationType.class));
+        verify(cache).set(eq(cacheKey), eq(EXPIRATION), eq(expectedValue), any(SerializationType.class), any());
     }
 
     @Test
@@ -35,4 +35,9 @@ public abstract class AbstractCounterTest<T extends CounterInCacheBase> extends
         return NS;
     }
 
+    protected String getShardKey(final int shards) {
+        long shard = Thread.currentThread().getId() % shards;
+        return shard == 0 ? cacheKey : cacheKey + CounterInCacheBase.SHARD_SEPARATOR + shard;
+    }
+
 }
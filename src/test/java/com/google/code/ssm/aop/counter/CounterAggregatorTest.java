@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.aop.counter;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.Invocation;
+
+import com.google.code.ssm.Cache;
+import com.google.code.ssm.providers.CacheException;
+
+/**
+ * 
+ * @author Jakub Białek
+ * 
+ */
+public class CounterAggregatorTest {
+
+    private static final String CACHE_NAME = "cache";
+
+    private Cache cache;
+
+    private CounterAggregator aggregator;
+
+    @Before
+    public void setUp() {
+        cache = Mockito.mock(Cache.class);
+        aggregator = new CounterAggregator(0);
+    }
+
+    @Test
+    public void testFlushSumOfDeltas() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            aggregator.add(CACHE_NAME, cache, "key1", 1);
+        }
+        aggregator.add(CACHE_NAME, cache, "key2", -1);
+        aggregator.add(CACHE_NAME, cache, "key2", -2);
+        aggregator.add(CACHE_NAME, cache, "key3", 1);
+        aggregator.add(CACHE_NAME, cache, "key3", -1);
+        assertEquals(5, aggregator.getPendingDelta(CACHE_NAME, "key1"));
+        assertEquals(0, aggregator.getPendingDelta("other", "key1"));
+        Mockito.verifyZeroInteractions(cache);
+
+        aggregator.flush();
+
+        verify(cache).incr("key1", 5, 5);
+        verify(cache).decr("key2", 3);
+        assertEquals(0, aggregator.getPendingDelta(CACHE_NAME, "key1"));
+
+        aggregator.flush();
+        verifyNoMoreInteractions(cache);
+    }
+
+    @Test
+    public void testRetryFailedFlush() throws Exception {
+        when(cache.incr("key1", 2, 2)).thenThrow(new TimeoutException()).thenReturn(2L);
+        aggregator.add(CACHE_NAME, cache, "key1", 2);
+
+        aggregator.flush();
+        assertEquals(2, aggregator.getPendingDelta(CACHE_NAME, "key1"));
+
+        aggregator.flush();
+        assertEquals(0, aggregator.getPendingDelta(CACHE_NAME, "key1"));
+        verify(cache, Mockito.times(2)).incr("key1", 2, 2);
+    }
+
+    @Test
+    public void testIdleCounterIsEvicted() throws Exception {
+        aggregator.add(CACHE_NAME, cache, "key1", 1);
+        aggregator.flush();
+        aggregator.flush();
+        aggregator.flush();
+
+        aggregator.add(CACHE_NAME, cache, "key1", 1);
+        aggregator.flush();
+        verify(cache, Mockito.times(2)).incr("key1", 1, 1);
+    }
+
+    @Test
+    public void testShutdownFlushesPendingDeltas() throws TimeoutException, CacheException {
+        aggregator.add(CACHE_NAME, cache, "key1", 7);
+        verify(cache, never()).incr("key1", 7, 7);
+
+        aggregator.shutdown();
+        verify(cache).incr("key1", 7, 7);
+    }
+
+    @Test
+    public void testConcurrentUpdates() throws Exception {
+        final int threads = 4;
+        final int updates = 10000;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; i++) {
+            executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < updates; j++) {
+                    aggregator.add(CACHE_NAME, cache, "key1", 1);
+                    if (j % 1000 == 0) {
+                        aggregator.flush();
+                    }
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        aggregator.shutdown();
+
+        long sent = 0;
+        for (Invocation invocation : Mockito.mockingDetails(cache).getInvocations()) {
+            sent += (Integer) invocation.getArguments()[1];
+        }
+        assertEquals(threads * updates, sent);
+    }
+
+}
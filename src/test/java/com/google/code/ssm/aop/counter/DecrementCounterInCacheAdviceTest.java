@@ -38,11 +38,17 @@ import com.google.code.ssm.api.counter.DecrementCounterInCache;
  */
 public class DecrementCounterInCacheAdviceTest extends AbstractCounterTest<DecrementCounterInCacheAdvice> {
 
+    private static final String AGGREGATED = "decrCounter3";
+
+    private static final String SHARDED = "decrCounter4";
+
     @Parameters
     public static Collection<Object[]> data() {
         return Arrays.asList(new Object[][] { //
                 { true, "decrCounter1", new Class[] { int.class }, new Object[] { 1 } }, //
                         { true, "decrCounter2", new Class[] { int.class, int.class }, new Object[] { 2, 5 } }, //
+                        { true, AGGREGATED, new Class[] { int.class }, new Object[] { 3 } }, //
+                        { true, SHARDED, new Class[] { int.class }, new Object[] { 4 } }, //
                         { false, "decrCounter20", new Class[] {}, new Object[] {} }, //
 
                 });
@@ -64,7 +70,12 @@ public class DecrementCounterInCacheAdviceTest extends AbstractCounterTest<Decre
 
         advice.decrementSingle(pjp);
 
-        verify(cache).decr(cacheKey, 1);
+        if (AGGREGATED.equals(methodName)) {
+            verify(cache, never()).decr(cacheKey, 1);
+            advice.getCacheBase().getCounterAggregator().flush();
+        }
+        String key = SHARDED.equals(methodName) ? getShardKey(3) : cacheKey;
+        verify(cache).decr(key, 1);
     }
 
     @Test
@@ -93,6 +104,16 @@ public class DecrementCounterInCacheAdviceTest extends AbstractCounterTest<Decre
             return 1;
         }
 
+        @DecrementCounterInCache(namespace = NS, aggregated = true)
+        public void decrCounter3(@ParameterValueKeyProvider final int id1) {
+
+        }
+
+        @DecrementCounterInCache(namespace = NS, shards = 3)
+        public void decrCounter4(@ParameterValueKeyProvider final int id1) {
+
+        }
+
         // no @ParameterValueKeyProvider
         @DecrementCounterInCache(namespace = NS)
         public void decrCounter20() {
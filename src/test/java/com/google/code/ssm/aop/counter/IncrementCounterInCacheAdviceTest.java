@@ -38,11 +38,17 @@ import com.google.code.ssm.api.counter.IncrementCounterInCache;
  */
 public class IncrementCounterInCacheAdviceTest extends AbstractCounterTest<IncrementCounterInCacheAdvice> {
 
+    private static final String AGGREGATED = "incrCounter3";
+
+    private static final String SHARDED = "incrCounter4";
+
     @Parameters
     public static Collection<Object[]> data() {
         return Arrays.asList(new Object[][] { //
                 { true, "incrCounter1", new Class[] { int.class }, new Object[] { 1 } }, //
                         { true, "incrCounter2", new Class[] { int.class, int.class }, new Object[] { 2, 5 } }, //
+                        { true, AGGREGATED, new Class[] { int.class }, new Object[] { 3 } }, //
+                        { true, SHARDED, new Class[] { int.class }, new Object[] { 4 } }, //
                         { false, "incrCounter20", new Class[] {}, new Object[] {} }, //
 
                 });
@@ -64,7 +70,12 @@ public class IncrementCounterInCacheAdviceTest extends AbstractCounterTest<Incre
 
         advice.incrementSingle(pjp);
 
-        verify(cache).incr(cacheKey, 1, 1L);
+        if (AGGREGATED.equals(methodName)) {
+            verify(cache, never()).incr(cacheKey, 1, 1L);
+            advice.getCacheBase().getCounterAggregator().flush();
+        }
+        String key = SHARDED.equals(methodName) ? getShardKey(3) : cacheKey;
+        verify(cache).incr(key, 1, 1L);
     }
 
     @Test
@@ -93,6 +104,16 @@ public class IncrementCounterInCacheAdviceTest extends AbstractCounterTest<Incre
             return 1;
         }
 
+        @IncrementCounterInCache(namespace = NS, aggregated = true)
+        public void incrCounter3(@ParameterValueKeyProvider final int id1) {
+
+        }
+
+        @IncrementCounterInCache(namespace = NS, shards = 3)
+        public void incrCounter4(@ParameterValueKeyProvider final int id1) {
+
+        }
+
         // no @ParameterValueKeyProvider
         @IncrementCounterInCache(namespace = NS)
         public void incrCounter20() {
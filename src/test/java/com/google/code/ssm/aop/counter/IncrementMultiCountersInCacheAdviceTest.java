@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.google.code.ssm.aop.counter;
+
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runners.Parameterized.Parameters;
+
+import com.google.code.ssm.api.ParameterValueKeyProvider;
+import com.google.code.ssm.api.counter.IncrementMultiCountersInCache;
+
+/**
+ * 
+ * @author Jakub Białek
+ * 
+ */
+public class IncrementMultiCountersInCacheAdviceTest extends AbstractCounterTest<IncrementMultiCountersInCacheAdvice> {
+
+    @Parameters
+    public static Collection<Object[]> data() {
+        return Arrays.asList(new Object[][] { //
+                { true, "incrCounters1", new Class[] { List.class }, new Object[] { Arrays.asList(1, 2, 1) } }, //
+                        { true, "incrCounters2", new Class[] { int.class, List.class }, new Object[] { 5, Arrays.asList(1, 2, 1) } }, //
+                        { false, "incrCounters20", new Class[] { int.class }, new Object[] { 1 } }, //
+                });
+    }
+
+    public IncrementMultiCountersInCacheAdviceTest(final boolean isValid, final String methodName, final Class<?>[] paramTypes,
+            final Object[] params) {
+        super(isValid, methodName, paramTypes, params, null);
+    }
+
+    @Before
+    public void setUp() {
+        super.setUp(new TestService());
+    }
+
+    @Test
+    public void validIncrementMultiCountersInCache() throws Throwable {
+        Assume.assumeTrue(isValid);
+
+        advice.incrementMulti(pjp);
+
+        String prefix = params.length == 1 ? NS + ":" : NS + ":5/";
+        verify(cache, times(2)).incr(prefix + "1", 1, 1L);
+        verify(cache).incr(prefix + "2", 1, 1L);
+    }
+
+    @Test
+    public void invalidIncrementMultiCountersInCache() throws Throwable {
+        Assume.assumeThat(isValid, CoreMatchers.is(false));
+
+        advice.incrementMulti(pjp);
+
+        verify(cache, never()).incr(anyString(), anyInt(), anyLong());
+    }
+
+    @Override
+    protected IncrementMultiCountersInCacheAdvice createAdvice() {
+        return new IncrementMultiCountersInCacheAdvice();
+    }
+
+    private static class TestService {
+
+        @IncrementMultiCountersInCache(namespace = NS)
+        public void incrCounters1(@ParameterValueKeyProvider final List<Integer> ids) {
+
+        }
+
+        @IncrementMultiCountersInCache(namespace = NS)
+        public void incrCounters2(@ParameterValueKeyProvider(order = 1) final int groupId,
+                @ParameterValueKeyProvider(order = 2) final List<Integer> ids) {
+
+        }
+
+        // no list parameter
+        @IncrementMultiCountersInCache(namespace = NS)
+        public void incrCounters20(@ParameterValueKeyProvider final int id) {
+
+        }
+
+    }
+
+}
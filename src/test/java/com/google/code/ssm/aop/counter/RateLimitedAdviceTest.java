@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.google.code.ssm.aop.counter;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.startsWith;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runners.Parameterized.Parameters;
+
+import com.google.code.ssm.api.ParameterValueKeyProvider;
+import com.google.code.ssm.api.counter.RateLimited;
+import com.google.code.ssm.counter.RateLimitExceededException;
+import com.google.code.ssm.providers.circuit.CircuitOpenException;
+
+/**
+ * 
+ * @author Jakub Białek
+ * 
+ */
+public class RateLimitedAdviceTest extends AbstractCounterTest<RateLimitedAdvice> {
+
+    @Parameters
+    public static Collection<Object[]> data() {
+        return Arrays.asList(new Object[][] { //
+                { true, "call1", new Class[] { int.class }, new Object[] { 1 } }, //
+                        { true, "call2", new Class[] { String.class, int.class }, new Object[] { "a", 2 } }, //
+                        { false, "call20", new Class[] { int.class }, new Object[] { 20 } }, //
+                });
+    }
+
+    public RateLimitedAdviceTest(final boolean isValid, final String methodName, final Class<?>[] paramTypes, final Object[] params) {
+        super(isValid, methodName, paramTypes, params, null);
+    }
+
+    @Before
+    public void setUp() {
+        super.setUp(new TestService());
+    }
+
+    @Test
+    public void validCallWithinLimit() throws Throwable {
+        Assume.assumeTrue(isValid);
+
+        when(cache.incr(startsWith(cacheKey + "#w"), eq(1), eq(1L), anyInt())).thenReturn(5L);
+        when(pjp.proceed()).thenReturn("result");
+
+        assertEquals("result", advice.limitRate(pjp));
+
+        verify(pjp).proceed();
+    }
+
+    @Test(expected = RateLimitExceededException.class)
+    public void validCallOverLimit() throws Throwable {
+        Assume.assumeTrue(isValid);
+
+        when(cache.incr(startsWith(cacheKey + "#w"), eq(1), eq(1L), anyInt())).thenReturn(6L);
+
+        try {
+            advice.limitRate(pjp);
+        } finally {
+            verify(pjp, never()).proceed();
+        }
+    }
+
+    @Test
+    public void validCallWhenCircuitIsOpen() throws Throwable {
+        Assume.assumeTrue(isValid);
+
+        when(cache.incr(anyString(), anyInt(), anyLong(), anyInt())).thenThrow(new CircuitOpenException("test"));
+        when(pjp.proceed()).thenReturn("result");
+
+        assertEquals("result", advice.limitRate(pjp));
+    }
+
+    @Test
+    public void invalidCall() throws Throwable {
+        Assume.assumeThat(isValid, CoreMatchers.is(false));
+
+        when(pjp.proceed()).thenReturn("result");
+
+        assertEquals("result", advice.limitRate(pjp));
+
+        verify(cache, never()).incr(anyString(), anyInt(), anyLong(), anyInt());
+    }
+
+    @Override
+    protected RateLimitedAdvice createAdvice() {
+        return new RateLimitedAdvice();
+    }
+
+    private static class TestService {
+
+        @RateLimited(namespace = NS, limit = 5)
+        public String call1(@ParameterValueKeyProvider final int id) {
+            return null;
+        }
+
+        @RateLimited(namespace = NS, limit = 5, window = 60)
+        public String call2(@ParameterValueKeyProvider(order = 1) final String id1, @ParameterValueKeyProvider(order = 2) final int id2) {
+            return null;
+        }
+
+        // no @ParameterValueKeyProvider
+        @RateLimited(namespace = NS, limit = 5)
+        public String call20(final int id) {
+            return null;
+        }
+
+    }
+
+}
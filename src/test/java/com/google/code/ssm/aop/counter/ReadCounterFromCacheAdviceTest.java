@@ -28,6 +28,10 @@ import static org.mockito.Mockito.when;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.hamcrest.CoreMatchers;
 import org.junit.Assume;
@@ -48,6 +52,8 @@ import com.google.code.ssm.test.Point;
  */
 public class ReadCounterFromCacheAdviceTest extends AbstractCounterTest<ReadCounterFromCacheAdvice> {
 
+    private static final String SHARDED = "readCounter7";
+
     @Parameters
     public static Collection<Object[]> data() {
         return Arrays.asList(new Object[][] { //
@@ -58,6 +64,7 @@ public class ReadCounterFromCacheAdviceTest extends AbstractCounterTest<ReadCoun
                         { true, "readCounter5", new Class[] { int.class, String.class }, new Object[] { 5, "v1" }, 5, null }, //
                         { true, "readCounter6", new Class[] { int.class, String.class, Point.class, String.class },
                                 new Object[] { 6, "v1", new Point(2, 3), "test" }, 5, NS + ":v1/(2,3)/6" }, //
+                        { true, SHARDED, new Class[] { int.class }, new Object[] { 7 }, 7L, null }, //
 
                         { false, "readCounter20", new Class[] { int.class }, new Object[] { 20 }, "20xx", null }, //
                         { false, "readCounter21", new Class[] { int.class }, new Object[] { 21 }, new Object(), null }, //
@@ -89,10 +96,15 @@ public class ReadCounterFromCacheAdviceTest extends AbstractCounterTest<ReadCoun
 
         when(pjp.proceed()).thenReturn(expectedValue);
         when(cache.getCounter(eq(cacheKey))).thenReturn(null);
+        when(cache.getCounters(eq(getShardKeys()))).thenReturn(Collections.<String, Long> emptyMap());
 
         assertEquals(expectedValue, advice.readCounter(pjp));
 
-        verify(cache).getCounter(eq(cacheKey));
+        if (SHARDED.equals(methodName)) {
+            verify(cache).getCounters(eq(getShardKeys()));
+        } else {
+            verify(cache).getCounter(eq(cacheKey));
+        }
         verify(cache).incr(eq(cacheKey), eq(0), eq(((Number) expectedValue).longValue()), eq(EXPIRATION));
         verify(pjp).proceed();
     }
@@ -104,10 +116,20 @@ public class ReadCounterFromCacheAdviceTest extends AbstractCounterTest<ReadCoun
         Long value = 100L;
 
         when(cache.getCounter(eq(cacheKey))).thenReturn(value);
+        // one shard is missing
+        Map<String, Long> shards = new HashMap<String, Long>();
+        shards.put(cacheKey, 60L);
+        shards.put(cacheKey + CounterInCacheBase.SHARD_SEPARATOR + 2, 40L);
+        when(cache.getCounters(eq(getShardKeys()))).thenReturn(shards);
 
         assertEquals(value.intValue(), ((Number) advice.readCounter(pjp)).intValue());
 
-        verify(cache).getCounter(eq(cacheKey));
+        if (SHARDED.equals(methodName)) {
+            verify(cache).getCounters(eq(getShardKeys()));
+            verify(cache, never()).getCounter(anyString());
+        } else {
+            verify(cache).getCounter(eq(cacheKey));
+        }
         verify(cache, never()).incr(anyString(), anyInt(), anyLong(), anyInt());
         verify(pjp, never()).proceed();
     }
@@ -126,6 +148,10 @@ public class ReadCounterFromCacheAdviceTest extends AbstractCounterTest<ReadCoun
         verify(pjp).proceed();
     }
 
+    private List<String> getShardKeys() {
+        return Arrays.asList(cacheKey, cacheKey + CounterInCacheBase.SHARD_SEPARATOR + 1, cacheKey + CounterInCacheBase.SHARD_SEPARATOR + 2);
+    }
+
     @Override
     protected ReadCounterFromCacheAdvice createAdvice() {
         return new ReadCounterFromCacheAdvice();
@@ -164,6 +190,11 @@ public class ReadCounterFromCacheAdviceTest extends AbstractCounterTest<ReadCoun
             return 6;
         }
 
+        @ReadCounterFromCache(namespace = NS, expiration = EXPIRATION, shards = 3)
+        public long readCounter7(@ParameterValueKeyProvider final int id) {
+            return 7L;
+        }
+
         // wrong return type
         @ReadCounterFromCache(namespace = NS, expiration = EXPIRATION)
         public String readCounter20(@ParameterValueKeyProvider final int id) {
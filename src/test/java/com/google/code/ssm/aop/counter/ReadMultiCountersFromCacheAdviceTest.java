@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.google.code.ssm.aop.counter;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runners.Parameterized.Parameters;
+import org.mockito.ArgumentCaptor;
+
+import com.google.code.ssm.api.ParameterValueKeyProvider;
+import com.google.code.ssm.api.counter.ReadMultiCountersFromCache;
+
+/**
+ * 
+ * @author Jakub Białek
+ * 
+ */
+public class ReadMultiCountersFromCacheAdviceTest extends AbstractCounterTest<ReadMultiCountersFromCacheAdvice> {
+
+    private static final int EXPIRATION = 70;
+
+    @Parameters
+    public static Collection<Object[]> data() {
+        return Arrays.asList(new Object[][] { //
+                { true, "readCounters1", new Class[] { List.class }, new Object[] { Arrays.asList(1, 2, 3) }, }, //
+                        { true, "readCounters2", new Class[] { List.class }, new Object[] { Arrays.asList(1, 2, 3) }, }, //
+
+                        { false, "readCounters20", new Class[] { List.class }, new Object[] { Arrays.asList(1, 2, 3) }, }, //
+                        { false, "readCounters21", new Class[] { List.class }, new Object[] { Arrays.asList(1, 2, 3) }, }, //
+                        { false, "readCounters22", new Class[] { int.class }, new Object[] { 1 }, }, //
+                });
+    }
+
+    public ReadMultiCountersFromCacheAdviceTest(final boolean isValid, final String methodName, final Class<?>[] paramTypes,
+            final Object[] params) {
+        super(isValid, methodName, paramTypes, params, null);
+    }
+
+    @Before
+    public void setUp() {
+        super.setUp(new TestService());
+    }
+
+    @Test
+    public void validReadCountersCacheHit() throws Throwable {
+        Assume.assumeTrue(isValid);
+
+        Map<String, Long> counters = new HashMap<String, Long>();
+        counters.put(NS + ":1", 10L);
+        counters.put(NS + ":2", 20L);
+        counters.put(NS + ":3", 30L);
+        when(cache.getCounters(eq(new LinkedHashSet<String>(getKeys())))).thenReturn(counters);
+
+        assertEquals(expected(10L, 20L, 30L), advice.readCounters(pjp));
+
+        verify(cache, never()).incr(anyString(), anyInt(), anyLong(), anyInt());
+        verify(pjp, never()).proceed();
+        verify(pjp, never()).proceed(any(Object[].class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void validReadCountersPartialCacheMiss() throws Throwable {
+        Assume.assumeTrue(isValid);
+
+        Map<String, Long> counters = new HashMap<String, Long>();
+        counters.put(NS + ":2", 20L);
+        when(cache.getCounters(eq(new LinkedHashSet<String>(getKeys())))).thenReturn(counters);
+        when(pjp.proceed(any(Object[].class))).thenReturn(expected(10L, 30L));
+
+        assertEquals(expected(10L, 20L, 30L), advice.readCounters(pjp));
+
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(pjp).proceed(args.capture());
+        assertEquals(Arrays.asList(1, 3), args.getValue()[0]);
+        verify(cache).incr(eq(NS + ":1"), eq(0), eq(10L), eq(EXPIRATION));
+        verify(cache).incr(eq(NS + ":3"), eq(0), eq(30L), eq(EXPIRATION));
+        verify(cache, never()).incr(eq(NS + ":2"), anyInt(), anyLong(), anyInt());
+        // the list passed to the method must not be modified
+        assertEquals(Arrays.asList(1, 2, 3), params[0]);
+    }
+
+    @Test
+    public void invalidReadCounters() throws Throwable {
+        Assume.assumeThat(isValid, CoreMatchers.is(false));
+
+        when(pjp.proceed()).thenReturn(null);
+
+        advice.readCounters(pjp);
+
+        verify(cache, never()).getCounters(anyCollectionOf(String.class));
+        verify(cache, never()).incr(anyString(), anyInt(), anyLong(), anyInt());
+        verify(pjp).proceed();
+    }
+
+    @Override
+    protected ReadMultiCountersFromCacheAdvice createAdvice() {
+        return new ReadMultiCountersFromCacheAdvice();
+    }
+
+    private List<String> getKeys() {
+        return Arrays.asList(NS + ":1", NS + ":2", NS + ":3");
+    }
+
+    private List<Number> expected(final long... values) {
+        boolean intResult = "readCounters2".equals(methodName);
+        Number[] results = new Number[values.length];
+        for (int i = 0; i < values.length; i++) {
+            results[i] = intResult ? Integer.valueOf((int) values[i]) : Long.valueOf(values[i]);
+        }
+
+        return Arrays.asList(results);
+    }
+
+    private static class TestService {
+
+        @ReadMultiCountersFromCache(namespace = NS, expiration = EXPIRATION)
+        public List<Long> readCounters1(@ParameterValueKeyProvider final List<Integer> ids) {
+            return null;
+        }
+
+        @ReadMultiCountersFromCache(namespace = NS, expiration = EXPIRATION)
+        public List<Integer> readCounters2(@ParameterValueKeyProvider final List<Integer> ids) {
+            return null;
+        }
+
+        // wrong element type
+        @ReadMultiCountersFromCache(namespace = NS, expiration = EXPIRATION)
+        public List<String> readCounters20(@ParameterValueKeyProvider final List<Integer> ids) {
+            return null;
+        }
+
+        // wrong return type
+        @ReadMultiCountersFromCache(namespace = NS, expiration = EXPIRATION)
+        public Long readCounters21(@ParameterValueKeyProvider final List<Integer> ids) {
+            return null;
+        }
+
+        // no list parameter
+        @ReadMultiCountersFromCache(namespace = NS, expiration = EXPIRATION)
+        public List<Long> readCounters22(@ParameterValueKeyProvider final int id) {
+            return null;
+        }
+
+    }
+
+}
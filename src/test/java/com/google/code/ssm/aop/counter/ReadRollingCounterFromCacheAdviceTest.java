@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.google.code.ssm.aop.counter;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.startsWith;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runners.Parameterized.Parameters;
+
+import com.google.code.ssm.api.ParameterValueKeyProvider;
+import com.google.code.ssm.api.counter.IncrementRollingCounterInCache;
+import com.google.code.ssm.api.counter.ReadRollingCounterFromCache;
+
+/**
+ * 
+ * @author Jakub Białek
+ * 
+ */
+public class ReadRollingCounterFromCacheAdviceTest extends AbstractCounterTest<ReadRollingCounterFromCacheAdvice> {
+
+    @Parameters
+    public static Collection<Object[]> data() {
+        return Arrays.asList(new Object[][] { //
+                { true, "readRolling1", new Class[] { int.class }, new Object[] { 1 }, 8 }, //
+                        { true, "readRolling2", new Class[] { int.class }, new Object[] { 2 }, 8L }, //
+
+                        { false, "readRolling20", new Class[] { int.class }, new Object[] { 20 }, "20" }, //
+                        { false, "readRolling21", new Class[] { int.class }, new Object[] { 21 }, 21 }, //
+                });
+    }
+
+    private final Object expectedValue;
+
+    public ReadRollingCounterFromCacheAdviceTest(final boolean isValid, final String methodName, final Class<?>[] paramTypes,
+            final Object[] params, final Object expectedValue) {
+        super(isValid, methodName, paramTypes, params, null);
+        this.expectedValue = expectedValue;
+    }
+
+    @Before
+    public void setUp() {
+        super.setUp(new TestService());
+    }
+
+    @Test
+    public void validReadRollingCounterHit() throws Throwable {
+        Assume.assumeTrue(isValid);
+
+        when(cache.getCounters(anyCollectionOf(String.class))).thenReturn(Collections.singletonMap(cacheKey + "#b1", 8L));
+
+        assertEquals(expectedValue, advice.readRolling(pjp));
+
+        verify(pjp, never()).proceed();
+    }
+
+    @Test
+    public void validReadRollingCounterMiss() throws Throwable {
+        Assume.assumeTrue(isValid);
+
+        when(cache.getCounters(anyCollectionOf(String.class))).thenReturn(Collections.<String, Long> emptyMap());
+        when(pjp.proceed()).thenReturn(expectedValue);
+
+        assertEquals(expectedValue, advice.readRolling(pjp));
+
+        verify(pjp).proceed();
+        // result of the method is not stored in cache
+        verify(cache, never()).incr(anyString(), anyInt(), anyLong(), anyInt());
+    }
+
+    @Test
+    public void invalidReadRollingCounter() throws Throwable {
+        Assume.assumeThat(isValid, CoreMatchers.is(false));
+
+        when(pjp.proceed()).thenReturn(expectedValue);
+
+        assertEquals(expectedValue, advice.readRolling(pjp));
+
+        verify(cache, never()).getCounters(anyCollectionOf(String.class));
+        verify(pjp).proceed();
+    }
+
+    @Test
+    public void incrementRollingCounter() throws Throwable {
+        Assume.assumeTrue(isValid);
+
+        IncrementRollingCounterInCacheAdvice incrementAdvice = new IncrementRollingCounterInCacheAdvice();
+        incrementAdvice.setCacheBase(advice.getCacheBase());
+        when(signature.getName()).thenReturn("incrRolling" + methodName.substring("readRolling".length()));
+
+        incrementAdvice.incrementRolling(pjp);
+
+        verify(cache).incr(startsWith(cacheKey + "#b"), eq(1), eq(1L), eq(360));
+    }
+
+    @Override
+    protected ReadRollingCounterFromCacheAdvice createAdvice() {
+        return new ReadRollingCounterFromCacheAdvice();
+    }
+
+    private static class TestService {
+
+        @ReadRollingCounterFromCache(namespace = NS)
+        public int readRolling1(@ParameterValueKeyProvider final int id) {
+            return 0;
+        }
+
+        @ReadRollingCounterFromCache(namespace = NS, window = 600, buckets = 10)
+        public Long readRolling2(@ParameterValueKeyProvider final int id) {
+            return 0L;
+        }
+
+        @IncrementRollingCounterInCache(namespace = NS)
+        public void incrRolling1(@ParameterValueKeyProvider final int id) {
+
+        }
+
+        @IncrementRollingCounterInCache(namespace = NS, window = 300, buckets = 5)
+        public void incrRolling2(@ParameterValueKeyProvider final int id) {
+
+        }
+
+        // wrong return type
+        @ReadRollingCounterFromCache(namespace = NS)
+        public String readRolling20(@ParameterValueKeyProvider final int id) {
+            return null;
+        }
+
+        // window not divisible by buckets
+        @ReadRollingCounterFromCache(namespace = NS, window = 100, buckets = 3)
+        public int readRolling21(@ParameterValueKeyProvider final int id) {
+            return 0;
+        }
+
+    }
+
+}
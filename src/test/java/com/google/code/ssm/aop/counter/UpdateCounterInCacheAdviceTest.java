@@ -47,6 +47,8 @@ import com.google.code.ssm.test.Point;
  */
 public class UpdateCounterInCacheAdviceTest extends AbstractCounterTest<UpdateCounterInCacheAdvice> {
 
+    private static final String SHARDED = "updateCounter12";
+
     @Parameters
     public static Collection<Object[]> data() {
         return Arrays.asList(new Object[][] { //
@@ -62,6 +64,7 @@ public class UpdateCounterInCacheAdviceTest extends AbstractCounterTest<UpdateCo
                                 NS + ":(1,4)" }, //
                         { true, "updateCounter9", new Class[] { Long.class, String.class, Long.class },
                                 new Object[] { new Long(1), "2", new Long(9L) }, null, new Long(9L), NS + ":2/1" }, //
+                        { true, SHARDED, new Class[] { int.class, long.class }, new Object[] { 12, 120L }, null, 120L, NS + ":12" }, //
 
                         { false, "updateCounter20", new Class[] { int.class }, new Object[] { 20 }, null, null, null }, //
                         { false, "updateCounter21", new Class[] { int.class }, new Object[] { 21 }, "abcd", null, null }, //
@@ -97,6 +100,10 @@ public class UpdateCounterInCacheAdviceTest extends AbstractCounterTest<UpdateCo
         advice.cacheCounterInCache(pjp, reternValue);
 
         verify(cache).setCounter(eq(cacheKey), eq(EXPIRATION), eq(((Number) expectedValue).longValue()));
+        if (SHARDED.equals(methodName)) {
+            verify(cache).setCounter(eq(cacheKey + CounterInCacheBase.SHARD_SEPARATOR + 1), eq(EXPIRATION), eq(0L));
+            verify(cache).setCounter(eq(cacheKey + CounterInCacheBase.SHARD_SEPARATOR + 2), eq(EXPIRATION), eq(0L));
+        }
         verify(pjp, never()).proceed();
     }
 
@@ -182,6 +189,11 @@ public class UpdateCounterInCacheAdviceTest extends AbstractCounterTest<UpdateCo
 
         }
 
+        @UpdateCounterInCache(namespace = NS, expiration = EXPIRATION, shards = 3)
+        public void updateCounter12(@ParameterValueKeyProvider final int id, @ParameterDataUpdateContent final long value) {
+
+        }
+
         // no return
         @ReturnDataUpdateContent
         @UpdateCounterInCache(namespace = NS, expiration = EXPIRATION)
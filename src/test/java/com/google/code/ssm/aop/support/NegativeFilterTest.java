@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.google.code.ssm.aop.support;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * 
+ * @author Jakub Białek
+ * 
+ */
+public class NegativeFilterTest {
+
+    private MutableClock clock;
+
+    private NegativeFilter filter;
+
+    @Before
+    public void setUp() {
+        clock = new MutableClock();
+        filter = new NegativeFilter(1000, 0.001, 60000, clock);
+    }
+
+    @Test
+    public void addAndRemove() {
+        assertFalse(filter.mightContain("ns:1"));
+
+        filter.add("ns:1");
+        filter.add("ns:2");
+        assertTrue(filter.mightContain("ns:1"));
+        assertTrue(filter.mightContain("ns:2"));
+
+        filter.remove("ns:1");
+        assertFalse(filter.mightContain("ns:1"));
+        assertTrue(filter.mightContain("ns:2"));
+
+        filter.clear();
+        assertFalse(filter.mightContain("ns:2"));
+    }
+
+    @Test
+    public void removeAddedTwice() {
+        filter.add("ns:1");
+        filter.add("ns:1");
+        filter.add("ns:2");
+
+        filter.remove("ns:1");
+        assertFalse(filter.mightContain("ns:1"));
+        assertTrue(filter.mightContain("ns:2"));
+    }
+
+    @Test
+    public void removeAddedTwiceConcurrently() throws InterruptedException {
+        final Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100; i++) {
+                    filter.add("ns:" + i);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        for (int i = 0; i < 100; i++) {
+            filter.remove("ns:" + i);
+            assertFalse(filter.mightContain("ns:" + i));
+        }
+    }
+
+    @Test
+    public void rotate() {
+        filter.add("ns:1");
+
+        clock.millis = 60000;
+        filter.add("ns:2");
+        assertTrue(filter.mightContain("ns:1"));
+
+        clock.millis = 120000;
+        assertFalse(filter.mightContain("ns:1"));
+        assertTrue(filter.mightContain("ns:2"));
+
+        // both generations are outdated
+        clock.millis = 300000;
+        assertFalse(filter.mightContain("ns:2"));
+    }
+
+    @Test
+    public void rotateWhenFull() {
+        for (int i = 0; i < 3000; i++) {
+            filter.add("ns:" + i);
+        }
+
+        assertFalse(filter.mightContain("ns:0"));
+        assertTrue(filter.mightContain("ns:1000"));
+        assertFalse(filter.mightContain("ns:999"));
+        assertTrue(filter.mightContain("ns:2999"));
+    }
+
+    @Test
+    public void falsePositiveRate() {
+        for (int i = 0; i < 1000; i++) {
+            filter.add("ns:" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 1000; i < 101000; i++) {
+            if (filter.mightContain("ns:" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue("False positives: " + falsePositives, falsePositives < 300);
+    }
+
+    @Test
+    public void concurrentAddAndRemove() throws InterruptedException {
+        final Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t * 200;
+            threads[t] = new Thread(() -> {
+                for (int i = offset; i < offset + 200; i++) {
+                    filter.add("ns:" + i);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int i = 0; i < 800; i++) {
+            assertTrue(filter.mightContain("ns:" + i));
+        }
+
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t * 200;
+            threads[t] = new Thread(() -> {
+                for (int i = offset; i < offset + 200; i++) {
+                    filter.remove("ns:" + i);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int i = 0; i < 800; i++) {
+            assertFalse(filter.mightContain("ns:" + i));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidFalsePositiveRate() {
+        new NegativeFilter(1000, 1, 60000);
+    }
+
+    private static class MutableClock extends Clock {
+
+        private long millis;
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(final ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+    }
+
+}
@@ -17,8 +17,10 @@
 package com.google.code.ssm.config;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.net.InetSocketAddress;
 import java.util.List;
@@ -120,4 +122,14 @@ public class DefaultAdressProviderTest {
         defaultAddressProvider.getAddresses();
     }
 
+    @Test
+    public void isChanged() {
+        List<InetSocketAddress> list = defaultAddressProvider.getAddresses("127.0.0.1:11211 127.0.0.1:11311");
+
+        assertTrue(defaultAddressProvider.isChanged(null, list));
+        assertFalse(defaultAddressProvider.isChanged(list, null));
+        assertFalse(defaultAddressProvider.isChanged(list, defaultAddressProvider.getAddresses("127.0.0.1:11311,127.0.0.1:11211")));
+        assertTrue(defaultAddressProvider.isChanged(list, defaultAddressProvider.getAddresses("127.0.0.1:11211 127.0.0.2:11311")));
+    }
+
 }
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.google.code.ssm.counter;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.code.ssm.Cache;
+import com.google.code.ssm.providers.CachedObject;
+import com.google.code.ssm.test.Matcher;
+import com.google.code.ssm.transcoders.HyperLogLogTranscoder;
+
+/**
+ * 
+ * @author Jakub Białek
+ * 
+ */
+public class DistinctCounterTest {
+
+    private final HyperLogLogTranscoder transcoder = new HyperLogLogTranscoder();
+
+    private final Map<String, CachedObject> storage = new HashMap<String, CachedObject>();
+
+    private Cache cache;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        cache = mock(Cache.class);
+        when(cache.getHyperLogLogs(anyCollectionOf(String.class))).thenAnswer(invocation -> {
+            Map<String, HyperLogLog> result = new HashMap<String, HyperLogLog>();
+            for (String key : (Collection<String>) invocation.getArgument(0)) {
+                if (storage.containsKey(key)) {
+                    result.put(key, (HyperLogLog) transcoder.decode(storage.get(key)));
+                }
+            }
+            return result;
+        });
+        doAnswer(invocation -> {
+            storage.put(invocation.getArgument(0), transcoder.encode(invocation.getArgument(2)));
+            return null;
+        }).when(cache).setHyperLogLog(anyString(), anyInt(), Matcher.any(HyperLogLog.class));
+    }
+
+    @Test
+    public void countAcrossSlots() throws Exception {
+        DistinctCounter node1 = new DistinctCounter(cache, 12, 4, 3600, 0);
+        DistinctCounter node2 = new DistinctCounter(cache, 12, 4, 3600, 3);
+        List<Integer> visitors = new ArrayList<Integer>();
+        for (int i = 0; i < 1000; i++) {
+            visitors.add(i);
+        }
+
+        node1.add("visitors", visitors.subList(0, 600));
+        node2.add("visitors", visitors.subList(400, 1000));
+
+        assertEquals(2, storage.size());
+        assertEquals(1000, node1.count("visitors"), 1000 * 4 * 0.0163);
+        assertEquals(node1.count("visitors"), node2.count("visitors"));
+    }
+
+    @Test
+    public void countUnionWithSingleBulkGet() throws Exception {
+        DistinctCounter counter = new DistinctCounter(cache, 12, 2, 3600, 1);
+        for (int i = 0; i < 300; i++) {
+            counter.add("day1", "user" + i);
+            counter.add("day2", "user" + (i + 200));
+        }
+
+        long union = counter.countUnion(Arrays.asList("day1", "day2"));
+
+        assertEquals(500, union, 500 * 4 * 0.0163);
+        verify(cache).getHyperLogLogs(Arrays.asList("day1#h0", "day1#h1", "day2#h0", "day2#h1"));
+    }
+
+    @Test
+    public void skipWriteWhenNothingChanged() throws Exception {
+        DistinctCounter counter = new DistinctCounter(cache, 12, 2, 3600, 0);
+
+        counter.add("visitors", "user1");
+        counter.add("visitors", "user1");
+
+        verify(cache, times(1)).setHyperLogLog(anyString(), anyInt(), Matcher.any(HyperLogLog.class));
+    }
+
+    @Test
+    public void countMissing() throws Exception {
+        DistinctCounter counter = new DistinctCounter(cache, 12, 2, 3600, 0);
+
+        assertEquals(0, counter.count("visitors"));
+        verify(cache, never()).setHyperLogLog(anyString(), anyInt(), Matcher.any(HyperLogLog.class));
+    }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.google.code.ssm.counter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * 
+ * @author Jakub Białek
+ * 
+ */
+public class HyperLogLogTest {
+
+    @Test
+    public void estimateWithinError() {
+        for (int cardinality : new int[] { 10, 1000, 100000, 1000000 }) {
+            HyperLogLog hll = new HyperLogLog(14);
+            for (int i = 0; i < cardinality; i++) {
+                hll.offer("user-" + i);
+            }
+
+            // 4 standard errors
+            assertEquals(cardinality, hll.cardinality(), cardinality * 4 * 0.0081 + 1);
+        }
+    }
+
+    @Test
+    public void duplicatesDoNotChangeEstimate() {
+        HyperLogLog hll = new HyperLogLog(10);
+        for (int i = 0; i < 100; i++) {
+            hll.offer(i);
+        }
+        long cardinality = hll.cardinality();
+
+        for (int i = 0; i < 100; i++) {
+            assertFalse(hll.offer(i));
+        }
+        assertEquals(cardinality, hll.cardinality());
+    }
+
+    @Test
+    public void mergeEstimatesUnion() {
+        HyperLogLog first = new HyperLogLog(14);
+        HyperLogLog second = new HyperLogLog(14);
+        for (int i = 0; i < 30000; i++) {
+            first.offer(i);
+            second.offer(i + 20000);
+        }
+
+        first.merge(second);
+
+        assertEquals(50000, first.cardinality(), 50000 * 4 * 0.0081);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void mergeDifferentPrecision() {
+        new HyperLogLog(10).merge(new HyperLogLog(11));
+    }
+
+    @Test
+    public void serializeSparse() {
+        HyperLogLog hll = new HyperLogLog(14);
+        hll.offer("a");
+        hll.offer("b");
+
+        byte[] bytes = hll.toBytes();
+
+        assertEquals(3 + 2 * 3, bytes.length);
+        assertEquals(hll, HyperLogLog.fromBytes(bytes));
+    }
+
+    @Test
+    public void serializeDense() {
+        HyperLogLog hll = new HyperLogLog(8);
+        for (int i = 0; i < 10000; i++) {
+            hll.offer(i);
+        }
+
+        byte[] bytes = hll.toBytes();
+
+        assertEquals(3 + 256, bytes.length);
+        assertEquals(hll, HyperLogLog.fromBytes(bytes));
+    }
+
+    @Test
+    public void emptySketch() {
+        HyperLogLog hll = new HyperLogLog(12);
+
+        assertTrue(hll.isEmpty());
+        assertEquals(0, hll.cardinality());
+        assertEquals(hll, HyperLogLog.fromBytes(hll.toBytes()));
+    }
+
+    @Test
+    public void precisionForError() {
+        assertEquals(14, HyperLogLog.precisionFor(0.01));
+        assertEquals(12, HyperLogLog.precisionFor(0.02));
+        assertEquals(HyperLogLog.MIN_PRECISION, HyperLogLog.precisionFor(0.5));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void precisionForTooSmallError() {
+        HyperLogLog.precisionFor(0.0001);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongPrecision() {
+        new HyperLogLog(HyperLogLog.MAX_PRECISION + 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownFormat() {
+        HyperLogLog.fromBytes(new byte[] { 9, 10, 0 });
+    }
+
+}
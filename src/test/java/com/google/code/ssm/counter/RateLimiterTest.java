@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.google.code.ssm.counter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.code.ssm.Cache;
+import com.google.code.ssm.api.counter.RateLimitAlgorithm;
+import com.google.code.ssm.providers.circuit.CircuitOpenException;
+
+/**
+ * 
+ * @author Jakub Białek
+ * 
+ */
+public class RateLimiterTest {
+
+    private static final String KEY = "api:user1";
+
+    private final Map<String, Long> counters = new HashMap<String, Long>();
+
+    private final MutableClock clock = new MutableClock();
+
+    private Cache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        cache = mock(Cache.class);
+        when(cache.incr(anyString(), anyInt(), anyLong(), anyInt())).thenAnswer(invocation -> {
+            String key = invocation.getArgument(0);
+            int by = invocation.getArgument(1);
+            counters.put(key, counters.containsKey(key) ? counters.get(key) + by : (Long) invocation.getArgument(2));
+            return counters.get(key);
+        });
+        when(cache.getCounter(anyString())).thenAnswer(invocation -> counters.get(invocation.getArgument(0)));
+        clock.millis = 10000;
+    }
+
+    @Test
+    public void fixedWindow() throws Exception {
+        RateLimiter rateLimiter = new RateLimiter(cache, 3, 10, RateLimitAlgorithm.FIXED_WINDOW, 1, clock);
+
+        assertTrue(rateLimiter.tryAcquire(KEY));
+        assertTrue(rateLimiter.tryAcquire(KEY));
+        assertTrue(rateLimiter.tryAcquire(KEY));
+        assertFalse(rateLimiter.tryAcquire(KEY));
+        verify(cache, times(4)).incr(KEY + "#w1", 1, 1L, 11);
+
+        // next window
+        clock.millis = 20000;
+        assertTrue(rateLimiter.tryAcquire(KEY));
+        assertTrue(rateLimiter.tryAcquire("api:user2"));
+    }
+
+    @Test
+    public void slidingWindow() throws Exception {
+        RateLimiter rateLimiter = new RateLimiter(cache, 10, 10, RateLimitAlgorithm.SLIDING_WINDOW, 1, clock);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(rateLimiter.tryAcquire(KEY));
+        }
+        assertFalse(rateLimiter.tryAcquire(KEY));
+        verify(cache, times(11)).incr(KEY + "#w1", 1, 1L, 21);
+
+        // 70% of the window later 30% of 11 calls of the previous window are still counted
+        clock.millis = 27000;
+        for (int i = 0; i < 6; i++) {
+            assertTrue(rateLimiter.tryAcquire(KEY));
+        }
+        assertFalse(rateLimiter.tryAcquire(KEY));
+        // the previous window is read once
+        verify(cache, times(1)).getCounter(KEY + "#w1");
+    }
+
+    @Test
+    public void preallocation() throws Exception {
+        RateLimiter rateLimiter = new RateLimiter(cache, 12, 10, RateLimitAlgorithm.FIXED_WINDOW, 5, clock);
+        for (int i = 0; i < 12; i++) {
+            assertTrue(rateLimiter.tryAcquire(KEY));
+        }
+        assertFalse(rateLimiter.tryAcquire(KEY));
+
+        // 12 calls served by 3 reservations, the last one granted only 2 calls
+        verify(cache, times(4)).incr(KEY + "#w1", 5, 5L, 11);
+    }
+
+    @Test
+    public void preallocationSharedByNodes() throws Exception {
+        RateLimiter node1 = new RateLimiter(cache, 8, 10, RateLimitAlgorithm.FIXED_WINDOW, 5, clock);
+        RateLimiter node2 = new RateLimiter(cache, 8, 10, RateLimitAlgorithm.FIXED_WINDOW, 5, clock);
+
+        assertTrue(node1.tryAcquire(KEY));
+        // only 3 calls left for the second node
+        assertTrue(node2.tryAcquire(KEY, 3));
+        assertFalse(node2.tryAcquire(KEY));
+        assertTrue(node1.tryAcquire(KEY, 4));
+        assertFalse(node1.tryAcquire(KEY));
+    }
+
+    @Test
+    public void failOpenWhenCircuitIsOpen() throws Exception {
+        doThrow(new CircuitOpenException("test")).when(cache).incr(anyString(), anyInt(), anyLong(), anyInt());
+        RateLimiter rateLimiter = new RateLimiter(cache, 1, 10, RateLimitAlgorithm.FIXED_WINDOW, 1, clock);
+
+        assertTrue(rateLimiter.tryAcquire(KEY));
+        assertTrue(rateLimiter.tryAcquire(KEY));
+        assertEquals(0, counters.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongLimit() {
+        new RateLimiter(cache, 0, 10, RateLimitAlgorithm.FIXED_WINDOW);
+    }
+
+    private static class MutableClock extends Clock {
+
+        private long millis;
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(final ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.google.code.ssm.counter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.code.ssm.Cache;
+
+/**
+ * 
+ * @author Jakub Białek
+ * 
+ */
+public class RollingCounterTest {
+
+    private static final String KEY = "logins:17";
+
+    private Cache cache;
+
+    private RollingCounter counter;
+
+    @Before
+    public void setUp() {
+        cache = mock(Cache.class);
+        // 1000 seconds since epoch, current bucket is 16 (60 seconds per bucket)
+        counter = new RollingCounter(cache, 300, 5, Clock.fixed(Instant.ofEpochSecond(1000), ZoneOffset.UTC));
+    }
+
+    @Test
+    public void incrementCurrentBucket() throws Exception {
+        when(cache.incr(KEY + "#b16", 1, 1L, 360)).thenReturn(4L);
+
+        assertEquals(4L, counter.increment(KEY));
+        verify(cache).incr(KEY + "#b16", 1, 1L, 360);
+
+        counter.add(KEY, 3);
+        verify(cache).incr(KEY + "#b16", 3, 3L, 360);
+    }
+
+    @Test
+    public void sumBucketsOfWindow() throws Exception {
+        Map<String, Long> buckets = new HashMap<String, Long>();
+        buckets.put(KEY + "#b12", 2L);
+        buckets.put(KEY + "#b16", 5L);
+        when(cache.getCounters(Arrays.asList(KEY + "#b12", KEY + "#b13", KEY + "#b14", KEY + "#b15", KEY + "#b16"))).thenReturn(buckets);
+
+        assertEquals(Long.valueOf(7L), counter.get(KEY));
+    }
+
+    @Test
+    public void noBuckets() throws Exception {
+        when(cache.getCounters(counter.getBucketKeys(KEY))).thenReturn(Collections.<String, Long> emptyMap());
+
+        assertNull(counter.get(KEY));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void windowNotDivisibleByBuckets() {
+        new RollingCounter(cache, 100, 3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void windowTooLong() {
+        new RollingCounter(cache, 60 * 60 * 24 * 30, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeDelta() throws Exception {
+        counter.add(KEY, -1);
+    }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.providers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.google.code.ssm.transcoders.RawTranscoder;
+
+/**
+ * 
+ * @author Jakub Białek
+ * 
+ */
+public class AbstractMemcacheClientWrapperTest {
+
+    private final CachedObject raw = new CachedObjectImpl(1, new byte[] { 1, 2 });
+
+    private AbstractMemcacheClientWrapper client;
+
+    private CacheTranscoder transcoder;
+
+    @Before
+    public void setUp() throws Exception {
+        client = Mockito.mock(AbstractMemcacheClientWrapper.class, Mockito.CALLS_REAL_METHODS);
+        transcoder = Mockito.mock(CacheTranscoder.class);
+        Mockito.when(transcoder.decode(raw)).thenReturn("value");
+    }
+
+    @Test
+    public void touchStoresRawItemWithNewExpiration() throws Exception {
+        Mockito.doReturn(raw).when(client).get(Mockito.eq("key"), Mockito.any(RawTranscoder.class));
+        Mockito.doReturn(true).when(client).set(Mockito.eq("key"), Mockito.eq(60), Mockito.same(raw), Mockito.any(RawTranscoder.class));
+
+        assertTrue(client.isTouchSupported());
+        assertTrue(client.touch("key", 60));
+        Mockito.verify(transcoder, Mockito.never()).decode(raw);
+    }
+
+    @Test
+    public void touchMissing() throws Exception {
+        assertFalse(client.touch("key", 60));
+        Mockito.verify(client, Mockito.never()).set(Mockito.anyString(), Mockito.anyInt(), Mockito.any(),
+                Mockito.any(CacheTranscoder.class));
+    }
+
+    @Test
+    public void getAndTouch() throws Exception {
+        Mockito.doReturn(raw).when(client).get(Mockito.eq("key"), Mockito.any(RawTranscoder.class));
+
+        assertEquals("value", client.getAndTouch("key", 60, transcoder));
+        assertNull(client.getAndTouch("other", 60, transcoder));
+        Mockito.verify(client).set(Mockito.eq("key"), Mockito.eq(60), Mockito.same(raw), Mockito.any(RawTranscoder.class));
+    }
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.providers;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+/**
+ * 
+ * @author Jakub Białek
+ * 
+ */
+public class ByteBufferCachedObjectTest {
+
+    private final byte[] data = new byte[] { 1, 2, 3, 4, 5, 6 };
+
+    @Test
+    public void shouldReturnBackingArrayIfBufferSpansWholeArray() {
+        ByteBufferCachedObject co = new ByteBufferCachedObject(3, ByteBuffer.wrap(data));
+
+        assertSame(data, co.getData());
+        assertEquals(3, co.getFlags());
+        assertEquals(6, co.getSize());
+    }
+
+    @Test
+    public void shouldCopyOnlySlice() {
+        ByteBufferCachedObject co = ByteBufferCachedObject.wrap(1, data, 2, 3);
+
+        assertArrayEquals(new byte[] { 3, 4, 5 }, co.getData());
+        assertEquals(3, co.getSize());
+        assertEquals(3, co.getBuffer().get());
+        // reading the view doesn't consume the data
+        assertEquals(3, co.getBuffer().remaining());
+        assertTrue(co.getBuffer().isReadOnly());
+    }
+
+    @Test
+    public void shouldSupportDirectBuffers() {
+        ByteBuffer direct = ByteBuffer.allocateDirect(6);
+        direct.put(data).flip();
+
+        assertArrayEquals(data, new ByteBufferCachedObject(0, direct).getData());
+    }
+
+}
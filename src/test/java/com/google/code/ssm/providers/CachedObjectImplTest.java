@@ -50,4 +50,13 @@ public class CachedObjectImplTest {
         assertEquals(flags, cachedObjectImpl.getFlags());
     }
 
+    @Test
+    public void wrapShouldNotCopyData() {
+        CachedObjectImpl wrapped = CachedObjectImpl.wrap(flags, data);
+
+        assertSame(data, wrapped.getData());
+        assertEquals(flags, wrapped.getFlags());
+        assertNotSame(data, cachedObjectImpl.getData());
+    }
+
 }
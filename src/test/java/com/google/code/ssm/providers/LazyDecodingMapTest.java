@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.providers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * 
+ * @author Jakub Białek
+ * 
+ */
+public class LazyDecodingMapTest {
+
+    private final CachedObject valid = new CachedObjectImpl(0, new byte[] { 1 });
+
+    private final CachedObject corrupted = new CachedObjectImpl(0, new byte[] { 2 });
+
+    private CacheTranscoder transcoder;
+
+    private LazyDecodingMap map;
+
+    @Before
+    public void setUp() {
+        transcoder = Mockito.mock(CacheTranscoder.class);
+        Mockito.when(transcoder.decode(valid)).thenReturn("value");
+        Mockito.when(transcoder.decode(corrupted)).thenReturn(null);
+
+        CacheTranscoder deferring = LazyDecodingMap.deferring(transcoder);
+        Map<String, Object> result = new HashMap<String, Object>();
+        result.put("key1", deferring.decode(valid));
+        result.put("key2", deferring.decode(corrupted));
+        map = LazyDecodingMap.wrap(result);
+    }
+
+    @Test
+    public void testDecodeOnceOnAccess() {
+        assertEquals(2, map.size());
+        assertTrue(map.isAvailable("key1"));
+        Mockito.verifyZeroInteractions(transcoder);
+
+        assertEquals("value", map.get("key1"));
+        assertEquals("value", map.get("key1"));
+        Mockito.verify(transcoder).decode(valid);
+        Mockito.verifyNoMoreInteractions(transcoder);
+    }
+
+    @Test
+    public void testNotDecodedValueIsRemoved() {
+        assertTrue(map.isAvailable("key2"));
+        assertNull(map.get("key2"));
+        assertFalse(map.isAvailable("key2"));
+        assertFalse(map.containsKey("key2"));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void testCopyAndRenameWithoutDecoding() {
+        LazyDecodingMap copy = new LazyDecodingMap();
+        copy.putAllLazily(map);
+        copy.putAllLazily(Collections.<String, Object> singletonMap("key3", "other"));
+        LazyDecodingMap renamed = copy.renameKeys(key -> "prefix-" + key);
+        Mockito.verifyZeroInteractions(transcoder);
+
+        assertEquals(3, renamed.size());
+        assertEquals("value", renamed.get("prefix-key1"));
+        assertEquals("other", renamed.get("prefix-key3"));
+    }
+
+    @Test
+    public void testEntriesAreDecodedOnIteration() {
+        Iterator<Map.Entry<String, Object>> iterator = map.entrySet().iterator();
+        Mockito.verifyZeroInteractions(transcoder);
+
+        // the value that cannot be decoded is skipped
+        Map.Entry<String, Object> entry = iterator.next();
+        assertEquals("key1", entry.getKey());
+        assertEquals("value", entry.getValue());
+        assertFalse(iterator.hasNext());
+        assertEquals(Collections.singletonMap("key1", "value"), new HashMap<String, Object>(map));
+        Mockito.verify(transcoder).decode(valid);
+        Mockito.verify(transcoder).decode(corrupted);
+        Mockito.verifyNoMoreInteractions(transcoder);
+    }
+
+    @Test
+    public void testConcurrentReads() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Object>> futures = new ArrayList<Future<Object>>();
+            for (int i = 0; i < 100; i++) {
+                futures.add(executor.submit(() -> map.get("key1")));
+                futures.add(executor.submit(() -> map.get("key2")));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                assertEquals(i % 2 == 0 ? "value" : null, futures.get(i).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(1, map.size());
+        assertTrue(map.containsKey("key1"));
+        assertFalse(map.containsKey("key2"));
+    }
+
+    @Test
+    public void testDecodeAllInParallel() {
+        CacheTranscoder deferring = LazyDecodingMap.deferring(transcoder);
+        Map<String, Object> result = new HashMap<String, Object>();
+        for (int i = 0; i < 100; i++) {
+            result.put("key" + i, deferring.decode(i % 10 == 0 ? corrupted : valid));
+        }
+        LazyDecodingMap lazy = LazyDecodingMap.wrap(result);
+        assertEquals(100, lazy.getEncodedSize());
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            lazy.decodeAll(executor, 4);
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(0, lazy.getEncodedSize());
+        assertEquals(90, lazy.size());
+        for (Object value : lazy.values()) {
+            assertEquals("value", value);
+        }
+        Mockito.verify(transcoder, Mockito.times(90)).decode(valid);
+    }
+
+    @Test
+    public void testEncodeNotDecodedValue() {
+        CacheTranscoder deferring = LazyDecodingMap.deferring(transcoder);
+        assertSame(valid, deferring.encode(deferring.decode(valid)));
+        Mockito.verify(transcoder, Mockito.never()).encode(Mockito.any());
+    }
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.providers.circuit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.google.code.ssm.providers.CacheClient;
+
+/**
+ * 
+ * @author Jakub Białek
+ * 
+ */
+public class CircuitBreakerCacheClientTest {
+
+    private CacheClient cacheClient;
+
+    private CircuitBreaker circuitBreaker;
+
+    private CircuitBreakerCacheClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        cacheClient = Mockito.mock(CacheClient.class);
+        final CircuitBreakerConfiguration configuration = new CircuitBreakerConfiguration();
+        configuration.setMinimumRequests(5);
+        configuration.setOpenDuration(50);
+        configuration.setHalfOpenProbes(1);
+        circuitBreaker = new CircuitBreaker("test", configuration);
+        client = new CircuitBreakerCacheClient(cacheClient, circuitBreaker);
+
+        Mockito.when(cacheClient.get("key")).thenThrow(new TimeoutException());
+        for (int i = 0; i < 5; i++) {
+            try {
+                client.get("key");
+            } catch (TimeoutException e) {
+                // expected
+            }
+        }
+        Mockito.reset(cacheClient);
+    }
+
+    @Test
+    public void shouldReturnMissWhenOpen() throws Exception {
+        assertNull(client.get("key"));
+        assertTrue(client.getBulk(Arrays.asList("a", "b")).isEmpty());
+        Mockito.verifyZeroInteractions(cacheClient);
+    }
+
+    @Test
+    public void shouldDropWritesWhenOpen() throws Exception {
+        assertFalse(client.set("key", 10, "value"));
+        assertFalse(client.add("key", 10, "value"));
+        assertFalse(client.delete("key"));
+        client.delete(Arrays.asList("a", "b"));
+        Mockito.verifyZeroInteractions(cacheClient);
+    }
+
+    @Test
+    public void shouldNotCloseOnProbeFailedWithRuntimeException() throws Exception {
+        Thread.sleep(60);
+        Mockito.when(cacheClient.get("key")).thenThrow(new IllegalStateException("cannot decode"));
+
+        try {
+            client.get("key");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        Mockito.reset(cacheClient);
+        client.get("key");
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test(expected = CircuitOpenException.class)
+    public void shouldFailCountersWhenOpen() throws Exception {
+        client.incr("key", 1, 0);
+    }
+
+}
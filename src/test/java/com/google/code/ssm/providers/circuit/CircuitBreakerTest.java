@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.providers.circuit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.code.ssm.providers.circuit.CircuitBreaker.State;
+
+/**
+ * 
+ * @author Jakub Białek
+ * 
+ */
+public class CircuitBreakerTest {
+
+    private final List<State> transitions = new ArrayList<State>();
+
+    private CircuitBreaker circuitBreaker;
+
+    @Before
+    public void setUp() {
+        final CircuitBreakerConfiguration configuration = new CircuitBreakerConfiguration();
+        configuration.setMinimumRequests(10);
+        configuration.setOpenDuration(50);
+        configuration.setHalfOpenProbes(2);
+        circuitBreaker = new CircuitBreaker("test", configuration);
+        circuitBreaker.addListener((name, from, to) -> transitions.add(to));
+    }
+
+    @Test
+    public void shouldStayClosedBelowMinimumRequests() {
+        for (int i = 0; i < 9; i++) {
+            assertTrue(circuitBreaker.allowRequest());
+            circuitBreaker.onFailure();
+        }
+
+        assertEquals(State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    public void shouldStayClosedBelowFailureRate() {
+        for (int i = 0; i < 20; i++) {
+            circuitBreaker.allowRequest();
+            if (i % 3 == 0) {
+                circuitBreaker.onFailure();
+            } else {
+                circuitBreaker.onSuccess();
+            }
+        }
+
+        assertEquals(State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    public void shouldOpenAndShortCircuit() {
+        open();
+
+        assertEquals(State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.allowRequest());
+        assertEquals(1, circuitBreaker.getShortCircuitedCount());
+    }
+
+    @Test
+    public void shouldCloseAfterSuccessfulProbes() throws Exception {
+        open();
+        Thread.sleep(60);
+
+        assertTrue(circuitBreaker.allowRequest());
+        assertTrue(circuitBreaker.allowRequest());
+        assertFalse(circuitBreaker.allowRequest());
+        assertEquals(State.HALF_OPEN, circuitBreaker.getState());
+
+        circuitBreaker.onSuccess();
+        circuitBreaker.onSuccess();
+
+        assertEquals(State.CLOSED, circuitBreaker.getState());
+        assertEquals(0, circuitBreaker.getFailureCount());
+        assertEquals(3, transitions.size());
+        assertEquals(State.CLOSED, transitions.get(2));
+    }
+
+    @Test
+    public void shouldOpenAgainAfterFailedProbe() throws Exception {
+        open();
+        Thread.sleep(60);
+
+        assertTrue(circuitBreaker.allowRequest());
+        circuitBreaker.onFailure();
+
+        assertEquals(State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.allowRequest());
+    }
+
+    @Test
+    public void shouldReleaseProbeOfIgnoredOperation() throws Exception {
+        open();
+        Thread.sleep(60);
+
+        assertTrue(circuitBreaker.allowRequest());
+        assertTrue(circuitBreaker.allowRequest());
+        circuitBreaker.onSuccess();
+        circuitBreaker.onIgnored();
+        assertEquals(State.HALF_OPEN, circuitBreaker.getState());
+
+        assertTrue(circuitBreaker.allowRequest());
+        circuitBreaker.onSuccess();
+        assertEquals(State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    public void shouldResetProbesWhenOpenedAgain() throws Exception {
+        open();
+        Thread.sleep(60);
+
+        assertTrue(circuitBreaker.allowRequest());
+        assertTrue(circuitBreaker.allowRequest());
+        circuitBreaker.onSuccess();
+        circuitBreaker.onFailure();
+        assertEquals(State.OPEN, circuitBreaker.getState());
+        Thread.sleep(60);
+
+        assertTrue(circuitBreaker.allowRequest());
+        circuitBreaker.onSuccess();
+        assertEquals(State.HALF_OPEN, circuitBreaker.getState());
+        assertTrue(circuitBreaker.allowRequest());
+        assertFalse(circuitBreaker.allowRequest());
+    }
+
+    @Test
+    public void shouldCloseOnReset() {
+        open();
+
+        circuitBreaker.reset();
+
+        assertEquals(State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.allowRequest());
+    }
+
+    private void open() {
+        for (int i = 0; i < 10; i++) {
+            circuitBreaker.allowRequest();
+            circuitBreaker.onFailure();
+        }
+    }
+
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.providers.hedged;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.google.code.ssm.providers.CacheClient;
+import com.google.code.ssm.providers.CacheException;
+import com.google.code.ssm.providers.CacheTranscoder;
+
+/**
+ * 
+ * @author Jakub Białek
+ * 
+ */
+public class HedgedCacheClientTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private CacheClient primary;
+
+    private CacheClient secondary;
+
+    private CacheTranscoder transcoder;
+
+    private HedgingConfiguration configuration;
+
+    @Before
+    public void setUp() {
+        primary = Mockito.mock(CacheClient.class);
+        secondary = Mockito.mock(CacheClient.class);
+        transcoder = Mockito.mock(CacheTranscoder.class);
+        configuration = new HedgingConfiguration();
+        configuration.setInitialDelay(20);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void shouldNotHedgeFastRead() throws Exception {
+        configuration.setInitialDelay(500);
+        Mockito.when(primary.get("key", transcoder, 1000L)).thenReturn("primary");
+        final HedgedCacheClient client = new HedgedCacheClient(primary, secondary, configuration, executor);
+
+        assertEquals("primary", client.get("key", transcoder));
+        assertEquals(0, client.getHedgeCount());
+        Mockito.verifyZeroInteractions(secondary);
+    }
+
+    @Test
+    public void shouldUseSecondaryIfPrimaryIsSlow() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(primary.get("key", transcoder, 1000L)).thenAnswer(invocation -> {
+            release.await();
+            return "primary";
+        });
+        Mockito.when(secondary.get(Mockito.eq("key"), Mockito.eq(transcoder), Mockito.anyLong())).thenReturn("secondary");
+        final HedgedCacheClient client = new HedgedCacheClient(primary, secondary, configuration, executor);
+
+        try {
+            assertEquals("secondary", client.get("key", transcoder));
+        } finally {
+            release.countDown();
+        }
+        assertEquals(1, client.getHedgeCount());
+        assertEquals(1, client.getSecondaryWinCount());
+        Mockito.verify(primary).get("key", transcoder, 1000L);
+    }
+
+    @Test
+    public void shouldUsePrimaryIfItAnswersBeforeHedge() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(primary.get("key", transcoder, 1000L)).thenAnswer(invocation -> {
+            Thread.sleep(60);
+            return "primary";
+        });
+        Mockito.when(secondary.get(Mockito.eq("key"), Mockito.eq(transcoder), Mockito.anyLong())).thenAnswer(invocation -> {
+            release.await();
+            return "secondary";
+        });
+        final HedgedCacheClient client = new HedgedCacheClient(primary, secondary, configuration, executor);
+
+        try {
+            assertEquals("primary", client.get("key", transcoder));
+        } finally {
+            release.countDown();
+        }
+        assertEquals(1, client.getHedgeCount());
+        assertEquals(0, client.getSecondaryWinCount());
+        Mockito.verify(primary).get("key", transcoder, 1000L);
+    }
+
+    @Test
+    public void shouldRecordLatencyOfPrimaryReadAnsweredAfterHedge() throws Exception {
+        configuration.setMinSamples(1);
+        final CountDownLatch primaryDone = new CountDownLatch(1);
+        Mockito.when(primary.get("key", transcoder, 1000L)).thenAnswer(invocation -> {
+            Thread.sleep(100);
+            primaryDone.countDown();
+            return "primary";
+        });
+        Mockito.when(secondary.get(Mockito.eq("key"), Mockito.eq(transcoder), Mockito.anyLong())).thenReturn("secondary");
+        final HedgedCacheClient client = new HedgedCacheClient(primary, secondary, configuration, executor);
+
+        assertEquals("secondary", client.get("key", transcoder));
+        assertTrue(primaryDone.await(1, TimeUnit.SECONDS));
+        final long end = System.currentTimeMillis() + 1000;
+        while (client.getHedgeDelay() < 100 && System.currentTimeMillis() < end) {
+            Thread.sleep(5);
+        }
+        assertTrue("Hedge delay: " + client.getHedgeDelay(), client.getHedgeDelay() >= 100);
+    }
+
+    @Test
+    public void shouldNotHedgeAboveRateLimit() throws Exception {
+        configuration.setMaxHedgeBurst(0);
+        configuration.setMaxHedgeRate(0);
+        Mockito.when(primary.get("key", transcoder, 1000L)).thenAnswer(invocation -> {
+            Thread.sleep(60);
+            return "primary";
+        });
+        final HedgedCacheClient client = new HedgedCacheClient(primary, secondary, configuration, executor);
+
+        assertEquals("primary", client.get("key", transcoder));
+        assertEquals(0, client.getHedgeCount());
+        Mockito.verify(primary).get("key", transcoder, 1000L);
+        Mockito.verifyZeroInteractions(secondary);
+    }
+
+    @Test
+    public void shouldSkipHedgeIfExecutorIsBusy() throws Exception {
+        configuration.setMaxHedgeThreads(1);
+        Mockito.when(primary.get("key", transcoder, 1000L)).thenAnswer(invocation -> {
+            Thread.sleep(60);
+            return "primary";
+        });
+        final HedgedCacheClient client = new HedgedCacheClient(primary, secondary, configuration, null);
+
+        try {
+            assertEquals("primary", client.get("key", transcoder));
+        } finally {
+            client.shutdown();
+        }
+        assertEquals(0, client.getHedgeCount());
+        Mockito.verify(primary).get("key", transcoder, 1000L);
+        Mockito.verify(secondary, Mockito.never()).get(Mockito.eq("key"), Mockito.eq(transcoder), Mockito.anyLong());
+    }
+
+    @Test
+    public void shouldReadOnCallingThreadIfExecutorIsBusy() throws Exception {
+        configuration.setMaxHedgeThreads(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Thread caller = Thread.currentThread();
+        Mockito.when(primary.get("other", transcoder, 1000L)).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return "other";
+        });
+        Mockito.when(primary.get("key", transcoder, 1000L)).thenAnswer(
+                invocation -> Thread.currentThread() == caller ? "primary" : null);
+        final HedgedCacheClient client = new HedgedCacheClient(primary, secondary, configuration, null);
+        final Future<Object> other = executor.submit(() -> client.get("other", transcoder));
+        try {
+            assertTrue(started.await(1, TimeUnit.SECONDS));
+
+            assertEquals("primary", client.get("key", transcoder));
+            Mockito.verify(secondary, Mockito.never()).get(Mockito.eq("key"), Mockito.eq(transcoder), Mockito.anyLong());
+        } finally {
+            release.countDown();
+        }
+        assertEquals("other", other.get());
+        client.shutdown();
+    }
+
+    @Test
+    public void shouldForwardProviderReads() throws Exception {
+        Mockito.when(primary.get("key")).thenReturn("primary");
+        Mockito.when(primary.getBulk(Collections.singletonList("key"))).thenReturn(
+                Collections.<String, Object> singletonMap("key", "primary"));
+        final HedgedCacheClient client = new HedgedCacheClient(primary, secondary, configuration, executor);
+
+        assertEquals("primary", client.get("key"));
+        assertEquals("primary", client.getBulk(Collections.singletonList("key")).get("key"));
+        Mockito.verify(primary, Mockito.never()).getTranscoder();
+    }
+
+    @Test
+    public void shouldReadFromSecondaryIfPrimaryFails() throws Exception {
+        // the failure is not hedged even if the executor is slow to start the primary read
+        configuration.setInitialDelay(500);
+        Mockito.when(primary.get(Mockito.eq("key"), Mockito.eq(transcoder), Mockito.anyLong())).thenThrow(
+                new CacheException(new RuntimeException()));
+        Mockito.when(secondary.get(Mockito.eq("key"), Mockito.eq(transcoder), Mockito.anyLong())).thenReturn("secondary");
+        final HedgedCacheClient client = new HedgedCacheClient(primary, secondary, configuration, executor);
+
+        assertEquals("secondary", client.get("key", transcoder));
+        assertEquals(0, client.getHedgeCount());
+    }
+
+    @Test
+    public void shouldWriteToBothPools() throws Exception {
+        Mockito.when(primary.set("key", 10, "value", transcoder)).thenReturn(true);
+        Mockito.when(secondary.set("key", 10, "value", transcoder)).thenThrow(new CacheException(new RuntimeException()));
+        final HedgedCacheClient client = new HedgedCacheClient(primary, secondary, configuration, executor);
+
+        assertTrue(client.set("key", 10, "value", transcoder));
+        Mockito.verify(secondary).set("key", 10, "value", transcoder);
+    }
+
+    @Test
+    public void shouldNotGetAndTouchIfSecondaryDoesNotSupportTouch() throws Exception {
+        Mockito.when(primary.isTouchSupported()).thenReturn(true);
+        final HedgedCacheClient client = new HedgedCacheClient(primary, secondary, configuration, executor);
+
+        assertFalse(client.isTouchSupported());
+        try {
+            client.getAndTouch("key", 10, transcoder);
+            fail("Expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        Mockito.verify(primary, Mockito.never()).getAndTouch("key", 10, transcoder);
+        Mockito.verify(secondary, Mockito.never()).getAndTouch("key", 10, transcoder);
+    }
+
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.providers.migration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.google.code.ssm.providers.CacheClient;
+import com.google.code.ssm.providers.CacheTranscoder;
+import com.google.code.ssm.providers.CachedObject;
+import com.google.code.ssm.providers.CachedObjectImpl;
+import com.google.code.ssm.transcoders.RawTranscoder;
+
+/**
+ * 
+ * @author Jakub Białek
+ * 
+ */
+public class MigratingCacheClientTest {
+
+    private final CachedObject raw = new CachedObjectImpl(0, new byte[] { 1, 2, 3 });
+
+    private CacheClient newClient;
+
+    private CacheClient oldClient;
+
+    private CacheTranscoder transcoder;
+
+    private MigrationConfiguration configuration;
+
+    private final AtomicReference<MigratingCacheClient> finished = new AtomicReference<MigratingCacheClient>();
+
+    private MigratingCacheClient client;
+
+    @Before
+    public void setUp() {
+        newClient = Mockito.mock(CacheClient.class);
+        oldClient = Mockito.mock(CacheClient.class);
+        transcoder = Mockito.mock(CacheTranscoder.class);
+        Mockito.when(transcoder.decode(raw)).thenReturn("value");
+        configuration = new MigrationConfiguration();
+        configuration.setWriteForwardExpiration(30);
+        client = new MigratingCacheClient(newClient, oldClient, configuration, finished::set);
+    }
+
+    @Test
+    public void shouldReadMissFromOldClientAndWriteForward() throws Exception {
+        Mockito.when(oldClient.get(Mockito.eq("key"), Mockito.any(RawTranscoder.class))).thenReturn(raw);
+
+        assertEquals("value", client.get("key", transcoder));
+        Mockito.verify(newClient).add(Mockito.eq("key"), Mockito.eq(30), Mockito.same(raw), Mockito.any(RawTranscoder.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void shouldReadBulkMissesFromOldClient() throws Exception {
+        Mockito.when(newClient.getBulk(Arrays.asList("a", "b"), transcoder)).thenReturn(Collections.<String, Object> singletonMap("a", "A"));
+        Mockito.when(oldClient.getBulk(Mockito.eq(Collections.singletonList("b")), Mockito.any(RawTranscoder.class))).thenReturn(
+                (Map) Collections.singletonMap("b", raw));
+
+        final Map<String, Object> result = client.getBulk(Arrays.asList("a", "b"), transcoder);
+
+        assertEquals(2, result.size());
+        assertEquals("A", result.get("a"));
+        assertEquals("value", result.get("b"));
+        Mockito.verify(newClient).add(Mockito.eq("b"), Mockito.eq(30), Mockito.same(raw), Mockito.any(RawTranscoder.class));
+    }
+
+    @Test
+    public void shouldGetAndTouchMissInOldClient() throws Exception {
+        Mockito.when(oldClient.get(Mockito.eq("key"), Mockito.any(RawTranscoder.class))).thenReturn(raw);
+        Mockito.when(oldClient.touch("other", 10)).thenReturn(true);
+        Mockito.when(oldClient.isTouchSupported()).thenReturn(true);
+
+        assertEquals("value", client.getAndTouch("key", 10, transcoder));
+        Mockito.verify(newClient).getAndTouch("key", 10, transcoder);
+        Mockito.verify(newClient).add(Mockito.eq("key"), Mockito.eq(30), Mockito.same(raw), Mockito.any(RawTranscoder.class));
+
+        assertTrue(client.touch("other", 10));
+        Mockito.verify(newClient).touch("other", 10);
+    }
+
+    @Test
+    public void shouldDeleteInBothClients() throws Exception {
+        client.delete("key");
+
+        Mockito.verify(newClient).delete("key");
+        Mockito.verify(oldClient).delete("key");
+    }
+
+    @Test
+    public void shouldWriteOnlyToNewClient() throws Exception {
+        client.set("key", 10, "value", transcoder);
+        client.incr("counter", 1, 0);
+
+        Mockito.verify(newClient).set("key", 10, "value", transcoder);
+        Mockito.verify(newClient).incr("counter", 1, 0);
+        Mockito.verifyZeroInteractions(oldClient);
+    }
+
+    @Test
+    public void shouldStopFallbackAndCloseOldClientAfterDrain() throws Exception {
+        configuration.setDrainTimeout(10);
+
+        client.finish();
+
+        assertFalse(client.isMigrating());
+        assertSame(client, finished.get());
+        assertNull(client.get("key", transcoder));
+        Mockito.verify(oldClient, Mockito.timeout(1000)).shutdown();
+        Mockito.verify(oldClient, Mockito.never()).get(Mockito.anyString(), Mockito.any(CacheTranscoder.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void shouldPrefetchRecentKeys() throws Exception {
+        Mockito.when(oldClient.getBulk(Mockito.eq(Arrays.asList("a", "b")), Mockito.any(RawTranscoder.class))).thenReturn(
+                (Map) Collections.singletonMap("a", raw));
+
+        client.start(Arrays.asList("a", "b"));
+
+        Mockito.verify(newClient, Mockito.timeout(1000)).add(Mockito.eq("a"), Mockito.eq(30), Mockito.same(raw),
+                Mockito.any(RawTranscoder.class));
+        client.shutdown();
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.providers.sharded;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+/**
+ * 
+ * @author Jakub Białek
+ * 
+ */
+public class KetamaNodeLocatorTest {
+
+    private static final int KEYS = 20000;
+
+    @Test
+    public void shouldSpreadKeysEvenly() {
+        final KetamaNodeLocator locator = new KetamaNodeLocator(Arrays.asList("a", "b", "c", "d"), Arrays.asList(1, 1, 1, 1), 160);
+
+        final int[] counts = count(locator, 4);
+        for (int count : counts) {
+            assertTrue("Unbalanced ring: " + Arrays.toString(counts), Math.abs(count - KEYS / 4) < KEYS / 4 * 0.2);
+        }
+    }
+
+    @Test
+    public void shouldRespectWeights() {
+        final KetamaNodeLocator locator = new KetamaNodeLocator(Arrays.asList("a", "b"), Arrays.asList(1, 3), 160);
+
+        final int[] counts = count(locator, 2);
+        assertTrue("Weights ignored: " + Arrays.toString(counts), counts[1] > counts[0] * 2);
+    }
+
+    @Test
+    public void shouldMoveOnlyKeysOfNewNode() {
+        final KetamaNodeLocator before = new KetamaNodeLocator(Arrays.asList("a", "b", "c"), Arrays.asList(1, 1, 1), 160);
+        final KetamaNodeLocator after = new KetamaNodeLocator(Arrays.asList("a", "b", "c", "d"), Arrays.asList(1, 1, 1, 1), 160);
+
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            final int node = after.getNode("key" + i);
+            if (node != before.getNode("key" + i)) {
+                assertEquals(3, node);
+                moved++;
+            }
+        }
+
+        assertTrue(moved < KEYS / 3);
+    }
+
+    @Test
+    public void shouldAlwaysReturnSingleNode() {
+        final KetamaNodeLocator locator = new KetamaNodeLocator(Collections.singletonList("a"), Collections.singletonList(1), 1);
+
+        assertEquals(0, locator.getNode("key"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectEmptyRing() {
+        new KetamaNodeLocator(Collections.<String> emptyList(), Collections.<Integer> emptyList(), 160);
+    }
+
+    private int[] count(final KetamaNodeLocator locator, final int nodes) {
+        final int[] counts = new int[nodes];
+        for (int i = 0; i < KEYS; i++) {
+            counts[locator.getNode("key" + i)]++;
+        }
+        return counts;
+    }
+
+}
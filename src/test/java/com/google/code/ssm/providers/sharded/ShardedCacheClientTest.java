@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.providers.sharded;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.google.code.ssm.providers.CacheClient;
+import com.google.code.ssm.providers.CacheTranscoder;
+
+/**
+ * 
+ * @author Jakub Białek
+ * 
+ */
+public class ShardedCacheClientTest {
+
+    private final List<CacheClient> shards = new ArrayList<CacheClient>();
+
+    private ShardedCacheClient client;
+
+    @SuppressWarnings("unchecked")
+    @Before
+    public void setUp() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            final CacheClient shard = Mockito.mock(CacheClient.class);
+            Mockito.when(shard.getBulk(Mockito.<Collection<String>> any())).thenAnswer(invocation -> {
+                final Map<String, Object> result = new HashMap<String, Object>();
+                for (String key : (Collection<String>) invocation.getArguments()[0]) {
+                    result.put(key, shard.toString() + key);
+                }
+                return result;
+            });
+            shards.add(shard);
+        }
+
+        client = new ShardedCacheClient(Arrays.asList("s0", "s1", "s2"), shards, Arrays.asList(1, 1, 1), 160, null);
+    }
+
+    @After
+    public void tearDown() {
+        client.shutdown();
+    }
+
+    @Test
+    public void shouldRouteSingleKeyToOwningShard() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            final String key = "key" + i;
+            client.set(key, 10, "value");
+            Mockito.verify(client.getShard(key)).set(key, 10, "value");
+        }
+    }
+
+    @Test
+    public void shouldSplitBulkGetPerShard() throws Exception {
+        final List<String> keys = new ArrayList<String>();
+        for (int i = 0; i < 100; i++) {
+            keys.add("key" + i);
+        }
+
+        final Map<String, Object> result = client.getBulk(keys);
+
+        assertEquals(keys.size(), result.size());
+        for (String key : keys) {
+            assertEquals(client.getShard(key).toString() + key, result.get(key));
+        }
+        for (CacheClient shard : shards) {
+            Mockito.verify(shard, Mockito.atMost(1)).getBulk(Mockito.<Collection<String>> any());
+        }
+    }
+
+    @Test
+    public void shouldReturnEmptyMapForEmptyBulkGet() throws Exception {
+        final CacheTranscoder transcoder = Mockito.mock(CacheTranscoder.class);
+
+        assertTrue(client.getBulk(Collections.<String> emptyList()).isEmpty());
+        assertTrue(client.getBulk(Collections.<String> emptyList(), transcoder).isEmpty());
+        assertTrue(client.getBulk(Collections.<String> emptyList(), transcoder, 100).isEmpty());
+        for (CacheClient shard : shards) {
+            Mockito.verifyZeroInteractions(shard);
+        }
+    }
+
+    @Test
+    public void shouldSplitBulkDeletePerShard() throws Exception {
+        final List<String> keys = Arrays.asList("a", "b", "c", "d", "e", "f");
+
+        client.delete(keys);
+
+        int deleted = 0;
+        for (CacheClient shard : shards) {
+            for (String key : keys) {
+                if (client.getShard(key) == shard) {
+                    deleted++;
+                }
+            }
+        }
+        assertEquals(keys.size(), deleted);
+        for (String key : keys) {
+            Mockito.verify(client.getShard(key)).delete(Mockito.<Collection<String>> argThat(c -> c != null && c.contains(key)));
+        }
+    }
+
+    @Test(expected = TimeoutException.class)
+    public void shouldPropagateShardTimeout() throws Exception {
+        for (CacheClient shard : shards) {
+            Mockito.doThrow(new TimeoutException()).when(shard).getBulk(Mockito.<Collection<String>> any());
+        }
+
+        final List<String> keys = new ArrayList<String>();
+        for (int i = 0; i < 100; i++) {
+            keys.add("key" + i);
+        }
+        client.getBulk(keys);
+    }
+
+    @Test
+    public void shouldExposeNativeClientsOfAllShards() {
+        for (CacheClient shard : shards) {
+            Mockito.when(shard.getNativeClient()).thenReturn(shard);
+        }
+
+        final List<?> clients = (List<?>) client.getNativeClient();
+        assertEquals(shards.size(), clients.size());
+        assertSame(shards.get(0), clients.get(0));
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.transcoders;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import com.google.code.ssm.aop.support.PertinentNegativeNull;
+import com.google.code.ssm.providers.CachedObject;
+import com.google.code.ssm.test.Point;
+import com.google.code.ssm.transcoders.compression.CompressionCodecs;
+import com.google.code.ssm.transcoders.compression.LzfCompressionCodec;
+
+/**
+ * 
+ * @author Jakub Białek
+ * 
+ */
+public class CompactBinaryTranscoderTest {
+
+    private final CompactBinaryTranscoder transcoder = new CompactBinaryTranscoder();
+
+    @Test
+    public void testEncodeAndDecodeSupportedTypes() {
+        List<Object> values = Arrays.<Object> asList("zażółć", "", true, false, (byte) -3, (short) 300, 'x', Integer.MIN_VALUE,
+                Long.MAX_VALUE, 1.5f, -2.25d, new Date(1234567890123L), Instant.ofEpochSecond(1234567890L, 987654321),
+                UUID.randomUUID());
+
+        for (Object value : values) {
+            CachedObject co = transcoder.encode(value);
+            assertEquals(value, transcoder.decode(co));
+            assertTrue(co.getData().length <= 16);
+        }
+
+        assertEquals(8, transcoder.encode(42L).getData().length);
+    }
+
+    @Test
+    public void testEncodeAndDecodeBytesAndNullMarker() {
+        byte[] bytes = new byte[] { 1, 2, 3 };
+        CachedObject co = transcoder.encode(bytes);
+        bytes[0] = 9;
+        assertArrayEquals(new byte[] { 1, 2, 3 }, (byte[]) transcoder.decode(co));
+
+        co = transcoder.encode(PertinentNegativeNull.NULL);
+        assertEquals(0, co.getData().length);
+        assertSame(PertinentNegativeNull.NULL, transcoder.decode(co));
+    }
+
+    @Test
+    public void testFallbackToJavaSerialization() {
+        Point p = new Point(40, 50);
+        assertEquals(p, transcoder.decode(transcoder.encode(p)));
+
+        // data stored by java transcoder are readable
+        assertEquals("text", transcoder.decode(new JavaTranscoder().encode("text")));
+        assertEquals(p, transcoder.decode(new JavaTranscoder().encode(p)));
+
+        // subclasses of supported types use java serialization
+        java.sql.Date date = new java.sql.Date(1000);
+        assertEquals(date, transcoder.decode(transcoder.encode(date)));
+    }
+
+    @Test
+    public void testCompressLongStrings() {
+        transcoder.setCompressionCodec(new LzfCompressionCodec());
+        transcoder.setCompressionThreshold(100);
+
+        char[] chars = new char[10000];
+        Arrays.fill(chars, 'a');
+        String value = new String(chars);
+
+        CachedObject co = transcoder.encode(value);
+        assertEquals(CompressionCodecs.LZF, CompressionCodecs.getCodecId(co.getFlags()));
+        assertTrue(co.getData().length < 1000);
+        assertEquals(value, transcoder.decode(co));
+        assertEquals(0, CompressionCodecs.getCodecId(transcoder.encode("short").getFlags()));
+    }
+
+}
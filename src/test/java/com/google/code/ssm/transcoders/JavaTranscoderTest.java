@@ -26,6 +26,8 @@ import org.junit.Test;
 
 import com.google.code.ssm.providers.CachedObject;
 import com.google.code.ssm.test.Point;
+import com.google.code.ssm.transcoders.compression.CompressionCodecs;
+import com.google.code.ssm.transcoders.compression.DeflateCompressionCodec;
 
 /**
  * 
@@ -71,4 +73,23 @@ public class JavaTranscoderTest {
         assertEquals(list, list2);
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testEncodeAndDecodeWithCompressionCodec() {
+        transcoder = new JavaTranscoder();
+        transcoder.setCompressionThreshold(1);
+        transcoder.setCompressionCodec(new DeflateCompressionCodec(1));
+
+        List<Point> list = new ArrayList<Point>();
+        list.add(new Point(40, 50));
+        list.add(new Point(40, 50));
+
+        CachedObject co = transcoder.encode(list);
+        assertEquals(CompressionCodecs.DEFLATE, CompressionCodecs.getCodecId(co.getFlags()));
+
+        transcoder.setCompressionCodec(null);
+        List<Point> list2 = (List<Point>) transcoder.decode(co);
+        assertEquals(list, list2);
+    }
+
 }
@@ -18,8 +18,12 @@ package com.google.code.ssm.transcoders;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.lang.reflect.Type;
 import java.util.Arrays;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -40,8 +44,15 @@ import com.fasterxml.jackson.databind.SerializerProvider;
 import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.google.code.ssm.mapper.JsonObjectMapper;
+import com.google.code.ssm.providers.CacheTranscoder;
 import com.google.code.ssm.providers.CachedObject;
 import com.google.code.ssm.test.Point;
+import com.google.code.ssm.transcoders.compression.CompressionCodecs;
+import com.google.code.ssm.transcoders.compression.CompressionDictionaries;
+import com.google.code.ssm.transcoders.compression.CompressionDictionary;
+import com.google.code.ssm.transcoders.compression.CompressionDictionaryTrainer;
+import com.google.code.ssm.transcoders.compression.DeflateCompressionCodec;
+import com.google.code.ssm.transcoders.compression.LzfCompressionCodec;
 
 /**
  * 
@@ -181,6 +192,93 @@ public class JsonTranscoderTest {
         return mapper;
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testEncodeAndDecodeWithCompression() {
+        transcoder = new JsonTranscoder(new JsonObjectMapper());
+        transcoder.setCompressionCodec(new LzfCompressionCodec());
+        transcoder.setCompressionThreshold(16);
+
+        List<Point> list = new ArrayList<Point>();
+        for (int i = 0; i < 100; i++) {
+            list.add(new Point(40, 50));
+        }
+
+        CachedObject co = transcoder.encode(list);
+        assertEquals(CompressionCodecs.LZF, CompressionCodecs.getCodecId(co.getFlags()));
+
+        // codec changed, previously compressed data are still readable
+        transcoder.setCompressionCodec(new DeflateCompressionCodec());
+        assertEquals(list, (List<Point>) transcoder.decode(co));
+    }
+
+    @Test
+    public void testEncodeAndDecodeWithDictionary() {
+        transcoder = new JsonTranscoder(new JsonObjectMapper());
+        transcoder.setDictionaryTrainer(new CompressionDictionaryTrainer());
+        for (int i = 0; i < 100; i++) {
+            transcoder.encode(new Point(i, 2 * i));
+        }
+
+        CompressionDictionary dictionary = transcoder.getDictionaryTrainer().train(101, 1024);
+        transcoder.setCompressionDictionaries(Collections.<Class<?>, CompressionDictionary> singletonMap(Point.class, dictionary));
+
+        Point p = new Point(1000, 2000);
+        CachedObject plain = new JsonTranscoder(new JsonObjectMapper()).encode(p);
+        CachedObject co = transcoder.encode(p);
+        assertEquals(CompressionCodecs.DEFLATE, CompressionCodecs.getCodecId(co.getFlags()));
+        assertEquals(101, CompressionDictionaries.getDictionaryId(co.getFlags()));
+        assertTrue(co.getData().length < plain.getData().length / 2);
+
+        // new version of dictionary, previously compressed data are still readable
+        transcoder.setCompressionDictionaries(Collections.<Class<?>, CompressionDictionary> emptyMap());
+        transcoder.setCompressionDictionary(new CompressionDictionary(102, new byte[] { 1, 2, 3 }));
+        assertEquals(p, transcoder.decode(co));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testEncodeAndDecodeWithType() throws Exception {
+        transcoder = new JsonTranscoder(new JsonObjectMapper());
+        transcoder.setTypeDirected(true);
+
+        List<Point> list = Arrays.asList(new Point(1, 2), new Point(3, 4));
+        Type type = TypedValues.class.getMethod("getPoints").getGenericReturnType();
+        CacheTranscoder typed = transcoder.forType(type);
+        assertSame(typed, transcoder.forType(type));
+
+        CachedObject co = typed.encode(list);
+        assertEquals("[{\"x\":1,\"y\":2},{\"x\":3,\"y\":4}]", new String(co.getData(), "UTF-8"));
+        assertTrue(co.getData().length < transcoder.encode(list).getData().length);
+        assertEquals(list, (List<Point>) typed.decode(co));
+
+        // typed json read without type is a miss
+        assertNull(transcoder.decode(co));
+
+        // legacy format and values of other types
+        assertEquals(list, typed.decode(transcoder.encode(list)));
+        CachedObject other = typed.encode("text");
+        assertEquals("text", typed.decode(other));
+        assertEquals("text", transcoder.decode(other));
+    }
+
+    @Test
+    public void testForTypeIfTypeDirectedDisabled() {
+        transcoder = new JsonTranscoder(new JsonObjectMapper());
+
+        assertSame(transcoder, transcoder.forType(Point.class));
+
+        transcoder.setTypeDirected(true);
+        assertSame(transcoder, transcoder.forType(Object.class));
+        assertSame(transcoder, transcoder.forType(null));
+        assertEquals(new Point(1, 1), transcoder.forType(Point.class).decode(transcoder.forType(Point.class).encode(new Point(1, 1))));
+        assertEquals(7, transcoder.forType(int.class).decode(transcoder.forType(int.class).encode(7)));
+    }
+
+    interface TypedValues {
+        List<Point> getPoints();
+    }
+
     static class PointSerializer extends JsonSerializer<Point> {
         @Override
         public void serialize(final Point value, final JsonGenerator jgen, final SerializerProvider provider) throws IOException {
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.transcoders;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.code.ssm.providers.CacheTranscoder;
+import com.google.code.ssm.providers.CachedObject;
+
+/**
+ * Compares encode and decode time and size of values stored by {@link JavaTranscoder} and
+ * {@link RegisteredClassTranscoder}. Run the main method, it's not a part of test suite.
+ * 
+ * @author Jakub Białek
+ * 
+ */
+public class RegisteredClassTranscoderBenchmark {
+
+    private static final int ITERATIONS = 200000;
+
+    public static void main(final String[] args) {
+        final JavaTranscoder java = new JavaTranscoder();
+        final RegisteredClassTranscoder binary = new RegisteredClassTranscoder();
+        final Map<Class<?>, Integer> classToId = new HashMap<Class<?>, Integer>();
+        classToId.put(RegisteredClassTranscoderTest.Order.class, 1);
+        classToId.put(RegisteredClassTranscoderTest.Item.class, 2);
+        classToId.put(RegisteredClassTranscoderTest.Status.class, 3);
+        binary.setClassToId(classToId);
+
+        for (int orders : new int[] { 1, 100 }) {
+            final List<RegisteredClassTranscoderTest.Order> value = new ArrayList<RegisteredClassTranscoderTest.Order>();
+            for (int i = 0; i < orders; i++) {
+                value.add(RegisteredClassTranscoderTest.createOrder());
+            }
+            final Object single = orders == 1 ? value.get(0) : value;
+            final int iterations = ITERATIONS / orders;
+
+            for (CacheTranscoder transcoder : new CacheTranscoder[] { java, binary }) {
+                java.setCompressionThreshold(Integer.MAX_VALUE);
+                binary.setCompressionThreshold(Integer.MAX_VALUE);
+                final CachedObject co = transcoder.encode(single);
+                final long encode = measure(iterations, () -> transcoder.encode(single));
+                final long decode = measure(iterations, () -> transcoder.decode(co));
+                System.out.println(String.format("%-26s orders: %4d, size: %7d B, encode: %9d ns/op, decode: %9d ns/op", transcoder
+                        .getClass().getSimpleName(), orders, co.getData().length, encode, decode));
+            }
+        }
+    }
+
+    private static long measure(final int iterations, final Runnable operation) {
+        for (int i = 0; i < iterations; i++) {
+            operation.run();
+        }
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            operation.run();
+        }
+        return (System.nanoTime() - start) / iterations;
+    }
+
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.transcoders;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import lombok.Data;
+
+import org.junit.Test;
+
+import com.google.code.ssm.providers.CachedObject;
+import com.google.code.ssm.test.Point;
+
+/**
+ * 
+ * @author Jakub Białek
+ * 
+ */
+public class RegisteredClassTranscoderTest {
+
+    private final RegisteredClassTranscoder transcoder = createTranscoder(Order.class);
+
+    @Test
+    public void testEncodeAndDecodeRegisteredClass() {
+        Order order = createOrder();
+
+        CachedObject co = transcoder.encode(order);
+        assertEquals(0x100, co.getFlags());
+        assertEquals(order, transcoder.decode(co));
+
+        Order empty = new Order();
+        assertEquals(empty, transcoder.decode(transcoder.encode(empty)));
+
+        List<Order> orders = new ArrayList<Order>(Arrays.asList(order, empty));
+        co = transcoder.encode(orders);
+        assertEquals(0x100, co.getFlags());
+        assertEquals(orders, transcoder.decode(co));
+    }
+
+    @Test
+    public void testSmallerThanJavaSerialization() {
+        Order order = createOrder();
+        JavaTranscoder javaTranscoder = new JavaTranscoder();
+        javaTranscoder.setCompressionThreshold(Integer.MAX_VALUE);
+
+        int binarySize = transcoder.encode(order).getData().length;
+        int javaSize = javaTranscoder.encode(order).getData().length;
+        assertTrue(binarySize + " vs " + javaSize, binarySize * 2 < javaSize);
+    }
+
+    @Test
+    public void testAddedAndRemovedFields() {
+        RegisteredClassTranscoder newTranscoder = createTranscoder(OrderV2.class);
+        Order order = createOrder();
+
+        OrderV2 newOrder = (OrderV2) newTranscoder.decode(transcoder.encode(order));
+        assertEquals(order.getId(), newOrder.getId());
+        assertEquals(order.getItems(), newOrder.getItems());
+        assertEquals("default", newOrder.getComment());
+
+        newOrder.setComment("new");
+        Order oldOrder = (Order) transcoder.decode(newTranscoder.encode(newOrder));
+        assertEquals(order.getId(), oldOrder.getId());
+        assertEquals(order.getItems(), oldOrder.getItems());
+        assertNull(oldOrder.getName());
+    }
+
+    @Test
+    public void testFallbackToJavaSerialization() {
+        Point p = new Point(40, 50);
+        assertEquals(p, transcoder.decode(transcoder.encode(p)));
+        assertEquals("text", transcoder.decode(transcoder.encode("text")));
+
+        // not registered nested type
+        Order order = createOrder();
+        order.setAttributes(new HashMap<String, Object>(Collections.singletonMap("point", p)));
+        CachedObject co = transcoder.encode(order);
+        assertEquals(0, co.getFlags() & 0x100);
+        assertEquals(order, transcoder.decode(co));
+
+        // data stored by java transcoder are readable
+        assertEquals(order, transcoder.decode(new JavaTranscoder().encode(order)));
+
+        // the class that failed is stored using java serialization from now on
+        Order supported = createOrder();
+        assertEquals(0, transcoder.encode(supported).getFlags() & 0x100);
+        assertEquals(supported, transcoder.decode(transcoder.encode(supported)));
+        assertEquals(0x100, transcoder.encode(new Item("book", 2, 19.99f)).getFlags());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicatedId() {
+        Map<Class<?>, Integer> classToId = new LinkedHashMap<Class<?>, Integer>();
+        classToId.put(Order.class, 1);
+        classToId.put(Item.class, 1);
+        new RegisteredClassTranscoder().setClassToId(classToId);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNotSupportedFieldType() {
+        new RegisteredClassTranscoder().setClassToId(Collections.<Class<?>, Integer> singletonMap(WithArray.class, 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNotRegisteredFieldType() {
+        new RegisteredClassTranscoder().setClassToId(Collections.<Class<?>, Integer> singletonMap(WithBigDecimal.class, 1));
+    }
+
+    private static RegisteredClassTranscoder createTranscoder(final Class<?> orderClass) {
+        Map<Class<?>, Integer> classToId = new HashMap<Class<?>, Integer>();
+        classToId.put(orderClass, 1);
+        classToId.put(Item.class, 2);
+        classToId.put(Status.class, 3);
+
+        RegisteredClassTranscoder transcoder = new RegisteredClassTranscoder();
+        transcoder.setClassToId(classToId);
+        return transcoder;
+    }
+
+    static Order createOrder() {
+        Order order = new Order();
+        order.setId(1234567890123L);
+        order.setName("zamówienie");
+        order.setCreated(new Date(1500000000000L));
+        order.setStatus(Status.SHIPPED);
+        order.setPaid(true);
+        order.setTotal(99.95);
+        order.setQuantity(-3);
+        order.setItems(new ArrayList<Item>(Arrays.asList(new Item("book", 2, 19.99f), new Item("pen", 10, 1.5f))));
+        order.setTags(new LinkedHashSet<String>(Arrays.asList("gift", "express")));
+        order.setAttributes(new HashMap<String, Object>(Collections.<String, Object> singletonMap("discount", 5L)));
+        order.setSignature(new byte[] { 1, 2, 3, 4 });
+        return order;
+    }
+
+    enum Status {
+        NEW, SHIPPED
+    }
+
+    @Data
+    static class Item implements java.io.Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private String name;
+
+        private int count;
+
+        private Float price;
+
+        Item() {
+        }
+
+        Item(final String name, final int count, final Float price) {
+            this.name = name;
+            this.count = count;
+            this.price = price;
+        }
+
+    }
+
+    @Data
+    static class Order implements java.io.Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private long id;
+
+        private String name;
+
+        private Date created;
+
+        private Status status;
+
+        private boolean paid;
+
+        private double total;
+
+        private Integer quantity;
+
+        private List<Item> items;
+
+        private Set<String> tags;
+
+        private Map<String, Object> attributes;
+
+        private byte[] signature;
+
+        private transient String cached;
+
+    }
+
+    @Data
+    static class OrderV2 {
+
+        private long id;
+
+        private List<Item> items;
+
+        private String comment = "default";
+
+    }
+
+    @Data
+    static class WithArray {
+
+        private int[] values;
+
+    }
+
+    @Data
+    static class WithBigDecimal {
+
+        private BigDecimal amount;
+
+    }
+
+}
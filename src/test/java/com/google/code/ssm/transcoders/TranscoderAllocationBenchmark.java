@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.transcoders;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.code.ssm.providers.CacheTranscoder;
+import com.google.code.ssm.providers.CachedObjectImpl;
+import com.google.code.ssm.test.Point;
+
+/**
+ * Measures bytes allocated per encode operation by the legacy encode path (growing ByteArrayOutputStream, toByteArray
+ * and copying constructor of cached object) and by the current transcoders (pooled buffers and ownership taking cached
+ * object). Run the main method, it's not a part of test suite.
+ * 
+ * @author Jakub Białek
+ * 
+ */
+public class TranscoderAllocationBenchmark {
+
+    private static final int WARMUP = 2000;
+
+    private static final int ITERATIONS = 5000;
+
+    private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(final String[] args) {
+        for (int points : new int[] { 10, 1000, 5000, 7200 }) {
+            final ArrayList<Point> value = createValue(points);
+            final JavaTranscoder transcoder = new JavaTranscoder();
+            // compression would dominate allocations
+            transcoder.setCompressionThreshold(Integer.MAX_VALUE);
+
+            final int size = transcoder.encode(value).getData().length;
+            final long legacy = measure(() -> new CachedObjectImpl(1, legacySerialize(value)));
+            final long pooled = measure(() -> transcoder.encode(value));
+
+            System.out.println(String.format("value size: %8d B, legacy: %8d B/op, pooled: %8d B/op, reduction: %5.1f%%", size,
+                    legacy, pooled, 100.0 * (legacy - pooled) / legacy));
+        }
+
+        final CacheTranscoder json = new JsonTranscoder(new com.google.code.ssm.mapper.JsonObjectMapper());
+        final List<Point> value = createValue(1000);
+        System.out.println(String.format("json value size: %8d B, pooled: %8d B/op", json.encode(value).getData().length,
+                measure(() -> json.encode(value))));
+    }
+
+    private static long measure(final Runnable operation) {
+        for (int i = 0; i < WARMUP; i++) {
+            operation.run();
+        }
+
+        final long threadId = Thread.currentThread().getId();
+        final long start = THREADS.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ITERATIONS; i++) {
+            operation.run();
+        }
+        return (THREADS.getThreadAllocatedBytes(threadId) - start) / ITERATIONS;
+    }
+
+    private static byte[] legacySerialize(final Object o) {
+        try {
+            final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            final ObjectOutputStream os = new ObjectOutputStream(bos);
+            os.writeObject(o);
+            os.close();
+            return bos.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private static ArrayList<Point> createValue(final int points) {
+        final ArrayList<Point> value = new ArrayList<Point>(points);
+        for (int i = 0; i < points; i++) {
+            value.add(new Point(i, -i));
+        }
+        return value;
+    }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.transcoders.compression;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * 
+ * @author Jakub Białek
+ * 
+ */
+@RunWith(Parameterized.class)
+public class CompressionCodecTest {
+
+    private final CompressionCodec codec;
+
+    public CompressionCodecTest(final CompressionCodec codec) {
+        this.codec = codec;
+    }
+
+    @Parameters
+    public static Collection<Object[]> data() {
+        return Arrays.asList(new Object[][] { { new DeflateCompressionCodec() }, { new DeflateCompressionCodec(1) },
+                { new LzfCompressionCodec() } });
+    }
+
+    @Test
+    public void shouldRoundTripEdgeCases() {
+        assertRoundTrip(new byte[0]);
+        assertRoundTrip(new byte[] { 1 });
+        assertRoundTrip(new byte[] { 1, 2 });
+        assertRoundTrip(new byte[] { 1, 1, 1, 1 });
+        assertRoundTrip(new byte[100000]);
+    }
+
+    @Test
+    public void shouldCompressRepetitiveData() {
+        final StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 1000; i++) {
+            json.append("{\"id\":").append(i).append(",\"name\":\"point\",\"x\":40,\"y\":50},");
+        }
+        final byte[] data = json.append("]").toString().getBytes(StandardCharsets.UTF_8);
+
+        final byte[] compressed = assertRoundTrip(data);
+        assertTrue(compressed.length < data.length / 3);
+    }
+
+    @Test
+    public void shouldRoundTripRandomData() {
+        final Random random = new Random(42);
+        for (int i = 0; i < 50; i++) {
+            final byte[] data = new byte[random.nextInt(70000)];
+            // mix of random and repeated fragments
+            for (int j = 0; j < data.length; j++) {
+                data[j] = j > 100 && random.nextInt(4) == 0 ? data[j - 1 - random.nextInt(100)] : (byte) random.nextInt(256);
+            }
+            assertRoundTrip(data);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldDetectTruncatedData() {
+        final Random random = new Random(42);
+        final byte[] data = new byte[1000];
+        random.nextBytes(data);
+        final byte[] compressed = codec.compress(data);
+        codec.decompress(Arrays.copyOf(compressed, compressed.length / 2));
+    }
+
+    private byte[] assertRoundTrip(final byte[] data) {
+        final byte[] compressed = codec.compress(data);
+        assertArrayEquals(data, codec.decompress(compressed));
+        return compressed;
+    }
+
+}
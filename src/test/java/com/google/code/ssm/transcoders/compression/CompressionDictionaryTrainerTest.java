@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.transcoders.compression;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.code.ssm.providers.CachedObjectImpl;
+
+/**
+ * 
+ * @author Jakub Białek
+ * 
+ */
+public class CompressionDictionaryTrainerTest {
+
+    private final Random random = new Random(7);
+
+    @Test
+    public void shouldTrainDictionaryReducingSizeOfSmallDocuments() {
+        final CompressionDictionaryTrainer trainer = new CompressionDictionaryTrainer();
+        for (int i = 0; i < 500; i++) {
+            trainer.sample(createDocument());
+        }
+
+        final CompressionDictionary dictionary = trainer.train(201, 4096);
+        assertNotNull(dictionary);
+        assertTrue(dictionary.getData().length <= 4096);
+
+        final DeflateCompressionCodec codec = new DeflateCompressionCodec();
+        final byte[] document = createDocument();
+        final byte[] plain = codec.compress(document);
+        final byte[] compressed = codec.compress(document, dictionary);
+        assertTrue(compressed.length * 2 < plain.length);
+        assertArrayEquals(document, codec.decompress(compressed, dictionary));
+    }
+
+    @Test
+    public void shouldKeepBoundedNumberOfSamples() {
+        final CompressionDictionaryTrainer trainer = new CompressionDictionaryTrainer(10, 5, 2);
+        for (int i = 0; i < 1000; i++) {
+            trainer.sample(createDocument());
+        }
+        assertEquals(10, trainer.getSampleCount());
+
+        trainer.clear();
+        assertEquals(0, trainer.getSampleCount());
+        assertNull(trainer.train(202, 4096));
+    }
+
+    @Test
+    public void shouldDecompressUsingDictionaryFromFlags() {
+        final CompressionDictionary dictionary = new CompressionDictionary(203, "{\"name\":\"point\",\"x\":".getBytes(StandardCharsets.UTF_8));
+        CompressionDictionaries.register(dictionary);
+        CompressionDictionaries.register(new CompressionDictionary(203, dictionary.getData()));
+
+        final byte[] document = createDocument();
+        final byte[] compressed = new DeflateCompressionCodec().compress(document, dictionary);
+        final int flags = CompressionCodecs.toFlags(CompressionCodecs.DEFLATE) | CompressionDictionaries.toFlags(203) | 8;
+
+        assertEquals(203, CompressionDictionaries.getDictionaryId(flags));
+        assertArrayEquals(document, CompressionCodecs.decompress(new CachedObjectImpl(flags, compressed)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldNotReplaceRegisteredDictionary() {
+        CompressionDictionaries.register(new CompressionDictionary(204, new byte[] { 1 }));
+        CompressionDictionaries.register(new CompressionDictionary(204, new byte[] { 2 }));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailIfDictionaryIsNotRegistered() {
+        CompressionDictionaries.get(205);
+    }
+
+    private byte[] createDocument() {
+        return String.format("{\"@class\":\"com.example.Customer\",\"id\":%d,\"firstName\":\"%s\",\"lastName\":\"%s\","
+                + "\"active\":%s,\"address\":{\"street\":\"%s\",\"zipCode\":\"%05d\"}}", random.nextInt(100000),
+                randomWord(), randomWord(), random.nextBoolean(), randomWord(), random.nextInt(99999)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private String randomWord() {
+        final char[] word = new char[4 + random.nextInt(6)];
+        for (int i = 0; i < word.length; i++) {
+            word[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(word);
+    }
+
+}
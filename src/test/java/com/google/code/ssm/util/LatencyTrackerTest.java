@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * 
+ * @author Jakub Białek
+ * 
+ */
+public class LatencyTrackerTest {
+
+    @Test
+    public void shouldReturnNoPercentileWithoutLatencies() {
+        assertEquals(-1, new LatencyTracker(1, TimeUnit.MINUTES).getPercentile(99));
+    }
+
+    @Test
+    public void shouldReturnPercentileWithinBucketError() {
+        final LatencyTracker tracker = new LatencyTracker(1, TimeUnit.MINUTES);
+        for (int i = 1; i <= 1000; i++) {
+            tracker.record(TimeUnit.MICROSECONDS.toNanos(i));
+        }
+
+        assertEquals(1000, tracker.getCount());
+        assertWithin(TimeUnit.MICROSECONDS.toNanos(500), tracker.getPercentile(50));
+        assertWithin(TimeUnit.MICROSECONDS.toNanos(990), tracker.getPercentile(99));
+    }
+
+    @Test
+    public void shouldMapEachValueToBucketContainingIt() {
+        for (long value = 1; value < 100000; value += 7) {
+            final int bucket = LatencyTracker.getBucket(value);
+            assertTrue(value <= LatencyTracker.getUpperBound(bucket));
+            assertTrue(bucket == 0 || value > LatencyTracker.getUpperBound(bucket - 1));
+        }
+    }
+
+    @Test
+    public void shouldForgetOldLatencies() throws Exception {
+        final LatencyTracker tracker = new LatencyTracker(10, TimeUnit.MILLISECONDS);
+        tracker.record(1000);
+
+        Thread.sleep(30);
+
+        assertEquals(0, tracker.getCount());
+    }
+
+    private void assertWithin(final long expected, final long actual) {
+        assertTrue(actual + " not close to " + expected, actual >= expected && actual <= expected * 1.25);
+    }
+
+}
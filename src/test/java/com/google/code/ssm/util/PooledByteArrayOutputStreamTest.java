@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.ObjectOutputStream;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * 
+ * @author Jakub Białek
+ * 
+ */
+public class PooledByteArrayOutputStreamTest {
+
+    @Test
+    public void shouldReuseReleasedBuffers() {
+        byte[] buffer = BufferPool.acquire(3000);
+        assertEquals(4096, buffer.length);
+
+        BufferPool.release(buffer);
+        assertSame(buffer, BufferPool.acquire(2049));
+        assertNotSame(buffer, BufferPool.acquire(4096));
+    }
+
+    @Test
+    public void shouldShareLargeBuffersBetweenThreads() throws Exception {
+        byte[] buffer = BufferPool.acquire(100000);
+        assertEquals(131072, buffer.length);
+        BufferPool.release(buffer);
+
+        AtomicReference<byte[]> acquired = new AtomicReference<byte[]>();
+        Thread thread = new Thread(() -> acquired.set(BufferPool.acquire(70000)));
+        thread.start();
+        thread.join();
+        assertSame(buffer, acquired.get());
+    }
+
+    @Test
+    public void shouldBoundSharedBuffers() {
+        int slots = BufferPool.SHARED_BYTES_PER_SIZE_CLASS / BufferPool.MAX_SIZE;
+        // empty the slots filled by other tests
+        for (int i = 0; i < slots; i++) {
+            BufferPool.acquire(BufferPool.MAX_SIZE);
+        }
+
+        Set<byte[]> released = Collections.newSetFromMap(new IdentityHashMap<byte[], Boolean>());
+        for (int i = 0; i <= slots; i++) {
+            byte[] buffer = new byte[BufferPool.MAX_SIZE];
+            released.add(buffer);
+            BufferPool.release(buffer);
+        }
+
+        int reused = 0;
+        for (int i = 0; i <= slots; i++) {
+            if (released.contains(BufferPool.acquire(BufferPool.MAX_SIZE))) {
+                reused++;
+            }
+        }
+        assertEquals(slots, reused);
+    }
+
+    @Test
+    public void shouldNotPoolBigOrForeignArrays() {
+        assertEquals(BufferPool.MAX_SIZE + 1, BufferPool.acquire(BufferPool.MAX_SIZE + 1).length);
+
+        byte[] foreign = new byte[3000];
+        BufferPool.release(foreign);
+        assertNotSame(foreign, BufferPool.acquire(3000));
+    }
+
+    @Test
+    public void getSizeClass() {
+        assertEquals(0, BufferPool.getSizeClass(1));
+        assertEquals(0, BufferPool.getSizeClass(1024));
+        assertEquals(1, BufferPool.getSizeClass(1025));
+        assertEquals(8, BufferPool.getSizeClass(BufferPool.MAX_SIZE));
+    }
+
+    @Test
+    public void shouldGrowAndKeepWrittenData() throws Exception {
+        byte[] data = new byte[100000];
+        new Random(1).nextBytes(data);
+
+        PooledByteArrayOutputStream out = new PooledByteArrayOutputStream();
+        out.write(data[0]);
+        out.write(data, 1, 999);
+        out.write(data, 1000, data.length - 1000);
+        out.close();
+
+        assertEquals(data.length, out.size());
+        assertArrayEquals(data, out.toByteArray());
+
+        out.reset();
+        out.write(data, 0, 10);
+        assertEquals(10, out.toByteArray().length);
+        out.release();
+        out.release();
+    }
+
+    @Test
+    public void shouldWorkWithObjectStream() throws Exception {
+        PooledByteArrayOutputStream out = new PooledByteArrayOutputStream();
+        ObjectOutputStream os = new ObjectOutputStream(out);
+        os.writeObject("value");
+        os.close();
+
+        assertEquals(out.size(), out.toByteArray().length);
+        out.release();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldFailAfterRelease() {
+        PooledByteArrayOutputStream out = new PooledByteArrayOutputStream();
+        out.release();
+        out.write(1);
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.util.file;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import com.google.code.ssm.config.AddressChangeListener;
+import com.google.code.ssm.config.FileAddressProvider;
+
+/**
+ * 
+ * @author Jakub Białek
+ * 
+ */
+public class FileChangeNotifierTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+
+    private FileChangeNotifier fileChangeNotifier;
+
+    private AddressChangeListener addressChangeListener;
+
+    @Before
+    public void setUp() throws Exception {
+        file = folder.newFile("memcached.addresses");
+        write("# memcached servers\n127.0.0.1:11211");
+
+        addressChangeListener = Mockito.mock(AddressChangeListener.class);
+        fileChangeNotifier = new FileChangeNotifier();
+        fileChangeNotifier.setFile(file.getPath());
+        fileChangeNotifier.setAddress("127.0.0.9:11211");
+        fileChangeNotifier.setDebounce(50);
+        fileChangeNotifier.setAddressChangeListener(addressChangeListener);
+        fileChangeNotifier.afterPropertiesSet();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        fileChangeNotifier.destroy();
+    }
+
+    @Test
+    public void getAddressesFromFile() {
+        assertEquals(Arrays.asList(new InetSocketAddress("127.0.0.1", 11211)), fileChangeNotifier.getAddresses());
+    }
+
+    @Test
+    public void getDefaultAddressesIfNoFile() {
+        FileAddressProvider provider = new FileAddressProvider(new File(folder.getRoot(), "missing").getPath(), "127.0.0.9:11211");
+
+        assertEquals(Arrays.asList(new InetSocketAddress("127.0.0.9", 11211)), provider.getAddresses());
+    }
+
+    @Test
+    public void getPreviousAddressesIfFileIsRemovedOrEmpty() throws Exception {
+        List<InetSocketAddress> expected = Arrays.asList(new InetSocketAddress("127.0.0.1", 11211));
+
+        write("");
+        assertEquals(expected, fileChangeNotifier.getAddresses());
+
+        write("127.0.0.1:port");
+        assertEquals(expected, fileChangeNotifier.getAddresses());
+
+        file.delete();
+        assertEquals(expected, fileChangeNotifier.getAddresses());
+        fileChangeNotifier.check();
+        Mockito.verifyZeroInteractions(addressChangeListener);
+    }
+
+    @Test
+    public void notifyOnChange() throws Exception {
+        write("127.0.0.1:11211\n127.0.0.2:11211");
+
+        List<InetSocketAddress> expected = Arrays.asList(new InetSocketAddress("127.0.0.1", 11211), new InetSocketAddress("127.0.0.2",
+                11211));
+        Mockito.verify(addressChangeListener, Mockito.timeout(15000)).changeAddresses(expected);
+    }
+
+    @Test
+    public void checkIgnoresReorderedAndInvalidAddresses() throws Exception {
+        write("127.0.0.1");
+        fileChangeNotifier.check();
+
+        write("127.0.0.1:11211 ");
+        fileChangeNotifier.check();
+
+        Mockito.verifyZeroInteractions(addressChangeListener);
+    }
+
+    private void write(final String content) throws Exception {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2019 Jakub Białek
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.google.code.ssm.util.jndi;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.google.code.ssm.config.AddressChangeListener;
+
+/**
+ * 
+ * @author Jakub Białek
+ * 
+ */
+public class ScheduledJndiChangeNotifierTest {
+
+    @Test
+    public void checkPeriodically() throws Exception {
+        final List<InetSocketAddress> first = Arrays.asList(new InetSocketAddress("127.0.0.1", 11211));
+        final List<InetSocketAddress> second = Arrays.asList(new InetSocketAddress("127.0.0.2", 11211));
+        final AddressChangeListener addressChangeListener = Mockito.mock(AddressChangeListener.class);
+        final ScheduledJndiChangeNotifier notifier = Mockito.spy(new ScheduledJndiChangeNotifier());
+        Mockito.doReturn(first).doReturn(first).doReturn(second).when(notifier).getAddresses();
+        notifier.setInterval(10);
+        notifier.setAddressChangeListener(addressChangeListener);
+
+        notifier.afterPropertiesSet();
+        try {
+            Mockito.verify(addressChangeListener, Mockito.timeout(1000)).changeAddresses(second);
+            Mockito.verify(addressChangeListener, Mockito.never()).changeAddresses(first);
+        } finally {
+            notifier.destroy();
+        }
+    }
+
+}